@@ -19,12 +19,12 @@ package org.apache.pdfbox.cos;
 import java.io.IOException;
 import java.util.Calendar;
 import java.util.Collection;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.pdfbox.pdmodel.common.COSObjectable;
 import org.apache.pdfbox.util.DateConverter;
+import org.apache.pdfbox.util.SmallMap;
 
 /**
  * This class represents a dictionary where name/value pairs reside.
@@ -38,9 +38,10 @@ public class COSDictionary extends COSBase
 
 	/**
 	 * The name-value pairs of this dictionary. The pairs are kept in the
-	 * order they were added to the dictionary.
+	 * order they were added to the dictionary. Most dictionaries only have a
+	 * few entries, so they are stored in a compact array based map.
 	 */
-	protected Map<COSName, COSBase> items = new LinkedHashMap<COSName, COSBase>();
+	protected Map<COSName, COSBase> items = new SmallMap<COSName, COSBase>();
 
 	/**
 	 * Constructor.
@@ -31,10 +31,12 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.io.RandomAccess;
 import org.apache.pdfbox.io.RandomAccessBuffer;
 import org.apache.pdfbox.io.RandomAccessFile;
+import org.apache.pdfbox.io.RandomAccessRead;
 import org.apache.pdfbox.pdfparser.NonSequentialPDFParser;
 import org.apache.pdfbox.pdfparser.PDFObjectStreamParser;
 import org.apache.pdfbox.pdmodel.interactive.digitalsignature.SignatureInterface;
 import org.apache.pdfbox.persistence.util.COSObjectKey;
+import org.apache.pdfbox.persistence.util.XrefTable;
 
 /**
  * This is the in-memory representation of the PDF document.  You need to call
@@ -57,14 +59,12 @@ public class COSDocument extends COSBase implements Closeable
      * Maps ObjectKeys to a COSObject. Note that references to these objects
      * are also stored in COSDictionary objects that map a name to a specific object.
      */
-    private final Map<COSObjectKey, COSObject> objectPool =
-        new HashMap<COSObjectKey, COSObject>();
+    private final COSObjectPool objectPool = new COSObjectPool();
 
     /**
      * Maps object and generation id to object byte offsets.
      */
-    private final Map<COSObjectKey, Long> xrefTable =
-        new HashMap<COSObjectKey, Long>();
+    private final XrefTable xrefTable = new XrefTable();
 
     /**
      * Document trailer dictionary.
@@ -83,12 +83,25 @@ public class COSDocument extends COSBase implements Closeable
 
     private final File tmpFile;
 
+    /**
+     * The source of all source-backed streams, see {@link COSStream#setFilteredSource}.
+     */
+    private RandomAccessRead streamSource;
+
+    /**
+     * The loader of the objects which are parsed on demand, see {@link #setObjectLoader}.
+     */
+    private ICOSObjectLoader objectLoader;
+
     private String headerString = "%PDF-" + version;
 
     private boolean warnMissingClose = true;
     
     /** signal that document is already decrypted, e.g. with {@link NonSequentialPDFParser} */
     private boolean isDecrypted = false;
+
+    /** signal that document was loaded read-only and may be shared by several threads */
+    private volatile boolean isReadOnly = false;
     
     private long startXref;
     
@@ -193,6 +206,35 @@ public class COSDocument extends COSBase implements Closeable
         }
     }
 
+    /**
+     * This will set the source the source-backed streams of this document are
+     * reading from. The source is closed when this document is closed.
+     *
+     * @param source the source of the source-backed streams
+     */
+    public void setStreamSource(RandomAccessRead source)
+    {
+        streamSource = source;
+    }
+
+    /**
+     * This will set the loader of all objects of the pool which aren't loaded yet,
+     * as well as of the objects added to the pool later on.
+     *
+     * @param loader the loader of the objects or null
+     */
+    public synchronized void setObjectLoader(ICOSObjectLoader loader)
+    {
+        objectLoader = loader;
+        for (COSObject object : objectPool.values())
+        {
+            if (!object.isLoaded())
+            {
+                object.setLoader(loader);
+            }
+        }
+    }
+
     /**
      * Create a new COSStream using the underlying scratch file.
      * 
@@ -353,6 +395,27 @@ public class COSDocument extends COSBase implements Closeable
         isDecrypted = true;
     }
 
+    /**
+     * Signals that the document was loaded read-only. All objects are parsed and
+     * decrypted, so that several threads may read the document at the same time,
+     * e.g. to render or extract different pages. The document must not be
+     * modified while it is used by more than one thread.
+     */
+    public void setReadOnly()
+    {
+        isReadOnly = true;
+    }
+
+    /**
+     * Indicates whether the document was loaded read-only.
+     *
+     * @return true if the document was loaded read-only
+     */
+    public boolean isReadOnly()
+    {
+        return isReadOnly;
+    }
+
     /**
      * This will tell if this is an encrypted document.
      *
@@ -518,7 +581,7 @@ public class COSDocument extends COSBase implements Closeable
      */
     public List<COSObject> getObjects()
     {
-        return new ArrayList<COSObject>(objectPool.values());
+        return objectPool.values();
     }
 
     /**
@@ -564,11 +627,18 @@ public class COSDocument extends COSBase implements Closeable
     {
         if (!closed) 
         {
+            // the objects which weren't loaded yet can't be loaded anymore
+            setObjectLoader(null);
             scratchFile.close();
             if (tmpFile != null) 
             {
                 tmpFile.delete();
             }
+            if (streamSource != null)
+            {
+                streamSource.close();
+                streamSource = null;
+            }
             if (trailer != null)
             {
             	trailer.clear();
@@ -665,9 +735,11 @@ public class COSDocument extends COSBase implements Closeable
             for( COSObject next : parser.getObjects() )
             {
                 COSObjectKey key = new COSObjectKey( next );
-                if ( objectPool.get(key) == null || objectPool.get(key).getObject() == null ||
+                COSObject pooled = objectPool.get(key);
+                if ( pooled == null || pooled.getObject() == null ||
                      // xrefTable stores negated objNr of objStream for objects in objStreams
-                     (xrefTable.containsKey(key) && xrefTable.get(key) == -objStream.getObjectNumber().longValue()) )
+                     (xrefTable.getOffset(key.getNumber(), key.getGeneration(), 0)
+                             == -objStream.getObjectNumber().longValue()) )
                 {
                     COSObject obj = getObjectFromPool(key);
                     obj.setObject(next.getObject());
@@ -677,7 +749,8 @@ public class COSDocument extends COSBase implements Closeable
     }
 
     /**
-     * This will get an object from the pool.
+     * This will get an object from the pool. The pool may be accessed by several threads
+     * while the object streams are parsed in parallel.
      *
      * @param key The object key.
      *
@@ -685,7 +758,7 @@ public class COSDocument extends COSBase implements Closeable
      *
      * @throws IOException If there is an error getting the proxy object.
      */
-    public COSObject getObjectFromPool(COSObjectKey key) throws IOException
+    public synchronized COSObject getObjectFromPool(COSObjectKey key) throws IOException
     {
         COSObject obj = null;
         if( key != null )
@@ -700,6 +773,7 @@ public class COSDocument extends COSBase implements Closeable
             {
                 obj.setObjectNumber( COSInteger.get( key.getNumber() ) );
                 obj.setGenerationNumber( COSInteger.get( key.getGeneration() ) );
+                obj.setLoader(objectLoader);
                 objectPool.put(key, obj);
             }
         }
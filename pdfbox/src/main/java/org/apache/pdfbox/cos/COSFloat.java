@@ -28,7 +28,12 @@ import java.math.BigDecimal;
  */
 public class COSFloat extends COSNumber
 {
-    private BigDecimal value;
+    // decimal numbers with up to 6 significant digits survive the conversion to float and back
+    private static final int FLOAT_DIGITS = 6;
+
+    private float value;
+    // the textual form of the value which is created when the value is written, or the parsed
+    // text if the textual form of the float value would lose digits of it
     private String valueAsString;
 
     /**
@@ -50,15 +55,103 @@ public class COSFloat extends COSNumber
      */
     public COSFloat( String aFloat ) throws IOException
     {
-        try
+        // Float.parseFloat() accepts more than numbers, e.g. "Infinity", "1.5f" or hex floats
+        int significantDigits = getSignificantDigits( aFloat );
+        if (significantDigits < 0)
         {
-            valueAsString = aFloat; 
-            value = new BigDecimal( valueAsString );
+            throw new IOException( "Error expected floating point number actual='" +aFloat + "'" );
         }
-        catch( NumberFormatException e )
+        float parsedValue = Float.parseFloat( aFloat );
+        // values out of range are limited to the largest float value
+        if (parsedValue == Float.POSITIVE_INFINITY)
         {
-            throw new IOException( "Error expected floating point number actual='" +aFloat + "'" );
+            parsedValue = Float.MAX_VALUE;
+        }
+        else if (parsedValue == Float.NEGATIVE_INFINITY)
+        {
+            parsedValue = -Float.MAX_VALUE;
+        }
+        else if (significantDigits > FLOAT_DIGITS && aFloat.indexOf('e') == -1 && aFloat.indexOf('E') == -1)
+        {
+            // keep the original text, so that the precision of the number survives a round-trip,
+            // numbers with exponents aren't valid PDF syntax and are written in plain notation
+            valueAsString = aFloat;
+        }
+        value = parsedValue;
+    }
+
+    /**
+     * Checks the syntax of a real number, i.e. an optional sign, digits with an optional
+     * decimal point and, deviating from the PDF syntax, an optional exponent.
+     *
+     * @param number the text of the number
+     * @return the number of significant digits of the mantissa, or -1 if the text isn't a number
+     */
+    private static int getSignificantDigits( String number )
+    {
+        int length = number.length();
+        int i = 0;
+        if (length > 0 && (number.charAt(0) == '+' || number.charAt(0) == '-'))
+        {
+            i++;
+        }
+        int digits = 0;
+        int significantDigits = 0;
+        // zeros which are only significant if a non-zero digit follows
+        int pendingZeros = 0;
+        boolean decimalPoint = false;
+        for (; i < length; i++)
+        {
+            char c = number.charAt(i);
+            if (c == '0')
+            {
+                digits++;
+                if (significantDigits > 0)
+                {
+                    pendingZeros++;
+                }
+            }
+            else if (c >= '1' && c <= '9')
+            {
+                digits++;
+                significantDigits += pendingZeros + 1;
+                pendingZeros = 0;
+            }
+            else if (c == '.' && !decimalPoint)
+            {
+                decimalPoint = true;
+            }
+            else
+            {
+                break;
+            }
+        }
+        if (digits == 0)
+        {
+            return -1;
         }
+        if (i < length)
+        {
+            char c = number.charAt(i++);
+            if (c != 'e' && c != 'E')
+            {
+                return -1;
+            }
+            if (i < length && (number.charAt(i) == '+' || number.charAt(i) == '-'))
+            {
+                i++;
+            }
+            int exponentStart = i;
+            while (i < length && number.charAt(i) >= '0' && number.charAt(i) <= '9')
+            {
+                i++;
+            }
+            if (i == exponentStart || i < length)
+            {
+                return -1;
+            }
+        }
+        return significantDigits;
     }
 
     /**
@@ -68,10 +161,24 @@ public class COSFloat extends COSNumber
      */
     public void setValue( float floatValue )
     {
-        // use a BigDecimal as intermediate state to avoid 
-        // a floating point string representation of the float value
-        value = new BigDecimal(String.valueOf(floatValue));
-        valueAsString = removeNullDigits(value.toPlainString());
+        value = floatValue;
+        valueAsString = null;
+    }
+
+    private String getValueAsString()
+    {
+        if (valueAsString == null)
+        {
+            String floatString = String.valueOf(value);
+            if (floatString.indexOf('E') > -1)
+            {
+                // use a BigDecimal as intermediate state to avoid
+                // a floating point string representation of the float value
+                floatString = removeNullDigits(new BigDecimal(floatString).toPlainString());
+            }
+            valueAsString = floatString;
+        }
+        return valueAsString;
     }
 
     private String removeNullDigits(String value)
@@ -94,7 +201,7 @@ public class COSFloat extends COSNumber
      */
     public float floatValue()
     {
-        return value.floatValue();
+        return value;
     }
 
     /**
@@ -104,7 +211,7 @@ public class COSFloat extends COSNumber
      */
     public double doubleValue()
     {
-        return value.doubleValue();
+        return value;
     }
 
     /**
@@ -114,7 +221,7 @@ public class COSFloat extends COSNumber
      */
     public long longValue()
     {
-        return value.longValue();
+        return (long) value;
     }
 
     /**
@@ -124,7 +231,7 @@ public class COSFloat extends COSNumber
      */
     public int intValue()
     {
-        return value.intValue();
+        return (int) value;
     }
 
     /**
@@ -132,7 +239,7 @@ public class COSFloat extends COSNumber
      */
     public boolean equals( Object o )
     {
-        return o instanceof COSFloat && Float.floatToIntBits(((COSFloat)o).value.floatValue()) == Float.floatToIntBits(value.floatValue());
+        return o instanceof COSFloat && Float.floatToIntBits(((COSFloat)o).value) == Float.floatToIntBits(value);
     }
 
     /**
@@ -140,7 +247,7 @@ public class COSFloat extends COSNumber
      */
     public int hashCode()
     {
-        return value.hashCode();
+        return Float.floatToIntBits(value);
     }
 
     /**
@@ -148,7 +255,7 @@ public class COSFloat extends COSNumber
      */
     public String toString()
     {
-        return "COSFloat{" + valueAsString + "}";
+        return "COSFloat{" + getValueAsString() + "}";
     }
 
     /**
@@ -171,6 +278,6 @@ public class COSFloat extends COSNumber
      */
     public void writePDF( OutputStream output ) throws IOException
     {
-        output.write(valueAsString.getBytes("ISO-8859-1"));
+        output.write(getValueAsString().getBytes("ISO-8859-1"));
     }
 }
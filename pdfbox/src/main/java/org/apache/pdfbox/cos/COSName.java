@@ -18,6 +18,7 @@ package org.apache.pdfbox.cos;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -455,6 +456,15 @@ public final class COSName extends COSBase implements Comparable<COSName>
     // Y
     public static final COSName Y_STEP = new COSName("YStep");
 
+    // open addressing table of the common names, keyed by the hash of their bytes
+    // it is created after all constants and never modified afterwards
+    private static final COSName[] commonNameTable = createCommonNameTable();
+
+    // cache of recently used document specific names, keyed by the hash of their bytes
+    // entries may be overwritten at any time, they are only a shortcut for the nameMap
+    private static final int NAME_CACHE_SIZE = 1024;
+    private static final COSName[] nameCache = new COSName[NAME_CACHE_SIZE];
+
     // fields
     private final String name;
     private final int hashCode;
@@ -487,6 +497,91 @@ public final class COSName extends COSBase implements Comparable<COSName>
         return name;
     }
 
+    /**
+     * This will get a COSName object with the name given as ISO-8859-1 bytes, as they are read
+     * from a PDF. Well known and recently used names are found without creating a String.
+     * 
+     * @param bytes The buffer containing the name, without the leading slash and escapes.
+     * @param offset The offset of the name within the buffer.
+     * @param length The length of the name.
+     * 
+     * @return A COSName with the specified name.
+     */
+    public static COSName getPDFName(byte[] bytes, int offset, int length)
+    {
+        // same value as the hash code of the decoded string
+        int hash = 0;
+        for (int i = 0; i < length; i++)
+        {
+            hash = 31 * hash + (bytes[offset + i] & 0xff);
+        }
+        int mask = commonNameTable.length - 1;
+        for (int index = spread(hash) & mask; commonNameTable[index] != null; index = (index + 1) & mask)
+        {
+            if (commonNameTable[index].matches(hash, bytes, offset, length))
+            {
+                return commonNameTable[index];
+            }
+        }
+        int cacheIndex = spread(hash) & (NAME_CACHE_SIZE - 1);
+        COSName name = nameCache[cacheIndex];
+        if (name == null || !name.matches(hash, bytes, offset, length))
+        {
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++)
+            {
+                chars[i] = (char) (bytes[offset + i] & 0xff);
+            }
+            name = getPDFName(new String(chars));
+            nameCache[cacheIndex] = name;
+        }
+        return name;
+    }
+
+    private static int spread(int hash)
+    {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static COSName[] createCommonNameTable()
+    {
+        int size = 1;
+        while (size < commonNameMap.size() * 4)
+        {
+            size <<= 1;
+        }
+        COSName[] table = new COSName[size];
+        for (COSName name : commonNameMap.values())
+        {
+            int index = spread(name.hashCode) & (size - 1);
+            while (table[index] != null)
+            {
+                index = (index + 1) & (size - 1);
+            }
+            table[index] = name;
+        }
+        return table;
+    }
+
+    /**
+     * Checks if this name consists of the given ISO-8859-1 bytes.
+     */
+    private boolean matches(int hash, byte[] bytes, int offset, int length)
+    {
+        if (hashCode != hash || name.length() != length)
+        {
+            return false;
+        }
+        for (int i = 0; i < length; i++)
+        {
+            if (name.charAt(i) != (bytes[offset + i] & 0xff))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Private constructor. This will limit the number of COSName objects. that are created.
      * 
@@ -609,5 +704,6 @@ public final class COSName extends COSBase implements Comparable<COSName>
     {
         // Clear them all
         nameMap.clear();
+        Arrays.fill(nameCache, null);
     }
 }
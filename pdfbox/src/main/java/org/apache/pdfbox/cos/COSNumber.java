@@ -93,7 +93,7 @@ public abstract class COSNumber extends COSBase
                 throw new IOException("Not a number: " + number);
             }
         } 
-        else if (number.indexOf('.') == -1 && (number.toLowerCase().indexOf('e') == -1)) 
+        else if (isInteger(number)) 
         {
             try
             {
@@ -109,4 +109,23 @@ public abstract class COSNumber extends COSBase
             return new COSFloat(number);
         }
     }
+
+    /**
+     * Checks if the given number has neither a fraction nor an exponent.
+     *
+     * @param number The string representation of the number.
+     * @return true if the number is an integer
+     */
+    private static boolean isInteger( String number )
+    {
+        for (int i = 0; i < number.length(); i++)
+        {
+            char c = number.charAt(i);
+            if (c == '.' || c == 'e' || c == 'E')
+            {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -18,6 +18,9 @@ package org.apache.pdfbox.cos;
 
 import java.io.IOException;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
 /**
  * This class represents a PDF object.
  *
@@ -26,9 +29,15 @@ import java.io.IOException;
  */
 public class COSObject extends COSBase
 {
+    /**
+     * Log instance.
+     */
+    private static final Log LOG = LogFactory.getLog(COSObject.class);
+
     private COSBase baseObject;
     private COSInteger objectNumber;
     private COSInteger generationNumber;
+    private ICOSObjectLoader loader;
 
     /**
      * Constructor.
@@ -53,9 +62,10 @@ public class COSObject extends COSBase
     public COSBase getDictionaryObject( COSName key )
     {
         COSBase retval =null;
-        if( baseObject instanceof COSDictionary )
+        COSBase object = getObject();
+        if( object instanceof COSDictionary )
         {
-            retval = ((COSDictionary)baseObject).getDictionaryObject( key );
+            retval = ((COSDictionary)object).getDictionaryObject( key );
         }
         return retval;
     }
@@ -70,23 +80,60 @@ public class COSObject extends COSBase
     public COSBase getItem( COSName key )
     {
         COSBase retval =null;
-        if( baseObject instanceof COSDictionary )
+        COSBase object = getObject();
+        if( object instanceof COSDictionary )
         {
-            retval = ((COSDictionary)baseObject).getItem( key );
+            retval = ((COSDictionary)object).getItem( key );
         }
         return retval;
     }
 
     /**
-     * This will get the object that this object encapsulates.
+     * This will get the object that this object encapsulates. The object is loaded
+     * if this is the first access and a loader is set.
      *
      * @return The encapsulated object.
      */
     public COSBase getObject()
     {
+        if( baseObject == null && loader != null )
+        {
+            ICOSObjectLoader objectLoader = loader;
+            // the loader is only asked once, even if the object doesn't exist
+            loader = null;
+            try
+            {
+                baseObject = objectLoader.load( this );
+            }
+            catch( IOException e )
+            {
+                LOG.error( "Can't load object " + this, e );
+            }
+        }
         return baseObject;
     }
 
+    /**
+     * Returns true if the encapsulated object is set, the object isn't loaded by this method.
+     *
+     * @return true if the encapsulated object is set
+     */
+    public boolean isLoaded()
+    {
+        return baseObject != null;
+    }
+
+    /**
+     * This will set the loader which loads the encapsulated object on the first
+     * access. The loader is dropped once it was used or an object was set.
+     *
+     * @param objectLoader The loader of the object or null.
+     */
+    public void setLoader( ICOSObjectLoader objectLoader )
+    {
+        loader = objectLoader;
+    }
+
     /**
      * This will set the object that this object encapsulates.
      *
@@ -97,6 +144,7 @@ public class COSObject extends COSBase
     public void setObject( COSBase object ) throws IOException
     {
         baseObject = object;
+        loader = null;
         /*if( baseObject == null )
         {
             baseObject = object;
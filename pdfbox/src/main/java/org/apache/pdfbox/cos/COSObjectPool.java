@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.cos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.pdfbox.persistence.util.COSObjectKey;
+
+/**
+ * The pool of the indirect objects of a document. The object and generation
+ * number of a key are packed into a single long, so that no key object has to
+ * be kept for every object. The objects are stored using open addressing, keys
+ * which can't be packed are stored in an ordinary map.
+ */
+final class COSObjectPool
+{
+    private static final long EMPTY = -1;
+    private static final long MAX_NUMBER = (1L << 47) - 1;
+    private static final int MAX_GENERATION = 0xFFFF;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] keys;
+    private COSObject[] objects;
+    private int size = 0;
+    private int threshold;
+    // keys which can't be packed
+    private Map<COSObjectKey, COSObject> otherObjects;
+
+    /**
+     * Creates an empty pool.
+     */
+    COSObjectPool()
+    {
+        init(INITIAL_CAPACITY);
+    }
+
+    private void init(int capacity)
+    {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        objects = new COSObject[capacity];
+        threshold = capacity / 4 * 3;
+    }
+
+    private static long pack(COSObjectKey key)
+    {
+        long number = key.getNumber();
+        long generation = key.getGeneration();
+        if (number < 0 || number > MAX_NUMBER || generation < 0 || generation > MAX_GENERATION)
+        {
+            return EMPTY;
+        }
+        return number << 16 | generation;
+    }
+
+    private int slot(long key)
+    {
+        // same distribution as COSObjectKey.hashCode()
+        return (int) ((key >>> 16) + (key & MAX_GENERATION)) & (keys.length - 1);
+    }
+
+    private int indexOf(long key)
+    {
+        int mask = keys.length - 1;
+        for (int index = slot(key); keys[index] != EMPTY; index = (index + 1) & mask)
+        {
+            if (keys[index] == key)
+            {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the object with the given key.
+     *
+     * @param key the key of the object
+     * @return the object or null if the pool doesn't contain the object
+     */
+    COSObject get(COSObjectKey key)
+    {
+        long packed = pack(key);
+        if (packed == EMPTY)
+        {
+            return otherObjects == null ? null : otherObjects.get(key);
+        }
+        int index = indexOf(packed);
+        return index >= 0 ? objects[index] : null;
+    }
+
+    /**
+     * Adds an object to the pool, an existing object with the same key is replaced.
+     *
+     * @param key the key of the object
+     * @param object the object
+     */
+    void put(COSObjectKey key, COSObject object)
+    {
+        long packed = pack(key);
+        if (packed == EMPTY)
+        {
+            if (otherObjects == null)
+            {
+                otherObjects = new HashMap<COSObjectKey, COSObject>();
+            }
+            otherObjects.put(new COSObjectKey(key.getNumber(), key.getGeneration()), object);
+            return;
+        }
+        int mask = keys.length - 1;
+        int index = slot(packed);
+        while (keys[index] != EMPTY)
+        {
+            if (keys[index] == packed)
+            {
+                objects[index] = object;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = packed;
+        objects[index] = object;
+        if (++size > threshold)
+        {
+            rehash(keys.length * 2);
+        }
+    }
+
+    private void rehash(int capacity)
+    {
+        long[] oldKeys = keys;
+        COSObject[] oldObjects = objects;
+        init(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldKeys[i] != EMPTY)
+            {
+                int index = slot(oldKeys[i]);
+                while (keys[index] != EMPTY)
+                {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                objects[index] = oldObjects[i];
+            }
+        }
+    }
+
+    /**
+     * Removes an object from the pool.
+     *
+     * @param key the key of the object
+     * @return the removed object or null if the pool didn't contain the object
+     */
+    COSObject remove(COSObjectKey key)
+    {
+        long packed = pack(key);
+        if (packed == EMPTY)
+        {
+            return otherObjects == null ? null : otherObjects.remove(key);
+        }
+        int index = indexOf(packed);
+        if (index < 0)
+        {
+            return null;
+        }
+        COSObject object = objects[index];
+        // move following entries of the same cluster back, so that no gaps are left
+        int mask = keys.length - 1;
+        int next = index;
+        while (true)
+        {
+            next = (next + 1) & mask;
+            if (keys[next] == EMPTY)
+            {
+                break;
+            }
+            int ideal = slot(keys[next]);
+            boolean movable = index <= next ? ideal <= index || ideal > next : ideal <= index && ideal > next;
+            if (movable)
+            {
+                keys[index] = keys[next];
+                objects[index] = objects[next];
+                index = next;
+            }
+        }
+        keys[index] = EMPTY;
+        objects[index] = null;
+        size--;
+        return object;
+    }
+
+    /**
+     * Returns all objects of the pool.
+     *
+     * @return a new list containing the objects
+     */
+    List<COSObject> values()
+    {
+        List<COSObject> values = new ArrayList<COSObject>(size());
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i] != EMPTY)
+            {
+                values.add(objects[i]);
+            }
+        }
+        if (otherObjects != null)
+        {
+            values.addAll(otherObjects.values());
+        }
+        return values;
+    }
+
+    /**
+     * Returns the number of objects in the pool.
+     *
+     * @return the number of objects
+     */
+    int size()
+    {
+        return size + (otherObjects == null ? 0 : otherObjects.size());
+    }
+
+    /**
+     * Removes all objects from the pool.
+     */
+    void clear()
+    {
+        init(INITIAL_CAPACITY);
+        size = 0;
+        otherObjects = null;
+    }
+}
@@ -33,9 +33,13 @@ import org.apache.pdfbox.filter.FilterFactory;
 import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.io.RandomAccess;
 import org.apache.pdfbox.io.RandomAccessBuffer;
+import org.apache.pdfbox.io.RandomAccessDirectBuffer;
 import org.apache.pdfbox.io.RandomAccessFile;
 import org.apache.pdfbox.io.RandomAccessFileInputStream;
 import org.apache.pdfbox.io.RandomAccessFileOutputStream;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.io.ScratchFileBuffer;
 import org.apache.pdfbox.pdfparser.PDFStreamParser;
 
 /**
@@ -64,11 +68,33 @@ public class COSStream extends COSDictionary implements Closeable
     private RandomAccessFileOutputStream unFilteredStream;
     private DecodeResult decodeResult;
 
+    /**
+     * The source containing the encoded data if the stream is source-backed,
+     * the data is located at sourcePosition with a length of sourceLength.
+     */
+    private RandomAccessRead source;
+    private long sourcePosition;
+    private long sourceLength;
+
     private RandomAccess clone (RandomAccess file) {
         if (file == null) {
             return null;
         } else if (file instanceof RandomAccessFile) {
             return file;
+        } else if (file instanceof RandomAccessDirectBuffer) {
+            // every stream gets its own chunks which are released when the stream is closed
+            return new RandomAccessDirectBuffer();
+        } else if (file instanceof ScratchFileBuffer) {
+            // every stream gets its own pages which are released when the stream is closed
+            ScratchFile scratchFile = ((ScratchFileBuffer)file).getScratchFile();
+            if (scratchFile == null) {
+                throw new IllegalStateException("ScratchFileBuffer already closed");
+            }
+            try {
+                return scratchFile.createBuffer();
+            } catch (IOException exception) {
+                throw new IllegalStateException("Can't create a buffer for the stream", exception);
+            }
         } else {
             return ((RandomAccessBuffer)file).clone();
         }
@@ -111,6 +137,9 @@ public class COSStream extends COSDictionary implements Closeable
         file = stream.file;
         filteredStream = stream.filteredStream;
         unFilteredStream = stream.unFilteredStream;
+        source = stream.source;
+        sourcePosition = stream.sourcePosition;
+        sourceLength = stream.sourceLength;
     }
 
     /**
@@ -123,6 +152,38 @@ public class COSStream extends COSDictionary implements Closeable
         return file;
     }
 
+    /**
+     * This will set the encoded data of this stream to a section of the given
+     * source, e.g. the original pdf file. The data isn't copied to the scratch
+     * file, it is read from the source when the stream is accessed. The
+     * source must not be closed as long as this stream is in use.
+     *
+     * @param sourceFile the source containing the encoded data
+     * @param position the position of the encoded data within the source
+     * @param length the length of the encoded data
+     */
+    public void setFilteredSource( RandomAccessRead sourceFile, long position, long length )
+    {
+        IOUtils.closeQuietly(unFilteredStream);
+        unFilteredStream = null;
+        IOUtils.closeQuietly(filteredStream);
+        filteredStream = null;
+        source = sourceFile;
+        sourcePosition = position;
+        sourceLength = length;
+    }
+
+    /**
+     * Indicates whether the encoded data of this stream is read from a source
+     * set via {@link #setFilteredSource(RandomAccessRead, long, long)}.
+     *
+     * @return true if the stream is source-backed
+     */
+    public boolean isSourceBacked()
+    {
+        return source != null;
+    }
+
     /**
      * This will get all the tokens in the stream.
      *
@@ -146,12 +207,14 @@ public class COSStream extends COSDictionary implements Closeable
      */
     public InputStream getFilteredStream() throws IOException
     {
-        if( filteredStream == null )
+        if( filteredStream == null && source != null )
         {
-            doEncode();
+            return new BufferedInputStream(
+                new RandomAccessFileInputStream( source, sourcePosition, sourceLength ), BUFFER_SIZE );
         }
-        long position = filteredStream.getPosition();
-        long length = filteredStream.getLength();
+        RandomAccessFileOutputStream encoded = getEncodedStream();
+        long position = encoded.getPosition();
+        long length = encoded.getLength();
 
         RandomAccessFileInputStream input =
             new RandomAccessFileInputStream( file, position, length );
@@ -167,11 +230,11 @@ public class COSStream extends COSDictionary implements Closeable
      */
     public long getFilteredLength() throws IOException
     {
-        if (filteredStream == null)
+        if (filteredStream == null && source != null)
         {
-            doEncode();
+            return sourceLength;
         }
-        return filteredStream.getLength();
+        return getEncodedStream().getLength();
     }
     
     /**
@@ -184,21 +247,25 @@ public class COSStream extends COSDictionary implements Closeable
     public InputStream  getUnfilteredStream() throws IOException
     {
         InputStream retval;
-        if( unFilteredStream == null )
-        {
-            doDecode();
-        }
+        RandomAccessFileOutputStream decoded = getDecodedStream();
 
-        //if unFilteredStream is still null then this stream has not been
+        //if the decoded stream is still null then this stream has not been
         //created yet, so we should return null.
-        if( unFilteredStream != null )
+        if( decoded != null )
         {
-            long position = unFilteredStream.getPosition();
-            long length = unFilteredStream.getLengthWritten();
+            long position = decoded.getPosition();
+            long length = decoded.getLengthWritten();
             RandomAccessFileInputStream input =
                 new RandomAccessFileInputStream( file, position, length );
             retval = new BufferedInputStream( input, BUFFER_SIZE );
         }
+        else if( source != null )
+        {
+            // there are no filters, so the encoded data is the decoded data
+            RandomAccessFileInputStream input =
+                new RandomAccessFileInputStream( source, sourcePosition, sourceLength );
+            retval = new BufferedInputStream( input, BUFFER_SIZE );
+        }
         else
         {
             // We should check if the COSStream contains data, maybe it
@@ -228,14 +295,11 @@ public class COSStream extends COSDictionary implements Closeable
      * @return the repaired stream parameters dictionary
      * @throws IOException when encoding/decoding causes an exception
      */
-    public DecodeResult getDecodeResult() throws IOException
+    public synchronized DecodeResult getDecodeResult() throws IOException
     {
-        if (unFilteredStream == null)
-        {
-            doDecode();
-        }
+        RandomAccessFileOutputStream decoded = getDecodedStream();
 
-        if (unFilteredStream == null || decodeResult == null)
+        if ((decoded == null && source == null) || decodeResult == null)
         {
             throw new IOException("Stream was not read");
         }
@@ -257,6 +321,60 @@ public class COSStream extends COSDictionary implements Closeable
         return visitor.visitFromStream(this);
     }
 
+    /**
+     * Returns the decoded data, the stream is decoded on first access. Decoding
+     * happens only once, even if the stream is accessed by several threads.
+     *
+     * @return the decoded data or null if there is none
+     * @throws IOException If there is an error applying a filter to the stream.
+     */
+    private synchronized RandomAccessFileOutputStream getDecodedStream() throws IOException
+    {
+        if( unFilteredStream == null )
+        {
+            if( file instanceof RandomAccessFile )
+            {
+                // the scratch file is shared by all streams of the document
+                synchronized( file )
+                {
+                    doDecode();
+                }
+            }
+            else
+            {
+                doDecode();
+            }
+        }
+        return unFilteredStream;
+    }
+
+    /**
+     * Returns the encoded data, the stream is encoded on first access. Encoding
+     * happens only once, even if the stream is accessed by several threads.
+     *
+     * @return the encoded data
+     * @throws IOException If there is an error applying a filter to the stream.
+     */
+    private synchronized RandomAccessFileOutputStream getEncodedStream() throws IOException
+    {
+        if( filteredStream == null )
+        {
+            if( file instanceof RandomAccessFile )
+            {
+                // the scratch file is shared by all streams of the document
+                synchronized( file )
+                {
+                    doEncode();
+                }
+            }
+            else
+            {
+                doEncode();
+            }
+        }
+        return filteredStream;
+    }
+
     /**
      * This will decode the physical byte stream applying all of the filters to the stream.
      *
@@ -306,10 +424,26 @@ public class COSStream extends COSDictionary implements Closeable
 
         boolean done = false;
         IOException exception = null;
-        long position = unFilteredStream.getPosition();
-        long length = unFilteredStream.getLength();
+        RandomAccessRead input;
+        long position;
+        long length;
         // in case we need it later
-        long writtenLength = unFilteredStream.getLengthWritten();  
+        long writtenLength;
+        if (unFilteredStream == null && source != null)
+        {
+            // the first filter reads the encoded data from the source
+            input = source;
+            position = sourcePosition;
+            length = sourceLength;
+            writtenLength = sourceLength;
+        }
+        else
+        {
+            input = file;
+            position = unFilteredStream.getPosition();
+            length = unFilteredStream.getLength();
+            writtenLength = unFilteredStream.getLengthWritten();
+        }
 
         if (length == 0 && writtenLength == 0)
         {
@@ -327,14 +461,14 @@ public class COSStream extends COSDictionary implements Closeable
             //try again with one less byte.
             for (int tryCount = 0; length > 0 && !done && tryCount < 5; tryCount++)
             {
-                InputStream input = null;
+                InputStream encoded = null;
                 try
                 {
-                    input = new BufferedInputStream(
-                        new RandomAccessFileInputStream( file, position, length ), BUFFER_SIZE );
+                    encoded = new BufferedInputStream(
+                        new RandomAccessFileInputStream( input, position, length ), BUFFER_SIZE );
                     IOUtils.closeQuietly(unFilteredStream);
                     unFilteredStream = new RandomAccessFileOutputStream( file );
-                    decodeResult = filter.decode( input, unFilteredStream, this, filterIndex );
+                    decodeResult = filter.decode( encoded, unFilteredStream, this, filterIndex );
                     done = true;
                 }
                 catch( IOException io )
@@ -344,7 +478,7 @@ public class COSStream extends COSDictionary implements Closeable
                 }
                 finally
                 {
-                    IOUtils.closeQuietly(input);
+                    IOUtils.closeQuietly(encoded);
                 }
             }
             if( !done )
@@ -355,14 +489,14 @@ public class COSStream extends COSDictionary implements Closeable
                 length = writtenLength;
                 for( int tryCount=0; !done && tryCount<5; tryCount++ )
                 {
-                    InputStream input = null;
+                    InputStream encoded = null;
                     try
                     {
-                        input = new BufferedInputStream(
-                            new RandomAccessFileInputStream( file, position, length ), BUFFER_SIZE );
+                        encoded = new BufferedInputStream(
+                            new RandomAccessFileInputStream( input, position, length ), BUFFER_SIZE );
                         IOUtils.closeQuietly(unFilteredStream);
                         unFilteredStream = new RandomAccessFileOutputStream( file );
-                        decodeResult = filter.decode( input, unFilteredStream, this, filterIndex);
+                        decodeResult = filter.decode( encoded, unFilteredStream, this, filterIndex);
                         done = true;
                     }
                     catch( IOException io )
@@ -372,7 +506,7 @@ public class COSStream extends COSDictionary implements Closeable
                     }
                     finally
                     {
-                        IOUtils.closeQuietly(input);
+                        IOUtils.closeQuietly(encoded);
                     }
                 }
             }
@@ -462,6 +596,7 @@ public class COSStream extends COSDictionary implements Closeable
         IOUtils.closeQuietly(unFilteredStream);
         unFilteredStream = null;
         IOUtils.closeQuietly(filteredStream);
+        source = null;
         filteredStream = new RandomAccessFileOutputStream( file );
         return new BufferedOutputStream( filteredStream, BUFFER_SIZE );
     }
@@ -482,6 +617,7 @@ public class COSStream extends COSDictionary implements Closeable
         IOUtils.closeQuietly(unFilteredStream);
         unFilteredStream = null;
         IOUtils.closeQuietly(filteredStream);
+        source = null;
         filteredStream = new RandomAccessFileOutputStream( file );
         filteredStream.setExpectedLength( expectedLength );
         return new BufferedOutputStream( filteredStream, BUFFER_SIZE );
@@ -500,6 +636,7 @@ public class COSStream extends COSDictionary implements Closeable
         // kill cached filtered streams
         IOUtils.closeQuietly(filteredStream);
         filteredStream = null;
+        source = null;
     }
 
     /**
@@ -513,6 +650,7 @@ public class COSStream extends COSDictionary implements Closeable
     {
         IOUtils.closeQuietly(filteredStream);
         filteredStream = null;
+        source = null;
         IOUtils.closeQuietly(unFilteredStream);
         unFilteredStream = new RandomAccessFileOutputStream( file );
         return new BufferedOutputStream( unFilteredStream, BUFFER_SIZE );
@@ -540,6 +678,8 @@ public class COSStream extends COSDictionary implements Closeable
         {
             IOUtils.closeQuietly(unFilteredStream);
         }
+        // the source is owned by the document, so it isn't closed here
+        source = null;
         clear();
     }
 }
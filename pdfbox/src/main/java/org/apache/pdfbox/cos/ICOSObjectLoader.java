@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.cos;
+
+import java.io.IOException;
+
+/**
+ * An interface for loading the content of an indirect object when it is accessed
+ * for the first time, see {@link COSObject#setLoader(ICOSObjectLoader)}.
+ */
+public interface ICOSObjectLoader
+{
+    /**
+     * Loads the content of the given object.
+     *
+     * @param object The object to be loaded.
+     * @return the content of the object or null if the object doesn't exist
+     * @throws IOException If there is an error while loading the object.
+     */
+    public COSBase load( COSObject object ) throws IOException;
+}
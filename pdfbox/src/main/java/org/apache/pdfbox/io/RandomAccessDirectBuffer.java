@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An implementation of the RandomAccess interface which stores the data
+ * outside of the Java heap. The data is stored in 16kb chunks of direct
+ * {@link ByteBuffer}s. The chunks are returned to a pool shared by all
+ * instances when the buffer is closed, so that they can be reused without
+ * waiting for the garbage collector.
+ */
+public class RandomAccessDirectBuffer implements RandomAccess, Closeable
+{
+    // chunk size is 16kb
+    private static final int BUFFER_SIZE = 16384;
+    // maximum number of pooled chunks, 16 MB
+    private static final int MAX_POOLED_CHUNKS = 1024;
+
+    private static final Queue<ByteBuffer> CHUNK_POOL = new ConcurrentLinkedQueue<ByteBuffer>();
+    private static final AtomicInteger POOLED_CHUNK_COUNT = new AtomicInteger();
+    private static final byte[] ZEROS = new byte[BUFFER_SIZE];
+
+    // list containing all chunks
+    private ArrayList<ByteBuffer> bufferList = new ArrayList<ByteBuffer>();
+    // current pointer to the whole buffer
+    private long pointer = 0;
+    // size of the whole buffer
+    private long size = 0;
+
+    /**
+     * Default constructor.
+     */
+    public RandomAccessDirectBuffer()
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (bufferList != null)
+        {
+            for (ByteBuffer chunk : bufferList)
+            {
+                releaseChunk(chunk);
+            }
+            bufferList = null;
+            pointer = 0;
+            size = 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void seek(long position) throws IOException
+    {
+        checkClosed();
+        if (position < 0)
+        {
+            throw new IOException("Invalid position " + position);
+        }
+        pointer = position;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPosition() throws IOException
+    {
+        checkClosed();
+        return pointer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long length() throws IOException
+    {
+        checkClosed();
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read() throws IOException
+    {
+        checkClosed();
+        if (pointer >= size)
+        {
+            return -1;
+        }
+        ByteBuffer chunk = bufferList.get((int) (pointer / BUFFER_SIZE));
+        return chunk.get((int) (pointer++ % BUFFER_SIZE)) & 0xff;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read(byte[] b, int offset, int length) throws IOException
+    {
+        checkClosed();
+        if (pointer >= size)
+        {
+            return -1;
+        }
+        int toRead = (int) Math.min(length, size - pointer);
+        int bytesRead = 0;
+        while (bytesRead < toRead)
+        {
+            ByteBuffer chunk = bufferList.get((int) (pointer / BUFFER_SIZE));
+            int offsetWithinChunk = (int) (pointer % BUFFER_SIZE);
+            int commonLength = Math.min(BUFFER_SIZE - offsetWithinChunk, toRead - bytesRead);
+            chunk.position(offsetWithinChunk);
+            chunk.get(b, offset + bytesRead, commonLength);
+            bytesRead += commonLength;
+            pointer += commonLength;
+        }
+        return bytesRead;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(int b) throws IOException
+    {
+        checkClosed();
+        fillGap();
+        ByteBuffer chunk = getChunk((int) (pointer / BUFFER_SIZE));
+        chunk.put((int) (pointer++ % BUFFER_SIZE), (byte) b);
+        if (pointer > size)
+        {
+            size = pointer;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(byte[] b, int offset, int length) throws IOException
+    {
+        checkClosed();
+        fillGap();
+        int bytesWritten = 0;
+        while (bytesWritten < length)
+        {
+            ByteBuffer chunk = getChunk((int) (pointer / BUFFER_SIZE));
+            int offsetWithinChunk = (int) (pointer % BUFFER_SIZE);
+            int commonLength = Math.min(BUFFER_SIZE - offsetWithinChunk, length - bytesWritten);
+            chunk.position(offsetWithinChunk);
+            chunk.put(b, offset + bytesWritten, commonLength);
+            bytesWritten += commonLength;
+            pointer += commonLength;
+        }
+        if (pointer > size)
+        {
+            size = pointer;
+        }
+    }
+
+    /**
+     * Fills the gap between the end of the data and the pointer with zeros. The
+     * chunks taken from the pool still contain the data of a previous buffer.
+     */
+    private void fillGap()
+    {
+        while (size < pointer)
+        {
+            ByteBuffer chunk = getChunk((int) (size / BUFFER_SIZE));
+            int offsetWithinChunk = (int) (size % BUFFER_SIZE);
+            int commonLength = (int) Math.min(BUFFER_SIZE - offsetWithinChunk, pointer - size);
+            chunk.position(offsetWithinChunk);
+            chunk.put(ZEROS, 0, commonLength);
+            size += commonLength;
+        }
+    }
+
+    /**
+     * Returns the chunk with the given index, missing chunks are added.
+     *
+     * @param index the index of the chunk
+     * @return the chunk
+     */
+    private ByteBuffer getChunk(int index)
+    {
+        while (index >= bufferList.size())
+        {
+            bufferList.add(acquireChunk());
+        }
+        return bufferList.get(index);
+    }
+
+    /**
+     * Takes a chunk from the pool or allocates a new one.
+     *
+     * @return a chunk, which may contain the data of a previous buffer
+     */
+    private static ByteBuffer acquireChunk()
+    {
+        ByteBuffer chunk = CHUNK_POOL.poll();
+        if (chunk == null)
+        {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        POOLED_CHUNK_COUNT.decrementAndGet();
+        chunk.clear();
+        return chunk;
+    }
+
+    /**
+     * Returns a chunk to the pool, if the pool is full the chunk is left to the
+     * garbage collector.
+     *
+     * @param chunk the chunk which is no longer used
+     */
+    private static void releaseChunk(ByteBuffer chunk)
+    {
+        if (POOLED_CHUNK_COUNT.incrementAndGet() <= MAX_POOLED_CHUNKS)
+        {
+            CHUNK_POOL.offer(chunk);
+        }
+        else
+        {
+            POOLED_CHUNK_COUNT.decrementAndGet();
+        }
+    }
+
+    /**
+     * Ensure that the RandomAccessDirectBuffer is not closed.
+     *
+     * @throws IOException if the buffer is already closed
+     */
+    private void checkClosed() throws IOException
+    {
+        if (bufferList == null)
+        {
+            throw new IOException("RandomAccessDirectBuffer already closed");
+        }
+    }
+}
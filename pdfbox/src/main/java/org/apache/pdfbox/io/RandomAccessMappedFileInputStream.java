@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.io;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Provides {@link InputStream} access to a file which is mapped into memory
+ * using {@link MappedByteBuffer}s. Start of next bytes to read can be set via
+ * seek method.
+ *
+ * A single {@link MappedByteBuffer} is limited to 2 GB, so the file is mapped
+ * in segments of a fixed size (1 GB by default). The mapping is done by the
+ * operating system, thus repeated opens of the same file can reuse the page
+ * cache and no heap memory is needed for buffering.
+ *
+ * The mapped segments are released when this instance is garbage collected,
+ * there is no way to unmap them explicitly.
+ */
+public class RandomAccessMappedFileInputStream
+extends InputStream implements RandomAccessRead
+{
+    /** default segment size is 1 GB. */
+    private static final int DEFAULT_SEGMENT_SHIFT = 30;
+
+    private final int segmentShift;
+    private final int segmentSize;
+    private final long segmentMask;
+
+    private MappedByteBuffer[] segments;
+    private final long fileLength;
+    private long fileOffset = 0;
+
+    /**
+     * Create input stream instance for given file.
+     *
+     * @param file the file to be mapped
+     *
+     * @throws FileNotFoundException if the file doesn't exist
+     * @throws IOException if the file could not be mapped
+     */
+    public RandomAccessMappedFileInputStream( File file )
+    throws FileNotFoundException, IOException
+    {
+        this( file, DEFAULT_SEGMENT_SHIFT );
+    }
+
+    /**
+     * Create input stream instance for given file using segments of
+     * <code>2^segmentShift</code> bytes.
+     *
+     * @param file the file to be mapped
+     * @param segmentShift the binary logarithm of the segment size, has to be
+     * in the range 10..30
+     *
+     * @throws FileNotFoundException if the file doesn't exist
+     * @throws IOException if the file could not be mapped
+     */
+    public RandomAccessMappedFileInputStream( File file, int segmentShift )
+    throws FileNotFoundException, IOException
+    {
+        if ( segmentShift < 10 || segmentShift > 30 )
+        {
+            throw new IllegalArgumentException( "Segment shift out of range: " + segmentShift );
+        }
+        this.segmentShift = segmentShift;
+        segmentSize = 1 << segmentShift;
+        segmentMask = segmentSize - 1;
+
+        RandomAccessFile raFile = new RandomAccessFile( file, "r" );
+        try
+        {
+            FileChannel channel = raFile.getChannel();
+            fileLength = channel.size();
+            int segmentCount = (int) ( ( fileLength + segmentMask ) >>> segmentShift );
+            segments = new MappedByteBuffer[segmentCount];
+            for ( int i = 0; i < segmentCount; i++ )
+            {
+                long start = (long) i << segmentShift;
+                long size = Math.min( segmentSize, fileLength - start );
+                segments[i] = channel.map( FileChannel.MapMode.READ_ONLY, start, size );
+            }
+        }
+        finally
+        {
+            // the mapping stays valid after the channel is closed
+            raFile.close();
+        }
+    }
+
+    /** Returns offset in file at which next byte would be read. */
+    public long getPosition() throws IOException
+    {
+        checkClosed();
+        return fileOffset;
+    }
+
+    /**
+     * Seeks to new position. Seeking beyond the end of the file is allowed,
+     * subsequent reads will return -1.
+     */
+    public void seek( final long newOffset ) throws IOException
+    {
+        checkClosed();
+        if ( newOffset < 0 )
+        {
+            throw new IOException( "Invalid position " + newOffset );
+        }
+        fileOffset = newOffset;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        checkClosed();
+        if ( fileOffset >= fileLength )
+        {
+            return -1;
+        }
+        int value = segments[(int) ( fileOffset >>> segmentShift )].get( (int) ( fileOffset & segmentMask ) );
+        fileOffset++;
+        return value & 0xff;
+    }
+
+    @Override
+    public int read( byte[] b, int off, int len ) throws IOException
+    {
+        checkClosed();
+        if ( fileOffset >= fileLength )
+        {
+            return -1;
+        }
+        int toRead = (int) Math.min( len, fileLength - fileOffset );
+        int bytesRead = 0;
+        while ( bytesRead < toRead )
+        {
+            MappedByteBuffer segment = segments[(int) ( fileOffset >>> segmentShift )];
+            int offsetWithinSegment = (int) ( fileOffset & segmentMask );
+            int commonLen = Math.min( segmentSize - offsetWithinSegment, toRead - bytesRead );
+            segment.position( offsetWithinSegment );
+            segment.get( b, off + bytesRead, commonLen );
+            bytesRead += commonLen;
+            fileOffset += commonLen;
+        }
+        return bytesRead;
+    }
+
+    @Override
+    public int available() throws IOException
+    {
+        checkClosed();
+        return (int) Math.min( Math.max( fileLength - fileOffset, 0 ), Integer.MAX_VALUE );
+    }
+
+    @Override
+    public long skip( long n ) throws IOException
+    {
+        checkClosed();
+        long toSkip = Math.min( n, fileLength - fileOffset );
+        if ( toSkip <= 0 )
+        {
+            return 0;
+        }
+        fileOffset += toSkip;
+        return toSkip;
+    }
+
+    public long length() throws IOException
+    {
+        return fileLength;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        // dropping the references allows the mapping to be released by the garbage collector
+        segments = null;
+    }
+
+    /**
+     * Ensure that the stream is not closed.
+     *
+     * @throws IOException if the stream is already closed
+     */
+    private void checkClosed() throws IOException
+    {
+        if ( segments == null )
+        {
+            throw new IOException( "RandomAccessMappedFileInputStream already closed" );
+        }
+    }
+}
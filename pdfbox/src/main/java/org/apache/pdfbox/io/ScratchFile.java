@@ -0,0 +1,355 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Manages the scratch storage of a document. The storage is organized in pages
+ * of {@link #PAGE_SIZE} bytes which are handed out to {@link ScratchFileBuffer}s,
+ * typically one buffer per COSStream.
+ *
+ * Pages are kept in memory as long as the memory budget of this instance and
+ * the optional budget shared by all instances of the JVM allow it, all further
+ * pages are spilled to a temporary file. The memory is given to the pages in the
+ * order they are allocated, a page stays where it was allocated until its buffer
+ * is closed; frequently used pages aren't moved from the temporary file to memory.
+ * Pages are reused as soon as the buffer holding them is closed. The temporary file is created on demand and deleted
+ * when the last buffer is closed or this instance is closed.
+ */
+public class ScratchFile implements Closeable
+{
+    private static final Log LOG = LogFactory.getLog(ScratchFile.class);
+
+    /** size of a single page. */
+    public static final int PAGE_SIZE = 4096;
+
+    /** memory budget shared by all instances, negative if unlimited. */
+    private static volatile long globalMaxMainMemoryBytes = -1;
+    private static final AtomicLong GLOBAL_MAIN_MEMORY_BYTES = new AtomicLong();
+
+    private final long maxMemoryPages;
+    private final File tempDir;
+
+    private File tempFile;
+    private java.io.RandomAccessFile raf;
+
+    // memory pages, null for pages stored in the temporary file
+    private byte[][] pages = new byte[64][];
+    private int pageCount = 0;
+    private final BitSet freePages = new BitSet();
+    // released pages whose content in the temporary file belongs to a previous buffer
+    private final BitSet stalePages = new BitSet();
+    private int memoryPageCount = 0;
+    private int openBuffers = 0;
+    private boolean closed = false;
+
+    /**
+     * Creates a scratch file which keeps all pages in memory, only limited by
+     * the global budget.
+     */
+    public ScratchFile()
+    {
+        this(-1, null);
+    }
+
+    /**
+     * Creates a scratch file with the given memory budget.
+     *
+     * @param maxMainMemoryBytes the maximum number of bytes kept in memory, a
+     * negative value for no limit, 0 to store all pages in the temporary file
+     * @param tempDir directory for the temporary file, or <code>null</code> to
+     * use the system default
+     */
+    public ScratchFile(long maxMainMemoryBytes, File tempDir)
+    {
+        maxMemoryPages = maxMainMemoryBytes < 0 ? Long.MAX_VALUE : maxMainMemoryBytes / PAGE_SIZE;
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * Sets the number of bytes all instances together may keep in memory.
+     *
+     * @param maxMainMemoryBytes the global memory budget, a negative value for
+     * no limit
+     */
+    public static void setGlobalMaxMainMemoryBytes(long maxMainMemoryBytes)
+    {
+        globalMaxMainMemoryBytes = maxMainMemoryBytes;
+    }
+
+    /**
+     * Returns the number of bytes all instances together may keep in memory.
+     *
+     * @return the global memory budget, negative if there is no limit
+     */
+    public static long getGlobalMaxMainMemoryBytes()
+    {
+        return globalMaxMainMemoryBytes;
+    }
+
+    /**
+     * Returns the number of bytes all instances currently keep in memory.
+     *
+     * @return the number of bytes in memory
+     */
+    public static long getGlobalMainMemoryBytes()
+    {
+        return GLOBAL_MAIN_MEMORY_BYTES.get();
+    }
+
+    /**
+     * Creates a new empty buffer using the storage of this scratch file.
+     *
+     * @return a new buffer
+     * @throws IOException if this scratch file is already closed
+     */
+    public synchronized ScratchFileBuffer createBuffer() throws IOException
+    {
+        checkClosed();
+        openBuffers++;
+        return new ScratchFileBuffer(this);
+    }
+
+    /**
+     * Returns the number of bytes this instance keeps in memory.
+     *
+     * @return the number of bytes in memory
+     */
+    public synchronized long getMainMemoryBytes()
+    {
+        return (long) memoryPageCount * PAGE_SIZE;
+    }
+
+    /**
+     * Returns the number of bytes this instance stores in the temporary file.
+     *
+     * @return the number of bytes in the temporary file
+     */
+    public synchronized long getSpilledBytes()
+    {
+        return (long) (pageCount - memoryPageCount - freePages.cardinality()) * PAGE_SIZE;
+    }
+
+    /**
+     * Allocates a new page, in memory if the budget allows it.
+     *
+     * @return the index of the new page
+     * @throws IOException if this scratch file is already closed
+     */
+    synchronized int allocatePage() throws IOException
+    {
+        checkClosed();
+        int index = freePages.nextSetBit(0);
+        if (index >= 0)
+        {
+            freePages.clear(index);
+        }
+        else
+        {
+            index = pageCount++;
+            if (index == pages.length)
+            {
+                byte[][] newPages = new byte[pages.length * 2][];
+                System.arraycopy(pages, 0, newPages, 0, pages.length);
+                pages = newPages;
+            }
+        }
+        if (memoryPageCount < maxMemoryPages && reserveGlobalMemory())
+        {
+            pages[index] = new byte[PAGE_SIZE];
+            memoryPageCount++;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the given page if it is kept in memory.
+     *
+     * @param index the index of the page
+     * @return the page or <code>null</code> if it is stored in the temporary file
+     */
+    synchronized byte[] getMemoryPage(int index)
+    {
+        return pages[index];
+    }
+
+    /**
+     * Reads a page from the temporary file.
+     *
+     * @param index the index of the page
+     * @param page the buffer to read the page into
+     * @throws IOException if the page could not be read
+     */
+    synchronized void readPage(int index, byte[] page) throws IOException
+    {
+        checkClosed();
+        java.io.RandomAccessFile file = getTempFile();
+        long offset = (long) index * PAGE_SIZE;
+        int bytesRead = 0;
+        if (offset < file.length() && !stalePages.get(index))
+        {
+            file.seek(offset);
+            while (bytesRead < PAGE_SIZE)
+            {
+                int count = file.read(page, bytesRead, PAGE_SIZE - bytesRead);
+                if (count < 0)
+                {
+                    break;
+                }
+                bytesRead += count;
+            }
+        }
+        // the page was never written completely or was written by a previous buffer
+        for (int i = bytesRead; i < PAGE_SIZE; i++)
+        {
+            page[i] = 0;
+        }
+    }
+
+    /**
+     * Writes a page to the temporary file.
+     *
+     * @param index the index of the page
+     * @param page the content of the page
+     * @throws IOException if the page could not be written
+     */
+    synchronized void writePage(int index, byte[] page) throws IOException
+    {
+        checkClosed();
+        java.io.RandomAccessFile file = getTempFile();
+        file.seek((long) index * PAGE_SIZE);
+        file.write(page, 0, PAGE_SIZE);
+        stalePages.clear(index);
+    }
+
+    /**
+     * Releases the given pages and the buffer which was holding them.
+     *
+     * @param indexes the pages of the buffer
+     * @param count the number of valid entries in indexes
+     */
+    synchronized void releaseBuffer(int[] indexes, int count)
+    {
+        if (closed)
+        {
+            return;
+        }
+        for (int i = 0; i < count; i++)
+        {
+            int index = indexes[i];
+            if (pages[index] != null)
+            {
+                pages[index] = null;
+                memoryPageCount--;
+                GLOBAL_MAIN_MEMORY_BYTES.addAndGet(-PAGE_SIZE);
+            }
+            freePages.set(index);
+            stalePages.set(index);
+        }
+        openBuffers--;
+        if (openBuffers == 0)
+        {
+            // nothing is in use anymore, start over
+            pageCount = 0;
+            freePages.clear();
+            stalePages.clear();
+            deleteTempFile();
+        }
+    }
+
+    /**
+     * This will release all pages and delete the temporary file. All buffers
+     * of this scratch file become unusable.
+     *
+     * @throws IOException if the temporary file could not be closed
+     */
+    public synchronized void close() throws IOException
+    {
+        if (!closed)
+        {
+            GLOBAL_MAIN_MEMORY_BYTES.addAndGet(-(long) memoryPageCount * PAGE_SIZE);
+            memoryPageCount = 0;
+            pages = null;
+            closed = true;
+            deleteTempFile();
+        }
+    }
+
+    private boolean reserveGlobalMemory()
+    {
+        while (true)
+        {
+            long current = GLOBAL_MAIN_MEMORY_BYTES.get();
+            long limit = globalMaxMainMemoryBytes;
+            if (limit >= 0 && current + PAGE_SIZE > limit)
+            {
+                return false;
+            }
+            if (GLOBAL_MAIN_MEMORY_BYTES.compareAndSet(current, current + PAGE_SIZE))
+            {
+                return true;
+            }
+        }
+    }
+
+    private java.io.RandomAccessFile getTempFile() throws IOException
+    {
+        if (raf == null)
+        {
+            tempFile = File.createTempFile("PDFBox", ".tmp", tempDir);
+            raf = new java.io.RandomAccessFile(tempFile, "rw");
+        }
+        return raf;
+    }
+
+    private void deleteTempFile()
+    {
+        if (raf != null)
+        {
+            try
+            {
+                raf.close();
+            }
+            catch (IOException exception)
+            {
+                LOG.warn("Error closing the temporary file", exception);
+            }
+            raf = null;
+            if (!tempFile.delete())
+            {
+                LOG.warn("Temporary file '" + tempFile.getName() + "' can't be deleted");
+            }
+            tempFile = null;
+        }
+    }
+
+    private void checkClosed() throws IOException
+    {
+        if (closed)
+        {
+            throw new IOException("ScratchFile already closed");
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * An implementation of the RandomAccess interface which stores its data in
+ * the pages of a {@link ScratchFile}. The pages are returned to the scratch
+ * file when this buffer is closed.
+ */
+public class ScratchFileBuffer implements RandomAccess, Closeable
+{
+    private static final int PAGE_SIZE = ScratchFile.PAGE_SIZE;
+
+    private ScratchFile scratchFile;
+    // indexes of the pages of this buffer within the scratch file
+    private int[] pageIndexes = new int[4];
+    private int pageCount = 0;
+    // size of the whole buffer
+    private long size = 0;
+    // current pointer to the whole buffer
+    private long pointer = 0;
+
+    // the page containing the pointer, -1 if none is loaded
+    private int currentPageNumber = -1;
+    private byte[] currentPage;
+    private boolean currentPageOnDisk;
+    private boolean currentPageDirty;
+    // buffer for pages stored in the temporary file
+    private byte[] diskPage;
+
+    /**
+     * Constructor, use {@link ScratchFile#createBuffer()} to create a buffer.
+     *
+     * @param scratchFile the scratch file providing the pages
+     */
+    ScratchFileBuffer(ScratchFile scratchFile)
+    {
+        this.scratchFile = scratchFile;
+    }
+
+    /**
+     * Returns the scratch file holding the pages of this buffer.
+     *
+     * @return the scratch file
+     */
+    public ScratchFile getScratchFile()
+    {
+        return scratchFile;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (scratchFile != null)
+        {
+            scratchFile.releaseBuffer(pageIndexes, pageCount);
+            scratchFile = null;
+            pageIndexes = null;
+            currentPage = null;
+            diskPage = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void seek(long position) throws IOException
+    {
+        checkClosed();
+        if (position < 0)
+        {
+            throw new IOException("Invalid position " + position);
+        }
+        pointer = position;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPosition() throws IOException
+    {
+        checkClosed();
+        return pointer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long length() throws IOException
+    {
+        checkClosed();
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read() throws IOException
+    {
+        checkClosed();
+        if (pointer >= size)
+        {
+            return -1;
+        }
+        loadPage((int) (pointer / PAGE_SIZE));
+        return currentPage[(int) (pointer++ % PAGE_SIZE)] & 0xff;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read(byte[] b, int offset, int length) throws IOException
+    {
+        checkClosed();
+        if (pointer >= size)
+        {
+            return -1;
+        }
+        int toRead = (int) Math.min(length, size - pointer);
+        int bytesRead = 0;
+        while (bytesRead < toRead)
+        {
+            loadPage((int) (pointer / PAGE_SIZE));
+            int offsetWithinPage = (int) (pointer % PAGE_SIZE);
+            int commonLength = Math.min(PAGE_SIZE - offsetWithinPage, toRead - bytesRead);
+            System.arraycopy(currentPage, offsetWithinPage, b, offset + bytesRead, commonLength);
+            bytesRead += commonLength;
+            pointer += commonLength;
+        }
+        return bytesRead;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(int b) throws IOException
+    {
+        checkClosed();
+        loadPage((int) (pointer / PAGE_SIZE));
+        currentPage[(int) (pointer++ % PAGE_SIZE)] = (byte) b;
+        currentPageDirty = true;
+        if (pointer > size)
+        {
+            size = pointer;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(byte[] b, int offset, int length) throws IOException
+    {
+        checkClosed();
+        int bytesWritten = 0;
+        while (bytesWritten < length)
+        {
+            loadPage((int) (pointer / PAGE_SIZE));
+            int offsetWithinPage = (int) (pointer % PAGE_SIZE);
+            int commonLength = Math.min(PAGE_SIZE - offsetWithinPage, length - bytesWritten);
+            System.arraycopy(b, offset + bytesWritten, currentPage, offsetWithinPage, commonLength);
+            currentPageDirty = true;
+            bytesWritten += commonLength;
+            pointer += commonLength;
+        }
+        if (pointer > size)
+        {
+            size = pointer;
+        }
+    }
+
+    /**
+     * Makes the given page the current page, missing pages are allocated.
+     *
+     * @param pageNumber the number of the page within this buffer
+     * @throws IOException if the page could not be read or written
+     */
+    private void loadPage(int pageNumber) throws IOException
+    {
+        if (pageNumber == currentPageNumber)
+        {
+            return;
+        }
+        flushPage();
+        while (pageNumber >= pageCount)
+        {
+            if (pageCount == pageIndexes.length)
+            {
+                int[] newIndexes = new int[pageIndexes.length * 2];
+                System.arraycopy(pageIndexes, 0, newIndexes, 0, pageCount);
+                pageIndexes = newIndexes;
+            }
+            pageIndexes[pageCount++] = scratchFile.allocatePage();
+        }
+        int index = pageIndexes[pageNumber];
+        currentPage = scratchFile.getMemoryPage(index);
+        currentPageOnDisk = currentPage == null;
+        if (currentPageOnDisk)
+        {
+            if (diskPage == null)
+            {
+                diskPage = new byte[PAGE_SIZE];
+            }
+            scratchFile.readPage(index, diskPage);
+            currentPage = diskPage;
+        }
+        currentPageNumber = pageNumber;
+    }
+
+    /**
+     * Writes the current page to the temporary file if it was modified.
+     *
+     * @throws IOException if the page could not be written
+     */
+    private void flushPage() throws IOException
+    {
+        if (currentPageOnDisk && currentPageDirty)
+        {
+            scratchFile.writePage(pageIndexes[currentPageNumber], currentPage);
+        }
+        currentPageDirty = false;
+    }
+
+    /**
+     * Ensure that the buffer is not closed.
+     *
+     * @throws IOException if the buffer is already closed
+     */
+    private void checkClosed() throws IOException
+    {
+        if (scratchFile == null)
+        {
+            throw new IOException("ScratchFileBuffer already closed");
+        }
+    }
+}
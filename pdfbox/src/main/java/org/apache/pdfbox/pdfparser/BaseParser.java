@@ -83,6 +83,9 @@ public abstract class BaseParser
     private final int    strmBufLen = 2048;
     private final byte[] strmBuf    = new byte[ strmBufLen ];
 
+    // buffer for the bytes of the name being parsed, reused for all names
+    private byte[] nameBuffer = new byte[64];
+
     /**
      * This is a byte array that will be used for comparisons.
      */
@@ -164,6 +167,19 @@ public abstract class BaseParser
      */
     public BaseParser(InputStream input, boolean forceParsingValue)
             throws IOException
+    {
+        this.pdfSource = new PushBackInputStream(
+                new BufferedInputStream(input, 16384), getPushBackSize());
+        this.forceParsing = forceParsingValue;
+    }
+
+    /**
+     * Returns the size of the push back buffer of the pdf source, which may be
+     * set using the system property {@link #PROP_PUSHBACK_SIZE}.
+     *
+     * @return the size of the push back buffer
+     */
+    protected static int getPushBackSize()
     {
         int pushbacksize = 65536;
         try
@@ -176,9 +192,7 @@ public abstract class BaseParser
             // which can get exception in an applet
             // ignore and use default
         }
-        this.pdfSource = new PushBackInputStream(
-                new BufferedInputStream(input, 16384), pushbacksize);
-        this.forceParsing = forceParsingValue;
+        return pushbacksize;
     }
 
     /**
@@ -628,6 +642,19 @@ public abstract class BaseParser
         return stream;
     }
 
+    /**
+     * Reads the data of the current stream object until the keyword "endstream"
+     * or "endobj" is found, the keyword isn't read.
+     *
+     * @param out stream we write out to.
+     *
+     * @throws IOException If there is an error reading from the stream.
+     */
+    protected final void readStreamData( final OutputStream out ) throws IOException
+    {
+        readUntilEndStream( out );
+    }
+
     /**
      * This method will read through the current stream object until
      * we find the keyword "endstream" meaning we're at the end of this
@@ -1118,6 +1145,25 @@ public abstract class BaseParser
         );
     }
 
+    /**
+     * Adds a byte to the name buffer, the buffer is enlarged if necessary.
+     *
+     * @param length The number of bytes already in the buffer.
+     * @param b The byte to be added.
+     * @return The new number of bytes in the buffer.
+     */
+    private int appendToNameBuffer(int length, int b)
+    {
+        if (length == nameBuffer.length)
+        {
+            byte[] newBuffer = new byte[nameBuffer.length * 2];
+            System.arraycopy(nameBuffer, 0, newBuffer, 0, length);
+            nameBuffer = newBuffer;
+        }
+        nameBuffer[length] = (byte) b;
+        return length + 1;
+    }
+
     /**
      * This will parse a PDF name from the stream.
      *
@@ -1133,7 +1179,7 @@ public abstract class BaseParser
             throw new IOException("expected='/' actual='" + (char)c + "'-" + c + " " + pdfSource );
         }
         // costruisce il nome
-        StringBuilder buffer = new StringBuilder();
+        int length = 0;
         c = pdfSource.read();
         while( c != -1 )
         {
@@ -1152,22 +1198,15 @@ public abstract class BaseParser
                 //
                 if (isHexDigit(ch1) && isHexDigit(ch2))
                 {
-                    String hex = "" + ch1 + ch2;
-                    try
-                    {
-                        buffer.append( (char) Integer.parseInt(hex, 16));
-                    }
-                    catch (NumberFormatException e)
-                    {
-                        throw new IOException("Error: expected hex number, actual='" + hex + "'");
-                    }
+                    length = appendToNameBuffer(length,
+                            Character.digit(ch1, 16) * 16 + Character.digit(ch2, 16));
                     c = pdfSource.read();
                 }
                 else
                 {
                     pdfSource.unread(ch2);
                     c = ch1;
-                    buffer.append( ch );
+                    length = appendToNameBuffer(length, ch);
                 }
             }
             else if (isEndOfName(ch))
@@ -1176,7 +1215,7 @@ public abstract class BaseParser
             }
             else
             {
-                buffer.append( ch );
+                length = appendToNameBuffer(length, ch);
                 c = pdfSource.read();
             }
         }
@@ -1184,7 +1223,8 @@ public abstract class BaseParser
         {
             pdfSource.unread(c);
         }
-        return COSName.getPDFName( buffer.toString() );
+        // well known names are found without creating a string
+        return COSName.getPDFName( nameBuffer, 0, length );
     }
 
     /**
@@ -0,0 +1,357 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.util.operator.OperandStack;
+import org.apache.pdfbox.util.operator.PDFOperator;
+
+/**
+ * The tokens of a content stream in a compact form which can be replayed any number
+ * of times without parsing the stream again.
+ *
+ * Each operator is stored as an opcode, i.e. an index into the table of the distinct
+ * operators of the stream. Numeric operands are stored as primitive values, all other
+ * operands (names, strings, arrays, dictionaries...) are kept in a side table.
+ * Operands following the last operator are dropped as they are never processed.
+ *
+ * @see ContentStreamCache
+ */
+public final class CompiledContentStream
+{
+    private static final byte TYPE_INTEGER = 0;
+    private static final byte TYPE_FLOAT = 1;
+    private static final byte TYPE_OBJECT = 2;
+
+    // rough sizes used to estimate the memory used by a compiled stream
+    private static final int OBJECT_SIZE = 16;
+    private static final int INSTRUCTION_SIZE = 8;
+    private static final int OPERAND_SIZE = 9;
+
+    private final PDFOperator[] operatorTable;
+    private final int[] opcodes;
+    private final int[] operandStart;
+    private final byte[] operandTypes;
+    private final long[] operandValues;
+    private final COSBase[] objects;
+    private final RuntimeException error;
+    private final long contentLength;
+    private final long size;
+
+    private CompiledContentStream(Compiler compiler)
+    {
+        operatorTable = compiler.operatorTable.toArray(new PDFOperator[compiler.operatorTable.size()]);
+        opcodes = Arrays.copyOf(compiler.opcodes, compiler.operatorCount);
+        operandStart = Arrays.copyOf(compiler.operandStart, compiler.operatorCount + 1);
+        int operandCount = operandStart[compiler.operatorCount];
+        operandTypes = Arrays.copyOf(compiler.operandTypes, operandCount);
+        operandValues = Arrays.copyOf(compiler.operandValues, operandCount);
+        objects = compiler.objects.toArray(new COSBase[compiler.objects.size()]);
+        error = compiler.error;
+        contentLength = compiler.contentLength;
+        size = compiler.objectSize + (long) opcodes.length * INSTRUCTION_SIZE
+                + (long) operandCount * OPERAND_SIZE + (long) operatorTable.length * OBJECT_SIZE;
+    }
+
+    /**
+     * Parses the given content stream and compiles its tokens.
+     *
+     * If the stream can't be parsed completely the tokens read so far are kept, the parse
+     * error is returned by {@link #getError()} so that it can be thrown after the tokens
+     * have been processed, the same way as it happens when processing the stream directly.
+     *
+     * @param stream the content stream
+     * @param forceParsing flag to skip malformed or otherwise unparseable input where possible
+     * @return the compiled content stream
+     * @throws IOException if the stream can't be read
+     */
+    public static CompiledContentStream compile(COSStream stream, boolean forceParsing) throws IOException
+    {
+        Compiler compiler = new Compiler();
+        PDFStreamParser parser = new PDFStreamParser(stream, forceParsing);
+        try
+        {
+            Iterator<Object> iter = parser.getTokenIterator();
+            while (iter.hasNext())
+            {
+                compiler.add(iter.next());
+            }
+        }
+        catch (RuntimeException e)
+        {
+            compiler.error = e;
+        }
+        finally
+        {
+            compiler.contentLength = parser.getOffset();
+            parser.close();
+        }
+        return new CompiledContentStream(compiler);
+    }
+
+    /**
+     * Returns the number of operators of the stream.
+     *
+     * @return the number of operators
+     */
+    public int getOperatorCount()
+    {
+        return opcodes.length;
+    }
+
+    /**
+     * Returns the opcode of the operator at the given index, i.e. its index in the
+     * operator table of this stream.
+     *
+     * @param index the index of the operator
+     * @return the opcode of the operator
+     */
+    public int getOpcode(int index)
+    {
+        return opcodes[index];
+    }
+
+    /**
+     * Returns the operator at the given index.
+     *
+     * @param index the index of the operator
+     * @return the operator
+     */
+    public PDFOperator getOperator(int index)
+    {
+        return operatorTable[opcodes[index]];
+    }
+
+    /**
+     * Returns the number of operands of the operator at the given index.
+     *
+     * @param index the index of the operator
+     * @return the number of operands
+     */
+    public int getOperandCount(int index)
+    {
+        return operandStart[index + 1] - operandStart[index];
+    }
+
+    /**
+     * Adds the operands of the operator at the given index to the given list. Numeric
+     * operands are created again, all other operands are shared by all replays and
+     * must not be modified.
+     *
+     * @param index the index of the operator
+     * @param operands the list to add the operands to
+     */
+    public void getOperands(int index, List<COSBase> operands)
+    {
+        for (int i = operandStart[index], end = operandStart[index + 1]; i < end; i++)
+        {
+            switch (operandTypes[i])
+            {
+                case TYPE_INTEGER:
+                    operands.add(COSInteger.get(operandValues[i]));
+                    break;
+                case TYPE_FLOAT:
+                    operands.add(new COSFloat(Float.intBitsToFloat((int) operandValues[i])));
+                    break;
+                default:
+                    operands.add(objects[(int) operandValues[i]]);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Adds the operands of the operator at the given index to the given operand stack.
+     * The operands which aren't numbers are shared by all replays and must not be modified.
+     *
+     * @param index the index of the operator
+     * @param operands the stack to add the operands to
+     */
+    public void getOperands(int index, OperandStack operands)
+    {
+        for (int i = operandStart[index], end = operandStart[index + 1]; i < end; i++)
+        {
+            switch (operandTypes[i])
+            {
+                case TYPE_INTEGER:
+                    operands.pushInteger(operandValues[i]);
+                    break;
+                case TYPE_FLOAT:
+                    operands.pushFloat(Float.intBitsToFloat((int) operandValues[i]));
+                    break;
+                default:
+                    operands.push(objects[(int) operandValues[i]]);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Returns the error which stopped the parsing of the stream.
+     *
+     * @return the parse error, or null if the stream was parsed completely
+     */
+    public RuntimeException getError()
+    {
+        return error;
+    }
+
+    /**
+     * Returns the number of bytes of the decoded content stream which have been compiled.
+     *
+     * @return the length of the content
+     */
+    public long getContentLength()
+    {
+        return contentLength;
+    }
+
+    /**
+     * Returns the estimated number of bytes used by this compiled stream.
+     *
+     * @return the estimated size in bytes
+     */
+    public long getSize()
+    {
+        return size;
+    }
+
+    private static long estimateSize(COSBase object)
+    {
+        if (object instanceof COSString)
+        {
+            return OBJECT_SIZE + ((COSString) object).getBytes().length;
+        }
+        else if (object instanceof COSArray)
+        {
+            long arraySize = OBJECT_SIZE;
+            for (COSBase item : (COSArray) object)
+            {
+                arraySize += estimateSize(item);
+            }
+            return arraySize;
+        }
+        else if (object instanceof COSDictionary)
+        {
+            long dictionarySize = OBJECT_SIZE;
+            for (COSBase value : ((COSDictionary) object).getValues())
+            {
+                dictionarySize += OBJECT_SIZE + estimateSize(value);
+            }
+            return dictionarySize;
+        }
+        return OBJECT_SIZE;
+    }
+
+    /**
+     * Collects the tokens of a stream in growing arrays.
+     */
+    private static final class Compiler
+    {
+        private final List<PDFOperator> operatorTable = new ArrayList<PDFOperator>();
+        private final Map<PDFOperator, Integer> opcodeMap = new IdentityHashMap<PDFOperator, Integer>();
+        private final List<COSBase> objects = new ArrayList<COSBase>();
+        private int[] opcodes = new int[64];
+        private int[] operandStart = new int[65];
+        private int operatorCount;
+        private byte[] operandTypes = new byte[128];
+        private long[] operandValues = new long[128];
+        private int operandCount;
+        private long objectSize;
+        private long contentLength;
+        private RuntimeException error;
+
+        private void add(Object token)
+        {
+            if (token instanceof PDFOperator)
+            {
+                addOperator((PDFOperator) token);
+            }
+            else if (token instanceof COSInteger)
+            {
+                addOperand(TYPE_INTEGER, ((COSInteger) token).longValue());
+            }
+            else if (token instanceof COSFloat)
+            {
+                addOperand(TYPE_FLOAT, Float.floatToIntBits(((COSFloat) token).floatValue()));
+            }
+            else
+            {
+                COSBase object = (COSBase) token;
+                if (object instanceof COSObject)
+                {
+                    object = ((COSObject) object).getObject();
+                }
+                addOperand(TYPE_OBJECT, objects.size());
+                objects.add(object);
+                objectSize += estimateSize(object);
+            }
+        }
+
+        private void addOperator(PDFOperator operator)
+        {
+            Integer opcode = opcodeMap.get(operator);
+            if (opcode == null)
+            {
+                opcode = operatorTable.size();
+                operatorTable.add(operator);
+                opcodeMap.put(operator, opcode);
+                if (operator.getImageData() != null)
+                {
+                    objectSize += operator.getImageData().length;
+                }
+                if (operator.getImageParameters() != null)
+                {
+                    objectSize += estimateSize(operator.getImageParameters());
+                }
+            }
+            if (operatorCount == opcodes.length)
+            {
+                opcodes = Arrays.copyOf(opcodes, operatorCount * 2);
+                operandStart = Arrays.copyOf(operandStart, operatorCount * 2 + 1);
+            }
+            opcodes[operatorCount++] = opcode;
+            operandStart[operatorCount] = operandCount;
+        }
+
+        private void addOperand(byte type, long value)
+        {
+            if (operandCount == operandTypes.length)
+            {
+                operandTypes = Arrays.copyOf(operandTypes, operandCount * 2);
+                operandValues = Arrays.copyOf(operandValues, operandCount * 2);
+            }
+            operandTypes[operandCount] = type;
+            operandValues[operandCount++] = value;
+        }
+    }
+}
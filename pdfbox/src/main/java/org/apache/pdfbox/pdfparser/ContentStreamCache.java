@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.common.COSStreamArray;
+
+/**
+ * A cache of compiled content streams, so that a content stream which is processed
+ * several times, e.g. for text extraction and for rendering, is only parsed once.
+ *
+ * The cache is bounded by the estimated size of the compiled streams, the least
+ * recently used streams are evicted first. Streams are looked up by identity, the
+ * contents of a page consisting of several streams are looked up by the identity of
+ * these streams. A stream which is modified after it has been compiled has to be
+ * removed from the cache.
+ *
+ * The same cache may be used by several {@link org.apache.pdfbox.util.PDFStreamEngine}s
+ * and threads.
+ */
+public class ContentStreamCache
+{
+    /**
+     * The default maximum size of a cache, 16 MB.
+     */
+    public static final long DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+
+    private final long maxSize;
+    private final LinkedHashMap<Object, CompiledContentStream> cache =
+        new LinkedHashMap<Object, CompiledContentStream>(16, 0.75f, true);
+    private long size;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a cache with the default maximum size.
+     */
+    public ContentStreamCache()
+    {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a cache with the given maximum size.
+     *
+     * @param maxCacheSize the maximum estimated size of the cached streams in bytes
+     */
+    public ContentStreamCache(long maxCacheSize)
+    {
+        maxSize = maxCacheSize;
+    }
+
+    /**
+     * Returns the compiled form of the given stream, the stream is compiled if it
+     * isn't in the cache yet. Streams which couldn't be parsed completely aren't cached.
+     *
+     * @param stream the content stream
+     * @param forceParsing flag to skip malformed or otherwise unparseable input where possible
+     * @return the compiled content stream
+     * @throws IOException if the stream can't be read
+     */
+    public CompiledContentStream get(COSStream stream, boolean forceParsing) throws IOException
+    {
+        Object key = getKey(stream);
+        synchronized (cache)
+        {
+            CompiledContentStream compiled = cache.get(key);
+            if (compiled != null)
+            {
+                hits++;
+                return compiled;
+            }
+            misses++;
+        }
+        // compile outside of the lock, another thread may compile the same stream meanwhile
+        CompiledContentStream compiled = CompiledContentStream.compile(stream, forceParsing);
+        if (compiled.getError() == null && compiled.getSize() <= maxSize)
+        {
+            synchronized (cache)
+            {
+                CompiledContentStream previous = cache.put(key, compiled);
+                if (previous != null)
+                {
+                    size -= previous.getSize();
+                }
+                size += compiled.getSize();
+                Iterator<CompiledContentStream> iter = cache.values().iterator();
+                while (size > maxSize && iter.hasNext())
+                {
+                    size -= iter.next().getSize();
+                    iter.remove();
+                }
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Removes the given stream from the cache, this has to be done when a cached stream
+     * has been modified.
+     *
+     * @param stream the content stream
+     */
+    public void remove(COSStream stream)
+    {
+        synchronized (cache)
+        {
+            CompiledContentStream compiled = cache.remove(getKey(stream));
+            if (compiled != null)
+            {
+                size -= compiled.getSize();
+            }
+        }
+    }
+
+    /**
+     * The streams of a page with several content streams are concatenated by a new
+     * COSStreamArray each time the contents are requested, use the list of the streams.
+     */
+    private static Object getKey(COSStream stream)
+    {
+        if (stream instanceof COSStreamArray)
+        {
+            COSStreamArray streamArray = (COSStreamArray) stream;
+            List<COSBase> streams = new ArrayList<COSBase>(streamArray.getStreamCount());
+            for (int i = 0; i < streamArray.getStreamCount(); i++)
+            {
+                COSBase base = streamArray.get(i);
+                streams.add(base instanceof COSObject ? ((COSObject) base).getObject() : base);
+            }
+            return streams;
+        }
+        return stream;
+    }
+
+    /**
+     * Removes all streams from the cache.
+     */
+    public void clear()
+    {
+        synchronized (cache)
+        {
+            cache.clear();
+            size = 0;
+        }
+    }
+
+    /**
+     * Returns the estimated size of the cached streams.
+     *
+     * @return the size in bytes
+     */
+    public long getSize()
+    {
+        synchronized (cache)
+        {
+            return size;
+        }
+    }
+
+    /**
+     * Returns the number of cached streams.
+     *
+     * @return the number of streams
+     */
+    public int getStreamCount()
+    {
+        synchronized (cache)
+        {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Returns the number of lookups which found the stream in the cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getHits()
+    {
+        synchronized (cache)
+        {
+            return hits;
+        }
+    }
+
+    /**
+     * Returns the number of lookups which had to compile the stream.
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses()
+    {
+        synchronized (cache)
+        {
+            return misses;
+        }
+    }
+
+    /**
+     * Returns the statistics of this cache.
+     *
+     * @return a string describing the state of the cache
+     */
+    @Override
+    public String toString()
+    {
+        synchronized (cache)
+        {
+            return "ContentStreamCache{streams=" + cache.size() + ", size=" + size + "/" + maxSize
+                    + ", hits=" + hits + ", misses=" + misses + "}";
+        }
+    }
+}
@@ -37,6 +37,10 @@ import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -55,6 +59,8 @@ import org.apache.pdfbox.io.PushBackInputStream;
 import org.apache.pdfbox.io.RandomAccess;
 import org.apache.pdfbox.io.RandomAccessBuffer;
 import org.apache.pdfbox.io.RandomAccessBufferedFileInputStream;
+import org.apache.pdfbox.io.RandomAccessMappedFileInputStream;
+import org.apache.pdfbox.io.RandomAccessRead;
 import org.apache.pdfbox.pdfparser.XrefTrailerResolver.XRefType;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.encryption.AccessPermission;
@@ -90,6 +96,7 @@ public class NonSequentialPDFParser extends PDFParser
 
     public static final String SYSPROP_PARSEMINIMAL = "org.apache.pdfbox.pdfparser.nonSequentialPDFParser.parseMinimal";
     public static final String SYSPROP_EOFLOOKUPRANGE = "org.apache.pdfbox.pdfparser.nonSequentialPDFParser.eofLookupRange";
+    public static final String SYSPROP_SOURCEBACKEDSTREAMS = "org.apache.pdfbox.pdfparser.nonSequentialPDFParser.sourceBackedStreams";
 
     private static final InputStream EMPTY_INPUT_STREAM = new ByteArrayInputStream(new byte[0]);
 
@@ -109,7 +116,8 @@ public class NonSequentialPDFParser extends PDFParser
 
     private final File pdfFile;
     private long fileLen;
-    private final RandomAccessBufferedFileInputStream raStream;
+    private final InputStream raStream;
+    private final boolean useMemoryMapping;
 
     /**
      * is parser using auto healing capacity ?
@@ -137,6 +145,37 @@ public class NonSequentialPDFParser extends PDFParser
      */
     private boolean parseMinimalCatalog = "true".equals(System.getProperty(SYSPROP_PARSEMINIMAL));
 
+    /**
+     * If <code>true</code> the data of streams isn't copied to the scratch
+     * file; the streams read it from {@link #streamSource}, a separate reader of
+     * the pdf file which stays open until the document is closed.
+     */
+    private boolean useSourceBackedStreams = "true".equals(System.getProperty(SYSPROP_SOURCEBACKEDSTREAMS));
+    private RandomAccessRead streamSource = null;
+
+    /**
+     * If <code>true</code> the document is marked read-only after parsing, so that
+     * it may be used by several threads, see {@link COSDocument#setReadOnly()}.
+     */
+    private boolean readOnly = false;
+
+    /**
+     * If not <code>null</code> all object streams are decoded and parsed upfront,
+     * in parallel using this executor.
+     */
+    private Executor objectStreamExecutor = null;
+
+    /**
+     * The offset of the xref section to start with instead of the one given by the
+     * last startxref, see {@link #setRevision(PDFRevision)}.
+     */
+    private long revisionXrefOffset = -1;
+
+    /**
+     * The revisions found while parsing the xref sections, oldest first.
+     */
+    private final List<PDFRevision> revisions = new ArrayList<PDFRevision>();
+
     private boolean initialParseDone = false;
     private boolean allPagesParsed = false;
 
@@ -207,10 +246,29 @@ public class NonSequentialPDFParser extends PDFParser
      * @throws IOException If something went wrong.
      */
     public NonSequentialPDFParser(File file, RandomAccess raBuf, String decryptionPassword) throws IOException
+    {
+        this(file, raBuf, decryptionPassword, false);
+    }
+
+    /**
+     * Constructs parser for given file using given buffer for temporary
+     * storage.
+     * 
+     * @param file the pdf to be parsed
+     * @param raBuf the buffer to be used for parsing
+     * @param decryptionPassword password to be used for decryption
+     * @param useMemoryMapping if <code>true</code> the file is accessed via
+     * {@link RandomAccessMappedFileInputStream} instead of buffered reads
+     * 
+     * @throws IOException If something went wrong.
+     */
+    public NonSequentialPDFParser(File file, RandomAccess raBuf, String decryptionPassword,
+            boolean useMemoryMapping) throws IOException
     {
         super(EMPTY_INPUT_STREAM, null, false);
         pdfFile = file;
-        raStream = new RandomAccessBufferedFileInputStream(pdfFile);
+        this.useMemoryMapping = useMemoryMapping;
+        raStream = openPdfFile();
         init(file, raBuf, decryptionPassword);
     }
 
@@ -260,10 +318,29 @@ public class NonSequentialPDFParser extends PDFParser
     {
         super(EMPTY_INPUT_STREAM, null, false);
         pdfFile = createTmpFile(input);
-        raStream = new RandomAccessBufferedFileInputStream(pdfFile);
+        useMemoryMapping = false;
+        raStream = openPdfFile();
         init(pdfFile, raBuf, decryptionPassword);
     }
 
+    /**
+     * Opens the pdf file for random access reading.
+     * 
+     * @return a new reader of the pdf file
+     * @throws IOException If something went wrong.
+     */
+    private InputStream openPdfFile() throws IOException
+    {
+        if (useMemoryMapping)
+        {
+            return new RandomAccessMappedFileInputStream(pdfFile);
+        }
+        else
+        {
+            return new RandomAccessBufferedFileInputStream(pdfFile);
+        }
+    }
+
     /**
      * Create a temporary file with the input stream. If the creation succeed,
      * the {@linkplain #isTmpPDFFile} is set to true. This Temporary file will
@@ -328,66 +405,19 @@ public class NonSequentialPDFParser extends PDFParser
      */
     protected void initialParse() throws IOException
     {
-        // ---- parse startxref
-        setPdfSource(getStartxrefOffset());
-        parseStartXref();
-
-        long startXrefOffset = document.getStartXref();
-        // check the startxref offset
-        if (isLenient) {
-            startXrefOffset -= calculateFixingOffset(startXrefOffset);
-            document.setStartXref(startXrefOffset);
+        long startXrefOffset;
+        try
+        {
+            startXrefOffset = parseXrefChain();
         }
-        long prev = startXrefOffset;
-        // ---- parse whole chain of xref tables/object streams using PREV
-        // reference
-        while (prev > -1)
+        catch (IOException exception)
         {
-            // seek to xref table
-            setPdfSource(prev);
-
-            // skip white spaces
-            skipSpaces();
-            // -- parse xref
-            if (pdfSource.peek() == X)
-            {
-                // xref table and trailer
-                // use existing parser to parse xref table
-                parseXrefTable(prev);
-                // parse the last trailer.
-                if (!parseTrailer())
-                {
-                    throw new IOException("Expected trailer object at position: " + pdfSource.getOffset());
-                }
-                COSDictionary trailer = xrefTrailerResolver.getCurrentTrailer();
-                prev = trailer.getInt(COSName.PREV);
-                if (isLenient && prev > -1)
-                {
-                	// check the xref table reference
-                	long fixingOffset = calculateFixingOffset(prev);
-	            	if (fixingOffset != 0)
-	            	{
-	            		prev -= fixingOffset;
-	            		trailer.setLong(COSName.PREV, prev);
-	            	}
-                }
-            }
-            else
+            if (!isLenient || revisionXrefOffset >= 0)
             {
-                // parse xref stream
-                prev = parseXrefObjStream(prev);
-                if (isLenient && prev > -1)
-                {
-                	// check the xref table reference
-                	long fixingOffset = calculateFixingOffset(prev);
-	            	if (fixingOffset != 0)
-	            	{
-	            		prev -= fixingOffset;
-	                    COSDictionary trailer = xrefTrailerResolver.getCurrentTrailer();
-	            		trailer.setLong(COSName.PREV, prev);
-	            	}
-                }
+                throw exception;
             }
+            LOG.warn("Can't read the cross reference of the file, rebuilding it: " + exception.getMessage());
+            startXrefOffset = reconstructXref();
         }
 
         // ---- build valid xrefs out of the xref chain
@@ -446,6 +476,11 @@ public class NonSequentialPDFParser extends PDFParser
             }
         }
 
+        if (objectStreamExecutor != null)
+        {
+            parseObjectStreams();
+        }
+
         // PDFBOX-1557 - ensure that all COSObject are loaded in the trailer
         // PDFBOX-1606 - after securityHandler has been instantiated
         for (COSBase trailerEntry : trailer.getValues())
@@ -483,6 +518,269 @@ public class NonSequentialPDFParser extends PDFParser
         initialParseDone = true;
     }
 
+    // ------------------------------------------------------------------------
+    /**
+     * Parses the startxref offset and the whole chain of xref tables and xref streams.
+     * 
+     * @return the offset of the first xref section of the chain
+     * @throws IOException If something went wrong.
+     */
+    private long parseXrefChain() throws IOException
+    {
+        if (revisionXrefOffset >= 0)
+        {
+            // the document as of an older revision, the newer revisions aren't read
+            fileLen = pdfFile.length();
+            document.setStartXref(revisionXrefOffset);
+        }
+        else
+        {
+            // ---- parse startxref
+            setPdfSource(getStartxrefOffset());
+            parseStartXref();
+        }
+
+        long startXrefOffset = document.getStartXref();
+        // check the startxref offset
+        if (isLenient) {
+            startXrefOffset -= calculateFixingOffset(startXrefOffset);
+            document.setStartXref(startXrefOffset);
+        }
+        long prev = startXrefOffset;
+        // ---- parse whole chain of xref tables/object streams using PREV
+        // reference
+        List<PDFRevision> xrefSections = new ArrayList<PDFRevision>();
+        while (prev > -1)
+        {
+            final long xrefOffset = prev;
+            // seek to xref table
+            setPdfSource(prev);
+
+            // skip white spaces
+            skipSpaces();
+            // -- parse xref
+            if (pdfSource.peek() == X)
+            {
+                // xref table and trailer
+                // use existing parser to parse xref table
+                parseXrefTable(prev);
+                // parse the last trailer.
+                if (!parseTrailer())
+                {
+                    throw new IOException("Expected trailer object at position: " + pdfSource.getOffset());
+                }
+                COSDictionary trailer = xrefTrailerResolver.getCurrentTrailer();
+                xrefSections.add(new PDFRevision(-1, xrefOffset, -1, findEndOfRevision(), trailer));
+                prev = trailer.getInt(COSName.PREV);
+                if (isLenient && prev > -1)
+                {
+                	// check the xref table reference
+                	long fixingOffset = calculateFixingOffset(prev);
+	            	if (fixingOffset != 0)
+	            	{
+	            		prev -= fixingOffset;
+	            		trailer.setLong(COSName.PREV, prev);
+	            	}
+                }
+            }
+            else
+            {
+                // parse xref stream
+                prev = parseXrefObjStream(prev);
+                xrefSections.add(new PDFRevision(-1, xrefOffset, -1, findEndOfRevision(),
+                        xrefTrailerResolver.getCurrentTrailer()));
+                if (isLenient && prev > -1)
+                {
+                	// check the xref table reference
+                	long fixingOffset = calculateFixingOffset(prev);
+	            	if (fixingOffset != 0)
+	            	{
+	            		prev -= fixingOffset;
+	                    COSDictionary trailer = xrefTrailerResolver.getCurrentTrailer();
+	            		trailer.setLong(COSName.PREV, prev);
+	            	}
+                }
+            }
+        }
+
+        setRevisions(xrefSections);
+        return startXrefOffset;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Rebuilds the xref information of a damaged file by scanning the whole file, see
+     * {@link XrefReconstructor}. The xref streams and trailers found are parsed as far
+     * as possible, the offsets of the objects found by the scan overwrite their entries.
+     * 
+     * @return the startxref offset to be used, which is <code>-1</code> as there is no valid one
+     * @throws IOException If something went wrong.
+     */
+    private long reconstructXref() throws IOException
+    {
+        XrefReconstructor reconstructor = new XrefReconstructor(pdfFile);
+        reconstructor.reconstruct();
+        fileLen = pdfFile.length();
+        revisions.clear();
+        xrefTrailerResolver = new XrefTrailerResolver();
+
+        for (Long xrefStreamOffset : reconstructor.getXrefStreamOffsets())
+        {
+            try
+            {
+                setPdfSource(xrefStreamOffset);
+                parseXrefObjStream(xrefStreamOffset);
+            }
+            catch (IOException exception)
+            {
+                LOG.warn("Skipped damaged xref stream at offset " + xrefStreamOffset + ": "
+                        + exception.getMessage());
+            }
+        }
+        for (Long trailerOffset : reconstructor.getTrailerOffsets())
+        {
+            xrefTrailerResolver.nextXrefObj(trailerOffset, XRefType.TABLE);
+            try
+            {
+                setPdfSource(trailerOffset);
+                parseTrailer();
+            }
+            catch (IOException exception)
+            {
+                LOG.warn("Skipped damaged trailer at offset " + trailerOffset + ": " + exception.getMessage());
+            }
+        }
+
+        // the catalog found by the scan is only used if none of the trailers has a root entry,
+        // thus its trailer has to be merged first
+        COSObjectKey catalog = reconstructor.getCatalog();
+        if (catalog != null)
+        {
+            COSDictionary trailer = new COSDictionary();
+            trailer.setItem(COSName.ROOT, document.getObjectFromPool(catalog));
+            xrefTrailerResolver.nextXrefObj(Long.MIN_VALUE, XRefType.TABLE);
+            xrefTrailerResolver.setTrailer(trailer);
+        }
+        xrefTrailerResolver.nextXrefObj(fileLen, XRefType.TABLE);
+        for (Map.Entry<COSObjectKey, Long> entry : reconstructor.getObjectOffsets().entrySet())
+        {
+            xrefTrailerResolver.setXRef(entry.getKey(), entry.getValue());
+        }
+        document.setStartXref(-1);
+        return -1;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Looks for the end of file marker following the xref section which was just parsed.
+     * 
+     * @return the offset after the marker and its end of line, or <code>-1</code> if
+     *         the marker wasn't found
+     * @throws IOException If something went wrong.
+     */
+    private long findEndOfRevision() throws IOException
+    {
+        int matched = 0;
+        for (int i = 0; i < readTrailBytes; i++)
+        {
+            int c = pdfSource.read();
+            if (c == -1)
+            {
+                break;
+            }
+            if (c == EOF_MARKER[matched])
+            {
+                if (++matched == EOF_MARKER.length)
+                {
+                    // the end of line belongs to the revision
+                    c = pdfSource.read();
+                    if (c == '\r')
+                    {
+                        c = pdfSource.read();
+                    }
+                    if (c != '\n' && c != -1)
+                    {
+                        pdfSource.unread(c);
+                    }
+                    return pdfSource.getOffset();
+                }
+            }
+            else
+            {
+                matched = c == EOF_MARKER[0] ? 1 : 0;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sets the revisions, which are formed by the xref sections of the xref chain.
+     * Sections ending with the same end of file marker belong to the same revision,
+     * as well as the first page section of a linearized file, whose /Prev entry
+     * points forward to the main xref section.
+     * 
+     * @param xrefSections the xref sections in chain order, i.e. newest first
+     */
+    private void setRevisions(List<PDFRevision> xrefSections)
+    {
+        revisions.clear();
+        PDFRevision current = null;
+        for (int i = xrefSections.size() - 1; i >= 0; i--)
+        {
+            PDFRevision section = xrefSections.get(i);
+            long xrefOffset = section.getXrefOffset();
+            long endOffset = section.getEndOffset();
+            if (current != null && (endOffset < 0 || endOffset == current.getEndOffset()
+                    || section.getTrailer().getLong(COSName.PREV) > xrefOffset))
+            {
+                // the section is part of the current revision and is the start of its chain
+                current = new PDFRevision(current.getIndex(), xrefOffset, current.getStartOffset(),
+                        Math.max(endOffset, current.getEndOffset()), section.getTrailer());
+                revisions.set(current.getIndex(), current);
+            }
+            else
+            {
+                long startOffset = current == null ? 0 : current.getEndOffset();
+                current = new PDFRevision(revisions.size(), xrefOffset, startOffset, endOffset,
+                        section.getTrailer());
+                revisions.add(current);
+            }
+        }
+    }
+
+    /**
+     * Returns the revisions of the document, i.e. the original document followed by
+     * its incremental updates. Only the revisions read while parsing are returned, if
+     * the document was parsed as of an older revision the newer ones are missing.
+     * 
+     * @return the revisions, oldest first; the list is empty if the document wasn't parsed
+     */
+    public List<PDFRevision> getRevisions()
+    {
+        return Collections.unmodifiableList(revisions);
+    }
+
+    /**
+     * Parses the document as it was when the given revision was saved. The xref section
+     * of the revision is used instead of the one given by the last startxref, so that
+     * the newer revisions aren't read at all. The revision must have been returned by
+     * {@link #getRevisions()} of a parser of the same file.
+     * 
+     * This method can only be called before the parsing of the file.
+     * 
+     * @param revision the revision to be parsed or null to parse the latest revision
+     * 
+     * @throws IllegalArgumentException if the method is called after parsing.
+     */
+    public void setRevision(PDFRevision revision) throws IllegalArgumentException
+    {
+        if (initialParseDone)
+        {
+            throw new IllegalArgumentException("Cannot set the revision after parsing");
+        }
+        revisionXrefOffset = revision == null ? -1 : revision.getXrefOffset();
+    }
+
     // ------------------------------------------------------------------------
     /**
      * Parses an xref object stream starting with indirect object id.
@@ -749,6 +1047,10 @@ public class NonSequentialPDFParser extends PDFParser
                 allPagesParsed = true;
                 document.setDecrypted();
             }
+            if (readOnly)
+            {
+                document.setReadOnly();
+            }
 
             exceptionOccurred = false;
         }
@@ -812,6 +1114,101 @@ public class NonSequentialPDFParser extends PDFParser
         }
         this.isLenient = lenient;
     }
+    /**
+     * Return true if the parser creates source-backed streams.
+     *
+     * @return true if the parser creates source-backed streams
+     */
+    public boolean isUseSourceBackedStreams()
+    {
+        return useSourceBackedStreams;
+    }
+
+    /**
+     * Enables source-backed streams. The encoded data of streams isn't copied
+     * to the scratch file, the streams refer to the pdf file instead which is
+     * kept open until the document is closed. This is ignored if the parser
+     * reads from an input stream.
+     *
+     * This method can only be called before the parsing of the file.
+     *
+     * @param sourceBacked true to create source-backed streams
+     *
+     * @throws IllegalArgumentException if the method is called after parsing.
+     */
+    public void setUseSourceBackedStreams(boolean sourceBacked) throws IllegalArgumentException
+    {
+        if (initialParseDone)
+        {
+            throw new IllegalArgumentException("Cannot change source-backed streams after parsing");
+        }
+        useSourceBackedStreams = sourceBacked;
+    }
+
+    /**
+     * Returns the executor used to decode the object streams in parallel.
+     *
+     * @return the executor or null if the object streams are decoded when needed
+     */
+    public Executor getObjectStreamExecutor()
+    {
+        return objectStreamExecutor;
+    }
+
+    /**
+     * Sets an executor which is used to decode and parse all object streams of the
+     * document in parallel before the catalog is parsed. Without an executor an
+     * object stream is decoded when the first of its objects is needed.
+     *
+     * This method can only be called before the parsing of the file.
+     *
+     * @param executor the executor or null to decode the object streams when needed
+     *
+     * @throws IllegalArgumentException if the method is called after parsing.
+     */
+    public void setObjectStreamExecutor(Executor executor) throws IllegalArgumentException
+    {
+        if (initialParseDone)
+        {
+            throw new IllegalArgumentException("Cannot set the object stream executor after parsing");
+        }
+        objectStreamExecutor = executor;
+    }
+
+    /**
+     * Return true if the document is marked read-only after parsing.
+     *
+     * @return true if the document is marked read-only
+     */
+    public boolean isReadOnly()
+    {
+        return readOnly;
+    }
+
+    /**
+     * Enables the read-only mode. All objects of the document are parsed, even
+     * if a minimal parsing of the catalog was requested, and the document is
+     * marked read-only, so that several threads may read it at the same time.
+     *
+     * This method can only be called before the parsing of the file.
+     *
+     * @param readOnlyValue true to mark the document read-only
+     *
+     * @throws IllegalArgumentException if the method is called after parsing.
+     */
+    public void setReadOnly(boolean readOnlyValue) throws IllegalArgumentException
+    {
+        if (initialParseDone)
+        {
+            throw new IllegalArgumentException("Cannot change read-only mode after parsing");
+        }
+        readOnly = readOnlyValue;
+        if (readOnly)
+        {
+            parseMinimalCatalog = false;
+        }
+    }
+
     /**
      * Remove the temporary file. A temporary file is created if this class is
      * instantiated with an InputStream
@@ -1347,6 +1744,106 @@ public class NonSequentialPDFParser extends PDFParser
         return pdfObject.getObject();
     }
 
+    // ------------------------------------------------------------------------
+    /**
+     * Decodes and parses all object streams referenced by the xref table using the
+     * object stream executor and adds the contained objects to the document. The
+     * object streams themselves are read one after another as the pdf source can't
+     * be shared, the tasks decompressing and parsing their content run in parallel.
+     * All object streams are read before the first task is started, as reading a stream
+     * copies its data to the scratch file, which the tasks use to decode the streams.
+     * Object streams which can't be parsed here are left to be parsed when needed.
+     * 
+     * @throws IOException If an IO error occurs.
+     */
+    private void parseObjectStreams() throws IOException
+    {
+        // collect the objects of all object streams within a single pass over the xref table
+        final Map<Long, Set<Long>> objectStreams = new TreeMap<Long, Set<Long>>();
+        for (Entry<COSObjectKey, Long> xrefEntry : xrefTrailerResolver.getXrefTable().entrySet())
+        {
+            final long offset = xrefEntry.getValue();
+            if (offset < 0)
+            {
+                Set<Long> objNrs = objectStreams.get(-offset);
+                if (objNrs == null)
+                {
+                    objNrs = new HashSet<Long>();
+                    objectStreams.put(-offset, objNrs);
+                }
+                objNrs.add(xrefEntry.getKey().getNumber());
+            }
+        }
+
+        final Map<Long, COSStream> streams = new TreeMap<Long, COSStream>();
+        for (Long objstmObjNr : objectStreams.keySet())
+        {
+            final COSBase objstmBaseObj;
+            try
+            {
+                objstmBaseObj = parseObjectDynamically(objstmObjNr.intValue(), 0, true);
+            }
+            catch (IOException exception)
+            {
+                LOG.warn("Object stream " + objstmObjNr + " can't be read upfront: " + exception.getMessage());
+                continue;
+            }
+            if (objstmBaseObj instanceof COSStream)
+            {
+                streams.put(objstmObjNr, (COSStream) objstmBaseObj);
+            }
+        }
+
+        // the scratch file isn't written to by this thread any more while the tasks are running
+        final Map<Long, FutureTask<List<COSObject>>> tasks = new TreeMap<Long, FutureTask<List<COSObject>>>();
+        for (Entry<Long, COSStream> streamEntry : streams.entrySet())
+        {
+            final COSStream objstm = streamEntry.getValue();
+            FutureTask<List<COSObject>> task = new FutureTask<List<COSObject>>(new Callable<List<COSObject>>()
+            {
+                public List<COSObject> call() throws IOException
+                {
+                    PDFObjectStreamParser parser = new PDFObjectStreamParser(objstm, document, forceParsing);
+                    parser.parse();
+                    return parser.getObjects();
+                }
+            });
+            objectStreamExecutor.execute(task);
+            tasks.put(streamEntry.getKey(), task);
+        }
+
+        for (Entry<Long, FutureTask<List<COSObject>>> taskEntry : tasks.entrySet())
+        {
+            final List<COSObject> objects;
+            try
+            {
+                objects = taskEntry.getValue().get();
+            }
+            catch (InterruptedException exception)
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while parsing the object streams", exception);
+            }
+            catch (ExecutionException exception)
+            {
+                LOG.warn("Object stream " + taskEntry.getKey() + " can't be parsed upfront: "
+                        + exception.getCause());
+                continue;
+            }
+            // register all objects which are referenced to be contained in the object stream
+            final Set<Long> refObjNrs = objectStreams.get(taskEntry.getKey());
+            for (COSObject next : objects)
+            {
+                COSObjectKey stmObjKey = new COSObjectKey(next);
+                if (refObjNrs.contains(stmObjKey.getNumber()))
+                {
+                    COSObject stmObj = document.getObjectFromPool(stmObjKey);
+                    stmObj.setObject(next.getObject());
+                }
+            }
+        }
+    }
+
     // ------------------------------------------------------------------------
     /**
      * Decrypts given COSString.
@@ -1508,8 +2005,16 @@ public class NonSequentialPDFParser extends PDFParser
             }
 
             boolean useReadUntilEnd = false;
+            boolean streamLengthIsValid = validateStreamLength(streamLengthObj.longValue());
+            if (streamLengthIsValid && useSourceBackedStreams && !isTmpPDFFile)
+            {
+                // ---- refer to the data within the pdf file instead of copying it
+                long streamStart = pdfSource.getOffset();
+                stream.setFilteredSource(getStreamSource(), streamStart, streamLengthObj.longValue());
+                pdfSource.seek(streamStart + streamLengthObj.longValue());
+            }
             // ---- get output stream to copy data to
-            if (validateStreamLength(streamLengthObj.longValue()))
+            else if (streamLengthIsValid)
             {
                 out = stream.createFilteredStream(streamLengthObj);
 	            long remainBytes = streamLengthObj.longValue();
@@ -1556,6 +2061,23 @@ public class NonSequentialPDFParser extends PDFParser
         return stream;
     }
 
+    /**
+     * Returns the source of the source-backed streams which is opened on first
+     * use. It is closed together with the document.
+     * 
+     * @return the source of the source-backed streams
+     * @throws IOException If something went wrong.
+     */
+    private RandomAccessRead getStreamSource() throws IOException
+    {
+        if (streamSource == null)
+        {
+            streamSource = (RandomAccessRead) openPdfFile();
+            document.setStreamSource(streamSource);
+        }
+        return streamSource;
+    }
+
     private boolean validateStreamLength(long streamLength) throws IOException
     {
     	boolean streamLengthIsValid = true;
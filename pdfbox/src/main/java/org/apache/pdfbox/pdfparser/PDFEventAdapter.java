@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.io.IOException;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+
+/**
+ * An empty implementation of {@link PDFEventListener}, subclasses only override the
+ * methods for the events they are interested in.
+ */
+public abstract class PDFEventAdapter implements PDFEventListener
+{
+    /**
+     * {@inheritDoc}
+     */
+    public void startObject(long number, int generation, long offset) throws IOException
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void endObject() throws IOException
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void startDictionary() throws IOException
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void key(COSName key) throws IOException
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void endDictionary() throws IOException
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void startArray() throws IOException
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void endArray() throws IOException
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void value(COSBase value) throws IOException
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void reference(long number, int generation) throws IOException
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void startStream(long offset) throws IOException
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void endStream(long length) throws IOException
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void xref(long offset) throws IOException
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void xrefEntry(long number, int generation, long offset, boolean inUse) throws IOException
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void trailer(long offset) throws IOException
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void startxref(long offset) throws IOException
+    {
+    }
+}
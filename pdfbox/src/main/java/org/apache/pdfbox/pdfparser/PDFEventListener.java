@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.io.IOException;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+
+/**
+ * Receives the events of a {@link PDFEventParser}. The events are reported in the order
+ * of the file, the parsed values aren't kept by the parser.
+ *
+ * Offsets are byte offsets within the file. Objects contained in an object stream are
+ * reported with the negated number of the object stream as offset, as in the xref table.
+ */
+public interface PDFEventListener
+{
+    /**
+     * Called at the start of an indirect object.
+     *
+     * @param number the object number
+     * @param generation the generation number
+     * @param offset the offset of the object
+     * @throws IOException if the listener wants to abort the parsing
+     */
+    void startObject(long number, int generation, long offset) throws IOException;
+
+    /**
+     * Called at the end of an indirect object.
+     *
+     * @throws IOException if the listener wants to abort the parsing
+     */
+    void endObject() throws IOException;
+
+    /**
+     * Called at the start of a dictionary.
+     *
+     * @throws IOException if the listener wants to abort the parsing
+     */
+    void startDictionary() throws IOException;
+
+    /**
+     * Called for each key of a dictionary, the value is reported by the following events.
+     *
+     * @param key the key
+     * @throws IOException if the listener wants to abort the parsing
+     */
+    void key(COSName key) throws IOException;
+
+    /**
+     * Called at the end of a dictionary.
+     *
+     * @throws IOException if the listener wants to abort the parsing
+     */
+    void endDictionary() throws IOException;
+
+    /**
+     * Called at the start of an array.
+     *
+     * @throws IOException if the listener wants to abort the parsing
+     */
+    void startArray() throws IOException;
+
+    /**
+     * Called at the end of an array.
+     *
+     * @throws IOException if the listener wants to abort the parsing
+     */
+    void endArray() throws IOException;
+
+    /**
+     * Called for a simple value, i.e. a name, number, string, boolean or null.
+     *
+     * @param value the value
+     * @throws IOException if the listener wants to abort the parsing
+     */
+    void value(COSBase value) throws IOException;
+
+    /**
+     * Called for a reference to an indirect object.
+     *
+     * @param number the object number
+     * @param generation the generation number
+     * @throws IOException if the listener wants to abort the parsing
+     */
+    void reference(long number, int generation) throws IOException;
+
+    /**
+     * Called at the start of the data of a stream, after the stream dictionary was reported.
+     *
+     * @param offset the offset of the first byte of the stream data
+     * @throws IOException if the listener wants to abort the parsing
+     */
+    void startStream(long offset) throws IOException;
+
+    /**
+     * Called at the end of the data of a stream. The data itself isn't reported.
+     *
+     * @param length the number of bytes up to the endstream keyword, which may include
+     * the end of line marker preceding the keyword
+     * @throws IOException if the listener wants to abort the parsing
+     */
+    void endStream(long length) throws IOException;
+
+    /**
+     * Called at the start of a cross reference table.
+     *
+     * @param offset the offset of the xref keyword
+     * @throws IOException if the listener wants to abort the parsing
+     */
+    void xref(long offset) throws IOException;
+
+    /**
+     * Called for each entry of a cross reference table.
+     *
+     * @param number the object number
+     * @param generation the generation number
+     * @param offset the offset of the object, or the next free object number for free entries
+     * @param inUse true for an entry in use, false for a free entry
+     * @throws IOException if the listener wants to abort the parsing
+     */
+    void xrefEntry(long number, int generation, long offset, boolean inUse) throws IOException;
+
+    /**
+     * Called at the start of a trailer, the trailer dictionary is reported by the following events.
+     *
+     * @param offset the offset of the trailer keyword
+     * @throws IOException if the listener wants to abort the parsing
+     */
+    void trailer(long offset) throws IOException;
+
+    /**
+     * Called for a startxref keyword.
+     *
+     * @param offset the offset of the last cross reference section given by the keyword
+     * @throws IOException if the listener wants to abort the parsing
+     */
+    void startxref(long offset) throws IOException;
+}
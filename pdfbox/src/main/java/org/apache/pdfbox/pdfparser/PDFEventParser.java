@@ -0,0 +1,689 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.filter.FilterFactory;
+import org.apache.pdfbox.persistence.util.COSObjectKey;
+
+/**
+ * A sequential parser which reports the content of a pdf file as events to a
+ * {@link PDFEventListener} instead of building a COSDocument. Nothing but the
+ * state of the current object is kept, so that files of any size can be scanned
+ * with constant memory, e.g. to collect a few facts about a file.
+ *
+ * The data of streams is skipped. The objects of object streams are reported after
+ * the object stream itself, if the object stream isn't encoded by more than one
+ * filter and has no decode parameters. Encrypted documents aren't supported.
+ */
+public class PDFEventParser extends BaseParser
+{
+    private static final Log LOG = LogFactory.getLog(PDFEventParser.class);
+
+    private static final String OBJ = "obj";
+    private static final String ENDOBJ = "endobj";
+    private static final String STREAM = "stream";
+    private static final String ENDSTREAM = "endstream";
+    private static final String XREF = "xref";
+    private static final String TRAILER = "trailer";
+    private static final String STARTXREF = "startxref";
+
+    private boolean parseObjectStreams = true;
+
+    private PDFEventListener listener;
+
+    /**
+     * The nesting level of dictionaries and arrays within the current object.
+     */
+    private int depth = 0;
+
+    /**
+     * The direct names and numbers of the top level dictionary of the current object,
+     * other values are recorded as null object. Used to decode object streams.
+     */
+    private final COSDictionary objectEntries = new COSDictionary();
+
+    /**
+     * Constructor.
+     *
+     * @param input The input stream to read the data from.
+     * @throws IOException If there is an error reading the input stream.
+     */
+    public PDFEventParser(InputStream input) throws IOException
+    {
+        super(input);
+    }
+
+    private PDFEventParser(byte[] input, PDFEventListener eventListener) throws IOException
+    {
+        super(input);
+        listener = eventListener;
+    }
+
+    /**
+     * Finds all objects with a given /Type entry without keeping the objects.
+     * If an object is defined several times, the last definition is used. Objects
+     * which aren't referenced by the document, e.g. deleted pages, are found as well.
+     *
+     * @param input The input stream to read the pdf file from, it is closed when done.
+     * @param type the type of the objects to be found, e.g. /Page
+     * @return the keys of the objects mapped to their offsets, in the order of the file
+     * @throws IOException If there is an error parsing the file.
+     */
+    public static Map<COSObjectKey, Long> findObjectsOfType(InputStream input, final COSName type)
+            throws IOException
+    {
+        final Map<COSObjectKey, Long> objects = new LinkedHashMap<COSObjectKey, Long>();
+        PDFEventParser parser = new PDFEventParser(input);
+        parser.parse(new PDFEventAdapter()
+        {
+            private COSObjectKey key;
+            private long offset;
+            private int level;
+            private boolean isTypeValue;
+
+            @Override
+            public void startObject(long number, int generation, long objectOffset)
+            {
+                key = new COSObjectKey(number, generation);
+                offset = objectOffset;
+                level = 0;
+                isTypeValue = false;
+                // an updated object replaces the former definition
+                objects.remove(key);
+            }
+
+            @Override
+            public void endObject()
+            {
+                key = null;
+            }
+
+            @Override
+            public void startDictionary()
+            {
+                level++;
+                isTypeValue = false;
+            }
+
+            @Override
+            public void endDictionary()
+            {
+                level--;
+            }
+
+            @Override
+            public void startArray()
+            {
+                level++;
+                isTypeValue = false;
+            }
+
+            @Override
+            public void endArray()
+            {
+                level--;
+            }
+
+            @Override
+            public void key(COSName name)
+            {
+                isTypeValue = key != null && level == 1 && COSName.TYPE.equals(name);
+            }
+
+            @Override
+            public void value(COSBase value)
+            {
+                if (isTypeValue && type.equals(value))
+                {
+                    objects.put(key, offset);
+                }
+                isTypeValue = false;
+            }
+
+            @Override
+            public void reference(long number, int generation)
+            {
+                isTypeValue = false;
+            }
+        });
+        return objects;
+    }
+
+    /**
+     * Indicates whether the objects of object streams are reported.
+     *
+     * @return true if the objects of object streams are reported
+     */
+    public boolean isParseObjectStreams()
+    {
+        return parseObjectStreams;
+    }
+
+    /**
+     * Sets whether the objects of object streams are reported. This requires to
+     * hold the data of one object stream in memory at a time. Default is true.
+     *
+     * @param parseObjectStreamsValue true if the objects of object streams are reported
+     */
+    public void setParseObjectStreams(boolean parseObjectStreamsValue)
+    {
+        parseObjectStreams = parseObjectStreamsValue;
+    }
+
+    /**
+     * Parses the file and reports its content to the given listener. The input
+     * stream is closed when done.
+     *
+     * @param eventListener the listener to receive the events
+     * @throws IOException If there is an error parsing the file or the listener aborts.
+     */
+    public void parse(PDFEventListener eventListener) throws IOException
+    {
+        listener = eventListener;
+        try
+        {
+            skipSpaces();
+            while (!pdfSource.isEOF())
+            {
+                long offset = pdfSource.getOffset();
+                char c = (char) pdfSource.peek();
+                if (c >= '0' && c <= '9')
+                {
+                    parseObject(offset);
+                }
+                else
+                {
+                    String keyword = readString();
+                    if (XREF.equals(keyword))
+                    {
+                        parseXrefTable(offset);
+                    }
+                    else if (TRAILER.equals(keyword))
+                    {
+                        listener.trailer(offset);
+                        parseValue(null);
+                        depth = 0;
+                    }
+                    else if (STARTXREF.equals(keyword))
+                    {
+                        listener.startxref(readLong());
+                    }
+                    else if (keyword.length() == 0)
+                    {
+                        // skip a single delimiter which doesn't start a token
+                        pdfSource.read();
+                    }
+                    else if (!ENDOBJ.equals(keyword) && !ENDSTREAM.equals(keyword))
+                    {
+                        LOG.warn("Skipping unexpected token '" + keyword + "' at offset " + offset);
+                    }
+                }
+                skipSpaces();
+            }
+        }
+        finally
+        {
+            pdfSource.close();
+            listener = null;
+        }
+    }
+
+    private void parseObject(long offset) throws IOException
+    {
+        long number = readObjectNumber();
+        int generation = readGenerationNumber();
+        String keyword = readString();
+        if (!OBJ.equals(keyword))
+        {
+            throw new IOException("expected='obj' actual='" + keyword + "' at offset " + offset);
+        }
+        listener.startObject(number, generation, offset);
+        objectEntries.clear();
+        depth = 0;
+        parseValue(null);
+
+        byte[] objectStreamData = null;
+        skipSpaces();
+        keyword = readString();
+        if (STREAM.equals(keyword))
+        {
+            objectStreamData = skipStream();
+            skipSpaces();
+            keyword = readString();
+        }
+        if (!ENDOBJ.equals(keyword))
+        {
+            if (keyword.startsWith(ENDOBJ))
+            {
+                // e.g. "endobj28", the rest belongs to the next object
+                pdfSource.unread(keyword.substring(ENDOBJ.length()).getBytes("ISO-8859-1"));
+            }
+            else if (keyword.length() > 0)
+            {
+                // missing endobj, the token belongs to the next object
+                LOG.warn("expected='endobj' actual='" + keyword + "' for object " + number);
+                pdfSource.unread(keyword.getBytes("ISO-8859-1"));
+            }
+        }
+        listener.endObject();
+
+        if (objectStreamData != null)
+        {
+            parseObjectStream(number, objectStreamData);
+        }
+    }
+
+    /**
+     * Skips the data of a stream.
+     *
+     * @return the encoded data if the stream is an object stream whose objects are to be reported
+     */
+    private byte[] skipStream() throws IOException
+    {
+        // a stream must be followed by either a CRLF or LF, be lenient like parseCOSStream
+        int whitespace = pdfSource.read();
+        while (whitespace == 0x20)
+        {
+            whitespace = pdfSource.read();
+        }
+        if (whitespace == 0x0D)
+        {
+            whitespace = pdfSource.read();
+            if (whitespace != 0x0A && whitespace != -1)
+            {
+                pdfSource.unread(whitespace);
+            }
+        }
+        else if (whitespace != 0x0A && whitespace != -1)
+        {
+            pdfSource.unread(whitespace);
+        }
+
+        listener.startStream(pdfSource.getOffset());
+        ByteArrayOutputStream data = null;
+        if (parseObjectStreams && COSName.OBJ_STM.equals(objectEntries.getItem(COSName.TYPE)))
+        {
+            data = new ByteArrayOutputStream();
+        }
+        CountingOutputStream out = new CountingOutputStream(data);
+        readStreamData(out);
+        listener.endStream(out.count);
+
+        skipSpaces();
+        String keyword = readString();
+        if (!ENDSTREAM.equals(keyword))
+        {
+            if (keyword.startsWith(ENDSTREAM))
+            {
+                pdfSource.unread(keyword.substring(ENDSTREAM.length()).getBytes("ISO-8859-1"));
+            }
+            else
+            {
+                // missing endstream, e.g. the endobj keyword
+                pdfSource.unread(keyword.getBytes("ISO-8859-1"));
+            }
+        }
+        return data == null ? null : data.toByteArray();
+    }
+
+    /**
+     * Reports the objects of an object stream.
+     */
+    private void parseObjectStream(long objstmNumber, byte[] encoded) throws IOException
+    {
+        COSBase filter = objectEntries.getItem(COSName.FILTER);
+        COSBase count = objectEntries.getItem(COSName.N);
+        if (!(count instanceof COSInteger) || (filter != null && !(filter instanceof COSName))
+                || objectEntries.containsKey(COSName.DECODE_PARMS) || objectEntries.containsKey(COSName.DP))
+        {
+            LOG.warn("The objects of object stream " + objstmNumber + " can't be reported");
+            return;
+        }
+        byte[] decoded = encoded;
+        try
+        {
+            if (filter != null)
+            {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(encoded.length * 4);
+                FilterFactory.INSTANCE.getFilter((COSName) filter).decode(new ByteArrayInputStream(encoded),
+                        out, objectEntries, 0);
+                decoded = out.toByteArray();
+            }
+            PDFEventParser parser = new PDFEventParser(decoded, listener);
+            parser.parseObjectStreamContent(objstmNumber, ((COSInteger) count).intValue());
+        }
+        catch (IOException exception)
+        {
+            LOG.warn("Object stream " + objstmNumber + " can't be parsed: " + exception.getMessage());
+        }
+    }
+
+    private void parseObjectStreamContent(long objstmNumber, int count) throws IOException
+    {
+        try
+        {
+            long[] numbers = new long[count];
+            for (int i = 0; i < count; i++)
+            {
+                numbers[i] = readObjectNumber();
+                // the offsets aren't needed as the objects are read one after another
+                readLong();
+            }
+            for (int i = 0; i < count; i++)
+            {
+                skipSpaces();
+                if (pdfSource.isEOF())
+                {
+                    break;
+                }
+                listener.startObject(numbers[i], 0, -objstmNumber);
+                depth = 0;
+                parseValue(null);
+                listener.endObject();
+            }
+        }
+        finally
+        {
+            pdfSource.close();
+        }
+    }
+
+    private void parseXrefTable(long offset) throws IOException
+    {
+        listener.xref(offset);
+        skipSpaces();
+        while (Character.isDigit(pdfSource.peek()))
+        {
+            long start = readObjectNumber();
+            int count = readInt();
+            for (int i = 0; i < count; i++)
+            {
+                skipSpaces();
+                if (!Character.isDigit(pdfSource.peek()))
+                {
+                    break;
+                }
+                long entryOffset = readLong();
+                int generation = readInt();
+                String type = readString();
+                listener.xrefEntry(start + i, generation, entryOffset, "n".equals(type));
+            }
+            skipSpaces();
+        }
+    }
+
+    /**
+     * Parses a value and reports it, key is the dictionary key of the value or null.
+     */
+    private void parseValue(COSName key) throws IOException
+    {
+        skipSpaces();
+        int c = pdfSource.peek();
+        if (c == '[')
+        {
+            recordEntry(key, COSNull.NULL);
+            parseArray();
+        }
+        else if (c == '<' && isDictionaryStart())
+        {
+            recordEntry(key, COSNull.NULL);
+            parseDictionary();
+        }
+        else
+        {
+            COSBase value = parseDirObject();
+            if (value instanceof COSInteger)
+            {
+                // an integer may be the start of an object reference
+                skipSpaces();
+                if (Character.isDigit(pdfSource.peek()))
+                {
+                    COSBase generation = parseDirObject();
+                    skipSpaces();
+                    if (generation instanceof COSInteger && pdfSource.peek() == 'R')
+                    {
+                        pdfSource.read();
+                        recordEntry(key, COSNull.NULL);
+                        listener.reference(((COSInteger) value).longValue(), ((COSInteger) generation).intValue());
+                        return;
+                    }
+                    recordEntry(key, value);
+                    listener.value(value);
+                    value = generation;
+                }
+            }
+            if (value != null)
+            {
+                recordEntry(key, value instanceof COSName || value instanceof COSNumber ? value : COSNull.NULL);
+                listener.value(value);
+            }
+        }
+    }
+
+    private boolean isDictionaryStart() throws IOException
+    {
+        int first = pdfSource.read();
+        int second = pdfSource.peek();
+        pdfSource.unread(first);
+        return second == '<';
+    }
+
+    private void recordEntry(COSName key, COSBase value)
+    {
+        if (key != null && depth == 1)
+        {
+            objectEntries.setItem(key, value);
+        }
+    }
+
+    private void parseDictionary() throws IOException
+    {
+        // read '<<'
+        pdfSource.read();
+        pdfSource.read();
+        depth++;
+        listener.startDictionary();
+        skipSpaces();
+        int c;
+        while ((c = pdfSource.peek()) != -1 && c != '>')
+        {
+            if (c == '/')
+            {
+                COSName key = parseCOSName();
+                listener.key(key);
+                parseValue(key);
+            }
+            else
+            {
+                // an invalid dictionary, skip the token
+                LOG.warn("Invalid dictionary, found: '" + (char) c + "' but expected: '/'");
+                String token = readString();
+                if (ENDOBJ.equals(token) || STREAM.equals(token) || ENDSTREAM.equals(token))
+                {
+                    pdfSource.unread(token.getBytes("ISO-8859-1"));
+                    break;
+                }
+                if (token.length() == 0)
+                {
+                    pdfSource.read();
+                }
+            }
+            skipSpaces();
+        }
+        if (c == '>')
+        {
+            pdfSource.read();
+            if (pdfSource.peek() == '>')
+            {
+                pdfSource.read();
+            }
+        }
+        listener.endDictionary();
+        depth--;
+    }
+
+    private void parseArray() throws IOException
+    {
+        // read '['
+        pdfSource.read();
+        depth++;
+        listener.startArray();
+        // the last two integers, they are only reported when it's clear that they
+        // aren't the numbers of an object reference
+        COSInteger number = null;
+        COSInteger generation = null;
+        skipSpaces();
+        int c;
+        while ((c = pdfSource.peek()) != -1 && c != ']')
+        {
+            if (c == '[' || c == '<' && isDictionaryStart())
+            {
+                reportIntegers(number, generation);
+                number = null;
+                generation = null;
+                parseValue(null);
+            }
+            else
+            {
+                COSBase value = parseDirObject();
+                if (value instanceof COSObject)
+                {
+                    // the R of an object reference
+                    if (generation != null)
+                    {
+                        listener.reference(number.longValue(), generation.intValue());
+                    }
+                    else
+                    {
+                        LOG.warn("Corrupt object reference");
+                        reportIntegers(number, null);
+                    }
+                    number = null;
+                    generation = null;
+                }
+                else if (value instanceof COSInteger)
+                {
+                    if (generation != null)
+                    {
+                        listener.value(number);
+                        number = generation;
+                        generation = (COSInteger) value;
+                    }
+                    else if (number != null)
+                    {
+                        generation = (COSInteger) value;
+                    }
+                    else
+                    {
+                        number = (COSInteger) value;
+                    }
+                }
+                else
+                {
+                    reportIntegers(number, generation);
+                    number = null;
+                    generation = null;
+                    if (value != null)
+                    {
+                        listener.value(value);
+                    }
+                    else
+                    {
+                        // an unknown token, the array ends at an endobj or endstream keyword
+                        String token = readString();
+                        pdfSource.unread(token.getBytes("ISO-8859-1"));
+                        if (ENDOBJ.equals(token) || ENDSTREAM.equals(token))
+                        {
+                            break;
+                        }
+                    }
+                }
+            }
+            skipSpaces();
+        }
+        reportIntegers(number, generation);
+        if (c == ']')
+        {
+            pdfSource.read();
+        }
+        listener.endArray();
+        depth--;
+    }
+
+    private void reportIntegers(COSInteger number, COSInteger generation) throws IOException
+    {
+        if (number != null)
+        {
+            listener.value(number);
+        }
+        if (generation != null)
+        {
+            listener.value(generation);
+        }
+    }
+
+    /**
+     * Counts the bytes written and passes them on to another stream, if any.
+     */
+    private static class CountingOutputStream extends OutputStream
+    {
+        private final OutputStream out;
+        private long count = 0;
+
+        CountingOutputStream(OutputStream output)
+        {
+            out = output;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            count++;
+            if (out != null)
+            {
+                out.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            count += len;
+            if (out != null)
+            {
+                out.write(b, off, len);
+            }
+        }
+    }
+}
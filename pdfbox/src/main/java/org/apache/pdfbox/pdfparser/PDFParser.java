@@ -19,10 +19,12 @@ package org.apache.pdfbox.pdfparser;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 import org.apache.commons.logging.Log;
@@ -34,11 +36,15 @@ import org.apache.pdfbox.cos.COSInteger;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSObject;
 import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.ICOSObjectLoader;
+import org.apache.pdfbox.io.PushBackInputStream;
 import org.apache.pdfbox.io.RandomAccess;
+import org.apache.pdfbox.io.RandomAccessRead;
 import org.apache.pdfbox.pdfparser.XrefTrailerResolver.XRefType;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.fdf.FDFDocument;
 import org.apache.pdfbox.persistence.util.COSObjectKey;
+import org.apache.pdfbox.persistence.util.XrefTable;
 
 /**
  * This class will handle the parsing of the PDF document.
@@ -61,6 +67,24 @@ public class PDFParser extends BaseParser
     
     private static final String PDF_DEFAULT_VERSION = "1.4";
     private static final String FDF_DEFAULT_VERSION = "1.0";
+
+    public static final String SYSPROP_LAZY = "org.apache.pdfbox.pdfparser.pdfParser.lazy";
+
+    /**
+     * Receives the data of the streams which are skipped while parsing lazily.
+     */
+    private static final OutputStream DISCARDING_STREAM = new OutputStream()
+    {
+        @Override
+        public void write(int b)
+        {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+        {
+        }
+    };
     
     /**
      * A list of duplicate objects found when Parsing the PDF
@@ -80,6 +104,37 @@ public class PDFParser extends BaseParser
 
     private RandomAccess raf = null;
 
+    /**
+     * If <code>true</code> only the offsets of the objects are recorded while parsing;
+     * an object is parsed when it is accessed for the first time, see {@link #setLazyParsing(boolean)}.
+     */
+    private boolean lazyParsing = "true".equals(System.getProperty(SYSPROP_LAZY));
+
+    /**
+     * The offsets of the objects which weren't loaded yet when parsing lazily. A negative
+     * offset is the negated number of the object stream containing the object.
+     */
+    private XrefTable lazyOffsets = null;
+
+    /**
+     * The source if it can be read directly when parsing lazily, otherwise it is copied
+     * to the scratch file.
+     */
+    private RandomAccessRead seekableSource = null;
+
+    /**
+     * The offset and the length of the copy of the pdf file in the scratch file.
+     */
+    private long sourceStart;
+    private long sourceLength;
+
+    /**
+     * The summary of the object scanned by {@link #scanObject()}.
+     */
+    private boolean scannedDictionary;
+    private boolean scannedXRefStream;
+    private long scannedLength;
+
     /**
      * Constructor.
      *
@@ -118,6 +173,10 @@ public class PDFParser extends BaseParser
     {
         super(input, force);
         this.raf = rafi;
+        if( input instanceof RandomAccessRead )
+        {
+            seekableSource = (RandomAccessRead)input;
+        }
     }
 
     /**
@@ -146,6 +205,34 @@ public class PDFParser extends BaseParser
         return forceParsing;
     }
 
+    /**
+     * Returns true if the objects are parsed when they are accessed for the first time.
+     *
+     * @return true if the parser parses lazily
+     */
+    public boolean isLazyParsing()
+    {
+        return lazyParsing;
+    }
+
+    /**
+     * Sets whether the objects are parsed when they are accessed for the first time.
+     * The objects are only scanned for their end and their offsets are recorded while
+     * parsing, the data of the streams is skipped. The file is read directly if the input
+     * stream is a {@link RandomAccessRead}, otherwise it is copied to the scratch file of
+     * the document. If the file is encrypted or can't be parsed this way, all objects are
+     * parsed as usual.
+     *
+     * The default is <code>false</code>, it may be changed using the system property
+     * {@link #SYSPROP_LAZY}.
+     *
+     * @param lazy true to parse the objects when they are accessed
+     */
+    public void setLazyParsing(boolean lazy)
+    {
+        lazyParsing = lazy;
+    }
+
     /**
      * This will parse the stream and populate the COSDocument object.  This will close
      * the stream when it is done parsing.
@@ -174,63 +261,30 @@ public class PDFParser extends BaseParser
             }
             setDocument( document );
 
-            parseHeader();
-
-            //Some PDF files have garbage between the header and the
-            //first object
-            skipToNextObj();
-
-            boolean wasLastParsedObjectEOF = false;
-            while(true)
+            if( lazyParsing )
             {
-                if(pdfSource.isEOF())
-                {
-                    break;
-                }
-                                
+                openLazySource();
                 try
                 {
-                    // don't reset flag to false if it is already true
-                    wasLastParsedObjectEOF |= parseObject();
-                }
-                catch(IOException e)
-                {
-                    /*
-                     * PDF files may have random data after the EOF marker. Ignore errors if
-                     * last object processed is EOF.
-                     */
-                    if( wasLastParsedObjectEOF )
+                    parseObjects();
+                    if( finishLazyParsing() )
                     {
-                        break;
-                    }
-                    if(isContinueOnError(e))
-                    {
-                        /*
-                         * Warning is sent to the PDFBox.log and to the Console that
-                         * we skipped over an object
-                         */
-                        LOG.warn("Parsing Error, Skipping Object", e);
-                        
-                        skipSpaces();
-                        long lastOffset = pdfSource.getOffset();
-                        skipToNextObj();
-                        
-                        /* the nextObject is the one we want to skip 
-                         * so read the 'Object Number' without interpret it
-                         * in order to force the skipObject
-                         */
-                        if (lastOffset == pdfSource.getOffset()) {
-                            readStringNumber();
-                            skipToNextObj();
+                        if( seekableSource != null )
+                        {
+                            // the file is closed with the document
+                            document.setStreamSource( seekableSource );
                         }
+                        return;
                     }
-                    else
-                    {
-                        throw e;
-                    }
+                    LOG.info( "Can't parse the document lazily, parsing all objects" );
                 }
-                skipSpaces();
+                catch( IOException e )
+                {
+                    LOG.warn( "Can't parse the document lazily, parsing all objects", e );
+                }
+                resetLazyParsing();
             }
+            parseObjects();
 
             // set xref to start with
             xrefTrailerResolver.setStartxref( document.getStartXref() );
@@ -258,7 +312,78 @@ public class PDFParser extends BaseParser
         }
         finally
         {
-            pdfSource.close();
+            // the copy of the source is kept to load the objects when parsing lazily
+            if( !lazyParsing || document == null )
+            {
+                pdfSource.close();
+            }
+        }
+    }
+
+    /**
+     * Parses the header and all objects of the file.
+     *
+     * @throws IOException If there is an error reading from the stream or corrupt data
+     * is found.
+     */
+    private void parseObjects() throws IOException
+    {
+        parseHeader();
+
+        //Some PDF files have garbage between the header and the
+        //first object
+        skipToNextObj();
+
+        boolean wasLastParsedObjectEOF = false;
+        while(true)
+        {
+            if(pdfSource.isEOF())
+            {
+                break;
+            }
+                            
+            try
+            {
+                // don't reset flag to false if it is already true
+                wasLastParsedObjectEOF |= parseObject();
+            }
+            catch(IOException e)
+            {
+                /*
+                 * PDF files may have random data after the EOF marker. Ignore errors if
+                 * last object processed is EOF.
+                 */
+                if( wasLastParsedObjectEOF )
+                {
+                    break;
+                }
+                if(isContinueOnError(e))
+                {
+                    /*
+                     * Warning is sent to the PDFBox.log and to the Console that
+                     * we skipped over an object
+                     */
+                    LOG.warn("Parsing Error, Skipping Object", e);
+                    
+                    skipSpaces();
+                    long lastOffset = pdfSource.getOffset();
+                    skipToNextObj();
+                    
+                    /* the nextObject is the one we want to skip 
+                     * so read the 'Object Number' without interpret it
+                     * in order to force the skipObject
+                     */
+                    if (lastOffset == pdfSource.getOffset()) {
+                        readStringNumber();
+                        skipToNextObj();
+                    }
+                }
+                else
+                {
+                    throw e;
+                }
+            }
+            skipSpaces();
         }
     }
 
@@ -586,14 +711,35 @@ public class PDFParser extends BaseParser
             }
 
             skipSpaces();
-            COSBase pb = parseDirObject();
+            COSBase pb = null;
+            if( lazyParsing )
+            {
+                // the object is parsed when it is accessed, except for xref streams
+                long bodyOffset = pdfSource.getOffset();
+                scanObject();
+                if( scannedXRefStream )
+                {
+                    pdfSource.seek( bodyOffset );
+                    pb = parseDirObject();
+                }
+            }
+            else
+            {
+                pb = parseDirObject();
+            }
             String endObjectKey = readString();
+            // readLine() consumes the end of the line, readString() doesn't
+            boolean lineRead = false;
 
             if( endObjectKey.equals( "stream" ) )
             {
                 pdfSource.unread( endObjectKey.getBytes("ISO-8859-1") );
                 pdfSource.unread( ' ' );
-                if( pb instanceof COSDictionary )
+                if( lazyParsing && pb == null && scannedDictionary )
+                {
+                    skipCOSStream( scannedLength );
+                }
+                else if( pb instanceof COSDictionary )
                 {
                     pb = parseCOSStream( (COSDictionary)pb, getDocument().getScratchFile() );
 
@@ -614,21 +760,37 @@ public class PDFParser extends BaseParser
                 }
                 skipSpaces();
                 endObjectKey = readLine();
+                lineRead = true;
             }
 
-            COSObjectKey key = new COSObjectKey( number, genNum );
-            COSObject pdfObject = document.getObjectFromPool( key );
-            if(pdfObject.getObject() == null)
+            if( lazyParsing )
             {
-                pdfObject.setObject(pb);
+                // only the offset is recorded, the object is parsed when it is accessed
+                if( lazyOffsets.containsKey( number, genNum ) )
+                {
+                    addObjectToConflicts( currentObjByteOffset, new COSObjectKey( number, genNum ), null );
+                }
+                else
+                {
+                    lazyOffsets.setOffset( number, genNum, currentObjByteOffset );
+                }
             }
-            /*
-             * If the object we returned already has a baseobject, then we have a conflict
-             * which we will resolve using information after we parse the xref table.
-             */
             else
             {
-                addObjectToConflicts(currentObjByteOffset, key, pb);
+                COSObjectKey key = new COSObjectKey( number, genNum );
+                COSObject pdfObject = document.getObjectFromPool( key );
+                if(pdfObject.getObject() == null)
+                {
+                    pdfObject.setObject(pb);
+                }
+                /*
+                 * If the object we returned already has a baseobject, then we have a conflict
+                 * which we will resolve using information after we parse the xref table.
+                 */
+                else
+                {
+                    addObjectToConflicts(currentObjByteOffset, key, pb);
+                }
             }
 
             if( !endObjectKey.equals( "endobj" ) )
@@ -641,7 +803,10 @@ public class PDFParser extends BaseParser
                      * and not part of the endobj keyword. Ex. Some files would have "endobj28"
                      * instead of "endobj"
                      */
-                    pdfSource.unread( SPACE_BYTE ); // add a space first in place of the newline consumed by readline()
+                    if( lineRead )
+                    {
+                        pdfSource.unread( SPACE_BYTE ); // add a space first in place of the newline consumed by readline()
+                    }
                     pdfSource.unread( endObjectKey.substring( 6 ).getBytes("ISO-8859-1") );
                 }
                 else if(endObjectKey.trim().endsWith("endobj"))
@@ -658,7 +823,10 @@ public class PDFParser extends BaseParser
                     //It is possible that the endobj is missing, there
                     //are several PDFs out there that do that so. Unread
                     //and assume that endobj was missing
-                    pdfSource.unread( SPACE_BYTE ); // add a space first in place of the newline consumed by readline()
+                    if( lineRead )
+                    {
+                        pdfSource.unread( SPACE_BYTE ); // add a space first in place of the newline consumed by readline()
+                    }
                     pdfSource.unread( endObjectKey.getBytes("ISO-8859-1") );
                 }
             }
@@ -684,6 +852,592 @@ public class PDFParser extends BaseParser
         conflictList.add(conflictObj);
     }
 
+    /**
+     * Prepares reading the source when parsing lazily. A seekable source is read directly,
+     * any other source is copied to the scratch file of the document.
+     *
+     * @throws IOException If there is an error reading or copying the source.
+     */
+    private void openLazySource() throws IOException
+    {
+        if( seekableSource != null )
+        {
+            // nothing was read from the buffered source yet, it is replaced by a seekable one
+            seekableSource.seek( 0 );
+            pdfSource = new PushBackInputStream( (InputStream)seekableSource, getPushBackSize() );
+        }
+        else
+        {
+            copySourceToScratchFile();
+        }
+        lazyOffsets = new XrefTable();
+    }
+
+    /**
+     * Copies the pdf file to the scratch file of the document, so that the objects can be
+     * parsed when they are accessed. The copy is read from now on.
+     *
+     * @throws IOException If there is an error reading or writing the data.
+     */
+    private void copySourceToScratchFile() throws IOException
+    {
+        RandomAccess scratchFile = document.getScratchFile();
+        sourceStart = scratchFile.length();
+        scratchFile.seek( sourceStart );
+        byte[] buffer = new byte[16384];
+        try
+        {
+            int count;
+            while( (count = pdfSource.read( buffer, 0, buffer.length )) != -1 )
+            {
+                scratchFile.write( buffer, 0, count );
+            }
+        }
+        finally
+        {
+            // the source isn't needed any more, even if the copy failed
+            pdfSource.close();
+        }
+        sourceLength = scratchFile.length() - sourceStart;
+        pdfSource = new PushBackInputStream(
+                new ScratchFileSource( scratchFile, sourceStart, sourceLength ), getPushBackSize() );
+    }
+
+    /**
+     * Scans the body of an object while parsing lazily without creating it. Strings and
+     * comments are skipped, so that keywords within them are ignored. Afterwards the source
+     * is positioned in front of the keyword ending the object, i.e. "endobj" or "stream",
+     * or in front of the next object if endobj is missing. The direct /Length and the /Type
+     * of a dictionary are recorded in {@link #scannedLength} and {@link #scannedXRefStream}.
+     *
+     * @throws IOException If there is an error reading from the stream.
+     */
+    private void scanObject() throws IOException
+    {
+        scannedDictionary = false;
+        scannedXRefStream = false;
+        scannedLength = -1;
+        // the nesting of dictionaries and arrays
+        int depth = 0;
+        // 1: /Length was read, 2: followed by a number, 3: followed by two numbers
+        int lengthState = 0;
+        long length = -1;
+        boolean typeKey = false;
+        // the offsets of the last two tokens
+        long previousToken = -1;
+        long lastToken = -1;
+        boolean first = true;
+        StringBuilder token = new StringBuilder();
+        int c;
+        while( (c = pdfSource.read()) != -1 )
+        {
+            if( isWhitespace( c ) )
+            {
+                continue;
+            }
+            long tokenOffset = pdfSource.getOffset() - 1;
+            int tokenDepth = depth;
+            boolean number = false;
+            boolean name = false;
+            token.setLength( 0 );
+            switch( c )
+            {
+                case '%':
+                    while( (c = pdfSource.read()) != -1 && !isEOL( c ) )
+                    {
+                        // skip the comment
+                    }
+                    continue;
+                case '(':
+                    skipLiteralString();
+                    break;
+                case '<':
+                    c = pdfSource.read();
+                    if( c == '<' )
+                    {
+                        scannedDictionary |= first;
+                        depth++;
+                    }
+                    else
+                    {
+                        while( c != -1 && c != '>' )
+                        {
+                            c = pdfSource.read();
+                        }
+                    }
+                    break;
+                case '>':
+                    c = pdfSource.read();
+                    if( c == '>' )
+                    {
+                        depth--;
+                    }
+                    else if( c != -1 )
+                    {
+                        pdfSource.unread( c );
+                    }
+                    break;
+                case '[':
+                    depth++;
+                    break;
+                case ']':
+                    depth--;
+                    break;
+                case '/':
+                    name = true;
+                    c = readRegularToken( token );
+                    break;
+                case '{':
+                case '}':
+                    break;
+                default:
+                    token.append( (char)c );
+                    c = readRegularToken( token );
+                    number = isInteger( token );
+                    if( !number && isObjectEnd( token ) )
+                    {
+                        if( token.toString().equals( "obj" ) && previousToken >= 0 )
+                        {
+                            // endobj is missing, continue in front of the next object
+                            pdfSource.seek( previousToken );
+                        }
+                        else
+                        {
+                            pdfSource.unread( token.toString().getBytes( "ISO-8859-1" ) );
+                        }
+                        return;
+                    }
+                    break;
+            }
+            first = false;
+            previousToken = lastToken;
+            lastToken = tokenOffset;
+            // only the keys and values of the dictionary itself are of interest,
+            // a nested dictionary or array is a single value there
+            if( scannedDictionary && tokenDepth == 1 )
+            {
+                if( lengthState == 1 && number )
+                {
+                    length = Long.parseLong( token.toString() );
+                    lengthState = 2;
+                }
+                else if( lengthState == 2 && number )
+                {
+                    lengthState = 3;
+                }
+                else
+                {
+                    if( lengthState == 2 || lengthState == 3 && !token.toString().equals( "R" ) )
+                    {
+                        scannedLength = length;
+                    }
+                    lengthState = name && token.toString().equals( "Length" ) ? 1 : 0;
+                }
+                scannedXRefStream |= typeKey && name && token.toString().equals( "XRef" );
+                typeKey = name && token.toString().equals( "Type" );
+            }
+        }
+    }
+
+    /**
+     * Reads the regular characters of a token.
+     *
+     * @param token the token to append the characters to
+     * @return the last character read, which isn't part of the token
+     * @throws IOException If there is an error reading from the stream.
+     */
+    private int readRegularToken( StringBuilder token ) throws IOException
+    {
+        int c;
+        while( (c = pdfSource.read()) != -1 && !isWhitespace( c ) && !isDelimiter( c ) )
+        {
+            token.append( (char)c );
+        }
+        if( c != -1 )
+        {
+            pdfSource.unread( c );
+        }
+        return c;
+    }
+
+    /**
+     * Skips a literal string, the opening parenthesis was read already.
+     *
+     * @throws IOException If there is an error reading from the stream.
+     */
+    private void skipLiteralString() throws IOException
+    {
+        int nesting = 1;
+        int c;
+        while( nesting > 0 && (c = pdfSource.read()) != -1 )
+        {
+            if( c == '\\' )
+            {
+                pdfSource.read();
+            }
+            else if( c == '(' )
+            {
+                nesting++;
+            }
+            else if( c == ')' )
+            {
+                nesting--;
+            }
+        }
+    }
+
+    private static boolean isDelimiter( int c )
+    {
+        return c == '(' || c == ')' || c == '<' || c == '>' || c == '[' || c == ']'
+                || c == '{' || c == '}' || c == '/' || c == '%';
+    }
+
+    private static boolean isInteger( CharSequence token )
+    {
+        int length = token.length();
+        if( length == 0 || length > 18 )
+        {
+            return false;
+        }
+        for( int i = 0; i < length; i++ )
+        {
+            char c = token.charAt( i );
+            if( c < '0' || c > '9' )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isObjectEnd( StringBuilder token )
+    {
+        String keyword = token.toString();
+        return keyword.startsWith( "endobj" ) || keyword.equals( "stream" ) || keyword.equals( "obj" );
+    }
+
+    /**
+     * Skips the data of a stream while parsing lazily.
+     *
+     * @param streamLength the direct length of the stream or -1 if it isn't known
+     * @throws IOException If there is an error reading from the stream.
+     */
+    private void skipCOSStream( long streamLength ) throws IOException
+    {
+        readString(); // stream
+        if( streamLength > 0 )
+        {
+            // skip the given length, the remaining bytes are scanned for the keyword
+            long left = streamLength;
+            byte[] buffer = new byte[4096];
+            while( left > 0 )
+            {
+                int count = pdfSource.read( buffer, 0, (int)Math.min( left, buffer.length ) );
+                if( count == -1 )
+                {
+                    break;
+                }
+                left -= count;
+            }
+        }
+        readStreamData( DISCARDING_STREAM );
+        skipSpaces();
+        String endStream = readString();
+        if( !endStream.equals( "endstream" ) )
+        {
+            // the stream is closed by endobj or the keyword is followed by the next object
+            byte[] rest = endStream.getBytes( "ISO-8859-1" );
+            if( endStream.startsWith( "endstream" ) )
+            {
+                pdfSource.unread( rest, 9, rest.length - 9 );
+            }
+            else
+            {
+                pdfSource.unread( rest );
+            }
+        }
+    }
+
+    /**
+     * Resolves the xref table after parsing lazily and sets the loader of the objects.
+     *
+     * @return false if the document can't be used lazily, i.e. it's encrypted or the
+     * trailer is missing
+     * @throws IOException If there is an error creating the objects.
+     */
+    private boolean finishLazyParsing() throws IOException
+    {
+        xrefTrailerResolver.setStartxref( document.getStartXref() );
+        COSDictionary trailer = xrefTrailerResolver.getTrailer();
+        if( trailer == null || trailer.getItem( COSName.ROOT ) == null
+                || trailer.getItem( COSName.ENCRYPT ) != null )
+        {
+            return false;
+        }
+        document.setTrailer( trailer );
+        document.setIsXRefStream(XRefType.STREAM == xrefTrailerResolver.getXrefType());
+        Map<COSObjectKey, Long> xrefTable = xrefTrailerResolver.getXrefTable();
+        document.addXRefTable( xrefTable );
+
+        // an object defined more than once is loaded from the offset given by the xref table
+        Collection<Long> values = xrefTable.values();
+        for( ConflictObj conflict : conflictList )
+        {
+            if( tolerantConflicResolver( values, conflict.offset, 4 ) )
+            {
+                lazyOffsets.put( conflict.objectKey, conflict.offset );
+            }
+        }
+        conflictList.clear();
+        // objects within object streams
+        for( Map.Entry<COSObjectKey, Long> entry : xrefTable.entrySet() )
+        {
+            if( entry.getValue() < 0 )
+            {
+                lazyOffsets.put( entry.getKey(), entry.getValue() );
+            }
+        }
+
+        document.setObjectLoader( new LazyObjectLoader() );
+        for( COSObjectKey key : lazyOffsets.keySet() )
+        {
+            document.getObjectFromPool( key );
+        }
+        return true;
+    }
+
+    /**
+     * Prepares parsing the copy of the file again after parsing it lazily failed.
+     *
+     * @throws IOException If there is an error reading the copy.
+     */
+    private void resetLazyParsing() throws IOException
+    {
+        lazyParsing = false;
+        lazyOffsets = null;
+        conflictList.clear();
+        xrefTrailerResolver = new XrefTrailerResolver();
+        if( seekableSource != null )
+        {
+            seekableSource.seek( 0 );
+            pdfSource = new PushBackInputStream( (InputStream)seekableSource, getPushBackSize() );
+        }
+        else
+        {
+            pdfSource = new PushBackInputStream(
+                    new ScratchFileSource( document.getScratchFile(), sourceStart, sourceLength ),
+                    getPushBackSize() );
+        }
+    }
+
+    /**
+     * Parses the object with the given key, which was recorded while parsing lazily.
+     *
+     * @param key the key of the object
+     * @return the object or null if it doesn't exist
+     * @throws IOException If there is an error parsing the object.
+     */
+    private synchronized COSBase loadObject( COSObjectKey key ) throws IOException
+    {
+        Long offset = lazyOffsets == null ? null : lazyOffsets.remove( key );
+        if( offset == null )
+        {
+            return null;
+        }
+        if( offset < 0 )
+        {
+            return loadCompressedObject( key, -offset );
+        }
+        long previousOffset = pdfSource.getOffset();
+        pdfSource.seek( offset );
+        try
+        {
+            skipSpaces();
+            if( pdfSource.peek() != '<' )
+            {
+                readObjectNumber();
+                skipSpaces();
+                readGenerationNumber();
+                String objectKey = readString( 3 );
+                if( !objectKey.equals( "obj" ) && !(isContinueOnError( null ) && objectKey.equals( "o" )) )
+                {
+                    throw new IOException( "expected='obj' actual='" + objectKey + "' " + pdfSource );
+                }
+            }
+            skipSpaces();
+            COSBase pb = parseDirObject();
+            String endObjectKey = readString();
+            if( endObjectKey.equals( "stream" ) )
+            {
+                if( !(pb instanceof COSDictionary) )
+                {
+                    throw new IOException( "stream not preceded by dictionary" );
+                }
+                pdfSource.unread( endObjectKey.getBytes( "ISO-8859-1" ) );
+                pdfSource.unread( ' ' );
+                pb = parseCOSStream( (COSDictionary)pb, document.getScratchFile() );
+            }
+            return pb;
+        }
+        finally
+        {
+            pdfSource.seek( previousOffset );
+        }
+    }
+
+    /**
+     * Parses an object contained in an object stream. The other objects of the stream which
+     * weren't loaded yet are set as well, so that the stream is parsed only once.
+     *
+     * @param key the key of the object
+     * @param objectStreamNumber the object number of the object stream
+     * @return the object or null if it doesn't exist
+     * @throws IOException If there is an error parsing the object stream.
+     */
+    private COSBase loadCompressedObject( COSObjectKey key, long objectStreamNumber ) throws IOException
+    {
+        COSBase objectStream = document.getObjectFromPool( new COSObjectKey( objectStreamNumber, 0 ) ).getObject();
+        if( !(objectStream instanceof COSStream) )
+        {
+            return null;
+        }
+        PDFObjectStreamParser parser = new PDFObjectStreamParser( (COSStream)objectStream, document, forceParsing );
+        parser.parse();
+        Long offset = -objectStreamNumber;
+        COSBase object = null;
+        for( COSObject next : parser.getObjects() )
+        {
+            COSObjectKey nextKey = new COSObjectKey( next );
+            if( nextKey.equals( key ) )
+            {
+                object = next.getObject();
+            }
+            else if( offset.equals( lazyOffsets.get( nextKey ) ) )
+            {
+                lazyOffsets.remove( nextKey );
+                document.getObjectFromPool( nextKey ).setObject( next.getObject() );
+            }
+        }
+        return object;
+    }
+
+    /**
+     * Loads the objects of a document which was parsed lazily.
+     */
+    private final class LazyObjectLoader implements ICOSObjectLoader
+    {
+        /**
+         * {@inheritDoc}
+         */
+        public COSBase load( COSObject object ) throws IOException
+        {
+            return loadObject( new COSObjectKey( object ) );
+        }
+    }
+
+    /**
+     * A buffered reader of the copy of the pdf file in the scratch file. The scratch file
+     * is shared with the streams of the document, thus it is positioned for every read.
+     */
+    private static final class ScratchFileSource extends InputStream implements RandomAccessRead
+    {
+        private final RandomAccess scratchFile;
+        private final long start;
+        private final long length;
+        private final byte[] buffer = new byte[16384];
+        private long bufferPosition = 0;
+        private int bufferLength = 0;
+        private long position = 0;
+
+        private ScratchFileSource( RandomAccess file, long startPosition, long sourceLength )
+        {
+            scratchFile = file;
+            start = startPosition;
+            length = sourceLength;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            if( position >= length )
+            {
+                return -1;
+            }
+            if( position < bufferPosition || position >= bufferPosition + bufferLength )
+            {
+                fillBuffer();
+            }
+            return buffer[(int)(position++ - bufferPosition)] & 0xff;
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len ) throws IOException
+        {
+            if( position >= length )
+            {
+                return -1;
+            }
+            if( len == 0 )
+            {
+                return 0;
+            }
+            if( position < bufferPosition || position >= bufferPosition + bufferLength )
+            {
+                fillBuffer();
+            }
+            int count = (int)Math.min( len, bufferPosition + bufferLength - position );
+            System.arraycopy( buffer, (int)(position - bufferPosition), b, off, count );
+            position += count;
+            return count;
+        }
+
+        private void fillBuffer() throws IOException
+        {
+            int count = (int)Math.min( buffer.length, length - position );
+            int read = 0;
+            synchronized( scratchFile )
+            {
+                scratchFile.seek( start + position );
+                while( read < count )
+                {
+                    int n = scratchFile.read( buffer, read, count - read );
+                    if( n == -1 )
+                    {
+                        break;
+                    }
+                    read += n;
+                }
+            }
+            bufferPosition = position;
+            bufferLength = read;
+            if( read == 0 )
+            {
+                throw new IOException( "Unexpected end of the copy of the pdf file at " + position );
+            }
+        }
+
+        public long getPosition()
+        {
+            return position;
+        }
+
+        public void seek( long newPosition )
+        {
+            position = newPosition;
+        }
+
+        public long length()
+        {
+            return length;
+        }
+
+        @Override
+        public void close()
+        {
+            // the scratch file is closed by the document
+        }
+    }
+
     /**
      * This will parse the startxref section from the stream.
      * The startxref value is ignored.
@@ -981,6 +1735,7 @@ public class PDFParser extends BaseParser
     @Override
     public void clearResources() {
     	super.clearResources();
+    	lazyOffsets = null;
     	if (conflictList != null)
     	{
     		conflictList.clear();
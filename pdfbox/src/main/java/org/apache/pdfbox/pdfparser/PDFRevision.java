@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import org.apache.pdfbox.cos.COSDictionary;
+
+/**
+ * A revision of a pdf file, i.e. the original document or one of its incremental
+ * updates. Each revision ends with its own xref section, trailer and %%EOF marker.
+ * The bytes from the start of the file up to the end of a revision form the file
+ * as it was when the revision was saved.
+ *
+ * A revision may consist of several xref sections, e.g. the first page section and
+ * the main section of a linearized file. The xref offset of a revision is the section
+ * its startxref keyword points to.
+ */
+public class PDFRevision
+{
+    private final int index;
+    private final long xrefOffset;
+    private final long startOffset;
+    private final long endOffset;
+    private final COSDictionary trailer;
+
+    /**
+     * Constructor.
+     *
+     * @param revisionIndex the index of the revision, 0 for the original document
+     * @param xrefOffset the offset of the xref section of the revision
+     * @param startOffset the offset of the first byte of the revision
+     * @param endOffset the offset after the last byte of the revision, or -1 if unknown
+     * @param trailer the trailer or xref stream dictionary of the revision
+     */
+    PDFRevision(int revisionIndex, long xrefOffset, long startOffset, long endOffset, COSDictionary trailer)
+    {
+        this.index = revisionIndex;
+        this.xrefOffset = xrefOffset;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        this.trailer = trailer;
+    }
+
+    /**
+     * Returns the index of this revision, 0 for the original document.
+     *
+     * @return the index of the revision
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+
+    /**
+     * Returns the offset of the xref table or xref stream of this revision.
+     *
+     * @return the offset of the xref section
+     */
+    public long getXrefOffset()
+    {
+        return xrefOffset;
+    }
+
+    /**
+     * Returns the offset of the first byte added by this revision, i.e. the end
+     * offset of the previous revision or 0 for the original document.
+     *
+     * @return the start offset of the revision
+     */
+    public long getStartOffset()
+    {
+        return startOffset;
+    }
+
+    /**
+     * Returns the offset after the %%EOF marker of this revision, including the
+     * following end of line marker.
+     *
+     * @return the end offset of the revision or -1 if the marker wasn't found
+     */
+    public long getEndOffset()
+    {
+        return endOffset;
+    }
+
+    /**
+     * Returns the trailer of this revision, this is the dictionary of the xref
+     * stream if the revision uses an xref stream.
+     *
+     * @return the trailer of the revision
+     */
+    public COSDictionary getTrailer()
+    {
+        return trailer;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PDFRevision{" + index + ", xref=" + xrefOffset + ", bytes=" + startOffset + "-" + endOffset + "}";
+    }
+}
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.PushbackInputStream;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -35,6 +36,7 @@ import org.apache.pdfbox.cos.COSObject;
 import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.io.RandomAccess;
 import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.util.operator.OperandStack;
 import org.apache.pdfbox.util.operator.PDFOperator;
 
 /**
@@ -50,6 +52,24 @@ public class PDFStreamParser extends BaseParser
     private final int    maxBinCharTestLength = 5;
     private final byte[] binCharTestArr = new byte[maxBinCharTestLength];
 
+    // powers of ten which can be represented exactly by a double
+    private static final double[] POWERS_OF_TEN = new double[23];
+    static
+    {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++)
+        {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+    // the largest number of digits for which the value is exactly represented by a double
+    private static final int MAX_EXACT_DIGITS = 15;
+    private char[] numberBuffer = new char[32];
+
+    private static final int OPCODE_BEGIN_INLINE_IMAGE = PDFOperator.getOpcode("BI");
+    private BitSet operatorFilter;
+    private boolean skipImageData;
+
     /**
      * Constructor that takes a stream to parse.
      *
@@ -164,6 +184,31 @@ public class PDFStreamParser extends BaseParser
         pdfSource.close();
     }
 
+    /**
+     * Returns the number of bytes of the stream which have been parsed so far.
+     *
+     * @return the offset in the stream
+     */
+    public long getOffset()
+    {
+        return pdfSource.getOffset();
+    }
+
+    /**
+     * Restricts the operators returned by {@link #parseNextOperator(OperandStack)} to the given
+     * set. Other operators are skipped together with their operands. If the set doesn't contain
+     * the BI operator, the data of inline images isn't read into memory but skipped, this also
+     * applies to the other parse methods.
+     *
+     * @param opcodes the opcodes of the operators to be returned, or null to return all operators
+     * @see PDFOperator#getOpcode()
+     */
+    public void setOperatorFilter(BitSet opcodes)
+    {
+        operatorFilter = opcodes;
+        skipImageData = opcodes != null && !opcodes.get(OPCODE_BEGIN_INLINE_IMAGE);
+    }
+
     /**
      * This will get an iterator which can be used to parse the stream
      * one token after the other.
@@ -219,6 +264,134 @@ public class PDFStreamParser extends BaseParser
         };
     }
 
+    /**
+     * This will parse the operands up to the next operator and push them onto the given
+     * operand stack. Numbers are pushed as primitive values without creating COSNumber
+     * objects, references are resolved.
+     *
+     * @param operands the stack to push the operands to
+     * @return the next operator or null if there are no more operators in the stream
+     * @throws IOException If an io error occurs while parsing the stream.
+     */
+    public PDFOperator parseNextOperator(OperandStack operands) throws IOException
+    {
+        while (true)
+        {
+            skipSpaces();
+            int nextByte = pdfSource.peek();
+            if (((byte) nextByte) == -1)
+            {
+                return null;
+            }
+            if (nextByte >= '0' && nextByte <= '9' || nextByte == '-' || nextByte == '+' || nextByte == '.')
+            {
+                parseNumber(operands);
+                continue;
+            }
+            Object token = parseNextToken();
+            if (token == null)
+            {
+                return null;
+            }
+            else if (token instanceof PDFOperator)
+            {
+                PDFOperator operator = (PDFOperator) token;
+                if (operatorFilter == null || operatorFilter.get(operator.getOpcode()))
+                {
+                    return operator;
+                }
+                operands.clear();
+            }
+            else if (token instanceof COSObject)
+            {
+                operands.push(((COSObject) token).getObject());
+            }
+            else
+            {
+                operands.push((COSBase) token);
+            }
+        }
+    }
+
+    /**
+     * Reads a number the same way as {@link #parseNextToken()} and pushes its value.
+     * Values which can't be converted exactly without a string are parsed by
+     * {@link COSNumber#get(String)}.
+     */
+    private void parseNumber(OperandStack operands) throws IOException
+    {
+        int length = 0;
+        char c = (char) pdfSource.read();
+        numberBuffer[length++] = c;
+        boolean dotNotRead = (c != '.');
+        while (Character.isDigit((c = (char) pdfSource.peek())) || (dotNotRead && (c == '.')))
+        {
+            if (length == numberBuffer.length)
+            {
+                char[] buffer = new char[length * 2];
+                System.arraycopy(numberBuffer, 0, buffer, 0, length);
+                numberBuffer = buffer;
+            }
+            numberBuffer[length++] = c;
+            pdfSource.read();
+            if (dotNotRead && (c == '.'))
+            {
+                dotNotRead = false;
+            }
+        }
+
+        boolean negative = numberBuffer[0] == '-';
+        int start = numberBuffer[0] == '-' || numberBuffer[0] == '+' ? 1 : 0;
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        for (int i = start; i < length; i++)
+        {
+            if (numberBuffer[i] == '.')
+            {
+                scale = length - i - 1;
+            }
+            else
+            {
+                mantissa = mantissa * 10 + (numberBuffer[i] - '0');
+                digits++;
+            }
+        }
+        if (length == 1 && digits == 0 && numberBuffer[0] != '+')
+        {
+            // a single '-' or '.', see COSNumber.get()
+            operands.pushInteger(0);
+        }
+        else if (digits == 0 || digits > MAX_EXACT_DIGITS)
+        {
+            operands.push(COSNumber.get(new String(numberBuffer, 0, length)));
+        }
+        else if (dotNotRead)
+        {
+            operands.pushInteger(negative ? -mantissa : mantissa);
+        }
+        else
+        {
+            // the quotient is the correctly rounded double, rounding it to a float gives
+            // the correctly rounded float unless it lies exactly between two floats
+            double value = mantissa / POWERS_OF_TEN[scale];
+            if (negative)
+            {
+                value = -value;
+            }
+            float floatValue = (float) value;
+            float nextValue = Math.nextAfter(floatValue, value);
+            if (floatValue != value && ((double) floatValue + nextValue) / 2 == value)
+            {
+                operands.push(COSNumber.get(new String(numberBuffer, 0, length)));
+            }
+            else
+            {
+                operands.pushFloat(floatValue);
+            }
+        }
+    }
+
     /**
      * This will parse the next token in the stream.
      *
@@ -383,7 +556,8 @@ public class PDFStreamParser extends BaseParser
                 {
                     throw new IOException( "Error: Expected operator 'ID' actual='" + id + "'" );
                 }
-                ByteArrayOutputStream imageData = new ByteArrayOutputStream();
+                // the data of skipped inline images isn't kept
+                ByteArrayOutputStream imageData = skipImageData ? null : new ByteArrayOutputStream();
                 if( isWhitespace() )
                 {
                     //pull off the whitespace character
@@ -401,14 +575,17 @@ public class PDFStreamParser extends BaseParser
                          hasNoFollowingBinData( pdfSource )) &&
                        !pdfSource.isEOF() )
                 {
-                    imageData.write( lastByte );
+                    if( imageData != null )
+                    {
+                        imageData.write( lastByte );
+                    }
                     lastByte = currentByte;
                     currentByte = pdfSource.read();
                 }
                 // the EI operator isn't unread, as it won't be processed anyway
                 retval = PDFOperator.getOperator( "ID" );
                 // save the image data to the operator, so that it can be accessed it later
-                ((PDFOperator)retval).setImageData( imageData.toByteArray() );
+                ((PDFOperator)retval).setImageData( imageData == null ? new byte[0] : imageData.toByteArray() );
                 break;
             }
             case ']':
@@ -0,0 +1,444 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+import org.apache.pdfbox.persistence.util.COSObjectKey;
+
+/**
+ * Rebuilds the cross reference information of a damaged file by scanning the whole
+ * file for object headers ("N G obj"), "endobj" and "trailer" keywords as well as for
+ * xref streams and the catalog.
+ *
+ * The file is mapped into memory and split into chunks which are scanned in parallel,
+ * the results are merged in file order afterwards. If an object is defined more than
+ * once the last definition wins, as it does for incremental updates.
+ */
+public class XrefReconstructor
+{
+    /** the minimum size of a chunk is 1 MB. */
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+
+    /** the maximum size of a chunk, a single mapping is limited to 2 GB. */
+    private static final int MAX_CHUNK_SIZE = 1 << 30;
+
+    /**
+     * The number of bytes mapped in front of and behind each chunk, so that the
+     * keywords and numbers crossing the chunk borders can be read.
+     */
+    private static final int OVERLAP = 64;
+
+    private static final byte[] OBJ = { 'o', 'b', 'j' };
+    private static final byte[] ENDOBJ = { 'e', 'n', 'd', 'o', 'b', 'j' };
+    private static final byte[] TRAILER = { 't', 'r', 'a', 'i', 'l', 'e', 'r' };
+    private static final byte[] XREF_TYPE = { '/', 'X', 'R', 'e', 'f' };
+    private static final byte[] CATALOG_TYPE = { '/', 'C', 'a', 't', 'a', 'l', 'o', 'g' };
+
+    private static final byte OBJ_HIT = 0;
+    private static final byte ENDOBJ_HIT = 1;
+    private static final byte TRAILER_HIT = 2;
+    private static final byte XREF_HIT = 3;
+    private static final byte CATALOG_HIT = 4;
+
+    private final File file;
+    private final int chunkSize;
+    private Executor executor = null;
+
+    private final Map<COSObjectKey, Long> objectOffsets = new HashMap<COSObjectKey, Long>();
+    private final List<Long> trailerOffsets = new ArrayList<Long>();
+    private final List<Long> xrefStreamOffsets = new ArrayList<Long>();
+    private COSObjectKey catalog = null;
+
+    /**
+     * Constructor.
+     *
+     * @param pdfFile the file to be scanned
+     */
+    public XrefReconstructor(File pdfFile)
+    {
+        this(pdfFile, 0);
+    }
+
+    /**
+     * Constructor using chunks of the given size.
+     *
+     * @param pdfFile the file to be scanned
+     * @param chunkSizeValue the size of a chunk, or 0 to derive it from the file length
+     * and the number of processors
+     */
+    XrefReconstructor(File pdfFile, int chunkSizeValue)
+    {
+        file = pdfFile;
+        chunkSize = chunkSizeValue;
+    }
+
+    /**
+     * Sets the executor which is used to scan the chunks. Without an executor a thread
+     * pool with one thread per processor is used while scanning files of more than one chunk.
+     *
+     * @param executorValue the executor or null
+     */
+    public void setExecutor(Executor executorValue)
+    {
+        executor = executorValue;
+    }
+
+    /**
+     * Scans the file.
+     *
+     * @throws IOException if the file can't be read
+     */
+    public void reconstruct() throws IOException
+    {
+        RandomAccessFile raFile = new RandomAccessFile(file, "r");
+        ExecutorService pool = null;
+        try
+        {
+            FileChannel channel = raFile.getChannel();
+            long fileLength = channel.size();
+            int processors = Runtime.getRuntime().availableProcessors();
+            long size = chunkSize > 0 ? chunkSize
+                    : Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, fileLength / (4 * processors)));
+
+            List<FutureTask<Hits>> tasks = new ArrayList<FutureTask<Hits>>();
+            for (long start = 0; start < fileLength; start += size)
+            {
+                long mapStart = Math.max(0, start - OVERLAP);
+                long mapEnd = Math.min(fileLength, start + size + OVERLAP);
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart,
+                        mapEnd - mapStart);
+                final long bufferOffset = mapStart;
+                final int from = (int) (start - mapStart);
+                final int to = (int) (Math.min(fileLength, start + size) - mapStart);
+                tasks.add(new FutureTask<Hits>(new Callable<Hits>()
+                {
+                    public Hits call()
+                    {
+                        return scan(buffer, bufferOffset, from, to);
+                    }
+                }));
+            }
+
+            Executor chunkExecutor = executor;
+            if (chunkExecutor == null && tasks.size() > 1 && processors > 1)
+            {
+                pool = Executors.newFixedThreadPool(Math.min(processors, tasks.size()));
+                chunkExecutor = pool;
+            }
+            for (FutureTask<Hits> task : tasks)
+            {
+                if (chunkExecutor != null)
+                {
+                    chunkExecutor.execute(task);
+                }
+                else
+                {
+                    task.run();
+                }
+            }
+
+            // merge the chunks in file order
+            COSObjectKey currentObject = null;
+            for (FutureTask<Hits> task : tasks)
+            {
+                Hits hits;
+                try
+                {
+                    hits = task.get();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while scanning " + file, e);
+                }
+                catch (ExecutionException e)
+                {
+                    throw new IOException("Error while scanning " + file + ": " + e.getCause());
+                }
+                for (int i = 0; i < hits.count; i++)
+                {
+                    switch (hits.types[i])
+                    {
+                    case OBJ_HIT:
+                        currentObject = new COSObjectKey(hits.numbers[i], hits.generations[i]);
+                        objectOffsets.put(currentObject, hits.offsets[i]);
+                        break;
+                    case ENDOBJ_HIT:
+                        currentObject = null;
+                        break;
+                    case TRAILER_HIT:
+                        trailerOffsets.add(hits.offsets[i]);
+                        break;
+                    case XREF_HIT:
+                        if (currentObject != null)
+                        {
+                            xrefStreamOffsets.add(objectOffsets.get(currentObject));
+                        }
+                        break;
+                    default:
+                        if (currentObject != null)
+                        {
+                            catalog = currentObject;
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        finally
+        {
+            if (pool != null)
+            {
+                pool.shutdown();
+            }
+            // the mapping stays valid after the file is closed
+            raFile.close();
+        }
+    }
+
+    /**
+     * Returns the offsets of all objects found in the file.
+     *
+     * @return the offsets of the objects
+     */
+    public Map<COSObjectKey, Long> getObjectOffsets()
+    {
+        return Collections.unmodifiableMap(objectOffsets);
+    }
+
+    /**
+     * Returns the offsets of all "trailer" keywords in file order.
+     *
+     * @return the offsets of the trailers
+     */
+    public List<Long> getTrailerOffsets()
+    {
+        return Collections.unmodifiableList(trailerOffsets);
+    }
+
+    /**
+     * Returns the offsets of all xref streams in file order.
+     *
+     * @return the offsets of the xref streams
+     */
+    public List<Long> getXrefStreamOffsets()
+    {
+        return Collections.unmodifiableList(xrefStreamOffsets);
+    }
+
+    /**
+     * Returns the last object of type /Catalog found in the file.
+     *
+     * @return the key of the catalog or null if there is none
+     */
+    public COSObjectKey getCatalog()
+    {
+        return catalog;
+    }
+
+    /**
+     * Scans a chunk of the file. Only the keywords starting within the chunk are reported.
+     *
+     * @param buffer the mapped bytes of the chunk including the overlapping bytes
+     * @param bufferOffset the offset of the buffer within the file
+     * @param from the index of the first byte of the chunk
+     * @param to the index after the last byte of the chunk
+     * @return the hits in file order
+     */
+    private static Hits scan(MappedByteBuffer buffer, long bufferOffset, int from, int to)
+    {
+        Hits hits = new Hits();
+        int limit = buffer.limit();
+        for (int i = from; i < to; i++)
+        {
+            byte b = buffer.get(i);
+            if (b == 'o')
+            {
+                if (matches(buffer, i, OBJ) && isDelimiter(buffer, i + OBJ.length, limit))
+                {
+                    scanObjectHeader(buffer, bufferOffset, i, hits);
+                }
+            }
+            else if (b == 'e')
+            {
+                if (matches(buffer, i, ENDOBJ) && isDelimiter(buffer, i + ENDOBJ.length, limit))
+                {
+                    hits.add(ENDOBJ_HIT, bufferOffset + i, 0, 0);
+                }
+            }
+            else if (b == 't')
+            {
+                if (matches(buffer, i, TRAILER) && (i == 0 || isWhitespace(buffer.get(i - 1))))
+                {
+                    hits.add(TRAILER_HIT, bufferOffset + i, 0, 0);
+                }
+            }
+            else if (b == '/')
+            {
+                if (matches(buffer, i, XREF_TYPE) && isDelimiter(buffer, i + XREF_TYPE.length, limit))
+                {
+                    hits.add(XREF_HIT, bufferOffset + i, 0, 0);
+                }
+                else if (matches(buffer, i, CATALOG_TYPE)
+                        && isDelimiter(buffer, i + CATALOG_TYPE.length, limit))
+                {
+                    hits.add(CATALOG_HIT, bufferOffset + i, 0, 0);
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Reads the object and generation number preceding an "obj" keyword.
+     */
+    private static void scanObjectHeader(MappedByteBuffer buffer, long bufferOffset, int objIndex, Hits hits)
+    {
+        int i = objIndex - 1;
+        // the keyword "endobj" ends with "obj" too
+        if (i < 0 || !isWhitespace(buffer.get(i)))
+        {
+            return;
+        }
+        while (i >= 0 && isWhitespace(buffer.get(i)))
+        {
+            i--;
+        }
+        int generation = 0;
+        int factor = 1;
+        int digits = 0;
+        while (i >= 0 && isDigit(buffer.get(i)) && digits < 5)
+        {
+            generation += (buffer.get(i--) - '0') * factor;
+            factor *= 10;
+            digits++;
+        }
+        if (digits == 0 || i < 0 || !isWhitespace(buffer.get(i)))
+        {
+            return;
+        }
+        while (i >= 0 && isWhitespace(buffer.get(i)))
+        {
+            i--;
+        }
+        long number = 0;
+        long numberFactor = 1;
+        digits = 0;
+        while (i >= 0 && isDigit(buffer.get(i)) && digits < 10)
+        {
+            number += (buffer.get(i--) - '0') * numberFactor;
+            numberFactor *= 10;
+            digits++;
+        }
+        if (digits == 0 || (i >= 0 && !isDelimiter(buffer, i, buffer.limit())))
+        {
+            return;
+        }
+        // the object starts where its number starts
+        hits.add(OBJ_HIT, bufferOffset + i + 1, number, generation);
+    }
+
+    private static boolean matches(MappedByteBuffer buffer, int index, byte[] pattern)
+    {
+        if (index + pattern.length > buffer.limit())
+        {
+            return false;
+        }
+        for (int i = 0; i < pattern.length; i++)
+        {
+            if (buffer.get(index + i) != pattern[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDelimiter(MappedByteBuffer buffer, int index, int limit)
+    {
+        if (index >= limit)
+        {
+            return true;
+        }
+        byte b = buffer.get(index);
+        return isWhitespace(b) || b == '<' || b == '>' || b == '[' || b == ']' || b == '/' || b == '('
+                || b == ')' || b == '%' || b == '{' || b == '}';
+    }
+
+    private static boolean isWhitespace(byte b)
+    {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0;
+    }
+
+    private static boolean isDigit(byte b)
+    {
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * The hits of a chunk, stored in growing arrays.
+     */
+    private static final class Hits
+    {
+        private byte[] types = new byte[64];
+        private long[] offsets = new long[64];
+        private long[] numbers = new long[64];
+        private int[] generations = new int[64];
+        private int count = 0;
+
+        private void add(byte type, long offset, long number, int generation)
+        {
+            if (count == types.length)
+            {
+                int newLength = count * 2;
+                byte[] newTypes = new byte[newLength];
+                System.arraycopy(types, 0, newTypes, 0, count);
+                types = newTypes;
+                long[] newOffsets = new long[newLength];
+                System.arraycopy(offsets, 0, newOffsets, 0, count);
+                offsets = newOffsets;
+                long[] newNumbers = new long[newLength];
+                System.arraycopy(numbers, 0, newNumbers, 0, count);
+                numbers = newNumbers;
+                int[] newGenerations = new int[newLength];
+                System.arraycopy(generations, 0, newGenerations, 0, count);
+                generations = newGenerations;
+            }
+            types[count] = type;
+            offsets[count] = offset;
+            numbers[count] = number;
+            generations[count] = generation;
+            count++;
+        }
+    }
+}
@@ -32,6 +32,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.persistence.util.COSObjectKey;
+import org.apache.pdfbox.persistence.util.XrefTable;
 
 /**
  * This class will collect all XRef/trailer objects and creates correct
@@ -65,7 +66,7 @@ public class XrefTrailerResolver
 
         private XRefType xrefType;
 
-        private final Map<COSObjectKey, Long> xrefTable = new HashMap<COSObjectKey, Long>();
+        private final XrefTable xrefTable = new XrefTable();
         
         /**
          *  Default constructor.
@@ -180,7 +181,7 @@ public class XrefTrailerResolver
             LOG.warn( "Cannot add XRef entry for '" + objKey.getNumber() + "' because XRef start was not signalled." );
             return;
         }
-        curXrefTrailerObj.xrefTable.put( objKey, offset );
+        curXrefTrailerObj.xrefTable.setOffset( objKey.getNumber(), objKey.getGeneration(), offset );
     }
 
     /**
@@ -40,6 +40,7 @@ import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSObject;
 import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.io.RandomAccess;
+import org.apache.pdfbox.io.RandomAccessBufferedFileInputStream;
 import org.apache.pdfbox.pdfparser.BaseParser;
 import org.apache.pdfbox.pdfparser.NonSequentialPDFParser;
 import org.apache.pdfbox.pdfparser.PDFParser;
@@ -664,6 +665,13 @@ public class PDDocument implements Closeable
     {
         document = doc;
         parser = usedParser;
+        if (doc.isReadOnly())
+        {
+            // initialize the lazily created objects before the document is shared between threads
+            getDocumentCatalog();
+            getDocumentInformation();
+            getEncryption();
+        }
     }
 
     /**
@@ -1129,6 +1137,49 @@ public class PDDocument implements Closeable
         return parser.getPDDocument();
     }
 
+    /**
+     * This will load a document from a file. Only the offsets of the objects are
+     * recorded while parsing, an object is parsed when it is accessed for the first time.
+     * See {@link PDFParser#setLazyParsing(boolean)}.
+     * 
+     * @param file The name of the file to load.
+     * @param scratchFile A location to store temp PDFBox data for this document.
+     * 
+     * @return The document that was loaded.
+     * 
+     * @throws IOException If there is an error reading from the file.
+     */
+    public static PDDocument loadLazy(File file, RandomAccess scratchFile) throws IOException
+    {
+        // the file is read directly instead of being copied to the scratch file
+        PDFParser parser = new PDFParser(new RandomAccessBufferedFileInputStream(file), scratchFile);
+        parser.setLazyParsing(true);
+        parser.parse();
+        PDDocument doc = parser.getPDDocument();
+        doc.incrementalFile = file;
+        return doc;
+    }
+
+    /**
+     * This will load a document from an input stream. Only the offsets of the objects are
+     * recorded while parsing, an object is parsed when it is accessed for the first time.
+     * See {@link PDFParser#setLazyParsing(boolean)}.
+     * 
+     * @param input The stream that contains the document.
+     * @param scratchFile A location to store temp PDFBox data for this document.
+     * 
+     * @return The document that was loaded.
+     * 
+     * @throws IOException If there is an error reading from the stream.
+     */
+    public static PDDocument loadLazy(InputStream input, RandomAccess scratchFile) throws IOException
+    {
+        PDFParser parser = new PDFParser(new BufferedInputStream(input), scratchFile);
+        parser.setLazyParsing(true);
+        parser.parse();
+        return parser.getPDDocument();
+    }
+
     /**
      * Parses PDF with non sequential parser.
      * 
@@ -1157,7 +1208,26 @@ public class PDDocument implements Closeable
      */
     public static PDDocument loadNonSeq(File file, RandomAccess scratchFile, String password) throws IOException
     {
-        NonSequentialPDFParser parser = new NonSequentialPDFParser(file, scratchFile, password);
+        return loadNonSeq(file, scratchFile, password, false);
+    }
+
+    /**
+     * Parses PDF with non sequential parser.
+     * 
+     * @param file file to be loaded
+     * @param scratchFile location to store temp PDFBox data for this document
+     * @param password password to be used for decryption
+     * @param useMemoryMapping if <code>true</code> the file is mapped into memory instead of being read
+     * using buffered file access
+     * 
+     * @return loaded document
+     * 
+     * @throws IOException in case of a file reading or parsing error
+     */
+    public static PDDocument loadNonSeq(File file, RandomAccess scratchFile, String password,
+            boolean useMemoryMapping) throws IOException
+    {
+        NonSequentialPDFParser parser = new NonSequentialPDFParser(file, scratchFile, password, useMemoryMapping);
         parser.parse();
         return parser.getPDDocument();
     }
@@ -1196,6 +1266,51 @@ public class PDDocument implements Closeable
         return parser.getPDDocument();
     }
 
+    /**
+     * Parses PDF with non sequential parser and marks it read-only. All objects are parsed
+     * and decrypted upfront, so that the returned document may be read by several threads
+     * at the same time, e.g. to extract the text of different pages. The document must not
+     * be modified.
+     * 
+     * @param file file to be loaded
+     * @param scratchFile location to store temp PDFBox data for this document
+     * @param password password to be used for decryption
+     * 
+     * @return loaded document
+     * 
+     * @throws IOException in case of a file reading or parsing error
+     */
+    public static PDDocument loadReadOnly(File file, RandomAccess scratchFile, String password)
+            throws IOException
+    {
+        NonSequentialPDFParser parser = new NonSequentialPDFParser(file, scratchFile, password);
+        parser.setReadOnly(true);
+        parser.parse();
+        return parser.getPDDocument();
+    }
+
+    /**
+     * Parses PDF with non sequential parser and marks it read-only. All objects are parsed
+     * and decrypted upfront, so that the returned document may be read by several threads
+     * at the same time. The document must not be modified.
+     * 
+     * @param input stream that contains the document.
+     * @param scratchFile location to store temp PDFBox data for this document
+     * @param password password to be used for decryption
+     * 
+     * @return loaded document
+     * 
+     * @throws IOException in case of a file reading or parsing error
+     */
+    public static PDDocument loadReadOnly(InputStream input, RandomAccess scratchFile, String password)
+            throws IOException
+    {
+        NonSequentialPDFParser parser = new NonSequentialPDFParser(input, scratchFile, password);
+        parser.setReadOnly(true);
+        parser.parse();
+        return parser.getPDDocument();
+    }
+
     /**
      * Save the document to a file.
      * 
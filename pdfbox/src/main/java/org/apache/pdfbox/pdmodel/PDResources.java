@@ -180,13 +180,9 @@ public class PDResources implements COSObjectable
             // at least an empty map will be returned
             // TODO we should return null instead of an empty map
             fonts = new HashMap<String, PDFont>();
+            // the dictionary isn't created here, so that reading the resources doesn't modify them
             COSDictionary fontsDictionary = (COSDictionary) resources.getDictionaryObject(COSName.FONT);
-            if (fontsDictionary == null)
-            {
-                fontsDictionary = new COSDictionary();
-                resources.setItem(COSName.FONT, fontsDictionary);
-            }
-            else
+            if (fontsDictionary != null)
             {
                 for (COSName fontName : fontsDictionary.keySet())
                 {
@@ -230,15 +226,8 @@ public class PDResources implements COSObjectable
             xobjects = new HashMap<String, PDXObject>();
 
             COSDictionary dict = (COSDictionary) resources.getDictionaryObject(COSName.XOBJECT);
-
-            if (dict == null)
+            if (dict != null)
             {
-                dict = new COSDictionary();
-                resources.setItem(COSName.XOBJECT, dict);
-            }
-            else
-            {
-                xobjects = new HashMap<String, PDXObject>();
                 for (COSName objName : dict.keySet())
                 {
                     PDXObject xobject = null;
@@ -579,6 +568,11 @@ public class PDResources implements COSObjectable
     private void addFontToDictionary(PDFont font, String fontName)
     {
         COSDictionary fontsDictionary = (COSDictionary) resources.getDictionaryObject(COSName.FONT);
+        if (fontsDictionary == null)
+        {
+            fontsDictionary = new COSDictionary();
+            resources.setItem(COSName.FONT, fontsDictionary);
+        }
         fontsDictionary.setItem(fontName, font);
     }
 
@@ -627,7 +621,10 @@ public class PDResources implements COSObjectable
     public void removeXObject(String xobjectName)
     {
         COSDictionary xobjectsDictionary = (COSDictionary) resources.getDictionaryObject(COSName.XOBJECT);
-        xobjectsDictionary.removeItem(COSName.getPDFName(xobjectName));
+        if (xobjectsDictionary != null)
+        {
+            xobjectsDictionary.removeItem(COSName.getPDFName(xobjectName));
+        }
         if (xobjects != null && xobjects.containsKey(xobjectName))
         {
         	xobjectMappings.remove(xobjects.get(xobjectName));
@@ -642,8 +639,11 @@ public class PDResources implements COSObjectable
      */
     public void removeFont(String fontName)
     {
-        COSDictionary xobjectsDictionary = (COSDictionary) resources.getDictionaryObject(COSName.FONT);
-        xobjectsDictionary.removeItem(COSName.getPDFName(fontName));
+        COSDictionary fontsDictionary = (COSDictionary) resources.getDictionaryObject(COSName.FONT);
+        if (fontsDictionary != null)
+        {
+            fontsDictionary.removeItem(COSName.getPDFName(fontName));
+        }
         if (fonts != null && fonts.containsKey(fontName))
         {
         	fontMappings.remove(fonts.get(fontName));
@@ -654,6 +654,11 @@ public class PDResources implements COSObjectable
     private void addXObjectToDictionary(PDXObject xobject, String xobjectName)
     {
         COSDictionary xobjectsDictionary = (COSDictionary) resources.getDictionaryObject(COSName.XOBJECT);
+        if (xobjectsDictionary == null)
+        {
+            xobjectsDictionary = new COSDictionary();
+            resources.setItem(COSName.XOBJECT, xobjectsDictionary);
+        }
         xobjectsDictionary.setItem(xobjectName, xobject);
     }
 
@@ -22,11 +22,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.fontbox.ttf.CMAPEncodingEntry;
 import org.apache.fontbox.ttf.CMAPTable;
@@ -66,7 +66,7 @@ public class PDTrueTypeFont extends PDSimpleFont
     private static final String UNKNOWN_FONT = "UNKNOWN_FONT";
 
     private static Properties externalFonts = new Properties();
-    private static Map<String, TrueTypeFont> loadedExternalFonts = new HashMap<String, TrueTypeFont>();
+    private static Map<String, TrueTypeFont> loadedExternalFonts = new ConcurrentHashMap<String, TrueTypeFont>();
 
     static
     {
@@ -0,0 +1,482 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.persistence.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map of object keys to xref offsets which doesn't store a key object and a
+ * Long for every entry. The object and generation number are packed into a single
+ * long, keys and offsets are kept in two primitive arrays using open addressing.
+ * Keys which can't be packed, e.g. because of a negative number, are stored in
+ * an ordinary map.
+ *
+ * Key objects and Longs are only created when the map is accessed through the
+ * {@link Map} interface.
+ */
+public class XrefTable extends AbstractMap<COSObjectKey, Long>
+{
+    private static final long EMPTY = -1;
+    private static final long MAX_NUMBER = (1L << 47) - 1;
+    private static final int MAX_GENERATION = 0xFFFF;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] keys;
+    private long[] offsets;
+    private int size = 0;
+    private int threshold;
+    // keys which can't be packed
+    private Map<COSObjectKey, Long> otherEntries;
+
+    private Set<Map.Entry<COSObjectKey, Long>> entrySet;
+
+    /**
+     * Creates an empty table.
+     */
+    public XrefTable()
+    {
+        init(INITIAL_CAPACITY);
+    }
+
+    private void init(int capacity)
+    {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        offsets = new long[capacity];
+        threshold = capacity / 4 * 3;
+    }
+
+    private static long pack(long number, long generation)
+    {
+        if (number < 0 || number > MAX_NUMBER || generation < 0 || generation > MAX_GENERATION)
+        {
+            return EMPTY;
+        }
+        return number << 16 | generation;
+    }
+
+    private int slot(long key)
+    {
+        // same distribution as COSObjectKey.hashCode()
+        return (int) ((key >>> 16) + (key & MAX_GENERATION)) & (keys.length - 1);
+    }
+
+    private int indexOf(long key)
+    {
+        int mask = keys.length - 1;
+        for (int index = slot(key); keys[index] != EMPTY; index = (index + 1) & mask)
+        {
+            if (keys[index] == key)
+            {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if there is an entry for the given object.
+     *
+     * @param number the object number
+     * @param generation the generation number
+     * @return true if the table contains an offset for the object
+     */
+    public boolean containsKey(long number, long generation)
+    {
+        long key = pack(number, generation);
+        if (key == EMPTY)
+        {
+            return otherEntries != null && otherEntries.containsKey(new COSObjectKey(number, generation));
+        }
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Returns the offset of the given object without creating any objects.
+     *
+     * @param number the object number
+     * @param generation the generation number
+     * @param defaultValue the value to be returned if there is no entry
+     * @return the offset or the default value
+     */
+    public long getOffset(long number, long generation, long defaultValue)
+    {
+        long key = pack(number, generation);
+        if (key == EMPTY)
+        {
+            Long offset = otherEntries == null ? null : otherEntries.get(new COSObjectKey(number, generation));
+            return offset == null ? defaultValue : offset;
+        }
+        int index = indexOf(key);
+        return index >= 0 ? offsets[index] : defaultValue;
+    }
+
+    /**
+     * Sets the offset of the given object.
+     *
+     * @param number the object number
+     * @param generation the generation number
+     * @param offset the offset of the object
+     */
+    public void setOffset(long number, long generation, long offset)
+    {
+        long key = pack(number, generation);
+        if (key == EMPTY)
+        {
+            if (otherEntries == null)
+            {
+                otherEntries = new HashMap<COSObjectKey, Long>();
+            }
+            otherEntries.put(new COSObjectKey(number, generation), offset);
+            return;
+        }
+        int mask = keys.length - 1;
+        int index = slot(key);
+        while (keys[index] != EMPTY)
+        {
+            if (keys[index] == key)
+            {
+                offsets[index] = offset;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        offsets[index] = offset;
+        if (++size > threshold)
+        {
+            rehash(keys.length * 2);
+        }
+    }
+
+    private void rehash(int capacity)
+    {
+        long[] oldKeys = keys;
+        long[] oldOffsets = offsets;
+        init(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldKeys[i] != EMPTY)
+            {
+                int index = slot(oldKeys[i]);
+                while (keys[index] != EMPTY)
+                {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                offsets[index] = oldOffsets[i];
+            }
+        }
+    }
+
+    private void removeAt(int index)
+    {
+        removeAt(index, null);
+    }
+
+    private void removeAt(int index, EntryIterator iterator)
+    {
+        // move following entries of the same cluster back, so that no gaps are left
+        int mask = keys.length - 1;
+        int next = index;
+        while (true)
+        {
+            next = (next + 1) & mask;
+            if (keys[next] == EMPTY)
+            {
+                break;
+            }
+            int ideal = slot(keys[next]);
+            boolean movable = index <= next ? ideal <= index || ideal > next : ideal <= index && ideal > next;
+            if (movable)
+            {
+                if (iterator != null)
+                {
+                    iterator.moved(next, index);
+                }
+                keys[index] = keys[next];
+                offsets[index] = offsets[next];
+                index = next;
+            }
+        }
+        keys[index] = EMPTY;
+        size--;
+    }
+
+    @Override
+    public int size()
+    {
+        return size + (otherEntries == null ? 0 : otherEntries.size());
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        if (!(key instanceof COSObjectKey))
+        {
+            return false;
+        }
+        COSObjectKey objectKey = (COSObjectKey) key;
+        return containsKey(objectKey.getNumber(), objectKey.getGeneration());
+    }
+
+    @Override
+    public Long get(Object key)
+    {
+        if (!(key instanceof COSObjectKey))
+        {
+            return null;
+        }
+        COSObjectKey objectKey = (COSObjectKey) key;
+        long packed = pack(objectKey.getNumber(), objectKey.getGeneration());
+        if (packed == EMPTY)
+        {
+            return otherEntries == null ? null : otherEntries.get(objectKey);
+        }
+        int index = indexOf(packed);
+        return index >= 0 ? Long.valueOf(offsets[index]) : null;
+    }
+
+    @Override
+    public Long put(COSObjectKey key, Long offset)
+    {
+        Long oldOffset = get(key);
+        setOffset(key.getNumber(), key.getGeneration(), offset);
+        return oldOffset;
+    }
+
+    @Override
+    public void putAll(Map<? extends COSObjectKey, ? extends Long> map)
+    {
+        if (map instanceof XrefTable)
+        {
+            XrefTable other = (XrefTable) map;
+            for (int i = 0; i < other.keys.length; i++)
+            {
+                long key = other.keys[i];
+                if (key != EMPTY)
+                {
+                    setOffset(key >>> 16, key & MAX_GENERATION, other.offsets[i]);
+                }
+            }
+            if (other.otherEntries != null)
+            {
+                for (Map.Entry<COSObjectKey, Long> entry : other.otherEntries.entrySet())
+                {
+                    put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        else
+        {
+            super.putAll(map);
+        }
+    }
+
+    @Override
+    public Long remove(Object key)
+    {
+        if (!(key instanceof COSObjectKey))
+        {
+            return null;
+        }
+        COSObjectKey objectKey = (COSObjectKey) key;
+        long packed = pack(objectKey.getNumber(), objectKey.getGeneration());
+        if (packed == EMPTY)
+        {
+            return otherEntries == null ? null : otherEntries.remove(objectKey);
+        }
+        int index = indexOf(packed);
+        if (index < 0)
+        {
+            return null;
+        }
+        Long oldOffset = offsets[index];
+        removeAt(index);
+        return oldOffset;
+    }
+
+    @Override
+    public void clear()
+    {
+        init(INITIAL_CAPACITY);
+        size = 0;
+        otherEntries = null;
+    }
+
+    @Override
+    public Set<Map.Entry<COSObjectKey, Long>> entrySet()
+    {
+        if (entrySet == null)
+        {
+            entrySet = new AbstractSet<Map.Entry<COSObjectKey, Long>>()
+            {
+                @Override
+                public Iterator<Map.Entry<COSObjectKey, Long>> iterator()
+                {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size()
+                {
+                    return XrefTable.this.size();
+                }
+
+                @Override
+                public void clear()
+                {
+                    XrefTable.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * Iterates over the packed entries followed by the other entries. Offsets of existing entries
+     * may be changed while iterating, entries may only be removed by the iterator.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<COSObjectKey, Long>>
+    {
+        private int index = -1;
+        private Iterator<Map.Entry<COSObjectKey, Long>> otherIterator;
+        // the slot of the entry returned last, -1 if there is none or it is one of the other entries
+        private int lastReturned = -1;
+        private boolean otherReturned;
+        // the keys of visited entries which have been moved to slots which aren't visited yet
+        private long[] visitedKeys;
+        private int visitedCount;
+
+        EntryIterator()
+        {
+            advance();
+        }
+
+        private void advance()
+        {
+            do
+            {
+                index++;
+            }
+            while (index < keys.length && (keys[index] == EMPTY || isVisited(keys[index])));
+        }
+
+        private boolean isVisited(long key)
+        {
+            for (int i = 0; i < visitedCount; i++)
+            {
+                if (visitedKeys[i] == key)
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Called when the removal of the entry returned last moves an entry to another slot.
+         */
+        void moved(int from, int to)
+        {
+            // the removal moves entries of the cluster towards the removed slot. Only entries of a
+            // cluster wrapping around the end of the table may move from a visited slot at the
+            // start to one which hasn't been visited yet.
+            if (from < lastReturned && to >= lastReturned)
+            {
+                if (visitedKeys == null)
+                {
+                    visitedKeys = new long[4];
+                }
+                else if (visitedCount == visitedKeys.length)
+                {
+                    visitedKeys = Arrays.copyOf(visitedKeys, visitedCount * 2);
+                }
+                visitedKeys[visitedCount++] = keys[from];
+            }
+        }
+
+        public boolean hasNext()
+        {
+            if (index < keys.length)
+            {
+                return true;
+            }
+            if (otherIterator == null && otherEntries != null)
+            {
+                otherIterator = otherEntries.entrySet().iterator();
+            }
+            return otherIterator != null && otherIterator.hasNext();
+        }
+
+        public Map.Entry<COSObjectKey, Long> next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            if (index >= keys.length)
+            {
+                lastReturned = -1;
+                otherReturned = true;
+                return otherIterator.next();
+            }
+            lastReturned = index;
+            otherReturned = false;
+            long key = keys[index];
+            final COSObjectKey objectKey = new COSObjectKey(key >>> 16, key & MAX_GENERATION);
+            Map.Entry<COSObjectKey, Long> entry = new SimpleEntry<COSObjectKey, Long>(objectKey, offsets[index])
+            {
+                @Override
+                public Long setValue(Long value)
+                {
+                    super.setValue(value);
+                    return put(objectKey, value);
+                }
+            };
+            advance();
+            return entry;
+        }
+
+        public void remove()
+        {
+            if (otherReturned)
+            {
+                otherIterator.remove();
+                otherReturned = false;
+                return;
+            }
+            if (lastReturned < 0)
+            {
+                throw new IllegalStateException();
+            }
+            removeAt(lastReturned, this);
+            // an entry following the removed one may have been moved to its slot
+            index = lastReturned - 1;
+            lastReturned = -1;
+            advance();
+        }
+    }
+}
@@ -21,6 +21,7 @@ import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 
+import org.apache.pdfbox.pdfparser.ContentStreamCache;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
@@ -36,6 +37,7 @@ public class PDFRenderer
 {
     protected final PDDocument document;
     // TODO keep rendering state such as caches here
+    private ContentStreamCache contentStreamCache;
 
     /**
      * Creates a new PDFRenderer.
@@ -46,6 +48,25 @@ public class PDFRenderer
         this.document = document;
     }
 
+    /**
+     * Returns the cache of compiled content streams used when rendering.
+     * @return the content stream cache or null if none is used
+     */
+    public ContentStreamCache getContentStreamCache()
+    {
+        return contentStreamCache;
+    }
+
+    /**
+     * Sets the cache of compiled content streams used when rendering. The cache may be
+     * shared with other engines processing the same document, e.g. a text stripper.
+     * @param cache the content stream cache or null to parse the streams every time
+     */
+    public void setContentStreamCache(ContentStreamCache cache)
+    {
+        contentStreamCache = cache;
+    }
+
     /**
      * Returns the given page as an RGB image at 72 DPI
      * @param pageIndex the zero-based index of the page to be converted.
@@ -211,6 +232,7 @@ public class PDFRenderer
         }
 
         PageDrawer drawer = new PageDrawer(this);   // TODO: need to make it easy to use a custom PageDrawer
+        drawer.setContentStreamCache(contentStreamCache);
         drawer.drawPage(graphics, page, cropBox);
         drawer.dispose();
     }
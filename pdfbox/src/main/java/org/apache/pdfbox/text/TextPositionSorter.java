@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.text;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sorts text positions into the same order as a stable sort with the {@link TextPositionComparator},
+ * without comparing the positions pairwise. The coordinates of the positions are computed once, the
+ * positions are ordered by their bottom, grouped into lines with a single pass and each line is
+ * ordered by x.
+ *
+ * The comparator treats two positions as being on the same line if their bottoms are close or if
+ * the bottom of one lies within the height of the other. This relation isn't transitive, so the
+ * grouping verifies that it forms consistent lines: every position of a line is on the same line
+ * as all other positions of the line and on none of the other lines. Only then the order of a
+ * stable sort is uniquely defined, otherwise the positions are sorted with the comparator.
+ */
+public final class TextPositionSorter
+{
+    private TextPositionSorter()
+    {
+    }
+
+    /**
+     * Sorts the given positions like <code>Collections.sort(positions, new TextPositionComparator())</code>.
+     *
+     * @param positions the positions to be sorted
+     */
+    @SuppressWarnings("unchecked")
+    public static void sort(List<TextPosition> positions)
+    {
+        if (positions.size() < 2)
+        {
+            return;
+        }
+        TextPosition[] sorted = sortIntoLines(positions);
+        if (sorted == null)
+        {
+            Collections.sort(positions, new TextPositionComparator());
+            return;
+        }
+        for (int i = 0; i < sorted.length; i++)
+        {
+            positions.set(i, sorted[i]);
+        }
+    }
+
+    /**
+     * Returns the positions in sorted order or null if they don't form consistent lines.
+     */
+    private static TextPosition[] sortIntoLines(List<TextPosition> positions)
+    {
+        int size = positions.size();
+        TextPosition[] input = positions.toArray(new TextPosition[size]);
+        float[] bottoms = new float[size];
+        float[] tops = new float[size];
+        float[] xs = new float[size];
+        // the text directions are 0, 90, 180 and 270, the positions are grouped by them first
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++)
+        {
+            TextPosition position = input[i];
+            float dir = position.getDir();
+            float bottom = position.getYDirAdj();
+            float top = bottom - position.getHeightDir();
+            float x = position.getXDirAdj();
+            if (dir != (int) dir || !isFinite(bottom) || !isFinite(top) || !isFinite(x))
+            {
+                return null;
+            }
+            bottoms[i] = bottom;
+            tops[i] = top;
+            // -0 and 0 are equal for the comparator
+            xs[i] = x + 0f;
+            keys[i] = ((long) (int) dir << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        TextPosition[] sorted = new TextPosition[size];
+        long[] lineKeys = new long[size];
+        int groupStart = 0;
+        while (groupStart < size)
+        {
+            int dir = (int) (keys[groupStart] >> 32);
+            int groupEnd = groupStart + 1;
+            while (groupEnd < size && (int) (keys[groupEnd] >> 32) == dir)
+            {
+                groupEnd++;
+            }
+            // order the positions of one direction by their bottom, ties in original order
+            for (int k = groupStart; k < groupEnd; k++)
+            {
+                int i = (int) keys[k];
+                lineKeys[k] = ((long) sortable(bottoms[i]) << 32) | i;
+            }
+            Arrays.sort(lineKeys, groupStart, groupEnd);
+
+            int lineStart = groupStart;
+            int previousLineLast = -1;
+            for (int k = groupStart + 1; k <= groupEnd; k++)
+            {
+                if (k < groupEnd)
+                {
+                    int current = (int) lineKeys[k];
+                    int previous = (int) lineKeys[k - 1];
+                    boolean sameLineAsFirst = isSameLine(bottoms, tops, (int) lineKeys[lineStart], current);
+                    // being on the same line is monotone in the bottom of the other position, so
+                    // the first position of the line and the last of the previous lines are enough
+                    if (sameLineAsFirst)
+                    {
+                        if (previousLineLast != -1 && isSameLine(bottoms, tops, previousLineLast, current))
+                        {
+                            return null;
+                        }
+                        continue;
+                    }
+                    if (isSameLine(bottoms, tops, previous, current))
+                    {
+                        return null;
+                    }
+                }
+                // a line is complete, order it by x, ties in original order
+                for (int l = lineStart; l < k; l++)
+                {
+                    int i = (int) lineKeys[l];
+                    lineKeys[l] = ((long) sortable(xs[i]) << 32) | i;
+                }
+                Arrays.sort(lineKeys, lineStart, k);
+                for (int l = lineStart; l < k; l++)
+                {
+                    sorted[l] = input[(int) lineKeys[l]];
+                }
+                previousLineLast = maxBottom(bottoms, lineKeys, lineStart, k);
+                lineStart = k;
+            }
+            groupStart = groupEnd;
+        }
+        return sorted;
+    }
+
+    /**
+     * The condition of {@link TextPositionComparator} for two positions being on the same line.
+     */
+    private static boolean isSameLine(float[] bottoms, float[] tops, int i, int j)
+    {
+        float bottom1 = bottoms[i];
+        float bottom2 = bottoms[j];
+        return Math.abs(bottom1 - bottom2) < .1
+                || (bottom2 >= tops[i] && bottom2 <= bottom1)
+                || (bottom1 >= tops[j] && bottom1 <= bottom2);
+    }
+
+    private static int maxBottom(float[] bottoms, long[] lineKeys, int from, int to)
+    {
+        int max = (int) lineKeys[from];
+        for (int l = from + 1; l < to; l++)
+        {
+            int i = (int) lineKeys[l];
+            if (bottoms[i] > bottoms[max])
+            {
+                max = i;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Maps a float to an int with the same order.
+     */
+    private static int sortable(float value)
+    {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+
+    private static boolean isFinite(float value)
+    {
+        return !Float.isNaN(value) && !Float.isInfinite(value);
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import java.util.Arrays;
+
+/**
+ * The positions of the characters shown on a page, used by the {@link PDFTextStripper} to
+ * suppress duplicate overlapping text. The positions are kept in primitive arrays and are
+ * bucketed into a grid of square cells, so that looking up the characters near a position
+ * only visits a few cells and doesn't allocate any objects.
+ */
+final class CharacterGrid
+{
+    // the size of a cell, a tolerance of less than half of it visits at most four cells
+    private static final float CELL_SIZE = 8f;
+    // ranges spanning more cells per axis are looked up by scanning all characters
+    private static final long MAX_CELL_SPAN = 16;
+
+    // the characters, chained by cell
+    private float[] xs = new float[256];
+    private float[] ys = new float[256];
+    private String[] characters = new String[256];
+    private int[] hashes = new int[256];
+    private int[] next = new int[256];
+    private int count;
+
+    // open addressing table from the cell to the last character added to it
+    private long[] cellKeys = new long[512];
+    private int[] cellHeads = new int[512];
+    private int cellCount;
+
+    CharacterGrid()
+    {
+        Arrays.fill(cellHeads, -1);
+    }
+
+    /**
+     * Removes all characters.
+     */
+    void clear()
+    {
+        if (count > 0)
+        {
+            Arrays.fill(characters, 0, count, null);
+            Arrays.fill(cellHeads, -1);
+            count = 0;
+            cellCount = 0;
+        }
+    }
+
+    /**
+     * Indicates if the same character has been added at a position within the tolerance of the
+     * given position. The ranges are [x - tolerance, x + tolerance) and [y - tolerance, y +
+     * tolerance), both computed in float and compared like {@link Float#compare(float, float)}.
+     *
+     * @param character the character
+     * @param x the x coordinate of the character
+     * @param y the y coordinate of the character
+     * @param tolerance the tolerance in both directions
+     * @return true if there is a matching character
+     */
+    boolean containsNear(String character, float x, float y, float tolerance)
+    {
+        if (count == 0)
+        {
+            return false;
+        }
+        float fromX = x - tolerance;
+        float toX = x + tolerance;
+        float fromY = y - tolerance;
+        float toY = y + tolerance;
+        int hash = character.hashCode();
+        // the cells of an infinite or very large range are not enumerated
+        if (isFinite(fromX) && isFinite(toX) && isFinite(fromY) && isFinite(toY))
+        {
+            long fromCellX = cell(fromX);
+            long toCellX = cell(toX);
+            long fromCellY = cell(fromY);
+            long toCellY = cell(toY);
+            if (toCellX - fromCellX <= MAX_CELL_SPAN && toCellY - fromCellY <= MAX_CELL_SPAN)
+            {
+                for (long cellX = fromCellX; cellX <= toCellX; cellX++)
+                {
+                    for (long cellY = fromCellY; cellY <= toCellY; cellY++)
+                    {
+                        int slot = findSlot(key(cellX, cellY));
+                        for (int i = cellHeads[slot]; i != -1; i = next[i])
+                        {
+                            if (matches(i, character, hash, fromX, toX, fromY, toY))
+                            {
+                                return true;
+                            }
+                        }
+                    }
+                }
+                return false;
+            }
+        }
+        for (int i = 0; i < count; i++)
+        {
+            if (matches(i, character, hash, fromX, toX, fromY, toY))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a character at the given position.
+     *
+     * @param character the character
+     * @param x the x coordinate of the character
+     * @param y the y coordinate of the character
+     */
+    void add(String character, float x, float y)
+    {
+        if (count == xs.length)
+        {
+            int length = count * 2;
+            xs = Arrays.copyOf(xs, length);
+            ys = Arrays.copyOf(ys, length);
+            characters = Arrays.copyOf(characters, length);
+            hashes = Arrays.copyOf(hashes, length);
+            next = Arrays.copyOf(next, length);
+        }
+        if ((cellCount + 1) * 2 > cellKeys.length)
+        {
+            rehash();
+        }
+        xs[count] = x;
+        ys[count] = y;
+        characters[count] = character;
+        hashes[count] = character.hashCode();
+        int slot = findSlot(key(cell(x), cell(y)));
+        if (cellHeads[slot] == -1)
+        {
+            cellCount++;
+        }
+        next[count] = cellHeads[slot];
+        cellHeads[slot] = count++;
+    }
+
+    private boolean matches(int i, String character, int hash, float fromX, float toX, float fromY, float toY)
+    {
+        return hashes[i] == hash && Float.compare(xs[i], fromX) >= 0 && Float.compare(xs[i], toX) < 0
+                && Float.compare(ys[i], fromY) >= 0 && Float.compare(ys[i], toY) < 0
+                && characters[i].equals(character);
+    }
+
+    /**
+     * Returns the slot of the given cell, which is either the slot of the cell or the empty
+     * slot where it has to be inserted.
+     */
+    private int findSlot(long key)
+    {
+        int mask = cellKeys.length - 1;
+        long h = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (h ^ (h >>> 32)) & mask;
+        while (cellHeads[slot] != -1 && cellKeys[slot] != key)
+        {
+            slot = (slot + 1) & mask;
+        }
+        cellKeys[slot] = key;
+        return slot;
+    }
+
+    private void rehash()
+    {
+        long[] oldKeys = cellKeys;
+        int[] oldHeads = cellHeads;
+        cellKeys = new long[oldKeys.length * 2];
+        cellHeads = new int[oldHeads.length * 2];
+        Arrays.fill(cellHeads, -1);
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldHeads[i] != -1)
+            {
+                cellHeads[findSlot(oldKeys[i])] = oldHeads[i];
+            }
+        }
+    }
+
+    private static long cell(float coordinate)
+    {
+        return (long) Math.floor(coordinate / CELL_SIZE);
+    }
+
+    private static long key(long cellX, long cellY)
+    {
+        return (cellX << 32) ^ (cellY & 0xffffffffL);
+    }
+
+    private static boolean isFinite(float value)
+    {
+        return !Float.isNaN(value) && !Float.isInfinite(value);
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.pdfbox.util.operator.PDFOperator;
+
+/**
+ * The profile of the processing of a content stream, usually the contents of a page, by a
+ * {@link PDFStreamEngine}. It contains the number of invocations and the time spent for each
+ * operator, the time spent drawing each XObject and showing text with each font and the number
+ * of bytes of content processed.
+ *
+ * All times are in nanoseconds and include the time spent in nested streams, e.g. the time of
+ * the Do operator includes the time of the operators of the form it draws.
+ *
+ * Operators which are invoked by other operators through
+ * {@link PDFStreamEngine#processOperator(String, java.util.List)} are counted as well, and their
+ * time is included in the time of the invoking operator, e.g. ' invokes T* and Tj, " invokes
+ * Tw, Tc and ', and T* invokes Td.
+ */
+public class ContentStreamProfile
+{
+    private String[] operatorNames = new String[64];
+    private long[] operatorCounts = new long[64];
+    private long[] operatorTimes = new long[64];
+    private final Map<String, Long> xobjectTimes = new HashMap<String, Long>();
+    private final Map<String, Long> fontTimes = new HashMap<String, Long>();
+    private long contentBytes;
+    private final long startTime = System.nanoTime();
+    private long endTime = -1;
+
+    void addOperator(PDFOperator operator, long time)
+    {
+        int opcode = operator.getOpcode();
+        if (opcode >= operatorNames.length)
+        {
+            int length = Math.max(opcode + 1, operatorNames.length * 2);
+            operatorNames = Arrays.copyOf(operatorNames, length);
+            operatorCounts = Arrays.copyOf(operatorCounts, length);
+            operatorTimes = Arrays.copyOf(operatorTimes, length);
+        }
+        operatorNames[opcode] = operator.getOperation();
+        operatorCounts[opcode]++;
+        operatorTimes[opcode] += time;
+    }
+
+    void addXObject(String name, long time)
+    {
+        add(xobjectTimes, name, time);
+    }
+
+    void addFont(String name, long time)
+    {
+        add(fontTimes, name, time);
+    }
+
+    void addContentBytes(long bytes)
+    {
+        contentBytes += bytes;
+    }
+
+    void finish()
+    {
+        endTime = System.nanoTime();
+    }
+
+    private static void add(Map<String, Long> times, String name, long time)
+    {
+        Long total = times.get(name);
+        times.put(name, total == null ? time : total + time);
+    }
+
+    /**
+     * Returns the number of invocations of each operator which has been processed.
+     *
+     * @return the invocation counts by operator
+     */
+    public Map<String, Long> getOperatorCounts()
+    {
+        Map<String, Long> counts = new TreeMap<String, Long>();
+        for (int i = 0; i < operatorNames.length; i++)
+        {
+            if (operatorNames[i] != null)
+            {
+                counts.put(operatorNames[i], operatorCounts[i]);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the cumulative time spent processing each operator.
+     *
+     * @return the times in nanoseconds by operator
+     */
+    public Map<String, Long> getOperatorTimes()
+    {
+        Map<String, Long> times = new TreeMap<String, Long>();
+        for (int i = 0; i < operatorNames.length; i++)
+        {
+            if (operatorNames[i] != null)
+            {
+                times.put(operatorNames[i], operatorTimes[i]);
+            }
+        }
+        return times;
+    }
+
+    /**
+     * Returns the number of invocations of the given operator.
+     *
+     * @param operator the operator keyword
+     * @return the number of invocations
+     */
+    public long getOperatorCount(String operator)
+    {
+        int opcode = PDFOperator.findOpcode(operator);
+        return opcode >= 0 && opcode < operatorCounts.length ? operatorCounts[opcode] : 0;
+    }
+
+    /**
+     * Returns the cumulative time spent processing the given operator.
+     *
+     * @param operator the operator keyword
+     * @return the time in nanoseconds
+     */
+    public long getOperatorTime(String operator)
+    {
+        int opcode = PDFOperator.findOpcode(operator);
+        return opcode >= 0 && opcode < operatorTimes.length ? operatorTimes[opcode] : 0;
+    }
+
+    /**
+     * Returns the time spent drawing each XObject, by the name of the XObject in the resources.
+     *
+     * @return the times in nanoseconds by XObject name
+     */
+    public Map<String, Long> getXObjectTimes()
+    {
+        return Collections.unmodifiableMap(xobjectTimes);
+    }
+
+    /**
+     * Returns the time spent showing text, by the base font name of the current font.
+     *
+     * @return the times in nanoseconds by font
+     */
+    public Map<String, Long> getFontTimes()
+    {
+        return Collections.unmodifiableMap(fontTimes);
+    }
+
+    /**
+     * Returns the number of bytes of decoded content streams which have been processed.
+     *
+     * @return the number of bytes
+     */
+    public long getContentBytes()
+    {
+        return contentBytes;
+    }
+
+    /**
+     * Returns the time spent processing the content stream.
+     *
+     * @return the time in nanoseconds, the time so far if the processing hasn't finished yet
+     */
+    public long getTotalTime()
+    {
+        return (endTime < 0 ? System.nanoTime() : endTime) - startTime;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("ContentStreamProfile{time=").append(getTotalTime() / 1000000).append("ms, bytes=")
+                .append(contentBytes).append(", operators=[");
+        String separator = "";
+        for (Map.Entry<String, Long> entry : getOperatorCounts().entrySet())
+        {
+            builder.append(separator).append(entry.getKey()).append(' ').append(entry.getValue()).append('x')
+                    .append(' ').append(getOperatorTime(entry.getKey()) / 1000).append("us");
+            separator = ", ";
+        }
+        builder.append("], xobjects=").append(xobjectTimes).append(", fonts=").append(fontTimes).append('}');
+        return builder.toString();
+    }
+}
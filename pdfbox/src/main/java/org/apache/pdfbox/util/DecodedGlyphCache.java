@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+/**
+ * A cache of the decoded glyphs of the fonts of a document. For each character code of a font it
+ * keeps the unicode text and the width and height of the glyph, so that the encoding, the CMaps
+ * and the metrics of the font are only consulted once per code. The glyphs of single byte codes
+ * are kept in arrays, the ones of two byte codes, e.g. of CID fonts, in an open addressing table.
+ *
+ * The fonts are identified by their font dictionary, so the glyphs are shared by all pages using
+ * the same font, although each page creates its own {@link PDFont}. A cache isn't thread safe and
+ * must only be used for one document at a time.
+ *
+ * @see PDFStreamEngine#setDecodedGlyphCache(DecodedGlyphCache)
+ */
+public class DecodedGlyphCache
+{
+    private final Map<COSBase, FontGlyphs> fonts = new IdentityHashMap<COSBase, FontGlyphs>();
+    private long hits;
+    private long misses;
+
+    /**
+     * Returns the glyphs of the given font.
+     */
+    FontGlyphs getGlyphs(PDFont font)
+    {
+        COSBase fontDictionary = font.getCOSObject();
+        FontGlyphs glyphs = fonts.get(fontDictionary);
+        if (glyphs == null)
+        {
+            glyphs = new FontGlyphs(font);
+            fonts.put(fontDictionary, glyphs);
+        }
+        return glyphs;
+    }
+
+    /**
+     * Removes all fonts from the cache.
+     */
+    public void clear()
+    {
+        fonts.clear();
+    }
+
+    /**
+     * Returns the number of fonts in the cache.
+     *
+     * @return the number of fonts
+     */
+    public int getFontCount()
+    {
+        return fonts.size();
+    }
+
+    /**
+     * Returns the number of codes which have been decoded from the cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Returns the number of codes which had to be decoded by the font.
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Returns the statistics of this cache.
+     *
+     * @return a string describing the state of the cache
+     */
+    @Override
+    public String toString()
+    {
+        return "DecodedGlyphCache{fonts=" + fonts.size() + ", hits=" + hits + ", misses=" + misses + "}";
+    }
+
+    /**
+     * The decoded glyphs of one font. The methods have the same results as the ones of the font
+     * with the same name, codes with more than two bytes are passed to the font.
+     */
+    final class FontGlyphs
+    {
+        private static final byte UNICODE = 1;
+        private static final byte METRICS = 2;
+
+        private final PDFont font;
+
+        // the values of the font which don't depend on the code, set by the engine
+        boolean fontValues;
+        float fontMatrixXScaling;
+        float fontMatrixYScaling;
+        float spaceWidth;
+
+        private final byte[] singleStates = new byte[256];
+        private final String[] singleUnicode = new String[256];
+        private final float[] singleWidths = new float[256];
+        private final float[] singleHeights = new float[256];
+
+        private int[] codes = new int[64];
+        private byte[] states = new byte[64];
+        private String[] unicode = new String[64];
+        private float[] widths = new float[64];
+        private float[] heights = new float[64];
+        private int codeCount;
+
+        private FontGlyphs(PDFont pdFont)
+        {
+            font = pdFont;
+            Arrays.fill(codes, -1);
+        }
+
+        String encode(byte[] string, int offset, int length) throws IOException
+        {
+            if (length == 1)
+            {
+                int code = string[offset] & 0xff;
+                if ((singleStates[code] & UNICODE) == 0)
+                {
+                    misses++;
+                    singleUnicode[code] = font.encode(string, offset, length);
+                    singleStates[code] |= UNICODE;
+                }
+                else
+                {
+                    hits++;
+                }
+                return singleUnicode[code];
+            }
+            if (length == 2)
+            {
+                int slot = findSlot((string[offset] & 0xff) << 8 | string[offset + 1] & 0xff);
+                if ((states[slot] & UNICODE) == 0)
+                {
+                    misses++;
+                    unicode[slot] = font.encode(string, offset, length);
+                    states[slot] |= UNICODE;
+                }
+                else
+                {
+                    hits++;
+                }
+                return unicode[slot];
+            }
+            return font.encode(string, offset, length);
+        }
+
+        float getFontWidth(byte[] string, int offset, int length) throws IOException
+        {
+            if (length == 1)
+            {
+                int code = string[offset] & 0xff;
+                decodeSingleMetrics(code, string, offset);
+                return singleWidths[code];
+            }
+            if (length == 2)
+            {
+                int slot = decodeMetrics(string, offset);
+                return widths[slot];
+            }
+            return font.getFontWidth(string, offset, length);
+        }
+
+        float getFontHeight(byte[] string, int offset, int length) throws IOException
+        {
+            if (length == 1)
+            {
+                int code = string[offset] & 0xff;
+                decodeSingleMetrics(code, string, offset);
+                return singleHeights[code];
+            }
+            if (length == 2)
+            {
+                int slot = decodeMetrics(string, offset);
+                return heights[slot];
+            }
+            return font.getFontHeight(string, offset, length);
+        }
+
+        /**
+         * Decodes the width and the height of a single byte code if they aren't known yet.
+         */
+        private void decodeSingleMetrics(int code, byte[] string, int offset) throws IOException
+        {
+            if ((singleStates[code] & METRICS) == 0)
+            {
+                singleWidths[code] = font.getFontWidth(string, offset, 1);
+                singleHeights[code] = font.getFontHeight(string, offset, 1);
+                singleStates[code] |= METRICS;
+            }
+        }
+
+        /**
+         * Decodes the width and the height of a two byte code if they aren't known yet.
+         *
+         * @return the slot of the code
+         */
+        private int decodeMetrics(byte[] string, int offset) throws IOException
+        {
+            int slot = findSlot((string[offset] & 0xff) << 8 | string[offset + 1] & 0xff);
+            if ((states[slot] & METRICS) == 0)
+            {
+                widths[slot] = font.getFontWidth(string, offset, 2);
+                heights[slot] = font.getFontHeight(string, offset, 2);
+                states[slot] |= METRICS;
+            }
+            return slot;
+        }
+
+        /**
+         * Returns the slot of the given code, it is added if it isn't in the table yet.
+         */
+        private int findSlot(int code)
+        {
+            int mask = codes.length - 1;
+            int h = code * 0x9E3779B9;
+            int slot = (h ^ (h >>> 16)) & mask;
+            while (codes[slot] != code)
+            {
+                if (codes[slot] == -1)
+                {
+                    if ((codeCount + 1) * 2 > codes.length)
+                    {
+                        rehash();
+                        return findSlot(code);
+                    }
+                    codes[slot] = code;
+                    codeCount++;
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void rehash()
+        {
+            int[] oldCodes = codes;
+            byte[] oldStates = states;
+            String[] oldUnicode = unicode;
+            float[] oldWidths = widths;
+            float[] oldHeights = heights;
+            int length = oldCodes.length * 2;
+            codes = new int[length];
+            Arrays.fill(codes, -1);
+            states = new byte[length];
+            unicode = new String[length];
+            widths = new float[length];
+            heights = new float[length];
+            codeCount = 0;
+            for (int i = 0; i < oldCodes.length; i++)
+            {
+                if (oldCodes[i] != -1)
+                {
+                    int slot = findSlot(oldCodes[i]);
+                    states[slot] = oldStates[i];
+                    unicode[slot] = oldUnicode[i];
+                    widths[slot] = oldWidths[i];
+                    heights[slot] = oldHeights[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdfparser.ContentStreamCache;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.state.PDGraphicsState;
+import org.apache.pdfbox.pdmodel.graphics.state.PDTextState;
+
+/**
+ * A cache for Form XObjects which are drawn several times, e.g. logos, headers or map symbols.
+ * The parsed contents of the forms are kept in a {@link ContentStreamCache}. Additionally, the
+ * text shown by a form is recorded, so that it can be replayed without processing the form again
+ * when the form is drawn with the same resources and text state and a current transformation
+ * matrix which differs only by its translation.
+ *
+ * Only the text positions are replayed, so the cache may only be used by engines which are just
+ * interested in the text, like the {@link PDFTextStripper}. Forms which don't restore the graphics
+ * state they have changed or which show text outside of their own text objects aren't recorded.
+ *
+ * The cache is bounded by the estimated size of the recorded text, the least recently used forms
+ * are evicted first. The same cache may be used by several engines and threads for one document.
+ *
+ * @see PDFStreamEngine#setFormXObjectCache(FormXObjectCache)
+ */
+public class FormXObjectCache
+{
+    /**
+     * The default maximum size of a cache, 16 MB.
+     */
+    public static final long DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+
+    private final long maxSize;
+    private final ContentStreamCache contentStreamCache;
+    private final LinkedHashMap<Key, TextRun> cache = new LinkedHashMap<Key, TextRun>(16, 0.75f, true);
+    private long size;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a cache with the default maximum size.
+     */
+    public FormXObjectCache()
+    {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a cache with the given maximum size.
+     *
+     * @param maxCacheSize the maximum estimated size of the recorded text in bytes, the same
+     * size is used for the parsed contents of the forms
+     */
+    public FormXObjectCache(long maxCacheSize)
+    {
+        maxSize = maxCacheSize;
+        contentStreamCache = new ContentStreamCache(maxCacheSize);
+    }
+
+    /**
+     * Returns the cache of the parsed contents of the forms.
+     *
+     * @return the content stream cache
+     */
+    public ContentStreamCache getContentStreamCache()
+    {
+        return contentStreamCache;
+    }
+
+    TextRun get(Key key)
+    {
+        synchronized (cache)
+        {
+            TextRun run = cache.get(key);
+            if (run != null)
+            {
+                hits++;
+            }
+            else
+            {
+                misses++;
+            }
+            return run;
+        }
+    }
+
+    void put(Key key, TextRun run)
+    {
+        long runSize = run.getSize();
+        if (runSize > maxSize)
+        {
+            return;
+        }
+        synchronized (cache)
+        {
+            TextRun previous = cache.put(key, run);
+            if (previous != null)
+            {
+                size -= previous.getSize();
+            }
+            size += runSize;
+            Iterator<TextRun> iter = cache.values().iterator();
+            while (size > maxSize && iter.hasNext())
+            {
+                size -= iter.next().getSize();
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all forms from the cache.
+     */
+    public void clear()
+    {
+        synchronized (cache)
+        {
+            cache.clear();
+            size = 0;
+        }
+        contentStreamCache.clear();
+    }
+
+    /**
+     * Returns the estimated size of the recorded text.
+     *
+     * @return the size in bytes
+     */
+    public long getSize()
+    {
+        synchronized (cache)
+        {
+            return size;
+        }
+    }
+
+    /**
+     * Returns the number of recorded forms.
+     *
+     * @return the number of forms
+     */
+    public int getFormCount()
+    {
+        synchronized (cache)
+        {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Returns the number of form invocations which have been replayed from the cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getHits()
+    {
+        synchronized (cache)
+        {
+            return hits;
+        }
+    }
+
+    /**
+     * Returns the number of form invocations which had to be processed.
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses()
+    {
+        synchronized (cache)
+        {
+            return misses;
+        }
+    }
+
+    /**
+     * Returns the statistics of this cache.
+     *
+     * @return a string describing the state of the cache
+     */
+    @Override
+    public String toString()
+    {
+        synchronized (cache)
+        {
+            return "FormXObjectCache{forms=" + cache.size() + ", size=" + size + "/" + maxSize
+                    + ", hits=" + hits + ", misses=" + misses + ", contents=" + contentStreamCache + "}";
+        }
+    }
+
+    /**
+     * The state a form is drawn with: the form, its resources, the text state and the current
+     * transformation matrix without its translation.
+     */
+    static final class Key
+    {
+        private final COSStream stream;
+        private final COSBase resources;
+        private final COSBase font;
+        private final float[] values;
+        private final int renderingMode;
+        private final int hash;
+
+        Key(COSStream formStream, PDResources formResources, PDGraphicsState state)
+        {
+            stream = formStream;
+            resources = formResources.getCOSObject();
+            PDTextState textState = state.getTextState();
+            PDFont currentFont = textState.getFont();
+            font = currentFont == null ? null : currentFont.getCOSObject();
+            Matrix ctm = state.getCurrentTransformationMatrix();
+            values = new float[] { ctm.getValue(0, 0), ctm.getValue(0, 1), ctm.getValue(1, 0),
+                    ctm.getValue(1, 1), textState.getFontSize(), textState.getCharacterSpacing(),
+                    textState.getWordSpacing(), textState.getHorizontalScalingPercent(),
+                    textState.getLeading(), textState.getRise() };
+            renderingMode = textState.getRenderingMode();
+            int h = System.identityHashCode(stream);
+            h = 31 * h + System.identityHashCode(resources);
+            h = 31 * h + System.identityHashCode(font);
+            for (float value : values)
+            {
+                h = 31 * h + Float.floatToIntBits(value);
+            }
+            hash = 31 * h + renderingMode;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) obj;
+            if (stream != other.stream || resources != other.resources || font != other.font
+                    || renderingMode != other.renderingMode)
+            {
+                return false;
+            }
+            for (int i = 0; i < values.length; i++)
+            {
+                if (Float.floatToIntBits(values[i]) != Float.floatToIntBits(other.values[i]))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+
+    /**
+     * The text shown by a form, in display units of the current transformation matrix the form
+     * has been recorded with, and the text matrices the form leaves behind.
+     */
+    static final class TextRun
+    {
+        final float x;
+        final float y;
+        final List<Glyph> glyphs = new ArrayList<Glyph>();
+        boolean cacheable = true;
+        // the state when the recording started, only used while recording
+        Matrix entryTextMatrix;
+        Matrix entryTextLineMatrix;
+        int entryValidCharCnt;
+        int entryTotalCharCnt;
+        // the changes of the engine state, set when the recording has finished
+        boolean textMatricesChanged;
+        Matrix textMatrix;
+        Matrix textLineMatrix;
+        int validCharCnt;
+        int totalCharCnt;
+
+        TextRun(Matrix ctm)
+        {
+            x = ctm.getXPosition();
+            y = ctm.getYPosition();
+        }
+
+        void finish(Matrix exitTextMatrix, Matrix exitTextLineMatrix, int exitValidCharCnt, int exitTotalCharCnt)
+        {
+            textMatricesChanged = exitTextMatrix != entryTextMatrix || exitTextLineMatrix != entryTextLineMatrix;
+            textMatrix = exitTextMatrix == null ? null : exitTextMatrix.copy();
+            textLineMatrix = exitTextLineMatrix == null ? null : exitTextLineMatrix.copy();
+            validCharCnt = exitValidCharCnt - entryValidCharCnt;
+            totalCharCnt = exitTotalCharCnt - entryTotalCharCnt;
+            entryTextMatrix = null;
+            entryTextLineMatrix = null;
+        }
+
+        long getSize()
+        {
+            return 128 + glyphs.size() * 160L;
+        }
+    }
+
+    /**
+     * A recorded text position, see the parameters of
+     * {@link org.apache.pdfbox.text.TextPosition#TextPosition(int, float, float, Matrix, float,
+     * float, float, float, float, String, int[], PDFont, float, int)}.
+     */
+    static final class Glyph
+    {
+        final Matrix textPos;
+        final float endX;
+        final float endY;
+        final float maxHeight;
+        final float width;
+        final float spaceWidth;
+        final String string;
+        final int[] codePoints;
+        final PDFont font;
+        final float fontSize;
+        final int fontSizeInPt;
+
+        Glyph(Matrix textPosValue, float endXValue, float endYValue, float maxHeightValue, float widthValue,
+                float spaceWidthValue, String stringValue, int[] codePointsValue, PDFont fontValue,
+                float fontSizeValue, int fontSizeInPtValue)
+        {
+            textPos = textPosValue;
+            endX = endXValue;
+            endY = endYValue;
+            maxHeight = maxHeightValue;
+            width = widthValue;
+            spaceWidth = spaceWidthValue;
+            string = stringValue;
+            codePoints = codePointsValue;
+            font = fontValue;
+            fontSize = fontSizeValue;
+            fontSizeInPt = fontSizeInPtValue;
+        }
+    }
+}
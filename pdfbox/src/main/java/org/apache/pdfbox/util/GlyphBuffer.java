@@ -0,0 +1,424 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import java.util.Arrays;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.text.TextPosition;
+
+/**
+ * The glyphs shown by a content stream, stored column by column in primitive arrays instead of
+ * one {@link TextPosition} per glyph. The unicode text of all glyphs shares a single char buffer
+ * and the fonts are referenced by their index.
+ *
+ * A text stripper which is given a buffer collects the glyphs of a page in it and passes the
+ * buffer to {@link PDFTextStripper#processGlyphBuffer(GlyphBuffer)} when the page has been
+ * processed. Subclasses may read the columns directly, text positions are only created by
+ * {@link #getTextPosition(int)}.
+ *
+ * @see PDFTextStripper#setGlyphBuffer(GlyphBuffer)
+ */
+public final class GlyphBuffer
+{
+    private int pageRotation;
+    private float pageWidth;
+    private float pageHeight;
+
+    private int count;
+    // the text matrices at the start of the glyphs, six values per glyph
+    private float[] matrices = new float[6 * 256];
+    private float[] endXs = new float[256];
+    private float[] endYs = new float[256];
+    private float[] heights = new float[256];
+    private float[] widths = new float[256];
+    private float[] spaceWidths = new float[256];
+    private float[] fontSizes = new float[256];
+    private int[] fontSizesInPt = new int[256];
+    private int[] fontIndexes = new int[256];
+    // the text and the codes of glyph i start at charStarts[i] and codeStarts[i]
+    private int[] charStarts = new int[257];
+    private int[] codeStarts = new int[257];
+    private char[] chars = new char[1024];
+    private int[] codes = new int[256];
+
+    private PDFont[] fonts = new PDFont[8];
+    private int fontCount;
+
+    /**
+     * Removes all glyphs and fonts.
+     */
+    public void clear()
+    {
+        Arrays.fill(fonts, 0, fontCount, null);
+        fontCount = 0;
+        count = 0;
+    }
+
+    /**
+     * Starts a new page, the glyphs of the previous one are removed.
+     */
+    void startPage(int rotation, float width, float height)
+    {
+        clear();
+        pageRotation = rotation;
+        pageWidth = width;
+        pageHeight = height;
+    }
+
+    /**
+     * Adds a glyph, the parameters are the ones of the constructor of {@link TextPosition}.
+     */
+    void add(Matrix textPos, float endX, float endY, float maxHeight, float width, float spaceWidth,
+            String unicode, int[] codePoints, PDFont font, float fontSize, int fontSizeInPt)
+    {
+        if (count == endXs.length)
+        {
+            int length = count * 2;
+            matrices = Arrays.copyOf(matrices, 6 * length);
+            endXs = Arrays.copyOf(endXs, length);
+            endYs = Arrays.copyOf(endYs, length);
+            heights = Arrays.copyOf(heights, length);
+            widths = Arrays.copyOf(widths, length);
+            spaceWidths = Arrays.copyOf(spaceWidths, length);
+            fontSizes = Arrays.copyOf(fontSizes, length);
+            fontSizesInPt = Arrays.copyOf(fontSizesInPt, length);
+            fontIndexes = Arrays.copyOf(fontIndexes, length);
+            charStarts = Arrays.copyOf(charStarts, length + 1);
+            codeStarts = Arrays.copyOf(codeStarts, length + 1);
+        }
+        int m = 6 * count;
+        matrices[m] = textPos.getValue(0, 0);
+        matrices[m + 1] = textPos.getValue(0, 1);
+        matrices[m + 2] = textPos.getValue(1, 0);
+        matrices[m + 3] = textPos.getValue(1, 1);
+        matrices[m + 4] = textPos.getValue(2, 0);
+        matrices[m + 5] = textPos.getValue(2, 1);
+        endXs[count] = endX;
+        endYs[count] = endY;
+        heights[count] = maxHeight;
+        widths[count] = width;
+        spaceWidths[count] = spaceWidth;
+        fontSizes[count] = fontSize;
+        fontSizesInPt[count] = fontSizeInPt;
+        fontIndexes[count] = indexOf(font);
+
+        int charStart = charStarts[count];
+        int charEnd = charStart + unicode.length();
+        if (charEnd > chars.length)
+        {
+            chars = Arrays.copyOf(chars, Math.max(charEnd, chars.length * 2));
+        }
+        unicode.getChars(0, unicode.length(), chars, charStart);
+        charStarts[count + 1] = charEnd;
+
+        int codeStart = codeStarts[count];
+        int codeEnd = codePoints == null ? codeStart : codeStart + codePoints.length;
+        if (codeEnd > codes.length)
+        {
+            codes = Arrays.copyOf(codes, Math.max(codeEnd, codes.length * 2));
+        }
+        if (codePoints != null)
+        {
+            System.arraycopy(codePoints, 0, codes, codeStart, codePoints.length);
+        }
+        codeStarts[count + 1] = codeEnd;
+        count++;
+    }
+
+    private int indexOf(PDFont font)
+    {
+        // a page uses only a few fonts, and glyphs of the same font usually follow each other
+        for (int i = fontCount - 1; i >= 0; i--)
+        {
+            if (fonts[i] == font)
+            {
+                return i;
+            }
+        }
+        if (fontCount == fonts.length)
+        {
+            fonts = Arrays.copyOf(fonts, fontCount * 2);
+        }
+        fonts[fontCount] = font;
+        return fontCount++;
+    }
+
+    /**
+     * Returns the number of glyphs.
+     *
+     * @return the number of glyphs
+     */
+    public int getGlyphCount()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the rotation of the page.
+     *
+     * @return the rotation in degrees
+     */
+    public int getPageRotation()
+    {
+        return pageRotation;
+    }
+
+    /**
+     * Returns the width of the page.
+     *
+     * @return the width in display units
+     */
+    public float getPageWidth()
+    {
+        return pageWidth;
+    }
+
+    /**
+     * Returns the height of the page.
+     *
+     * @return the height in display units
+     */
+    public float getPageHeight()
+    {
+        return pageHeight;
+    }
+
+    /**
+     * Returns a value of the text matrix at the start of a glyph, see {@link TextPosition#getTextPos()}.
+     *
+     * @param glyph the index of the glyph
+     * @param row the row of the value, 0 to 2
+     * @param column the column of the value, 0 or 1
+     * @return the value in display units
+     */
+    public float getTextMatrixValue(int glyph, int row, int column)
+    {
+        return matrices[6 * glyph + 2 * row + column];
+    }
+
+    /**
+     * Returns the unrotated x coordinate of the start of a glyph.
+     *
+     * @param glyph the index of the glyph
+     * @return the x coordinate in display units
+     */
+    public float getStartX(int glyph)
+    {
+        return matrices[6 * glyph + 4];
+    }
+
+    /**
+     * Returns the unrotated y coordinate of the start of a glyph.
+     *
+     * @param glyph the index of the glyph
+     * @return the y coordinate in display units
+     */
+    public float getStartY(int glyph)
+    {
+        return matrices[6 * glyph + 5];
+    }
+
+    /**
+     * Returns the unrotated x coordinate of the end of a glyph.
+     *
+     * @param glyph the index of the glyph
+     * @return the x coordinate in display units
+     */
+    public float getEndX(int glyph)
+    {
+        return endXs[glyph];
+    }
+
+    /**
+     * Returns the unrotated y coordinate of the end of a glyph.
+     *
+     * @param glyph the index of the glyph
+     * @return the y coordinate in display units
+     */
+    public float getEndY(int glyph)
+    {
+        return endYs[glyph];
+    }
+
+    /**
+     * Returns the width of a glyph.
+     *
+     * @param glyph the index of the glyph
+     * @return the width in display units
+     */
+    public float getWidth(int glyph)
+    {
+        return widths[glyph];
+    }
+
+    /**
+     * Returns the height of a glyph, which is the maximum height of the glyphs shown with it.
+     *
+     * @param glyph the index of the glyph
+     * @return the height in display units
+     */
+    public float getHeight(int glyph)
+    {
+        return heights[glyph];
+    }
+
+    /**
+     * Returns the width of a space in the font of a glyph.
+     *
+     * @param glyph the index of the glyph
+     * @return the width in display units
+     */
+    public float getWidthOfSpace(int glyph)
+    {
+        return spaceWidths[glyph];
+    }
+
+    /**
+     * Returns the font size of a glyph.
+     *
+     * @param glyph the index of the glyph
+     * @return the font size in text units
+     */
+    public float getFontSize(int glyph)
+    {
+        return fontSizes[glyph];
+    }
+
+    /**
+     * Returns the font size of a glyph in pt.
+     *
+     * @param glyph the index of the glyph
+     * @return the font size in pt
+     */
+    public int getFontSizeInPt(int glyph)
+    {
+        return fontSizesInPt[glyph];
+    }
+
+    /**
+     * Returns the index of the font of a glyph.
+     *
+     * @param glyph the index of the glyph
+     * @return the index of the font, see {@link #getFont(int)}
+     */
+    public int getFontIndex(int glyph)
+    {
+        return fontIndexes[glyph];
+    }
+
+    /**
+     * Returns the font with the given index.
+     *
+     * @param fontIndex the index of the font
+     * @return the font
+     */
+    public PDFont getFont(int fontIndex)
+    {
+        return fonts[fontIndex];
+    }
+
+    /**
+     * Returns the number of fonts used by the glyphs.
+     *
+     * @return the number of fonts
+     */
+    public int getFontCount()
+    {
+        return fontCount;
+    }
+
+    /**
+     * Returns the shared buffer with the text of all glyphs. It must not be modified.
+     *
+     * @return the characters
+     */
+    public char[] getCharacters()
+    {
+        return chars;
+    }
+
+    /**
+     * Returns the offset of the text of a glyph in the shared buffer.
+     *
+     * @param glyph the index of the glyph
+     * @return the offset
+     */
+    public int getUnicodeStart(int glyph)
+    {
+        return charStarts[glyph];
+    }
+
+    /**
+     * Returns the number of characters of the text of a glyph, usually one.
+     *
+     * @param glyph the index of the glyph
+     * @return the number of characters
+     */
+    public int getUnicodeLength(int glyph)
+    {
+        return charStarts[glyph + 1] - charStarts[glyph];
+    }
+
+    /**
+     * Returns the text of a glyph as a new string.
+     *
+     * @param glyph the index of the glyph
+     * @return the text
+     */
+    public String getUnicode(int glyph)
+    {
+        return new String(chars, charStarts[glyph], getUnicodeLength(glyph));
+    }
+
+    /**
+     * Returns the character code of a glyph.
+     *
+     * @param glyph the index of the glyph
+     * @return the code or -1 if it isn't known
+     */
+    public int getCode(int glyph)
+    {
+        return codeStarts[glyph + 1] > codeStarts[glyph] ? codes[codeStarts[glyph]] : -1;
+    }
+
+    /**
+     * Creates a new text position for a glyph.
+     *
+     * @param glyph the index of the glyph
+     * @return the text position
+     */
+    public TextPosition getTextPosition(int glyph)
+    {
+        Matrix textPos = new Matrix();
+        int m = 6 * glyph;
+        textPos.setValue(0, 0, matrices[m]);
+        textPos.setValue(0, 1, matrices[m + 1]);
+        textPos.setValue(1, 0, matrices[m + 2]);
+        textPos.setValue(1, 1, matrices[m + 3]);
+        textPos.setValue(2, 0, matrices[m + 4]);
+        textPos.setValue(2, 1, matrices[m + 5]);
+        int[] codePoints = null;
+        if (codeStarts[glyph + 1] > codeStarts[glyph])
+        {
+            codePoints = Arrays.copyOfRange(codes, codeStarts[glyph], codeStarts[glyph + 1]);
+        }
+        return new TextPosition(pageRotation, pageWidth, pageHeight, textPos, endXs[glyph], endYs[glyph],
+                heights[glyph], widths[glyph], spaceWidths[glyph], getUnicode(glyph), codePoints,
+                fonts[fontIndexes[glyph]], fontSizes[glyph], fontSizesInPt[glyph]);
+    }
+}
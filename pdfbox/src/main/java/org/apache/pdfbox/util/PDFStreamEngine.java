@@ -18,22 +18,24 @@ package org.apache.pdfbox.util;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.Set;
 import java.util.Stack;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSObject;
 import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdfparser.CompiledContentStream;
+import org.apache.pdfbox.pdfparser.ContentStreamCache;
 import org.apache.pdfbox.pdfparser.PDFStreamParser;
 import org.apache.pdfbox.pdmodel.PDResources;
 import org.apache.pdfbox.pdmodel.common.PDMatrix;
@@ -45,8 +47,10 @@ import org.apache.pdfbox.pdmodel.graphics.state.PDGraphicsState;
 import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
 import org.apache.pdfbox.pdmodel.graphics.PDXObject;
 import org.apache.pdfbox.text.TextPosition;
+import org.apache.pdfbox.util.operator.OperandStack;
 import org.apache.pdfbox.util.operator.OperatorProcessor;
 import org.apache.pdfbox.util.operator.PDFOperator;
+import org.apache.pdfbox.util.operator.PrimitiveOperatorProcessor;
 
 /**
  * Processes a PDF content stream and executes certain operations.
@@ -58,8 +62,20 @@ public class PDFStreamEngine
 {
     private static final Log LOG = LogFactory.getLog(PDFStreamEngine.class);
 
-    private final Set<String> unsupportedOperators = new HashSet<String>();
-    private Map<String, OperatorProcessor> operators = new HashMap<String, OperatorProcessor>();
+    // operators which are reported separately when profiling
+    private static final int OPCODE_INVOKE = PDFOperator.getOpcode("Do");
+    private static final int OPCODE_SHOW_TEXT = PDFOperator.getOpcode("Tj");
+    private static final int OPCODE_SHOW_TEXT_GLYPH = PDFOperator.getOpcode("TJ");
+    private static final int OPCODE_SHOW_TEXT_LINE = PDFOperator.getOpcode("'");
+    private static final int OPCODE_SHOW_TEXT_LINE_SPACING = PDFOperator.getOpcode("\"");
+
+    // opcodes of the operators which are ignored or have already been reported as unsupported
+    private final BitSet unsupportedOperators = new BitSet();
+    // processors indexed by the opcode of their operator
+    private OperatorProcessor[] operators = new OperatorProcessor[64];
+    private boolean operatorFiltering;
+    // the opcodes of the registered operators, built when needed
+    private BitSet operatorFilter;
 
     private PDGraphicsState graphicsState;
 
@@ -78,6 +94,30 @@ public class PDFStreamEngine
     // skip malformed or otherwise unparseable input where possible
     private boolean forceParsing;
 
+    private ContentStreamCache contentStreamCache;
+
+    // operand stacks reused for all operators, one per nesting level of the processed streams
+    private final List<OperandStack> operandStacks = new ArrayList<OperandStack>();
+    private int streamDepth;
+    // subclasses overriding processOperator(PDFOperator, List) get all operands as list
+    private final boolean useOperandStack = !overridesProcessOperator(getClass());
+
+    private boolean profiling;
+    private ContentStreamProfile profile;
+    private ContentStreamProfileListener profileListener;
+
+    private FormXObjectCache formXObjectCache;
+    // the text runs of the forms which are currently recorded, innermost last
+    private final List<FormXObjectCache.TextRun> recordings = new ArrayList<FormXObjectCache.TextRun>();
+
+    // collects the glyphs instead of processing a text position for each glyph, only the text
+    // stripper sets it as other engines need the state at the time a glyph is shown
+    GlyphBuffer glyphBuffer;
+    // the number of nested calls of processSubStream(PDResources, COSStream)
+    private int subStreamDepth;
+
+    private DecodedGlyphCache decodedGlyphCache;
+
     /**
      * Creates a new PDFStreamEngine.
      */
@@ -106,7 +146,7 @@ public class PDFStreamEngine
             String processorClassName = properties.getProperty(operator);
             if ("".equals(processorClassName))
             {
-                unsupportedOperators.add(operator);
+                unsupportedOperators.set(PDFOperator.getOpcode(operator));
             }
             else
             {
@@ -146,7 +186,147 @@ public class PDFStreamEngine
     }
 
     /**
-     * Register a custom operator processor with the engine.
+     * Returns the cache of compiled content streams used by this engine.
+     * 
+     * @return the content stream cache or null if the streams are parsed every time
+     */
+    public ContentStreamCache getContentStreamCache()
+    {
+        return contentStreamCache;
+    }
+
+    /**
+     * Sets the cache of compiled content streams. If a cache is set, content streams are
+     * compiled once and replayed from the cache when they are processed again. The same
+     * cache may be shared by several engines, e.g. for text extraction and rendering.
+     * 
+     * @param cache the content stream cache or null to parse the streams every time
+     */
+    public void setContentStreamCache(ContentStreamCache cache)
+    {
+        contentStreamCache = cache;
+    }
+
+    /**
+     * Returns the cache of Form XObjects used by this engine.
+     * 
+     * @return the form cache or null if forms are processed every time
+     */
+    public FormXObjectCache getFormXObjectCache()
+    {
+        return formXObjectCache;
+    }
+
+    /**
+     * Sets the cache of Form XObjects. The text shown by a form is replayed from the cache if
+     * the form is drawn again with the same state, and the contents of forms are parsed only once
+     * if no {@link #setContentStreamCache(ContentStreamCache) content stream cache} is set. As only
+     * text is replayed, the cache must only be used by engines which are just interested in the
+     * text, like the {@link PDFTextStripper}.
+     * 
+     * @param cache the form cache or null to process forms every time
+     */
+    public void setFormXObjectCache(FormXObjectCache cache)
+    {
+        formXObjectCache = cache;
+    }
+
+    /**
+     * Returns the cache of the decoded glyphs of the fonts.
+     * 
+     * @return the glyph cache or null if each code is decoded by its font
+     */
+    public DecodedGlyphCache getDecodedGlyphCache()
+    {
+        return decodedGlyphCache;
+    }
+
+    /**
+     * Sets a cache for the unicode text and the metrics of the glyphs shown by
+     * {@link #processEncodedText(byte[])}. The cache must only be used for the pages of one
+     * document and by one engine at a time.
+     * 
+     * @param cache the glyph cache or null to decode each code by its font
+     */
+    public void setDecodedGlyphCache(DecodedGlyphCache cache)
+    {
+        decodedGlyphCache = cache;
+    }
+
+    /**
+     * Indicates if operators without a registered processor are skipped by the parser.
+     * 
+     * @return true if operators are filtered
+     */
+    public boolean isOperatorFiltering()
+    {
+        return operatorFiltering;
+    }
+
+    /**
+     * Enables or disables the filtering of operators. If enabled, operators for which no processor
+     * is registered are skipped by the parser together with their operands, and the data of inline
+     * images is skipped unless a processor for BI is registered. Skipped operators aren't passed
+     * to {@link #processOperator(PDFOperator, OperandStack)} and don't appear in the profile.
+     * Filtering only applies to streams which aren't compiled by a {@link ContentStreamCache} and
+     * to engines which don't override {@link #processOperator(PDFOperator, List)}.
+     * 
+     * @param filtering true to enable filtering
+     */
+    public void setOperatorFiltering(boolean filtering)
+    {
+        operatorFiltering = filtering;
+    }
+
+    /**
+     * Indicates if the processing of content streams is profiled.
+     * 
+     * @return true if profiling is enabled
+     */
+    public boolean isProfiling()
+    {
+        return profiling;
+    }
+
+    /**
+     * Enables or disables the profiling of the processed content streams. If enabled, a new
+     * {@link ContentStreamProfile} is created for each stream given to
+     * {@link #processStream(PDResources, COSStream, PDRectangle, int)}, e.g. for each page.
+     * Profiling is disabled by default and doesn't cost anything if it isn't enabled.
+     * 
+     * @param profilingValue true to enable profiling
+     */
+    public void setProfiling(boolean profilingValue)
+    {
+        profiling = profilingValue;
+    }
+
+    /**
+     * Returns the profile of the stream which is currently processed or, if the processing has
+     * finished, of the last processed stream. Streams processed by {@link #processSubStream} after
+     * the stream has been processed, e.g. annotations, are added to this profile.
+     * 
+     * @return the profile or null if profiling is disabled
+     */
+    public ContentStreamProfile getProfile()
+    {
+        return profile;
+    }
+
+    /**
+     * Sets a listener which is notified with the profile of each processed stream if profiling
+     * is enabled.
+     * 
+     * @param listener the listener or null
+     */
+    public void setProfileListener(ContentStreamProfileListener listener)
+    {
+        profileListener = listener;
+    }
+
+    /**
+     * Register a custom operator processor with the engine. The processor is bound to this engine, it must not be
+     * registered with another engine.
      * 
      * @param operator The operator as a string.
      * @param op Processor instance.
@@ -154,7 +334,44 @@ public class PDFStreamEngine
     public void registerOperatorProcessor(String operator, OperatorProcessor op)
     {
         op.setContext(this);
-        operators.put(operator, op);
+        int opcode = PDFOperator.getOpcode(operator);
+        if (opcode >= operators.length)
+        {
+            operators = Arrays.copyOf(operators, Math.max(opcode + 1, operators.length * 2));
+        }
+        operators[opcode] = op;
+        operatorFilter = null;
+    }
+
+    private BitSet getOperatorFilter()
+    {
+        if (operatorFilter == null)
+        {
+            operatorFilter = new BitSet(operators.length);
+            for (int i = 0; i < operators.length; i++)
+            {
+                if (operators[i] != null)
+                {
+                    operatorFilter.set(i);
+                }
+            }
+        }
+        return operatorFilter;
+    }
+
+    private OperatorProcessor getOperatorProcessor(PDFOperator operator)
+    {
+        int opcode = operator.getOpcode();
+        return opcode < operators.length ? operators[opcode] : null;
+    }
+
+    private void unsupportedOperator(PDFOperator operator)
+    {
+        if (!unsupportedOperators.get(operator.getOpcode()))
+        {
+            LOG.info("unsupported/disabled operation: " + operator.getOperation());
+            unsupportedOperators.set(operator.getOpcode());
+        }
     }
 
     /**
@@ -200,7 +417,26 @@ public class PDFStreamEngine
             throws IOException
     {
         initStream(drawingSize, rotation);
-        processSubStream(resources, cosStream);
+        profile = profiling ? new ContentStreamProfile() : null;
+        try
+        {
+            if (glyphBuffer != null)
+            {
+                glyphBuffer.startPage(rotation, drawingSize.getWidth(), drawingSize.getHeight());
+            }
+            processSubStream(resources, cosStream);
+        }
+        finally
+        {
+            if (profile != null)
+            {
+                profile.finish();
+                if (profileListener != null)
+                {
+                    profileListener.streamProcessed(this, profile);
+                }
+            }
+        }
     }
 
     /**
@@ -213,26 +449,186 @@ public class PDFStreamEngine
      */
     public void processSubStream(PDResources resources, COSStream cosStream) throws IOException
     {
-        if (resources != null)
+        subStreamDepth++;
+        try
         {
-            streamResourcesStack.push(resources);
-            try
+            if (resources != null)
+            {
+                boolean form = formXObjectCache != null && !streamResourcesStack.isEmpty();
+                streamResourcesStack.push(resources);
+                try
+                {
+                    if (form)
+                    {
+                        processFormXObject(resources, cosStream);
+                    }
+                    else
+                    {
+                        processSubStream(cosStream);
+                    }
+                }
+                finally
+                {
+                    streamResourcesStack.pop().clear();
+                }
+            }
+            else
             {
                 processSubStream(cosStream);
             }
-            finally
+        }
+        finally
+        {
+            subStreamDepth--;
+            // the glyphs of the outermost stream are processed, even if the stream is broken
+            if (subStreamDepth == 0 && glyphBuffer != null && glyphBuffer.getGlyphCount() > 0)
             {
-                streamResourcesStack.pop().clear();
+                processGlyphBuffer(glyphBuffer);
+                glyphBuffer.clear();
             }
         }
-        else
+    }
+
+    /**
+     * Processes a form or replays the text it has shown when it was drawn with the same state
+     * before. A form is only recorded if it leaves the graphics state as it has found it.
+     */
+    private void processFormXObject(PDResources resources, COSStream cosStream) throws IOException
+    {
+        FormXObjectCache.Key key = new FormXObjectCache.Key(cosStream, resources, graphicsState);
+        Matrix ctm = graphicsState.getCurrentTransformationMatrix();
+        FormXObjectCache.TextRun run = formXObjectCache.get(key);
+        if (run != null)
+        {
+            replayTextRun(run, ctm.getXPosition() - run.x, ctm.getYPosition() - run.y);
+            return;
+        }
+        run = new FormXObjectCache.TextRun(ctm);
+        run.entryTextMatrix = textMatrix;
+        run.entryTextLineMatrix = textLineMatrix;
+        run.entryValidCharCnt = validCharCnt;
+        run.entryTotalCharCnt = totalCharCnt;
+        int stackSize = graphicsStack.size();
+        recordings.add(run);
+        try
         {
             processSubStream(cosStream);
         }
+        finally
+        {
+            recordings.remove(recordings.size() - 1);
+        }
+        ctm = graphicsState.getCurrentTransformationMatrix();
+        if (run.cacheable && graphicsStack.size() == stackSize && ctm.getXPosition() == run.x
+                && ctm.getYPosition() == run.y && key.equals(new FormXObjectCache.Key(cosStream, resources, graphicsState)))
+        {
+            run.finish(textMatrix, textLineMatrix, validCharCnt, totalCharCnt);
+            formXObjectCache.put(key, run);
+        }
+    }
+
+    private void replayTextRun(FormXObjectCache.TextRun run, float dx, float dy)
+    {
+        for (FormXObjectCache.Glyph glyph : run.glyphs)
+        {
+            Matrix textPos = glyph.textPos.copy();
+            textPos.setValue(2, 0, textPos.getValue(2, 0) + dx);
+            textPos.setValue(2, 1, textPos.getValue(2, 1) + dy);
+            processGlyph(textPos, glyph.endX + dx, glyph.endY + dy, glyph.maxHeight, glyph.width, glyph.spaceWidth,
+                    glyph.string, glyph.codePoints, glyph.font, glyph.fontSize, glyph.fontSizeInPt);
+        }
+        validCharCnt += run.validCharCnt;
+        totalCharCnt += run.totalCharCnt;
+        if (run.textMatricesChanged)
+        {
+            textMatrix = run.textMatrix == null ? null : run.textMatrix.copy();
+            textLineMatrix = run.textLineMatrix == null ? null : run.textLineMatrix.copy();
+        }
+    }
+
+    private ContentStreamCache getContentStreamCache(boolean nested)
+    {
+        if (contentStreamCache == null && nested && formXObjectCache != null)
+        {
+            return formXObjectCache.getContentStreamCache();
+        }
+        return contentStreamCache;
     }
 
     private void processSubStream(COSStream cosStream) throws IOException
     {
+        if (!useOperandStack)
+        {
+            processSubStreamArguments(cosStream);
+            return;
+        }
+        if (streamDepth == operandStacks.size())
+        {
+            operandStacks.add(new OperandStack());
+        }
+        OperandStack operands = operandStacks.get(streamDepth++);
+        ContentStreamCache cache = getContentStreamCache(streamDepth > 1);
+        try
+        {
+            if (cache != null)
+            {
+                CompiledContentStream compiled = cache.get(cosStream, forceParsing);
+                if (profile != null)
+                {
+                    profile.addContentBytes(compiled.getContentLength());
+                }
+                for (int i = 0, count = compiled.getOperatorCount(); i < count; i++)
+                {
+                    compiled.getOperands(i, operands);
+                    processOperator(compiled.getOperator(i), operands);
+                    operands.clear();
+                }
+                if (compiled.getError() != null)
+                {
+                    throw compiled.getError();
+                }
+            }
+            else
+            {
+                PDFStreamParser parser = new PDFStreamParser(cosStream, forceParsing);
+                if (operatorFiltering)
+                {
+                    parser.setOperatorFilter(getOperatorFilter());
+                }
+                try
+                {
+                    PDFOperator operator;
+                    while ((operator = parser.parseNextOperator(operands)) != null)
+                    {
+                        processOperator(operator, operands);
+                        operands.clear();
+                    }
+                }
+                finally
+                {
+                    if (profile != null)
+                    {
+                        profile.addContentBytes(parser.getOffset());
+                    }
+                    parser.close();
+                }
+            }
+        }
+        finally
+        {
+            operands.clear();
+            streamDepth--;
+        }
+    }
+
+    private void processSubStreamArguments(COSStream cosStream) throws IOException
+    {
+        ContentStreamCache cache = getContentStreamCache(streamResourcesStack.size() > 1);
+        if (cache != null)
+        {
+            processCompiledStream(cache.get(cosStream, forceParsing));
+            return;
+        }
         List<COSBase> arguments = new ArrayList<COSBase>();
         PDFStreamParser parser = new PDFStreamParser(cosStream, forceParsing);
         try
@@ -262,10 +658,49 @@ public class PDFStreamEngine
         }
         finally
         {
+            if (profile != null)
+            {
+                profile.addContentBytes(parser.getOffset());
+            }
             parser.close();
         }
     }
 
+    private void processCompiledStream(CompiledContentStream compiled) throws IOException
+    {
+        if (profile != null)
+        {
+            profile.addContentBytes(compiled.getContentLength());
+        }
+        for (int i = 0, count = compiled.getOperatorCount(); i < count; i++)
+        {
+            List<COSBase> arguments = new ArrayList<COSBase>(compiled.getOperandCount(i));
+            compiled.getOperands(i, arguments);
+            processOperator(compiled.getOperator(i), arguments);
+        }
+        if (compiled.getError() != null)
+        {
+            throw compiled.getError();
+        }
+    }
+
+    private static boolean overridesProcessOperator(Class<?> engineClass)
+    {
+        for (Class<?> cls = engineClass; cls != PDFStreamEngine.class; cls = cls.getSuperclass())
+        {
+            try
+            {
+                cls.getDeclaredMethod("processOperator", PDFOperator.class, List.class);
+                return true;
+            }
+            catch (NoSuchMethodException e)
+            {
+                // not overridden by this class
+            }
+        }
+        return false;
+    }
+
     /**
      * A method provided as an event interface to allow a subclass to perform some specific functionality when text
      * needs to be processed.
@@ -277,6 +712,15 @@ public class PDFStreamEngine
         // subclasses can override to provide specific functionality.
     }
 
+    /**
+     * Processes the glyphs collected in the glyph buffer, see {@link PDFTextStripper#processGlyphBuffer}.
+     * 
+     * @param buffer the glyphs of the stream
+     */
+    void processGlyphBuffer(GlyphBuffer buffer)
+    {
+    }
+
     /**
      * A method provided as an event interface to allow a subclass to perform some specific functionality on the string
      * encoded by a glyph.
@@ -306,6 +750,14 @@ public class PDFStreamEngine
          * The variable names should end with Text or Disp to represent if the values are in text or disp units (no
          * glyph units are saved).
          */
+        for (FormXObjectCache.TextRun run : recordings)
+        {
+            // text which continues a text object of the caller depends on its text matrix
+            if (textMatrix == run.entryTextMatrix)
+            {
+                run.cacheable = false;
+            }
+        }
         final float fontSizeText = graphicsState.getTextState().getFontSize();
         final float horizontalScalingText = graphicsState.getTextState().getHorizontalScalingPercent() / 100f;
         // float verticalScalingText = horizontalScaling;//not sure if this is right but what else to do???
@@ -319,42 +771,63 @@ public class PDFStreamEngine
         // were a single byte will result in two output characters "fi"
 
         final PDFont font = graphicsState.getTextState().getFont();
-        // all fonts are providing the width/height of a character in thousandths of a unit of text space
-        float fontMatrixXScaling = 1 / 1000f;
-        float fontMatrixYScaling = 1 / 1000f;
-        float glyphSpaceToTextSpaceFactor = 1 / 1000f;
-        // expect Type3 fonts, those are providing the width of a character in glyph space units
-        if (font instanceof PDType3Font)
-        {
-            PDMatrix fontMatrix = font.getFontMatrix();
-            fontMatrixXScaling = fontMatrix.getValue(0, 0);
-            fontMatrixYScaling = fontMatrix.getValue(1, 1);
-            // This will typically be 1000 but in the case of a type3 font
-            // this might be a different number
-            glyphSpaceToTextSpaceFactor = 1f / fontMatrix.getValue(0, 0);
-        }
-        float spaceWidthText = 0;
-        try
+        final DecodedGlyphCache.FontGlyphs glyphs = decodedGlyphCache == null ? null
+                : decodedGlyphCache.getGlyphs(font);
+        float fontMatrixXScaling;
+        float fontMatrixYScaling;
+        float spaceWidthText;
+        if (glyphs != null && glyphs.fontValues)
         {
-            // to avoid crash as described in PDFBOX-614
-            // lets see what the space displacement should be
-            spaceWidthText = (font.getSpaceWidth() * glyphSpaceToTextSpaceFactor);
-        }
-        catch (Throwable exception)
-        {
-            LOG.warn(exception, exception);
-        }
-
-        if (spaceWidthText == 0)
-        {
-            spaceWidthText = (font.getAverageFontWidth() * glyphSpaceToTextSpaceFactor);
-            // The average space width appears to be higher than necessary
-            // so lets make it a little bit smaller.
-            spaceWidthText *= .80f;
+            fontMatrixXScaling = glyphs.fontMatrixXScaling;
+            fontMatrixYScaling = glyphs.fontMatrixYScaling;
+            spaceWidthText = glyphs.spaceWidth;
         }
         else
         {
-            spaceWidthText = 1.0f; // if could not find font, use a generic value
+            // all fonts are providing the width/height of a character in thousandths of a unit of text space
+            fontMatrixXScaling = 1 / 1000f;
+            fontMatrixYScaling = 1 / 1000f;
+            float glyphSpaceToTextSpaceFactor = 1 / 1000f;
+            // expect Type3 fonts, those are providing the width of a character in glyph space units
+            if (font instanceof PDType3Font)
+            {
+                PDMatrix fontMatrix = font.getFontMatrix();
+                fontMatrixXScaling = fontMatrix.getValue(0, 0);
+                fontMatrixYScaling = fontMatrix.getValue(1, 1);
+                // This will typically be 1000 but in the case of a type3 font
+                // this might be a different number
+                glyphSpaceToTextSpaceFactor = 1f / fontMatrix.getValue(0, 0);
+            }
+            spaceWidthText = 0;
+            try
+            {
+                // to avoid crash as described in PDFBOX-614
+                // lets see what the space displacement should be
+                spaceWidthText = (font.getSpaceWidth() * glyphSpaceToTextSpaceFactor);
+            }
+            catch (Throwable exception)
+            {
+                LOG.warn(exception, exception);
+            }
+
+            if (spaceWidthText == 0)
+            {
+                spaceWidthText = (font.getAverageFontWidth() * glyphSpaceToTextSpaceFactor);
+                // The average space width appears to be higher than necessary
+                // so lets make it a little bit smaller.
+                spaceWidthText *= .80f;
+            }
+            else
+            {
+                spaceWidthText = 1.0f; // if could not find font, use a generic value
+            }
+            if (glyphs != null)
+            {
+                glyphs.fontMatrixXScaling = fontMatrixXScaling;
+                glyphs.fontMatrixYScaling = fontMatrixYScaling;
+                glyphs.spaceWidth = spaceWidthText;
+                glyphs.fontValues = true;
+            }
         }
         float maxVerticalDisplacementText = 0;
 
@@ -363,27 +836,26 @@ public class PDFStreamEngine
         textStateParameters.setValue(1, 1, fontSizeText);
         textStateParameters.setValue(2, 1, riseText);
 
-        float pageHeight = drawingRectangle.getHeight();
-        float pageWidth = drawingRectangle.getWidth();
-
         Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
         Matrix textXctm = new Matrix();
         Matrix textMatrixEnd = new Matrix();
         Matrix td = new Matrix();
         Matrix tempMatrix = new Matrix();
+        // the start matrix can be reused if the glyph isn't recorded
+        Matrix bufferedMatrixStart = glyphBuffer != null && recordings.isEmpty() ? new Matrix() : null;
 
         int codeLength = 1;
         for (int i = 0; i < string.length; i += codeLength)
         {
             // Decode the value to a Unicode character
             codeLength = 1;
-            String c = font.encode(string, i, codeLength);
+            String c = glyphs != null ? glyphs.encode(string, i, codeLength) : font.encode(string, i, codeLength);
             int[] codePoints = null;
             if (c == null && i + 1 < string.length)
             {
                 // maybe a multibyte encoding
                 codeLength++;
-                c = font.encode(string, i, codeLength);
+                c = glyphs != null ? glyphs.encode(string, i, codeLength) : font.encode(string, i, codeLength);
                 codePoints = new int[] { font.getCodeFromArray(string, i, codeLength) };
             }
             else
@@ -397,8 +869,18 @@ public class PDFStreamEngine
 
             // todo, handle horizontal displacement
             // get the width and height of this character in text units
-            float characterHorizontalDisplacementText = font.getFontWidth(string, i, codeLength);
-            float characterVerticalDisplacementText = font.getFontHeight(string, i, codeLength);
+            float characterHorizontalDisplacementText;
+            float characterVerticalDisplacementText;
+            if (glyphs != null)
+            {
+                characterHorizontalDisplacementText = glyphs.getFontWidth(string, i, codeLength);
+                characterVerticalDisplacementText = glyphs.getFontHeight(string, i, codeLength);
+            }
+            else
+            {
+                characterHorizontalDisplacementText = font.getFontWidth(string, i, codeLength);
+                characterVerticalDisplacementText = font.getFontHeight(string, i, codeLength);
+            }
 
             // multiply the width/height with the scaling factor
             characterHorizontalDisplacementText = characterHorizontalDisplacementText * fontMatrixXScaling;
@@ -431,8 +913,9 @@ public class PDFStreamEngine
             }
             textXctm = textMatrix.multiply(ctm, textXctm);
             // Convert textMatrix to display units
-            // We need to instantiate a new Matrix instance here as it is passed to the TextPosition constructor below.
-            Matrix textMatrixStart = textStateParameters.multiply(textXctm);
+            // We need to instantiate a new Matrix instance here as it is passed to the TextPosition constructor below,
+            // the glyph buffer copies the values instead.
+            Matrix textMatrixStart = textStateParameters.multiply(textXctm, bufferedMatrixStart);
 
             // TODO : tx should be set for horizontal text and ty for vertical text
             // which seems to be specified in the font (not the direction in the matrix).
@@ -482,12 +965,35 @@ public class PDFStreamEngine
             float totalVerticalDisplacementDisp = maxVerticalDisplacementText * fontSizeText * textXctm.getYScale();
 
             // process the decoded text
-            processTextPosition(new TextPosition(pageRotation, pageWidth, pageHeight, textMatrixStart, endXPosition,
-                    endYPosition, totalVerticalDisplacementDisp, widthText, spaceWidthDisp, c, codePoints, font,
-                    fontSizeText, (int) (fontSizeText * textMatrix.getXScale())));
+            processGlyph(textMatrixStart, endXPosition, endYPosition, totalVerticalDisplacementDisp, widthText,
+                    spaceWidthDisp, c, codePoints, font, fontSizeText, (int) (fontSizeText * textMatrix.getXScale()));
         }
     }
 
+    private void processGlyph(Matrix textMatrixStart, float endXPosition, float endYPosition, float maxHeight,
+            float widthText, float spaceWidthDisp, String c, int[] codePoints, PDFont font, float fontSizeText,
+            int fontSizeInPt)
+    {
+        if (!recordings.isEmpty())
+        {
+            FormXObjectCache.Glyph glyph = new FormXObjectCache.Glyph(textMatrixStart, endXPosition, endYPosition,
+                    maxHeight, widthText, spaceWidthDisp, c, codePoints, font, fontSizeText, fontSizeInPt);
+            for (FormXObjectCache.TextRun run : recordings)
+            {
+                run.glyphs.add(glyph);
+            }
+        }
+        if (glyphBuffer != null)
+        {
+            glyphBuffer.add(textMatrixStart, endXPosition, endYPosition, maxHeight, widthText, spaceWidthDisp, c,
+                    codePoints, font, fontSizeText, fontSizeInPt);
+            return;
+        }
+        processTextPosition(new TextPosition(pageRotation, drawingRectangle.getWidth(), drawingRectangle.getHeight(),
+                textMatrixStart, endXPosition, endYPosition, maxHeight, widthText, spaceWidthDisp, c, codePoints, font,
+                fontSizeText, fontSizeInPt));
+    }
+
     /**
      * This is used to handle an operation.
      * 
@@ -519,28 +1025,87 @@ public class PDFStreamEngine
      */
     protected void processOperator(PDFOperator operator, List<COSBase> arguments) throws IOException
     {
+        ContentStreamProfile currentProfile = profile;
+        long startTime = currentProfile != null ? System.nanoTime() : 0;
         try
         {
-            String operation = operator.getOperation();
-            OperatorProcessor processor = (OperatorProcessor) operators.get(operation);
+            OperatorProcessor processor = getOperatorProcessor(operator);
             if (processor != null)
             {
-                processor.setContext(this);
                 processor.process(operator, arguments);
             }
             else
             {
-                if (!unsupportedOperators.contains(operation))
-                {
-                    LOG.info("unsupported/disabled operation: " + operation);
-                    unsupportedOperators.add(operation);
-                }
+                unsupportedOperator(operator);
             }
         }
         catch (Exception e)
         {
             LOG.warn(e, e);
         }
+        if (currentProfile != null)
+        {
+            // nested operators may be invoked without arguments, e.g. T* by '
+            COSBase firstOperand = arguments == null || arguments.isEmpty() ? null : arguments.get(0);
+            profileOperator(currentProfile, operator, firstOperand, startTime);
+        }
+    }
+
+    /**
+     * This is used to handle an operation. Operators with a {@link PrimitiveOperatorProcessor}
+     * get the operands from the stack, all other operators get them as list.
+     * 
+     * @param operator The operation to perform.
+     * @param operands The operands, only valid during this call.
+     * 
+     * @throws IOException If there is an error processing the operation.
+     */
+    protected void processOperator(PDFOperator operator, OperandStack operands) throws IOException
+    {
+        ContentStreamProfile currentProfile = profile;
+        long startTime = currentProfile != null ? System.nanoTime() : 0;
+        try
+        {
+            OperatorProcessor processor = getOperatorProcessor(operator);
+            if (processor instanceof PrimitiveOperatorProcessor)
+            {
+                ((PrimitiveOperatorProcessor) processor).process(operator, operands);
+            }
+            else if (processor != null)
+            {
+                processor.process(operator, operands.toList());
+            }
+            else
+            {
+                unsupportedOperator(operator);
+            }
+        }
+        catch (Exception e)
+        {
+            LOG.warn(e, e);
+        }
+        if (currentProfile != null)
+        {
+            profileOperator(currentProfile, operator, operands.size() > 0 ? operands.get(0) : null, startTime);
+        }
+    }
+
+    private void profileOperator(ContentStreamProfile currentProfile, PDFOperator operator, COSBase firstOperand,
+            long startTime)
+    {
+        long time = System.nanoTime() - startTime;
+        currentProfile.addOperator(operator, time);
+        int opcode = operator.getOpcode();
+        if (opcode == OPCODE_INVOKE && firstOperand instanceof COSName)
+        {
+            currentProfile.addXObject(((COSName) firstOperand).getName(), time);
+        }
+        else if (opcode == OPCODE_SHOW_TEXT || opcode == OPCODE_SHOW_TEXT_GLYPH || opcode == OPCODE_SHOW_TEXT_LINE
+                || opcode == OPCODE_SHOW_TEXT_LINE_SPACING)
+        {
+            PDFont font = graphicsState.getTextState().getFont();
+            currentProfile.addFont(font == null ? "none" : String.valueOf(font.getBaseFont()), time);
+        }
     }
 
     /**
@@ -706,6 +1271,15 @@ public class PDFStreamEngine
         return validCharCnt;
     }
 
+    /**
+     * Adds the character counts of another engine which has processed a part of the document.
+     */
+    void addCharCounts(int validChars, int totalChars)
+    {
+        validCharCnt += validChars;
+        totalCharCnt += totalChars;
+    }
+
     /**
      * Get the total number of characters in the doc (including ones that could not be mapped).
      * 
@@ -736,15 +1310,9 @@ public class PDFStreamEngine
             streamResourcesStack.clear();
             streamResourcesStack = null;
         }
-        if (operators != null)
-        {
-            operators.clear();
-            operators = null;
-        }
-        if (unsupportedOperators != null)
-        {
-            unsupportedOperators.clear();
-        }
+        operators = null;
+        operatorFilter = null;
+        unsupportedOperators.clear();
     }
 
 }
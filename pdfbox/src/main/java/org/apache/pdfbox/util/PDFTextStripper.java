@@ -17,21 +17,19 @@
 package org.apache.pdfbox.util;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Properties;
-import java.util.SortedMap;
-import java.util.SortedSet;
-import java.util.TreeMap;
-import java.util.TreeSet;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.regex.Pattern;
 
 import org.apache.pdfbox.cos.COSDocument;
@@ -48,7 +46,7 @@ import org.apache.pdfbox.pdmodel.interactive.pagenavigation.PDThreadBead;
 import org.apache.pdfbox.text.PositionWrapper;
 import org.apache.pdfbox.text.TextNormalize;
 import org.apache.pdfbox.text.TextPosition;
-import org.apache.pdfbox.text.TextPositionComparator;
+import org.apache.pdfbox.text.TextPositionSorter;
 
 /**
  * This class will take a pdf document and strip out all of the text and ignore the
@@ -71,6 +69,11 @@ public class PDFTextStripper extends PDFStreamEngine
     private static float DEFAULT_INDENT_THRESHOLD = 2.0f;
     private static float DEFAULT_DROP_THRESHOLD = 2.5f;
 
+    /**
+     * The default number of pages extracted by one task in parallel mode.
+     */
+    public static final int DEFAULT_PAGES_PER_TASK = 8;
+
     //enable the ability to set the default indent/drop thresholds
     //with -D system properties:
     //    pdftextstripper.indent
@@ -169,8 +172,8 @@ public class PDFTextStripper extends PDFStreamEngine
      */
     protected Vector<List<TextPosition>> charactersByArticle = new Vector<List<TextPosition>>();
 
-    private Map<String, TreeMap<Float, TreeSet<Float>>> characterListMapping =
-        new HashMap<String, TreeMap<Float, TreeSet<Float>>>();
+    // the characters shown on the current page, to suppress duplicate overlapping text
+    private final CharacterGrid characterGrid = new CharacterGrid();
 
     /**
      * encoding that text will be written in (or null).
@@ -198,6 +201,11 @@ public class PDFTextStripper extends PDFStreamEngine
      */
     private boolean inParagraph;
 
+    // the properties given to the constructor, null if the default properties are used
+    private Properties properties;
+    private Executor executor;
+    private int pagesPerTask = DEFAULT_PAGES_PER_TASK;
+
     /**
      * Instantiate a new PDFTextStripper object. This object will load
      * properties from PDFTextStripper.properties and will not do
@@ -212,6 +220,10 @@ public class PDFTextStripper extends PDFStreamEngine
                 "org/apache/pdfbox/resources/PDFTextStripper.properties", true ) );
         this.outputEncoding = null;
         normalize = new TextNormalize(this.outputEncoding);
+        // only the text operators are parsed, inline images are skipped
+        setOperatorFiltering( true );
+        // the glyphs of the fonts are decoded once per document
+        setDecodedGlyphCache( new DecodedGlyphCache() );
     }
 
     /**
@@ -227,8 +239,11 @@ public class PDFTextStripper extends PDFStreamEngine
     public PDFTextStripper( Properties props ) throws IOException
     {
         super( props );
+        properties = props;
         this.outputEncoding = null;
         normalize = new TextNormalize(this.outputEncoding);
+        setOperatorFiltering( true );
+        setDecodedGlyphCache( new DecodedGlyphCache() );
     }
     /**
      * Instantiate a new PDFTextStripper object. This object will load
@@ -244,6 +259,8 @@ public class PDFTextStripper extends PDFStreamEngine
                 "org/apache/pdfbox/resources/PDFTextStripper.properties", true ));
         this.outputEncoding = encoding;
         normalize = new TextNormalize(this.outputEncoding);
+        setOperatorFiltering( true );
+        setDecodedGlyphCache( new DecodedGlyphCache() );
     }
 
     /**
@@ -286,12 +303,7 @@ public class PDFTextStripper extends PDFStreamEngine
         {
         	charactersByArticle.clear();
         }
-        if (characterListMapping != null)
-        {
-        	characterListMapping.clear();
-        }
-        startBookmark = null;
-        endBookmark = null;
+        characterGrid.clear();
     }
     
     /**
@@ -304,7 +316,14 @@ public class PDFTextStripper extends PDFStreamEngine
      */
     public void writeText( PDDocument doc, Writer outputStream ) throws IOException
     {
+        // resetEngine() forgets the document, so compare it first
+        boolean sameDocument = doc == document;
         resetEngine();
+        if( !sameDocument && getDecodedGlyphCache() != null )
+        {
+            // the glyphs are cached by their font dictionaries, which belong to one document
+            getDecodedGlyphCache().clear();
+        }
         document = doc;
         output = outputStream;
         if (getAddMoreFormatting()) 
@@ -347,6 +366,8 @@ public class PDFTextStripper extends PDFStreamEngine
      */
     protected void processPages( List<COSObjectable> pages ) throws IOException
     {
+        startBookmarkPageNumber = -1;
+        endBookmarkPageNumber = -1;
         if( startBookmark != null )
         {
             startBookmarkPageNumber = getPageNumber( startBookmark, pages );
@@ -366,10 +387,23 @@ public class PDFTextStripper extends PDFStreamEngine
             startBookmarkPageNumber = 0;
             endBookmarkPageNumber = 0;
         }
-        Iterator<COSObjectable> pageIter = pages.iterator();
-        while( pageIter.hasNext() )
+        if( executor != null && document.getDocument().isReadOnly() )
+        {
+            PDFTextStripper worker = createParallelStripper();
+            if( worker != null )
+            {
+                processPagesInParallel( pages, worker );
+                return;
+            }
+        }
+        processPageRange( pages, 0, pages.size() );
+    }
+
+    private void processPageRange( List<COSObjectable> pages, int fromIndex, int toIndex ) throws IOException
+    {
+        for( int i = fromIndex; i < toIndex; i++ )
         {
-            PDPage nextPage = (PDPage)pageIter.next();
+            PDPage nextPage = (PDPage)pages.get( i );
             PDStream contentStream = nextPage.getContents();
             currentPageNo++;
             if( contentStream != null )
@@ -380,6 +414,282 @@ public class PDFTextStripper extends PDFStreamEngine
         }
     }
 
+    /**
+     * Splits the pages into ranges which are extracted by copies of this stripper on the executor,
+     * the text of the ranges is written to the output in page order.
+     */
+    private void processPagesInParallel( final List<COSObjectable> pages, PDFTextStripper firstWorker )
+        throws IOException
+    {
+        // pages outside of the requested range are skipped without creating a task
+        int firstPage = Math.max( startPage, Math.max( startBookmarkPageNumber, 1 ) );
+        int lastPage = Math.min( Math.min( endPage, pages.size() ),
+                endBookmarkPageNumber == -1 ? Integer.MAX_VALUE : endBookmarkPageNumber );
+        List<RangeTask> tasks = new ArrayList<RangeTask>();
+        PDFTextStripper worker = firstWorker;
+        for( int first = firstPage - 1; first < lastPage; first += pagesPerTask )
+        {
+            if( worker == null )
+            {
+                worker = createParallelStripper();
+            }
+            final PDFTextStripper rangeWorker = worker;
+            final int fromIndex = first;
+            final int toIndex = Math.min( first + pagesPerTask, lastPage );
+            copySettings( rangeWorker );
+            RangeTask task = new RangeTask( new Callable<PDFTextStripper>()
+            {
+                public PDFTextStripper call() throws IOException
+                {
+                    rangeWorker.currentPageNo = fromIndex;
+                    for( int i = fromIndex; i < toIndex; i++ )
+                    {
+                        // a cancelled task stops after the current page
+                        if( Thread.currentThread().isInterrupted() )
+                        {
+                            throw new InterruptedIOException( "Interrupted while extracting the text" );
+                        }
+                        rangeWorker.processPageRange( pages, i, i + 1 );
+                    }
+                    return rangeWorker;
+                }
+            });
+            tasks.add( task );
+            executor.execute( task );
+            worker = null;
+        }
+        boolean completed = false;
+        try
+        {
+            for( RangeTask task : tasks )
+            {
+                PDFTextStripper rangeWorker;
+                try
+                {
+                    rangeWorker = task.get();
+                }
+                catch (InterruptedException exception)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IOException( "Interrupted while extracting the text", exception );
+                }
+                catch (ExecutionException exception)
+                {
+                    Throwable cause = exception.getCause();
+                    if( cause instanceof IOException )
+                    {
+                        throw (IOException)cause;
+                    }
+                    if( cause instanceof RuntimeException )
+                    {
+                        throw (RuntimeException)cause;
+                    }
+                    if( cause instanceof Error )
+                    {
+                        throw (Error)cause;
+                    }
+                    throw new IOException( "Error while extracting the text", cause );
+                }
+                output.write( rangeWorker.output.toString() );
+                addCharCounts( rangeWorker.getValidCharCnt(), rangeWorker.getTotalCharCnt() );
+                rangeWorker.output = null;
+            }
+            completed = true;
+        }
+        finally
+        {
+            if( !completed )
+            {
+                // the caller may close the document as soon as this method returns
+                for( RangeTask task : tasks )
+                {
+                    task.cancel( true );
+                }
+                for( RangeTask task : tasks )
+                {
+                    task.awaitRun();
+                }
+            }
+        }
+        currentPageNo = pages.size();
+    }
+
+    /**
+     * The extraction of a range of pages in parallel mode. It can be waited for after it was
+     * cancelled, until the worker doesn't use the document anymore.
+     */
+    private static final class RangeTask extends FutureTask<PDFTextStripper>
+    {
+        private boolean running = false;
+
+        private RangeTask( Callable<PDFTextStripper> callable )
+        {
+            super( callable );
+        }
+
+        @Override
+        public void run()
+        {
+            synchronized( this )
+            {
+                if( isCancelled() )
+                {
+                    return;
+                }
+                running = true;
+            }
+            try
+            {
+                super.run();
+            }
+            finally
+            {
+                synchronized( this )
+                {
+                    running = false;
+                    notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Waits until the task isn't running, the interrupt status of the current thread is
+         * restored if it is interrupted while waiting.
+         */
+        private synchronized void awaitRun()
+        {
+            try
+            {
+                while( running )
+                {
+                    wait();
+                }
+            }
+            catch( InterruptedException exception )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Creates a stripper which extracts a range of pages in parallel mode. The settings of this
+     * stripper are copied to the returned stripper before it is used, subclasses with additional
+     * settings have to override this method to create an instance of their own class and to copy
+     * their settings. The default implementation returns null for subclasses, so that they
+     * extract the pages sequentially.
+     *
+     * @return a new stripper or null if the pages must be extracted sequentially
+     * @throws IOException If the stripper can't be created.
+     * @see #setExecutor(Executor)
+     */
+    protected PDFTextStripper createParallelStripper() throws IOException
+    {
+        if( getClass() != PDFTextStripper.class )
+        {
+            return null;
+        }
+        PDFTextStripper worker;
+        if( properties != null )
+        {
+            worker = new PDFTextStripper( properties );
+        }
+        else
+        {
+            worker = new PDFTextStripper( outputEncoding );
+        }
+        worker.outputEncoding = outputEncoding;
+        worker.normalize = new TextNormalize( outputEncoding );
+        return worker;
+    }
+
+    private void copySettings( PDFTextStripper worker )
+    {
+        worker.resetEngine();
+        worker.document = document;
+        worker.output = new StringWriter();
+        worker.lineSeparator = lineSeparator;
+        worker.pageSeparator = pageSeparator;
+        worker.wordSeparator = wordSeparator;
+        worker.paragraphStart = paragraphStart;
+        worker.paragraphEnd = paragraphEnd;
+        worker.pageStart = pageStart;
+        worker.pageEnd = pageEnd;
+        worker.articleStart = articleStart;
+        worker.articleEnd = articleEnd;
+        worker.startPage = startPage;
+        worker.endPage = endPage;
+        worker.startBookmarkPageNumber = startBookmarkPageNumber;
+        worker.endBookmarkPageNumber = endBookmarkPageNumber;
+        worker.suppressDuplicateOverlappingText = suppressDuplicateOverlappingText;
+        worker.shouldSeparateByBeads = shouldSeparateByBeads;
+        worker.sortByPosition = sortByPosition;
+        worker.addMoreFormatting = addMoreFormatting;
+        worker.indentThreshold = indentThreshold;
+        worker.dropThreshold = dropThreshold;
+        worker.spacingTolerance = spacingTolerance;
+        worker.averageCharTolerance = averageCharTolerance;
+        worker.listOfPatterns = listOfPatterns;
+        worker.setForceParsing( isForceParsing() );
+        worker.setOperatorFiltering( isOperatorFiltering() );
+        worker.setContentStreamCache( getContentStreamCache() );
+        worker.setFormXObjectCache( getFormXObjectCache() );
+        worker.setGlyphBuffer( getGlyphBuffer() == null ? null : new GlyphBuffer() );
+        worker.setDecodedGlyphCache( getDecodedGlyphCache() == null ? null : new DecodedGlyphCache() );
+    }
+
+    /**
+     * Returns the executor used to extract the text of several pages in parallel.
+     *
+     * @return the executor or null if the pages are extracted sequentially
+     */
+    public Executor getExecutor()
+    {
+        return executor;
+    }
+
+    /**
+     * Sets an executor to extract the text of several pages in parallel. The pages are split
+     * into ranges of {@link #setPagesPerTask(int) pagesPerTask} pages, which are extracted by
+     * independent copies of this stripper, and the text is written to the output in page order.
+     * The start and end page, bookmarks and separators are handled as in sequential mode.
+     *
+     * Pages are only extracted in parallel if the document has been loaded read-only, see
+     * {@link PDDocument#loadReadOnly(java.io.File, org.apache.pdfbox.io.RandomAccess, String)},
+     * and if {@link #createParallelStripper()} supports the class of this stripper. Operator
+     * processors registered after the construction of this stripper aren't used by the copies.
+     *
+     * @param executorValue the executor or null to extract the pages sequentially
+     */
+    public void setExecutor(Executor executorValue)
+    {
+        executor = executorValue;
+    }
+
+    /**
+     * Returns the number of pages extracted by one task in parallel mode.
+     *
+     * @return the number of pages per task
+     */
+    public int getPagesPerTask()
+    {
+        return pagesPerTask;
+    }
+
+    /**
+     * Sets the number of pages extracted by one task in parallel mode.
+     *
+     * @param pagesPerTaskValue the number of pages per task, at least 1
+     */
+    public void setPagesPerTask(int pagesPerTaskValue)
+    {
+        if (pagesPerTaskValue < 1)
+        {
+            throw new IllegalArgumentException("At least one page per task is required");
+        }
+        pagesPerTask = pagesPerTaskValue;
+    }
+
     private int getPageNumber( PDOutlineItem bookmark, List<COSObjectable> allPages ) throws IOException
     {
         int pageNumber = -1;
@@ -449,7 +759,7 @@ public class PDFTextStripper extends PDFStreamEngine
                     charactersByArticle.set( i, new ArrayList<TextPosition>() );
                 }
             }
-            characterListMapping.clear();
+            characterGrid.clear();
             processStream( page.findResources(), content, page.findCropBox(), page.findRotation() );
             writePage();
             endPage( page );
@@ -558,8 +868,7 @@ public class PDFTextStripper extends PDFStreamEngine
             List<TextPosition> textList = charactersByArticle.get( i );
             if( getSortByPosition() )
             {
-                TextPositionComparator comparator = new TextPositionComparator();
-                Collections.sort( textList, comparator );
+                TextPositionSorter.sort( textList );
             }
             Iterator<TextPosition> textIter = textList.iterator();
             /* Before we can display the text, we need to do some normalizing.
@@ -882,6 +1191,22 @@ public class PDFTextStripper extends PDFStreamEngine
         return second < first + variance && second > first - variance;
     }
 
+    /**
+     * Processes the glyphs of a page if a {@link #setGlyphBuffer(GlyphBuffer) glyph buffer}
+     * is set. The default implementation creates a text position for each glyph and passes
+     * it to {@link #processTextPosition(TextPosition)}.
+     *
+     * @param buffer the glyphs of the page
+     */
+    @Override
+    protected void processGlyphBuffer( GlyphBuffer buffer )
+    {
+        for( int i = 0; i < buffer.getGlyphCount(); i++ )
+        {
+            processTextPosition( buffer.getTextPosition( i ) );
+        }
+    }
+
     /**
      * This will process a TextPosition object and add the
      * text to the list of characters on a page.  It takes care of
@@ -899,12 +1224,6 @@ public class PDFTextStripper extends PDFStreamEngine
             String textCharacter = text.getCharacter();
             float textX = text.getX();
             float textY = text.getY();
-            TreeMap<Float, TreeSet<Float>> sameTextCharacters = characterListMapping.get( textCharacter );
-            if( sameTextCharacters == null )
-            {
-                sameTextCharacters = new TreeMap<Float, TreeSet<Float>>();
-                characterListMapping.put( textCharacter, sameTextCharacters );
-            }
             // RDD - Here we compute the value that represents the end of the rendered
             // text.  This value is used to determine whether subsequent text rendered
             // on the same line overwrites the current text.
@@ -916,30 +1235,10 @@ public class PDFTextStripper extends PDFStreamEngine
             // an amount to allow for kerning (a percentage of the width of the last
             // character).
             //
-            boolean suppressCharacter = false;
             float tolerance = (text.getWidth()/textCharacter.length())/3.0f;
-            
-            SortedMap<Float, TreeSet<Float>> xMatches =
-                sameTextCharacters.subMap(textX - tolerance, textX + tolerance );
-            for (TreeSet<Float> xMatch : xMatches.values()) 
+            if( !characterGrid.containsNear( textCharacter, textX, textY, tolerance ) )
             {
-                SortedSet<Float> yMatches =
-                    xMatch.subSet(textY - tolerance , textY + tolerance );
-                if (!yMatches.isEmpty()) 
-                {
-                    suppressCharacter = true;
-                    break;
-                }
-            }
-            if( !suppressCharacter )
-            {
-                TreeSet<Float> ySet = sameTextCharacters.get(textX);
-                if (ySet == null) 
-                {
-                    ySet = new TreeSet<Float>();
-                    sameTextCharacters.put( textX,  ySet );
-                }
-                ySet.add( textY );
+                characterGrid.add( textCharacter, textX, textY );
                 showCharacter = true;
             }
         }
@@ -1328,6 +1627,33 @@ public class PDFTextStripper extends PDFStreamEngine
         sortByPosition = newSortByPosition;
     }
 
+    /**
+     * Returns the buffer collecting the glyphs of a page.
+     *
+     * @return the glyph buffer or null if a text position is processed for each glyph
+     */
+    public GlyphBuffer getGlyphBuffer()
+    {
+        return glyphBuffer;
+    }
+
+    /**
+     * Sets a buffer collecting the glyphs of a page. Instead of creating a {@link TextPosition}
+     * for each glyph, the glyphs are added to the buffer, which is passed to
+     * {@link #processGlyphBuffer(GlyphBuffer)} when the content stream of the page, or of an
+     * annotation processed on its own, has been processed. The glyphs are removed from the buffer
+     * afterwards.
+     *
+     * Subclasses overriding {@link #processTextPosition(TextPosition)} must not use a buffer if
+     * they depend on the graphics state at the time a glyph is shown.
+     *
+     * @param buffer the glyph buffer or null to process a text position for each glyph
+     */
+    public void setGlyphBuffer(GlyphBuffer buffer)
+    {
+        glyphBuffer = buffer;
+    }
+
     /**
      * Get the current space width-based tolerance value that is being used
      * to estimate where spaces in text should be added.  Note that the
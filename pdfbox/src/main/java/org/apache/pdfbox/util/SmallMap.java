@@ -0,0 +1,381 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map preserving the insertion order which is optimized for a small number
+ * of entries. Up to {@link #MAX_ARRAY_SIZE} entries are stored in two parallel
+ * arrays which are searched linearly, comparing keys by identity first. If the
+ * map grows beyond that size the entries are moved to a {@link LinkedHashMap}.
+ *
+ * This saves a lot of memory compared to a {@link LinkedHashMap} for the many
+ * small dictionaries of a PDF document.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class SmallMap<K, V> extends AbstractMap<K, V>
+{
+    /** maximum number of entries stored in the arrays. */
+    public static final int MAX_ARRAY_SIZE = 16;
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private Object[] keys;
+    private Object[] values;
+    private int size = 0;
+    // the number of structural modifications, used by the iterators to fail fast
+    private int modCount = 0;
+
+    // used instead of the arrays if the map has grown too big
+    private Map<K, V> map;
+
+    private Set<Map.Entry<K, V>> entrySet;
+
+    /**
+     * Creates an empty map.
+     */
+    public SmallMap()
+    {
+    }
+
+    private int indexOf(Object key)
+    {
+        int hash = key == null ? 0 : key.hashCode();
+        for (int i = 0; i < size; i++)
+        {
+            Object k = keys[i];
+            if (k == key || (key != null && k != null && k.hashCode() == hash && key.equals(k)))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size()
+    {
+        return map != null ? map.size() : size;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return map != null ? map.containsKey(key) : indexOf(key) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value)
+    {
+        if (map != null)
+        {
+            return map.containsValue(value);
+        }
+        for (int i = 0; i < size; i++)
+        {
+            if (value == null ? values[i] == null : value.equals(values[i]))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key)
+    {
+        if (map != null)
+        {
+            return map.get(key);
+        }
+        int index = indexOf(key);
+        return index >= 0 ? (V) values[index] : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value)
+    {
+        if (map != null)
+        {
+            return map.put(key, value);
+        }
+        int index = indexOf(key);
+        if (index >= 0)
+        {
+            V oldValue = (V) values[index];
+            values[index] = value;
+            return oldValue;
+        }
+        if (size == MAX_ARRAY_SIZE)
+        {
+            map = new LinkedHashMap<K, V>(MAX_ARRAY_SIZE * 2);
+            for (int i = 0; i < size; i++)
+            {
+                map.put((K) keys[i], (V) values[i]);
+            }
+            keys = null;
+            values = null;
+            size = 0;
+            modCount++;
+            map.put(key, value);
+            return null;
+        }
+        if (keys == null)
+        {
+            keys = new Object[INITIAL_CAPACITY];
+            values = new Object[INITIAL_CAPACITY];
+        }
+        else if (size == keys.length)
+        {
+            int capacity = Math.min(keys.length * 2, MAX_ARRAY_SIZE);
+            Object[] newKeys = new Object[capacity];
+            Object[] newValues = new Object[capacity];
+            System.arraycopy(keys, 0, newKeys, 0, size);
+            System.arraycopy(values, 0, newValues, 0, size);
+            keys = newKeys;
+            values = newValues;
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+        modCount++;
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key)
+    {
+        if (map != null)
+        {
+            return map.remove(key);
+        }
+        int index = indexOf(key);
+        if (index < 0)
+        {
+            return null;
+        }
+        V oldValue = (V) values[index];
+        removeAt(index);
+        return oldValue;
+    }
+
+    private void removeAt(int index)
+    {
+        int moved = size - index - 1;
+        if (moved > 0)
+        {
+            // keep the insertion order
+            System.arraycopy(keys, index + 1, keys, index, moved);
+            System.arraycopy(values, index + 1, values, index, moved);
+        }
+        size--;
+        keys[size] = null;
+        values[size] = null;
+        modCount++;
+    }
+
+    @Override
+    public void clear()
+    {
+        map = null;
+        keys = null;
+        values = null;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet()
+    {
+        if (entrySet == null)
+        {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    /**
+     * A view of the entries of this map.
+     */
+    private class EntrySet extends AbstractSet<Map.Entry<K, V>>
+    {
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator()
+        {
+            if (map != null)
+            {
+                return map.entrySet().iterator();
+            }
+            return new ArrayIterator();
+        }
+
+        @Override
+        public int size()
+        {
+            return SmallMap.this.size();
+        }
+
+        @Override
+        public void clear()
+        {
+            SmallMap.this.clear();
+        }
+    }
+
+    /**
+     * Iterates over the entries stored in the arrays.
+     */
+    private class ArrayIterator implements Iterator<Map.Entry<K, V>>
+    {
+        private int next = 0;
+        private int lastReturned = -1;
+        private int expectedModCount = modCount;
+
+        public boolean hasNext()
+        {
+            return next < size;
+        }
+
+        public Map.Entry<K, V> next()
+        {
+            checkForComodification();
+            if (next >= size)
+            {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next++;
+            return new ArrayEntry(lastReturned);
+        }
+
+        public void remove()
+        {
+            if (lastReturned < 0)
+            {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            removeAt(lastReturned);
+            next = lastReturned;
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification()
+        {
+            if (modCount != expectedModCount)
+            {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * An entry stored in the arrays, changes of the value are written through.
+     */
+    private class ArrayEntry implements Map.Entry<K, V>
+    {
+        private final K key;
+        private int index;
+
+        @SuppressWarnings("unchecked")
+        ArrayEntry(int index)
+        {
+            this.index = index;
+            key = (K) keys[index];
+        }
+
+        private int getIndex()
+        {
+            // the entry may have moved if other entries were removed
+            if (map != null || index >= size || keys[index] != key)
+            {
+                index = map != null ? -1 : indexOf(key);
+            }
+            return index;
+        }
+
+        public K getKey()
+        {
+            return key;
+        }
+
+        @SuppressWarnings("unchecked")
+        public V getValue()
+        {
+            int i = getIndex();
+            return i >= 0 ? (V) values[i] : map != null ? map.get(key) : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        public V setValue(V value)
+        {
+            int i = getIndex();
+            if (i < 0)
+            {
+                return put(key, value);
+            }
+            V oldValue = (V) values[i];
+            values[i] = value;
+            return oldValue;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Map.Entry))
+            {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+            Object value = getValue();
+            return (key == null ? other.getKey() == null : key.equals(other.getKey()))
+                    && (value == null ? other.getValue() == null : value.equals(other.getValue()));
+        }
+
+        @Override
+        public int hashCode()
+        {
+            Object value = getValue();
+            return (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString()
+        {
+            return key + "=" + getValue();
+        }
+    }
+}
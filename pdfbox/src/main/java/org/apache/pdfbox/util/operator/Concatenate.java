@@ -16,11 +16,8 @@
  */
 package org.apache.pdfbox.util.operator;
 
-import java.util.List;
 import java.io.IOException;
 
-import org.apache.pdfbox.cos.COSBase;
-import org.apache.pdfbox.cos.COSNumber;
 import org.apache.pdfbox.util.Matrix;
 
 /**
@@ -29,33 +26,33 @@ import org.apache.pdfbox.util.Matrix;
  * @version $Revision: 1.5 $
  */
 
-public class Concatenate extends OperatorProcessor
+public class Concatenate extends PrimitiveOperatorProcessor
 {
 
     /**
      * process : cm : Concatenate matrix to current transformation matrix.
      * @param operator The operator that is being executed.
-     * @param arguments List
+     * @param arguments The operands of the operator.
      * @throws IOException If there is an error processing the operator.
      */
-    public void process(PDFOperator operator, List<COSBase> arguments) throws IOException
+    public void process(PDFOperator operator, OperandStack arguments) throws IOException
     {
 
         //concatenate matrix to current transformation matrix
-        COSNumber a = (COSNumber) arguments.get(0);
-        COSNumber b = (COSNumber) arguments.get(1);
-        COSNumber c = (COSNumber) arguments.get(2);
-        COSNumber d = (COSNumber) arguments.get(3);
-        COSNumber e = (COSNumber) arguments.get(4);
-        COSNumber f = (COSNumber) arguments.get(5);
+        float a = arguments.getFloat(0);
+        float b = arguments.getFloat(1);
+        float c = arguments.getFloat(2);
+        float d = arguments.getFloat(3);
+        float e = arguments.getFloat(4);
+        float f = arguments.getFloat(5);
 
         Matrix newMatrix = new Matrix();
-        newMatrix.setValue(0, 0, a.floatValue());
-        newMatrix.setValue(0, 1, b.floatValue());
-        newMatrix.setValue(1, 0, c.floatValue());
-        newMatrix.setValue(1, 1, d.floatValue());
-        newMatrix.setValue(2, 0, e.floatValue());
-        newMatrix.setValue(2, 1, f.floatValue());
+        newMatrix.setValue(0, 0, a);
+        newMatrix.setValue(0, 1, b);
+        newMatrix.setValue(1, 0, c);
+        newMatrix.setValue(1, 1, d);
+        newMatrix.setValue(2, 0, e);
+        newMatrix.setValue(2, 1, f);
 
         //this line has changed
         context.getGraphicsState().setCurrentTransformationMatrix(
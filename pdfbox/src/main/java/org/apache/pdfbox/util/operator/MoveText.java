@@ -16,10 +16,6 @@
  */
 package org.apache.pdfbox.util.operator;
 
-import java.util.List;
-
-import org.apache.pdfbox.cos.COSBase;
-import org.apache.pdfbox.cos.COSNumber;
 import org.apache.pdfbox.util.Matrix;
 
 /**
@@ -27,21 +23,21 @@ import org.apache.pdfbox.util.Matrix;
  * @author Huault : huault@free.fr
  * @version $Revision: 1.4 $
  */
-public class MoveText extends OperatorProcessor
+public class MoveText extends PrimitiveOperatorProcessor
 {
 
     /**
      * process : Td : Move text position.
      * @param operator The operator that is being executed.
-     * @param arguments List
+     * @param arguments The operands of the operator.
      */
-    public void process(PDFOperator operator, List<COSBase> arguments)
+    public void process(PDFOperator operator, OperandStack arguments)
     {
-        COSNumber x = (COSNumber)arguments.get( 0 );
-        COSNumber y = (COSNumber)arguments.get( 1 );
+        float x = arguments.getFloat(0);
+        float y = arguments.getFloat(1);
         Matrix td = new Matrix();
-        td.setValue( 2, 0, x.floatValue() );
-        td.setValue( 2, 1, y.floatValue() );
+        td.setValue( 2, 0, x );
+        td.setValue( 2, 1, y );
         context.setTextLineMatrix( td.multiply( context.getTextLineMatrix() ) );
         context.setTextMatrix( context.getTextLineMatrix().copy() );
     }
@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util.operator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+
+/**
+ * The operands of a content stream operator. Numeric operands are kept in primitive
+ * slots so that no COSInteger or COSFloat has to be created for them, all other operands
+ * are kept as they are. A stack is reused for all operators of a stream, it must not be
+ * kept by an operator processor.
+ *
+ * @see PrimitiveOperatorProcessor
+ */
+public final class OperandStack
+{
+    private static final byte TYPE_INTEGER = 0;
+    private static final byte TYPE_FLOAT = 1;
+    private static final byte TYPE_OBJECT = 2;
+
+    private byte[] types = new byte[16];
+    private long[] values = new long[16];
+    private COSBase[] objects = new COSBase[16];
+    private int size;
+
+    /**
+     * Returns the number of operands.
+     *
+     * @return the number of operands
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Removes all operands.
+     */
+    public void clear()
+    {
+        Arrays.fill(objects, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Adds an integer operand.
+     *
+     * @param value the value of the operand
+     */
+    public void pushInteger(long value)
+    {
+        push(TYPE_INTEGER, value, null);
+    }
+
+    /**
+     * Adds a real operand.
+     *
+     * @param value the value of the operand
+     */
+    public void pushFloat(float value)
+    {
+        push(TYPE_FLOAT, Float.floatToIntBits(value), null);
+    }
+
+    /**
+     * Adds an operand, numbers are stored as primitive values.
+     *
+     * @param operand the operand, may be null
+     */
+    public void push(COSBase operand)
+    {
+        if (operand instanceof COSInteger)
+        {
+            pushInteger(((COSInteger) operand).longValue());
+        }
+        else if (operand instanceof COSFloat)
+        {
+            pushFloat(((COSFloat) operand).floatValue());
+        }
+        else
+        {
+            push(TYPE_OBJECT, 0, operand);
+        }
+    }
+
+    /**
+     * Adds all given operands.
+     *
+     * @param operands the operands
+     */
+    public void pushAll(List<COSBase> operands)
+    {
+        for (COSBase operand : operands)
+        {
+            push(operand);
+        }
+    }
+
+    private void push(byte type, long value, COSBase object)
+    {
+        if (size == types.length)
+        {
+            types = Arrays.copyOf(types, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+            objects = Arrays.copyOf(objects, size * 2);
+        }
+        types[size] = type;
+        values[size] = value;
+        objects[size++] = object;
+    }
+
+    /**
+     * Indicates if the operand at the given index is a number.
+     *
+     * @param index the index of the operand
+     * @return true if the operand is a number
+     */
+    public boolean isNumber(int index)
+    {
+        checkIndex(index);
+        return types[index] != TYPE_OBJECT;
+    }
+
+    /**
+     * Returns the value of a numeric operand as float.
+     *
+     * @param index the index of the operand
+     * @return the value of the operand
+     * @throws ClassCastException if the operand isn't a number
+     */
+    public float getFloat(int index)
+    {
+        checkNumber(index);
+        return types[index] == TYPE_FLOAT ? Float.intBitsToFloat((int) values[index]) : values[index];
+    }
+
+    /**
+     * Returns the value of a numeric operand as double.
+     *
+     * @param index the index of the operand
+     * @return the value of the operand
+     * @throws ClassCastException if the operand isn't a number
+     */
+    public double getDouble(int index)
+    {
+        checkNumber(index);
+        if (types[index] == TYPE_FLOAT)
+        {
+            return Float.intBitsToFloat((int) values[index]);
+        }
+        return values[index];
+    }
+
+    /**
+     * Returns the value of a numeric operand as int, real values are truncated.
+     *
+     * @param index the index of the operand
+     * @return the value of the operand
+     * @throws ClassCastException if the operand isn't a number
+     */
+    public int getInt(int index)
+    {
+        checkNumber(index);
+        return types[index] == TYPE_FLOAT ? (int) Float.intBitsToFloat((int) values[index]) : (int) values[index];
+    }
+
+    /**
+     * Returns the operand at the given index, numbers are returned as new COSInteger or
+     * COSFloat objects.
+     *
+     * @param index the index of the operand
+     * @return the operand
+     */
+    public COSBase get(int index)
+    {
+        checkIndex(index);
+        switch (types[index])
+        {
+            case TYPE_INTEGER:
+                return COSInteger.get(values[index]);
+            case TYPE_FLOAT:
+                return new COSFloat(Float.intBitsToFloat((int) values[index]));
+            default:
+                return objects[index];
+        }
+    }
+
+    /**
+     * Returns the operands as list of COS objects, as used by
+     * {@link OperatorProcessor#process(PDFOperator, List)}.
+     *
+     * @return a new list containing the operands
+     */
+    public List<COSBase> toList()
+    {
+        List<COSBase> operands = new ArrayList<COSBase>(size);
+        for (int i = 0; i < size; i++)
+        {
+            operands.add(get(i));
+        }
+        return operands;
+    }
+
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private void checkNumber(int index)
+    {
+        if (!isNumber(index))
+        {
+            COSBase object = objects[index];
+            throw new ClassCastException("Operand " + index + " isn't a number: "
+                    + (object == null ? null : object.getClass().getName()));
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return toList().toString();
+    }
+}
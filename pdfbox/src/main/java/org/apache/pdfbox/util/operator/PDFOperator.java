@@ -29,12 +29,17 @@ import java.util.concurrent.ConcurrentHashMap;
 public class PDFOperator
 {
     private String theOperator;
+    private final int opcode;
     private byte[] imageData;
     private COSDictionary imageParameters;
 
     /** map for singleton operator objects; use {@link ConcurrentHashMap} for better scalability with multiple threads */
     private final static ConcurrentHashMap<String,PDFOperator> operators = new ConcurrentHashMap<String, PDFOperator>();
 
+    /** map for the opcodes of the operators, opcodes are assigned in the order the operators are first used */
+    private final static ConcurrentHashMap<String,Integer> opcodes = new ConcurrentHashMap<String, Integer>();
+    private static int nextOpcode = 0;
+
     /**
      * Constructor.
      *
@@ -47,6 +52,49 @@ public class PDFOperator
         {
             throw new RuntimeException( "Operators are not allowed to start with / '" + aOperator + "'" );
         }
+        opcode = getOpcode( aOperator );
+    }
+
+    /**
+     * This will get the opcode of an operator. The opcode is a small number which is
+     * the same for all operators with the same keyword, it can be used as index of an
+     * array instead of looking up the keyword in a map.
+     *
+     * @param operator The operator keyword.
+     *
+     * @return The opcode of the operator.
+     */
+    public static int getOpcode( String operator )
+    {
+        Integer code = opcodes.get( operator );
+        if( code == null )
+        {
+            // use the opcode of another thread which may have added the operator meanwhile
+            synchronized( opcodes )
+            {
+                code = opcodes.get( operator );
+                if( code == null )
+                {
+                    code = nextOpcode++;
+                    opcodes.put( operator, code );
+                }
+            }
+        }
+        return code;
+    }
+
+    /**
+     * This will get the opcode of an operator without assigning one to an operator which
+     * hasn't been used yet.
+     *
+     * @param operator The operator keyword.
+     *
+     * @return The opcode of the operator or -1 if the operator hasn't been used yet.
+     */
+    public static int findOpcode( String operator )
+    {
+        Integer code = opcodes.get( operator );
+        return code == null ? -1 : code;
     }
 
     /**
@@ -92,6 +140,16 @@ public class PDFOperator
         return theOperator;
     }
 
+    /**
+     * This will get the opcode of this operator.
+     *
+     * @return The opcode of the operator.
+     */
+    public int getOpcode()
+    {
+        return opcode;
+    }
+
     /**
      * This will print a string rep of this class.
      *
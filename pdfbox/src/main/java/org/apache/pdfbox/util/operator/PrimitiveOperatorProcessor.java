@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util.operator;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.pdfbox.cos.COSBase;
+
+/**
+ * An operator processor which reads its operands from an {@link OperandStack}, so that
+ * the {@link org.apache.pdfbox.util.PDFStreamEngine} doesn't have to create a list and
+ * COS objects for the numeric operands. It can still be called with a list of operands.
+ *
+ * Subclasses overriding one of the process methods have to override both.
+ */
+public abstract class PrimitiveOperatorProcessor extends OperatorProcessor
+{
+    /**
+     * Process the operator.
+     * @param operator the operator to process
+     * @param operands the operands to use when processing, only valid during this call
+     * @throws IOException if the operator cannot be processed
+     */
+    public abstract void process(PDFOperator operator, OperandStack operands) throws IOException;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void process(PDFOperator operator, List<COSBase> operands) throws IOException
+    {
+        OperandStack stack = new OperandStack();
+        stack.pushAll(operands);
+        process(operator, stack);
+    }
+}
@@ -16,11 +16,6 @@
  */
 package org.apache.pdfbox.util.operator;
 
-import java.util.List;
-
-import org.apache.pdfbox.cos.COSBase;
-import org.apache.pdfbox.cos.COSNumber;
-
 import java.io.IOException;
 
 /**
@@ -32,17 +27,17 @@ import java.io.IOException;
  * @version $Revision: 1.5 $
  */
 
-public class SetLineWidth extends OperatorProcessor
+public class SetLineWidth extends PrimitiveOperatorProcessor
 {
     /**
      * w Set line width.
      * @param operator The operator that is being executed.
-     * @param arguments List
+     * @param arguments The operands of the operator.
      * @throws IOException If an error occurs while processing the font.
      */
-    public void process(PDFOperator operator, List<COSBase> arguments) throws IOException
+    public void process(PDFOperator operator, OperandStack arguments) throws IOException
     {
-        COSNumber width = (COSNumber)arguments.get( 0 );
-        context.getGraphicsState().setLineWidth( width.floatValue() );
+        float width = arguments.getFloat(0);
+        context.getGraphicsState().setLineWidth( width );
     }
 }
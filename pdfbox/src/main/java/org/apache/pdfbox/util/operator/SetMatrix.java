@@ -16,10 +16,6 @@
  */
 package org.apache.pdfbox.util.operator;
 
-import java.util.List;
-
-import org.apache.pdfbox.cos.COSBase;
-import org.apache.pdfbox.cos.COSNumber;
 import org.apache.pdfbox.util.Matrix;
 
 /**
@@ -27,31 +23,31 @@ import org.apache.pdfbox.util.Matrix;
  * @version $Revision: 1.4 $
  */
 
-public class SetMatrix extends OperatorProcessor
+public class SetMatrix extends PrimitiveOperatorProcessor
 {
 
     /**
      * Tm Set text matrix and text line matrix.
      * @param operator The operator that is being executed.
-     * @param arguments List
+     * @param arguments The operands of the operator.
      */
-    public void process(PDFOperator operator, List<COSBase> arguments)
+    public void process(PDFOperator operator, OperandStack arguments)
     {
         //Set text matrix and text line matrix
-        COSNumber a = (COSNumber)arguments.get( 0 );
-        COSNumber b = (COSNumber)arguments.get( 1 );
-        COSNumber c = (COSNumber)arguments.get( 2 );
-        COSNumber d = (COSNumber)arguments.get( 3 );
-        COSNumber e = (COSNumber)arguments.get( 4 );
-        COSNumber f = (COSNumber)arguments.get( 5 );
+        float a = arguments.getFloat(0);
+        float b = arguments.getFloat(1);
+        float c = arguments.getFloat(2);
+        float d = arguments.getFloat(3);
+        float e = arguments.getFloat(4);
+        float f = arguments.getFloat(5);
 
         Matrix textMatrix = new Matrix();
-        textMatrix.setValue( 0, 0, a.floatValue() );
-        textMatrix.setValue( 0, 1, b.floatValue() );
-        textMatrix.setValue( 1, 0, c.floatValue() );
-        textMatrix.setValue( 1, 1, d.floatValue() );
-        textMatrix.setValue( 2, 0, e.floatValue() );
-        textMatrix.setValue( 2, 1, f.floatValue() );
+        textMatrix.setValue( 0, 0, a );
+        textMatrix.setValue( 0, 1, b );
+        textMatrix.setValue( 1, 0, c );
+        textMatrix.setValue( 1, 1, d );
+        textMatrix.setValue( 2, 0, e );
+        textMatrix.setValue( 2, 1, f );
         context.setTextMatrix( textMatrix );
         context.setTextLineMatrix( textMatrix.copy() );
     }
@@ -18,36 +18,34 @@ package org.apache.pdfbox.util.operator.pagedrawer;
 
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Point2D;
-import java.util.List;
 
-import org.apache.pdfbox.cos.COSBase;
-import org.apache.pdfbox.cos.COSNumber;
 import org.apache.pdfbox.rendering.PageDrawer;
 import org.apache.pdfbox.util.operator.PDFOperator;
-import org.apache.pdfbox.util.operator.OperatorProcessor;
+import org.apache.pdfbox.util.operator.OperandStack;
+import org.apache.pdfbox.util.operator.PrimitiveOperatorProcessor;
 
 /**
  * re Appends a rectangle to the path.
  * @author Ben Litchfield
  */
-public final class AppendRectangleToPath extends OperatorProcessor
+public final class AppendRectangleToPath extends PrimitiveOperatorProcessor
 {
     @Override
-    public void process(PDFOperator operator, List<COSBase> operands)
+    public void process(PDFOperator operator, OperandStack operands)
     {
         PageDrawer drawer = (PageDrawer)context;
 
-        COSNumber x = (COSNumber)operands.get(0);
-        COSNumber y = (COSNumber)operands.get(1);
-        COSNumber w = (COSNumber)operands.get(2);
-        COSNumber h = (COSNumber)operands.get(3);
+        double x = operands.getDouble(0);
+        double y = operands.getDouble(1);
+        double w = operands.getDouble(2);
+        double h = operands.getDouble(3);
 
-        double x1 = x.doubleValue();
-        double y1 = y.doubleValue();
+        double x1 = x;
+        double y1 = y;
 
         // create a pair of coordinates for the transformation
-        double x2 = w.doubleValue() + x1;
-        double y2 = h.doubleValue() + y1;
+        double x2 = w + x1;
+        double y2 = h + y1;
 
         Point2D startCoords = drawer.transformedPoint(x1, y1);
         Point2D endCoords = drawer.transformedPoint(x2, y2);
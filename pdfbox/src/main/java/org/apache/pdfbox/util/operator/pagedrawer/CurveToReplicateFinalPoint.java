@@ -16,33 +16,31 @@
  */
 package org.apache.pdfbox.util.operator.pagedrawer;
 
-import java.util.List;
 import java.awt.geom.Point2D;
 
-import org.apache.pdfbox.cos.COSBase;
-import org.apache.pdfbox.cos.COSNumber;
 import org.apache.pdfbox.rendering.PageDrawer;
 import org.apache.pdfbox.util.operator.PDFOperator;
-import org.apache.pdfbox.util.operator.OperatorProcessor;
+import org.apache.pdfbox.util.operator.OperandStack;
+import org.apache.pdfbox.util.operator.PrimitiveOperatorProcessor;
 
 /**
  * y Append curved segment to path with final point replicated.
  * @author Ben Litchfield
  */
-public final class CurveToReplicateFinalPoint extends OperatorProcessor
+public final class CurveToReplicateFinalPoint extends PrimitiveOperatorProcessor
 {
     @Override
-    public void process(PDFOperator operator, List<COSBase> operands)
+    public void process(PDFOperator operator, OperandStack operands)
     {
         PageDrawer drawer = (PageDrawer)context;
 
-        COSNumber x1 = (COSNumber)operands.get(0);
-        COSNumber y1 = (COSNumber)operands.get(1);
-        COSNumber x3 = (COSNumber)operands.get(2);
-        COSNumber y3 = (COSNumber)operands.get(3);
+        double x1 = operands.getDouble(0);
+        double y1 = operands.getDouble(1);
+        double x3 = operands.getDouble(2);
+        double y3 = operands.getDouble(3);
 
-        Point2D point1 = drawer.transformedPoint(x1.doubleValue(), y1.doubleValue());
-        Point2D point3 = drawer.transformedPoint(x3.doubleValue(), y3.doubleValue());
+        Point2D point1 = drawer.transformedPoint(x1, y1);
+        Point2D point3 = drawer.transformedPoint(x3, y3);
 
         drawer.getLinePath().curveTo((float)point1.getX(), (float)point1.getY(), 
                                      (float)point3.getX(), (float)point3.getY(),
@@ -18,34 +18,32 @@ package org.apache.pdfbox.util.operator.pagedrawer;
 
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Point2D;
-import java.util.List;
 
-import org.apache.pdfbox.cos.COSBase;
-import org.apache.pdfbox.cos.COSNumber;
 import org.apache.pdfbox.rendering.PageDrawer;
 import org.apache.pdfbox.util.operator.PDFOperator;
-import org.apache.pdfbox.util.operator.OperatorProcessor;
+import org.apache.pdfbox.util.operator.OperandStack;
+import org.apache.pdfbox.util.operator.PrimitiveOperatorProcessor;
 
 /**
  * v Append curved segment to path with the initial point replicated.
  * @author Ben Litchfield
  */
-public class CurveToReplicateInitialPoint extends OperatorProcessor
+public class CurveToReplicateInitialPoint extends PrimitiveOperatorProcessor
 {
     @Override
-    public void process(PDFOperator operator, List<COSBase> operands)
+    public void process(PDFOperator operator, OperandStack operands)
     {
         PageDrawer drawer = (PageDrawer)context;
 
-        COSNumber x2 = (COSNumber)operands.get(0 );
-        COSNumber y2 = (COSNumber)operands.get(1);
-        COSNumber x3 = (COSNumber)operands.get(2);
-        COSNumber y3 = (COSNumber)operands.get(3);
+        double x2 = operands.getDouble(0);
+        double y2 = operands.getDouble(1);
+        double x3 = operands.getDouble(2);
+        double y3 = operands.getDouble(3);
         GeneralPath path = drawer.getLinePath();
         Point2D currentPoint = path.getCurrentPoint();
 
-        Point2D point2 = drawer.transformedPoint(x2.doubleValue(), y2.doubleValue());
-        Point2D point3 = drawer.transformedPoint(x3.doubleValue(), y3.doubleValue());
+        Point2D point2 = drawer.transformedPoint(x2, y2);
+        Point2D point3 = drawer.transformedPoint(x3, y3);
 
         drawer.getLinePath().curveTo((float)currentPoint.getX(), (float)currentPoint.getY(),
                                      (float)point2.getX(),       (float)point2.getY(),
@@ -16,31 +16,29 @@
  */
 package org.apache.pdfbox.util.operator.pagedrawer;
 
-import java.util.List;
 import java.awt.geom.Point2D;
 
-import org.apache.pdfbox.cos.COSBase;
-import org.apache.pdfbox.cos.COSNumber;
 import org.apache.pdfbox.rendering.PageDrawer;
 import org.apache.pdfbox.util.operator.PDFOperator;
-import org.apache.pdfbox.util.operator.OperatorProcessor;
+import org.apache.pdfbox.util.operator.OperandStack;
+import org.apache.pdfbox.util.operator.PrimitiveOperatorProcessor;
 
 /**
  * l Append straight line segment to path.
  * @author Ben Litchfield
  */
-public class LineTo extends OperatorProcessor
+public class LineTo extends PrimitiveOperatorProcessor
 {
     @Override
-    public void process(PDFOperator operator, List<COSBase> operands)
+    public void process(PDFOperator operator, OperandStack operands)
     {
         PageDrawer drawer = (PageDrawer)context;
 
         // append straight line segment from the current point to the point
-        COSNumber x = (COSNumber)operands.get(0);
-        COSNumber y = (COSNumber)operands.get(1);
+        double x = operands.getDouble(0);
+        double y = operands.getDouble(1);
 
-        Point2D pos = drawer.transformedPoint(x.doubleValue(), y.doubleValue());
+        Point2D pos = drawer.transformedPoint(x, y);
         drawer.getLinePath().lineTo((float)pos.getX(), (float)pos.getY());
     }
 }
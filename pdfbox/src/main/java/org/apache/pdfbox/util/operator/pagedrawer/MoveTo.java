@@ -17,27 +17,25 @@
 package org.apache.pdfbox.util.operator.pagedrawer;
 
 import java.awt.geom.Point2D;
-import java.util.List;
 
-import org.apache.pdfbox.cos.COSBase;
-import org.apache.pdfbox.cos.COSNumber;
 import org.apache.pdfbox.rendering.PageDrawer;
 import org.apache.pdfbox.util.operator.PDFOperator;
-import org.apache.pdfbox.util.operator.OperatorProcessor;
+import org.apache.pdfbox.util.operator.OperandStack;
+import org.apache.pdfbox.util.operator.PrimitiveOperatorProcessor;
 
 /**
  * m Begins a new subpath.
  * @author Ben Litchfield
  */
-public final class MoveTo extends OperatorProcessor
+public final class MoveTo extends PrimitiveOperatorProcessor
 {
     @Override
-    public void process(PDFOperator operator, List<COSBase> operands)
+    public void process(PDFOperator operator, OperandStack operands)
     {
         PageDrawer drawer = (PageDrawer)context;
-        COSNumber x = (COSNumber)operands.get(0);
-        COSNumber y = (COSNumber)operands.get(1);
-        Point2D pos = drawer.transformedPoint(x.doubleValue(), y.doubleValue());
+        double x = operands.getDouble(0);
+        double y = operands.getDouble(1);
+        Point2D pos = drawer.transformedPoint(x, y);
         drawer.getLinePath().moveTo((float)pos.getX(), (float)pos.getY());
     }
 }
@@ -120,9 +120,8 @@ public class TestCOSFloat extends TestCOSNumber
         {
             float num = i * rnd.nextFloat();
             COSFloat testFloat = new COSFloat(num);
-            // compare the string representation instead of the numeric values 
-            // as the cast from float to double adds some more fraction digits
-            assertEquals(Float.toString(num), Double.toString(testFloat.doubleValue()));
+            // the value is stored as float, so the double value is the widened float
+            assertEquals((double) num, testFloat.doubleValue());
         }
     }
 
@@ -205,6 +204,57 @@ public class TestCOSFloat extends TestCOSNumber
         }
     }
 
+    /**
+     * Tests the values created from their string representation as done by the parser.
+     */
+    public void testParsedValues() throws IOException
+    {
+        assertEquals(1.5f, COSNumber.get("1.5").floatValue());
+        assertEquals(-0.25f, COSNumber.get("-.25").floatValue());
+
+        ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+        // the float reproduces the value of the text
+        ((COSFloat) COSNumber.get("1.50")).writePDF(outStream);
+        assertEquals("1.5", outStream.toString("ISO-8859-1"));
+        outStream.reset();
+        ((COSFloat) COSNumber.get("-0.001234500")).writePDF(outStream);
+        assertEquals("-0.0012345", outStream.toString("ISO-8859-1"));
+        outStream.reset();
+        // the parsed text is written unchanged if the float can't reproduce it
+        COSFloat precise = (COSFloat) COSNumber.get("0.123456789");
+        precise.writePDF(outStream);
+        assertEquals("0.123456789", outStream.toString("ISO-8859-1"));
+        outStream.reset();
+        // a modified value is written in its own textual form
+        precise.setValue(0.5f);
+        precise.writePDF(outStream);
+        assertEquals("0.5", outStream.toString("ISO-8859-1"));
+        outStream.reset();
+        // exponents are written in plain notation
+        ((COSFloat) COSNumber.get("1e-5")).writePDF(outStream);
+        assertEquals("0.00001", outStream.toString("ISO-8859-1"));
+
+        // values out of range are limited to the largest float value
+        assertEquals(Float.MAX_VALUE, COSNumber.get("1e50").floatValue());
+        assertEquals(-Float.MAX_VALUE, COSNumber.get("-1e50").floatValue());
+
+        // Float.parseFloat() accepts all of these
+        String[] invalid = { "1.2.3", "Infinity", "-Infinity", "NaN", "1.5f", "1.5d", " 1.5", "1.5 ",
+                "0x1p3", "1e", "1e+", "-.", "+-1.5" };
+        for (String number : invalid)
+        {
+            try
+            {
+                COSNumber.get(number);
+                fail("the invalid number '" + number + "' should fail");
+            }
+            catch (IOException exception)
+            {
+                // expected
+            }
+        }
+    }
+
     private String floatToString(float value)
     {
         // use a BigDecimal as intermediate state to avoid 
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.cos;
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests {@link COSName}.
+ */
+public class TestCOSName extends TestCase
+{
+    /**
+     * Tests the lookup of names given as bytes.
+     *
+     * @throws IOException if the bytes can't be encoded
+     */
+    public void testGetPDFNameFromBytes() throws IOException
+    {
+        byte[] buffer = "/Type/FontDescriptor/F12/A\u00e4B".getBytes("ISO-8859-1");
+        assertSame(COSName.TYPE, COSName.getPDFName(buffer, 1, 4));
+        assertSame(COSName.FONT_DESC, COSName.getPDFName(buffer, 6, 14));
+
+        COSName f12 = COSName.getPDFName(buffer, 21, 3);
+        assertEquals("F12", f12.getName());
+        assertSame(COSName.getPDFName("F12"), f12);
+        assertSame(f12, COSName.getPDFName(buffer, 21, 3));
+
+        COSName nonAscii = COSName.getPDFName(buffer, 25, 3);
+        assertEquals("A\u00e4B", nonAscii.getName());
+        assertSame(nonAscii, COSName.getPDFName(buffer, 25, 3));
+
+        assertTrue(COSName.getPDFName(buffer, 0, 0).isEmpty());
+    }
+}
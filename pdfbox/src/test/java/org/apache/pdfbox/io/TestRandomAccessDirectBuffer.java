@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.pdfbox.io;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * This is a unit test for {@link RandomAccessDirectBuffer}.
+ * 
+ */
+public class TestRandomAccessDirectBuffer extends TestCase
+{
+
+    private static final int BUFFER_SIZE = 16384;
+
+    /**
+     * This will test the {@link RandomAccessDirectBuffer#read()} 
+     * and {@link RandomAccessDirectBuffer#write(int)} method.
+     * 
+     * @throws IOException is thrown if something went wrong.
+     */
+    public void testSimpleReadWrite() throws IOException
+    {
+        RandomAccessDirectBuffer buffer = new RandomAccessDirectBuffer();
+        for (int i = 0; i < 10; i++)
+        {
+            buffer.write(i);
+        }
+        buffer.seek(0);
+        int result = 0;
+        for (int i = 0; i < 10; i++)
+        {
+            result += buffer.read();
+        }
+        assertEquals(45, result);
+        assertEquals(-1, buffer.read());
+        buffer.close();
+    }
+
+    /**
+     * This will test the {@link RandomAccessDirectBuffer#read(byte[], int, int)} 
+     * and {@link RandomAccessDirectBuffer#write(byte[], int, int)} method
+     * across chunk boundaries.
+     * 
+     * @throws IOException is thrown if something went wrong.
+     */
+    public void testArrayReadWrite() throws IOException
+    {
+        byte[] data = new byte[2 * BUFFER_SIZE + 10];
+        for (int i = 0; i < data.length; i++)
+        {
+            data[i] = (byte) (i % 127);
+        }
+        RandomAccessDirectBuffer buffer = new RandomAccessDirectBuffer();
+        buffer.write(data, 0, BUFFER_SIZE - 5);
+        buffer.write(data, BUFFER_SIZE - 5, data.length - BUFFER_SIZE + 5);
+        assertEquals(data.length, buffer.length());
+
+        buffer.seek(BUFFER_SIZE - 20);
+        byte[] result = new byte[BUFFER_SIZE + 10];
+        assertEquals(result.length, buffer.read(result, 0, result.length));
+        for (int i = 0; i < result.length; i++)
+        {
+            assertEquals(data[BUFFER_SIZE - 20 + i], result[i]);
+        }
+        // only the remaining bytes are returned at the end of the buffer
+        assertEquals(data.length - (BUFFER_SIZE - 20) - result.length,
+                buffer.read(result, 0, result.length));
+        assertEquals(-1, buffer.read(result, 0, result.length));
+        buffer.close();
+    }
+
+    /**
+     * This will test that a closed buffer can't be used anymore and that the
+     * released chunks can be reused.
+     * 
+     * @throws IOException is thrown if something went wrong.
+     */
+    public void testClose() throws IOException
+    {
+        RandomAccessDirectBuffer buffer = new RandomAccessDirectBuffer();
+        buffer.write(new byte[BUFFER_SIZE * 3], 0, BUFFER_SIZE * 3);
+        buffer.close();
+        try
+        {
+            buffer.read();
+            fail("read on a closed buffer should fail");
+        }
+        catch (IOException exception)
+        {
+            // expected
+        }
+        RandomAccessDirectBuffer other = new RandomAccessDirectBuffer();
+        other.write(42);
+        other.seek(0);
+        assertEquals(42, other.read());
+        assertEquals(1, other.length());
+        other.close();
+    }
+
+    /**
+     * This will test that the bytes skipped by seeking beyond the end are zeros,
+     * even if the chunks were used by another buffer before.
+     * 
+     * @throws IOException is thrown if something went wrong.
+     */
+    public void testGap() throws IOException
+    {
+        // the previous buffer takes all chunks of the pool left by the other tests
+        byte[] data = new byte[BUFFER_SIZE * 16];
+        Arrays.fill(data, (byte) 0x55);
+        RandomAccessDirectBuffer previous = new RandomAccessDirectBuffer();
+        previous.write(data, 0, data.length);
+        previous.close();
+
+        RandomAccessDirectBuffer buffer = new RandomAccessDirectBuffer();
+        buffer.write(1);
+        buffer.seek(BUFFER_SIZE + 10);
+        buffer.write(2);
+        buffer.seek(BUFFER_SIZE * 2 + 10);
+        buffer.write(data, 0, 5);
+        assertEquals(BUFFER_SIZE * 2 + 15, buffer.length());
+        buffer.seek(0);
+        byte[] result = new byte[BUFFER_SIZE * 2 + 15];
+        assertEquals(result.length, buffer.read(result, 0, result.length));
+        for (int i = 0; i < result.length; i++)
+        {
+            int expected = i == 0 ? 1 : i == BUFFER_SIZE + 10 ? 2 : i >= BUFFER_SIZE * 2 + 10 ? 0x55 : 0;
+            assertEquals("byte " + i, expected, result[i]);
+        }
+        buffer.close();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.pdfbox.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+/**
+ * This is a unit test for {@link RandomAccessMappedFileInputStream}.
+ * 
+ */
+public class TestRandomAccessMappedFileInputStream extends TestCase
+{
+
+    // the smallest allowed segment size, so that reads have to cross segments
+    private static final int SEGMENT_SHIFT = 10;
+
+    private File file;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp() throws Exception
+    {
+        // create a file filled with 3 1/2 segments of ascending values
+        byte[] content = new byte[(7 << SEGMENT_SHIFT) / 2];
+        for (int i = 0; i < content.length; i++)
+        {
+            content[i] = (byte) i;
+        }
+        file = File.createTempFile("pdfbox", ".bin");
+        FileOutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(content);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void tearDown() throws Exception
+    {
+        file.delete();
+    }
+
+    /**
+     * This will test the {@link RandomAccessMappedFileInputStream#read()}
+     * and {@link RandomAccessMappedFileInputStream#seek(long)} method.
+     * 
+     * @throws IOException is thrown if something went wrong.
+     */
+    public void testReadAndSeek() throws IOException
+    {
+        RandomAccessMappedFileInputStream input = new RandomAccessMappedFileInputStream(file, SEGMENT_SHIFT);
+        assertEquals(file.length(), input.length());
+        for (int i = 0; i < input.length(); i++)
+        {
+            assertEquals(i & 0xff, input.read());
+        }
+        assertEquals(-1, input.read());
+
+        input.seek(1023);
+        assertEquals(1023 & 0xff, input.read());
+        assertEquals(0, input.read());
+        assertEquals(1025, input.getPosition());
+        input.close();
+    }
+
+    /**
+     * This will test the {@link RandomAccessMappedFileInputStream#read(byte[], int, int)}
+     * method reading across segment boundaries.
+     * 
+     * @throws IOException is thrown if something went wrong.
+     */
+    public void testArrayRead() throws IOException
+    {
+        RandomAccessMappedFileInputStream input = new RandomAccessMappedFileInputStream(file, SEGMENT_SHIFT);
+        input.seek(500);
+        byte[] buffer = new byte[2500];
+        assertEquals(buffer.length, input.read(buffer, 0, buffer.length));
+        for (int i = 0; i < buffer.length; i++)
+        {
+            assertEquals((byte) (500 + i), buffer[i]);
+        }
+        // only the remaining bytes are returned at the end of the file
+        assertEquals(length() - 3000, input.read(buffer, 0, buffer.length));
+        assertEquals(-1, input.read(buffer, 0, buffer.length));
+        input.close();
+    }
+
+    /**
+     * This will test that a closed stream can't be read anymore.
+     * 
+     * @throws IOException is thrown if something went wrong.
+     */
+    public void testClose() throws IOException
+    {
+        RandomAccessMappedFileInputStream input = new RandomAccessMappedFileInputStream(file);
+        input.close();
+        try
+        {
+            input.read();
+            fail("read on a closed stream should fail");
+        }
+        catch (IOException exception)
+        {
+            // expected
+        }
+    }
+
+    private int length()
+    {
+        return (int) file.length();
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.pdfbox.io;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * This is a unit test for {@link ScratchFile} and {@link ScratchFileBuffer}.
+ *
+ */
+public class TestScratchFile extends TestCase
+{
+
+    private static final int PAGE_SIZE = ScratchFile.PAGE_SIZE;
+
+    /**
+     * This will test that pages beyond the memory budget are spilled to the
+     * temporary file and can be read back.
+     *
+     * @throws IOException is thrown if something went wrong.
+     */
+    public void testSpillToDisk() throws IOException
+    {
+        ScratchFile scratchFile = new ScratchFile(2 * PAGE_SIZE, null);
+        ScratchFileBuffer buffer = scratchFile.createBuffer();
+        byte[] data = new byte[5 * PAGE_SIZE + 100];
+        for (int i = 0; i < data.length; i++)
+        {
+            data[i] = (byte) (i % 251);
+        }
+        buffer.write(data, 0, data.length);
+        assertEquals(data.length, buffer.length());
+        assertEquals(2 * PAGE_SIZE, scratchFile.getMainMemoryBytes());
+        assertEquals(4 * PAGE_SIZE, scratchFile.getSpilledBytes());
+
+        // read across memory and disk pages
+        buffer.seek(PAGE_SIZE - 10);
+        byte[] result = new byte[3 * PAGE_SIZE];
+        assertEquals(result.length, buffer.read(result, 0, result.length));
+        for (int i = 0; i < result.length; i++)
+        {
+            assertEquals(data[PAGE_SIZE - 10 + i], result[i]);
+        }
+        buffer.seek(data.length - 1);
+        assertEquals(data[data.length - 1] & 0xff, buffer.read());
+        assertEquals(-1, buffer.read());
+        scratchFile.close();
+    }
+
+    /**
+     * This will test that pages of a closed buffer are released and reused.
+     *
+     * @throws IOException is thrown if something went wrong.
+     */
+    public void testRelease() throws IOException
+    {
+        ScratchFile scratchFile = new ScratchFile(4 * PAGE_SIZE, null);
+        ScratchFileBuffer first = scratchFile.createBuffer();
+        ScratchFileBuffer second = scratchFile.createBuffer();
+        first.write(new byte[3 * PAGE_SIZE], 0, 3 * PAGE_SIZE);
+        second.write(new byte[2 * PAGE_SIZE], 0, 2 * PAGE_SIZE);
+        assertEquals(4 * PAGE_SIZE, scratchFile.getMainMemoryBytes());
+        assertEquals(PAGE_SIZE, scratchFile.getSpilledBytes());
+
+        first.close();
+        assertEquals(PAGE_SIZE, scratchFile.getMainMemoryBytes());
+
+        // the released memory can be used by other buffers
+        ScratchFileBuffer third = scratchFile.createBuffer();
+        for (int i = 0; i < 3 * PAGE_SIZE; i++)
+        {
+            third.write(i);
+        }
+        assertEquals(4 * PAGE_SIZE, scratchFile.getMainMemoryBytes());
+        third.seek(2 * PAGE_SIZE + 1);
+        assertEquals((2 * PAGE_SIZE + 1) & 0xff, third.read());
+
+        second.close();
+        third.close();
+        assertEquals(0, scratchFile.getMainMemoryBytes());
+        assertEquals(0, scratchFile.getSpilledBytes());
+        try
+        {
+            third.read();
+            fail("read on a closed buffer should fail");
+        }
+        catch (IOException exception)
+        {
+            // expected
+        }
+        scratchFile.close();
+    }
+
+    /**
+     * This will test that a reused page of the temporary file doesn't show the
+     * data of the buffer which used it before.
+     *
+     * @throws IOException is thrown if something went wrong.
+     */
+    public void testReusedDiskPage() throws IOException
+    {
+        ScratchFile scratchFile = new ScratchFile(0, null);
+        // keeps the temporary file open
+        ScratchFileBuffer other = scratchFile.createBuffer();
+        other.write(3);
+        ScratchFileBuffer previous = scratchFile.createBuffer();
+        byte[] data = new byte[2 * PAGE_SIZE];
+        Arrays.fill(data, (byte) 0x55);
+        previous.write(data, 0, data.length);
+        previous.close();
+
+        ScratchFileBuffer buffer = scratchFile.createBuffer();
+        buffer.write(1);
+        buffer.seek(PAGE_SIZE + 10);
+        buffer.write(2);
+        assertEquals(0, scratchFile.getMainMemoryBytes());
+        buffer.seek(0);
+        byte[] result = new byte[PAGE_SIZE + 11];
+        assertEquals(result.length, buffer.read(result, 0, result.length));
+        for (int i = 0; i < result.length; i++)
+        {
+            int expected = i == 0 ? 1 : i == PAGE_SIZE + 10 ? 2 : 0;
+            assertEquals("byte " + i, expected, result[i]);
+        }
+        other.seek(0);
+        assertEquals(3, other.read());
+        scratchFile.close();
+    }
+
+    /**
+     * This will test the memory budget shared by all scratch files.
+     *
+     * @throws IOException is thrown if something went wrong.
+     */
+    public void testGlobalBudget() throws IOException
+    {
+        long globalMax = ScratchFile.getGlobalMaxMainMemoryBytes();
+        try
+        {
+            ScratchFile.setGlobalMaxMainMemoryBytes(ScratchFile.getGlobalMainMemoryBytes() + PAGE_SIZE);
+            ScratchFile first = new ScratchFile();
+            ScratchFile second = new ScratchFile();
+            first.createBuffer().write(1);
+            second.createBuffer().write(2);
+            assertEquals(PAGE_SIZE, first.getMainMemoryBytes());
+            assertEquals(0, second.getMainMemoryBytes());
+            assertEquals(PAGE_SIZE, second.getSpilledBytes());
+            first.close();
+            second.close();
+        }
+        finally
+        {
+            ScratchFile.setGlobalMaxMainMemoryBytes(globalMax);
+        }
+    }
+}
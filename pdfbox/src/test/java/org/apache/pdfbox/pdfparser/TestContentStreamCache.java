@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.io.RandomAccessBuffer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.util.PDFTextStripper;
+
+/**
+ * Tests {@link CompiledContentStream} and {@link ContentStreamCache}.
+ */
+public class TestContentStreamCache extends TestCase
+{
+    /**
+     * Tests that the compiled stream returns the tokens of the stream.
+     *
+     * @throws IOException if the stream can't be compiled
+     */
+    public void testCompile() throws IOException
+    {
+        COSStream stream = createStream("1 0 0 1 10.5 -20 cm BT /F1 12 Tf (Hello) Tj [(a) -5 (b)] TJ ET 3 4");
+        CompiledContentStream compiled = CompiledContentStream.compile(stream, true);
+        assertNull(compiled.getError());
+        assertEquals(6, compiled.getOperatorCount());
+        assertEquals("cm", compiled.getOperator(0).getOperation());
+        assertEquals("ET", compiled.getOperator(5).getOperation());
+        assertTrue(compiled.getOpcode(0) != compiled.getOpcode(1));
+
+        List<COSBase> operands = new ArrayList<COSBase>();
+        compiled.getOperands(0, operands);
+        assertEquals(6, operands.size());
+        assertEquals(COSInteger.ONE, operands.get(0));
+        assertEquals(new COSFloat(10.5f), operands.get(4));
+        assertEquals(COSInteger.get(-20), operands.get(5));
+
+        assertEquals(0, compiled.getOperandCount(1));
+        operands.clear();
+        compiled.getOperands(2, operands);
+        assertEquals(COSName.getPDFName("F1"), operands.get(0));
+        assertEquals(COSInteger.get(12), operands.get(1));
+        operands.clear();
+        compiled.getOperands(3, operands);
+        assertEquals("Hello", ((COSString) operands.get(0)).getString());
+        operands.clear();
+        compiled.getOperands(4, operands);
+        assertEquals(3, ((COSArray) operands.get(0)).size());
+    }
+
+    /**
+     * Tests that the least recently used streams are evicted.
+     *
+     * @throws IOException if a stream can't be compiled
+     */
+    public void testEviction() throws IOException
+    {
+        COSStream stream1 = createStream("0 0 m 10 10 l S");
+        COSStream stream2 = createStream("0 0 m 20 20 l S");
+        long size = CompiledContentStream.compile(stream1, true).getSize();
+        ContentStreamCache cache = new ContentStreamCache(size * 2 - 1);
+
+        CompiledContentStream compiled1 = cache.get(stream1, true);
+        assertSame(compiled1, cache.get(stream1, true));
+        assertEquals(1, cache.getHits());
+        assertEquals(size, cache.getSize());
+
+        cache.get(stream2, true);
+        assertEquals(1, cache.getStreamCount());
+        assertEquals(2, cache.getMisses());
+        assertNotSame(compiled1, cache.get(stream1, true));
+
+        cache.remove(stream1);
+        assertEquals(0, cache.getStreamCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    /**
+     * Tests that replaying the compiled streams gives the same text as parsing the streams.
+     *
+     * @throws IOException if the document can't be processed
+     */
+    public void testTextExtraction() throws IOException
+    {
+        PDDocument document = PDDocument.load(new File("src/test/resources/input/cweb.pdf"));
+        try
+        {
+            String expected = new PDFTextStripper().getText(document);
+            ContentStreamCache cache = new ContentStreamCache();
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setContentStreamCache(cache);
+            assertEquals(expected, stripper.getText(document));
+            long misses = cache.getMisses();
+            assertTrue(misses > 0);
+            assertEquals(expected, stripper.getText(document));
+            assertEquals(misses, cache.getMisses());
+            assertTrue(cache.getHits() >= misses);
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    private COSStream createStream(String content) throws IOException
+    {
+        COSStream stream = new COSStream(new RandomAccessBuffer());
+        OutputStream output = stream.createUnfilteredStream();
+        output.write(content.getBytes("ISO-8859-1"));
+        output.close();
+        return stream;
+    }
+}
@@ -22,14 +22,29 @@
 package org.apache.pdfbox.pdfparser;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSDocument;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.io.RandomAccessBuffer;
+import org.apache.pdfbox.io.RandomAccessFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.persistence.util.COSObjectKey;
+import org.apache.pdfbox.util.PDFTextStripper;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -80,6 +95,201 @@ public class TestNonSequentialPDFParser {
 		executeParserTest(nsp);
 	}
 
+	@Test
+	public void testNonSequentialPDFParserMemoryMapped() throws IOException {
+		NonSequentialPDFParser nsp = new NonSequentialPDFParser(new File(PATH_OF_PDF), new RandomAccessBuffer(), "", true);
+		executeParserTest(nsp);
+	}
+
+	@Test
+	public void testNonSequentialPDFParserSourceBackedStreams() throws IOException {
+		NonSequentialPDFParser nsp = new NonSequentialPDFParser(new File(PATH_OF_PDF), new RandomAccessBuffer());
+		nsp.setUseSourceBackedStreams(true);
+		executeParserTest(nsp);
+		PDPage page = (PDPage) nsp.getPDDocument().getDocumentCatalog().getAllPages().get(0);
+		COSStream contents = page.getContents().getStream();
+		assertTrue(contents.isSourceBacked());
+		// the content can still be decoded after the parser has closed its input
+		assertTrue(contents.getUnfilteredStream().read() != -1);
+		nsp.getPDDocument().close();
+	}
+
+	@Test
+	public void testNonSequentialPDFParserReadOnly() throws Exception {
+		final PDDocument doc = PDDocument.loadReadOnly(new File(PATH_OF_PDF), new RandomAccessBuffer(), "");
+		assertTrue(doc.getDocument().isReadOnly());
+		final int numberOfPages = doc.getNumberOfPages();
+		final String[] expected = new String[numberOfPages];
+		for (int i = 0; i < numberOfPages; i++) {
+			expected[i] = extractText(doc, i + 1);
+		}
+		// extract the pages concurrently, several times each
+		final String[] actual = new String[numberOfPages * 4];
+		final Exception[] errors = new Exception[actual.length];
+		Thread[] threads = new Thread[actual.length];
+		for (int i = 0; i < threads.length; i++) {
+			final int index = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						actual[index] = extractText(doc, index % numberOfPages + 1);
+					} catch (Exception e) {
+						errors[index] = e;
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+			if (errors[i] != null) {
+				throw errors[i];
+			}
+			assertEquals(expected[i % numberOfPages], actual[i]);
+		}
+		doc.close();
+	}
+
+	@Test
+	public void testNonSequentialPDFParserObjectStreamExecutor() throws IOException {
+		// a document using object streams
+		File file = new File("src/test/resources/input/sampleForSpec.pdf");
+		NonSequentialPDFParser nsp = new NonSequentialPDFParser(file, new RandomAccessBuffer());
+		nsp.parse();
+		PDDocument expected = nsp.getPDDocument();
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			nsp = new NonSequentialPDFParser(file, new RandomAccessBuffer());
+			nsp.setObjectStreamExecutor(executor);
+			executeParserTest(nsp);
+			PDDocument actual = nsp.getPDDocument();
+			assertEquals(expected.getNumberOfPages(), actual.getNumberOfPages());
+			assertEquals(new PDFTextStripper().getText(expected), new PDFTextStripper().getText(actual));
+			actual.close();
+		} finally {
+			executor.shutdown();
+			expected.close();
+		}
+	}
+
+	@Test
+	public void testNonSequentialPDFParserObjectStreamsUpfront() throws IOException {
+		byte[] pdf = createObjectStreamsDocument();
+		// the objects within the object streams aren't referenced, so they are only parsed upfront
+		NonSequentialPDFParser nsp = new NonSequentialPDFParser(new ByteArrayInputStream(pdf));
+		executeParserTest(nsp);
+		assertFalse(nsp.getDocument().getObjectFromPool(new COSObjectKey(4, 0)).isLoaded());
+		nsp.getDocument().close();
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		// the streams are copied to and decoded from a scratch file shared by the parser and the tasks
+		File scratchFile = File.createTempFile("scratch", ".bin");
+		RandomAccessFile scratch = new RandomAccessFile(scratchFile, "rw");
+		try {
+			nsp = new NonSequentialPDFParser(new ByteArrayInputStream(pdf), scratch, "");
+			nsp.setObjectStreamExecutor(executor);
+			executeParserTest(nsp);
+			COSDocument document = nsp.getDocument();
+			for (int number : new int[] { 4, 5, 7, 8 }) {
+				COSObject object = document.getObjectFromPool(new COSObjectKey(number, 0));
+				assertTrue(object.isLoaded());
+				assertEquals(number, ((COSDictionary) object.getObject()).getInt("Value"));
+			}
+			document.close();
+		} finally {
+			executor.shutdown();
+			scratch.close();
+			scratchFile.delete();
+		}
+	}
+
+	/**
+	 * Creates a document with the objects 4 and 5 in the object stream 3 and the objects
+	 * 7 and 8 in the object stream 6, which are referenced by an xref stream.
+	 */
+	private static byte[] createObjectStreamsDocument() throws IOException {
+		StringBuilder pdf = new StringBuilder("%PDF-1.5\n");
+		int[] offsets = new int[10];
+		offsets[1] = pdf.length();
+		pdf.append("1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n");
+		offsets[2] = pdf.length();
+		pdf.append("2 0 obj\n<< /Type /Pages /Kids [] /Count 0 >>\nendobj\n");
+		for (int objstm = 3; objstm <= 6; objstm += 3) {
+			String first = "<< /Value " + (objstm + 1) + " >>\n";
+			String second = "<< /Value " + (objstm + 2) + " >>\n";
+			String header = (objstm + 1) + " 0 " + (objstm + 2) + " " + first.length() + "\n";
+			String data = header + first + second;
+			offsets[objstm] = pdf.length();
+			pdf.append(objstm).append(" 0 obj\n<< /Type /ObjStm /N 2 /First ").append(header.length())
+					.append(" /Length ").append(data.length()).append(" >>\nstream\n")
+					.append(data).append("\nendstream\nendobj\n");
+		}
+		offsets[9] = pdf.length();
+		// the entries have a type of 1 byte, an offset or object stream of 4 bytes and 2 more bytes
+		StringBuilder entries = new StringBuilder();
+		for (int number = 0; number < 10; number++) {
+			if (number == 0) {
+				appendEntry(entries, 0, 0, 65535);
+			} else if (offsets[number] > 0) {
+				appendEntry(entries, 1, offsets[number], 0);
+			} else {
+				appendEntry(entries, 2, number < 6 ? 3 : 6, (number - 1) % 3);
+			}
+		}
+		pdf.append("9 0 obj\n<< /Type /XRef /Size 10 /W [1 4 2] /Root 1 0 R /Length ")
+				.append(entries.length()).append(" >>\nstream\n").append(entries)
+				.append("\nendstream\nendobj\nstartxref\n").append(offsets[9]).append("\n%%EOF\n");
+		return pdf.toString().getBytes("ISO-8859-1");
+	}
+
+	private static void appendEntry(StringBuilder entries, int type, int field2, int field3) {
+		entries.append((char) type);
+		for (int shift = 24; shift >= 0; shift -= 8) {
+			entries.append((char) ((field2 >> shift) & 0xff));
+		}
+		entries.append((char) ((field3 >> 8) & 0xff)).append((char) (field3 & 0xff));
+	}
+
+	@Test
+	public void testNonSequentialPDFParserRevisions() throws IOException {
+		// a linearized document with two incremental updates
+		File file = new File("src/test/resources/org/apache/pdfbox/pdmodel/test_pagelabels.pdf");
+		NonSequentialPDFParser nsp = new NonSequentialPDFParser(file, new RandomAccessBuffer());
+		executeParserTest(nsp);
+		List<PDFRevision> revisions = nsp.getRevisions();
+		assertEquals(3, revisions.size());
+		assertEquals(0, revisions.get(0).getStartOffset());
+		assertEquals(revisions.get(0).getEndOffset(), revisions.get(1).getStartOffset());
+		assertEquals(revisions.get(1).getEndOffset(), revisions.get(2).getStartOffset());
+		assertEquals(file.length(), revisions.get(2).getEndOffset());
+		assertEquals(12, nsp.getPDDocument().getNumberOfPages());
+		nsp.getPDDocument().close();
+
+		// the original document only has the first page
+		nsp = new NonSequentialPDFParser(file, new RandomAccessBuffer());
+		nsp.setRevision(revisions.get(0));
+		executeParserTest(nsp);
+		assertEquals(1, nsp.getRevisions().size());
+		assertEquals(1, nsp.getPDDocument().getNumberOfPages());
+		nsp.getPDDocument().close();
+
+		nsp = new NonSequentialPDFParser(file, new RandomAccessBuffer());
+		nsp.setRevision(revisions.get(1));
+		executeParserTest(nsp);
+		assertEquals(2, nsp.getRevisions().size());
+		assertEquals(12, nsp.getPDDocument().getNumberOfPages());
+		nsp.getPDDocument().close();
+	}
+
+	private static String extractText(PDDocument doc, int page) throws IOException {
+		PDFTextStripper stripper = new PDFTextStripper();
+		stripper.setStartPage(page);
+		stripper.setEndPage(page);
+		return stripper.getText(doc);
+	}
+
 	@Test
 	public void testNonSequentialPDFParserInputStream() throws IOException {
 		NonSequentialPDFParser nsp = new NonSequentialPDFParser(new FileInputStream(PATH_OF_PDF));
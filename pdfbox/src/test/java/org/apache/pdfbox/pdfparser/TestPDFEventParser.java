@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.persistence.util.COSObjectKey;
+
+/**
+ * Tests {@link PDFEventParser}.
+ */
+public class TestPDFEventParser extends TestCase
+{
+    private static final String PDF = "%PDF-1.4\n"
+            + "1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n"
+            + "2 0 obj\n<< /Type /Pages /Kids [3 0 R] /Count 1 /MediaBox [0 0 612 792] >>\nendobj\n"
+            + "3 0 obj\n<</Type/Page/Parent 2 0 R/Contents 4 0 R>>\nendobj\n"
+            + "4 0 obj\n<< /Length 5 >>\nstream\nBT ET\nendstream\nendobj\n"
+            + "5 0 obj\n(Hello)\nendobj\n"
+            + "xref\n0 2\n0000000000 65535 f\r\n0000000009 00000 n\r\n"
+            + "trailer\n<< /Size 6 /Root 1 0 R >>\nstartxref\n250\n%%EOF\n";
+
+    /**
+     * Tests the events reported for a small document.
+     *
+     * @throws IOException if the document can't be parsed
+     */
+    public void testEvents() throws IOException
+    {
+        final StringBuilder events = new StringBuilder();
+        PDFEventParser parser = new PDFEventParser(new ByteArrayInputStream(PDF.getBytes("ISO-8859-1")));
+        parser.parse(new PDFEventListener()
+        {
+            public void startObject(long number, int generation, long offset)
+            {
+                events.append("obj(").append(number).append(' ').append(generation).append(')');
+            }
+
+            public void endObject()
+            {
+                events.append("endobj\n");
+            }
+
+            public void startDictionary()
+            {
+                events.append("<<");
+            }
+
+            public void key(COSName key)
+            {
+                events.append(" /").append(key.getName());
+            }
+
+            public void endDictionary()
+            {
+                events.append(" >>");
+            }
+
+            public void startArray()
+            {
+                events.append(" [");
+            }
+
+            public void endArray()
+            {
+                events.append(" ]");
+            }
+
+            public void value(COSBase value)
+            {
+                if (value instanceof COSName)
+                {
+                    events.append(" /").append(((COSName) value).getName());
+                }
+                else if (value instanceof COSNumber)
+                {
+                    events.append(' ').append(((COSNumber) value).intValue());
+                }
+                else if (value instanceof COSString)
+                {
+                    events.append(" (").append(((COSString) value).getString()).append(')');
+                }
+            }
+
+            public void reference(long number, int generation)
+            {
+                events.append(" ref(").append(number).append(' ').append(generation).append(')');
+            }
+
+            public void startStream(long offset)
+            {
+                events.append(" stream(").append(PDF.substring((int) offset, (int) offset + 5)).append(')');
+            }
+
+            public void endStream(long length)
+            {
+                events.append(" endstream(").append(length).append(')');
+            }
+
+            public void xref(long offset)
+            {
+                events.append("xref ").append(offset);
+            }
+
+            public void xrefEntry(long number, int generation, long offset, boolean inUse)
+            {
+                events.append(' ').append(number).append(':').append(offset).append(inUse ? 'n' : 'f');
+            }
+
+            public void trailer(long offset)
+            {
+                events.append("\ntrailer");
+            }
+
+            public void startxref(long offset)
+            {
+                events.append("\nstartxref ").append(offset);
+            }
+        });
+        assertEquals("obj(1 0)<< /Type /Catalog /Pages ref(2 0) >>endobj\n"
+                + "obj(2 0)<< /Type /Pages /Kids [ ref(3 0) ] /Count 1 /MediaBox [ 0 0 612 792 ] >>endobj\n"
+                + "obj(3 0)<< /Type /Page /Parent ref(2 0) /Contents ref(4 0) >>endobj\n"
+                + "obj(4 0)<< /Length 5 >> stream(BT ET) endstream(6)endobj\n"
+                + "obj(5 0) (Hello)endobj\n"
+                + "xref " + PDF.indexOf("xref") + " 0:0f 1:9n\n"
+                + "trailer<< /Size 6 /Root ref(1 0) >>\n"
+                + "startxref 250", events.toString());
+    }
+
+    /**
+     * Tests finding the pages of documents with and without object streams.
+     *
+     * @throws IOException if a document can't be parsed
+     */
+    public void testFindObjectsOfType() throws IOException
+    {
+        Map<COSObjectKey, Long> pages = PDFEventParser.findObjectsOfType(
+                new ByteArrayInputStream(PDF.getBytes("ISO-8859-1")), COSName.PAGE);
+        assertEquals(1, pages.size());
+        assertEquals(Long.valueOf(PDF.indexOf("3 0 obj")), pages.get(new COSObjectKey(3, 0)));
+
+        pages = PDFEventParser.findObjectsOfType(new FileInputStream(
+                "src/test/resources/org/apache/pdfbox/pdfparser/gdb-refcard.pdf"), COSName.PAGE);
+        assertEquals(2, pages.size());
+
+        // the page is contained in an object stream
+        pages = PDFEventParser.findObjectsOfType(new FileInputStream(
+                "src/test/resources/input/ImageIOUtil/JBIG2Image.pdf"), COSName.PAGE);
+        assertEquals(1, pages.size());
+        assertEquals(Long.valueOf(-16), pages.get(new COSObjectKey(9, 0)));
+    }
+}
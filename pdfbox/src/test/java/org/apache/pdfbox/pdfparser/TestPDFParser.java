@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSDocument;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.persistence.util.COSObjectKey;
+import org.apache.pdfbox.util.PDFTextStripper;
+
+/**
+ * Tests {@link PDFParser}.
+ */
+public class TestPDFParser extends TestCase
+{
+    private static final String PATH = "src/test/resources/";
+
+    /**
+     * Tests that a document parsed lazily has the same content as a document parsed as usual.
+     *
+     * @throws IOException if a document can't be parsed
+     */
+    public void testLazyParsing() throws IOException
+    {
+        // incremental updates
+        assertLazyParsing("org/apache/pdfbox/pdmodel/test_pagelabels.pdf");
+        // object streams
+        assertLazyParsing("input/sampleForSpec.pdf");
+        assertLazyParsing("input/cweb.pdf");
+    }
+
+    /**
+     * Tests that the objects are loaded when they are accessed.
+     *
+     * @throws IOException if the document can't be parsed
+     */
+    public void testLoadOnAccess() throws IOException
+    {
+        String pdf = "%PDF-1.4\n"
+                + "1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n"
+                + "2 0 obj\n<< /Type /Pages /Kids [3 0 R] /Count 1 >>\nendobj\n"
+                + "3 0 obj\n<< /Type /Page /Parent 2 0 R /MediaBox [0 0 612 792] /Contents 4 0 R >>\nendobj\n"
+                + "4 0 obj\n<< /Length 5 >>\nstream\nBT ET\nendstream\nendobj\n"
+                + "xref\n0 1\n0000000000 65535 f\r\n"
+                + "trailer\n<< /Size 5 /Root 1 0 R >>\n";
+        pdf += "startxref\n" + pdf.indexOf("xref") + "\n%%EOF\n";
+        PDFParser parser = new PDFParser(new ByteArrayInputStream(pdf.getBytes("ISO-8859-1")));
+        parser.setLazyParsing(true);
+        parser.parse();
+        assertTrue(parser.isLazyParsing());
+        COSDocument document = parser.getDocument();
+        COSObject page = document.getObjectFromPool(new COSObjectKey(3, 0));
+        assertFalse(page.isLoaded());
+        COSObject contents = (COSObject) page.getItem(COSName.CONTENTS);
+        assertTrue(page.isLoaded());
+        assertSame(document.getObjectFromPool(new COSObjectKey(4, 0)), contents);
+        assertFalse(contents.isLoaded());
+        assertTrue(contents.getObject() instanceof COSStream);
+        assertTrue(contents.isLoaded());
+        assertEquals(1, new PDDocument(document).getNumberOfPages());
+        document.close();
+    }
+
+    /**
+     * Tests that the end of the objects is found by scanning them when parsing lazily.
+     *
+     * @throws IOException if the document can't be parsed
+     */
+    public void testScanObjects() throws IOException
+    {
+        String pdf = "%PDF-1.4\n"
+                + "1 0 obj\n<< /Type /Catalog /Pages 2 0 R /Title (endobj) >>\nendobj\n"
+                + "2 0 obj\n<< /Type /Pages /Kids [3 0 R] % endobj\n/Count 1 >>\nendobj\n"
+                + "3 0 obj\n<< /Type /Page /Parent 2 0 R /Contents [4 0 R 5 0 R] >>\nendobj\n"
+                + "4 0 obj\n<< /Length 21 /Filter [] >>\nstream\n(endstream endobj) Tj\nendstream\nendobj\n"
+                + "5 0 obj\n<< /Length 6 0 R >>\nstream\nBT ET\nendstream\nendobj\n"
+                + "6 0 obj\n5\n"
+                + "7 0 obj\n<< /A (a \\) stream) /B <656e646f626a> >>endobj"
+                + "8 0 obj\n[<< /Length 1 >>]\nendobj\n"
+                + "xref\n0 1\n0000000000 65535 f\r\n"
+                + "trailer\n<< /Size 9 /Root 1 0 R >>\n";
+        pdf += "startxref\n" + pdf.indexOf("xref") + "\n%%EOF\n";
+        PDFParser parser = new PDFParser(new ByteArrayInputStream(pdf.getBytes("ISO-8859-1")));
+        parser.setLazyParsing(true);
+        parser.parse();
+        assertTrue(parser.isLazyParsing());
+        COSDocument document = parser.getDocument();
+        try
+        {
+            // the objects referenced by objects which weren't loaded yet aren't created
+            COSObject contents = document.getObjectFromPool(new COSObjectKey(4, 0));
+            assertFalse(contents.isLoaded());
+            assertEquals("(endstream endobj) Tj", getData((COSStream) contents.getObject()));
+            COSObject length = document.getObjectFromPool(new COSObjectKey(6, 0));
+            assertEquals(COSInteger.get(5), length.getObject());
+            COSObject stream = document.getObjectFromPool(new COSObjectKey(5, 0));
+            assertEquals("BT ET", getData((COSStream) stream.getObject()).trim());
+            COSObject dictionary = document.getObjectFromPool(new COSObjectKey(7, 0));
+            assertTrue(dictionary.getObject() instanceof COSDictionary);
+            assertEquals("endobj", ((COSDictionary) dictionary.getObject()).getString("B"));
+            assertTrue(document.getObjectFromPool(new COSObjectKey(8, 0)).getObject() instanceof COSArray);
+            assertEquals(1, new PDDocument(document).getNumberOfPages());
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    /**
+     * Tests that the source is closed if it can't be copied when parsing lazily.
+     *
+     * @throws IOException if the parser can't be created
+     */
+    public void testLazyParsingReadError() throws IOException
+    {
+        final boolean[] closed = new boolean[1];
+        InputStream source = new InputStream()
+        {
+            @Override
+            public int read() throws IOException
+            {
+                throw new IOException("read error");
+            }
+
+            @Override
+            public void close()
+            {
+                closed[0] = true;
+            }
+        };
+        PDFParser parser = new PDFParser(source);
+        parser.setLazyParsing(true);
+        try
+        {
+            parser.parse();
+            fail("the read error wasn't reported");
+        }
+        catch (IOException e)
+        {
+            assertTrue(closed[0]);
+        }
+    }
+
+    private static String getData(COSStream stream) throws IOException
+    {
+        return new String(IOUtils.toByteArray(stream.getUnfilteredStream()), "ISO-8859-1");
+    }
+
+    private void assertLazyParsing(String name) throws IOException
+    {
+        PDFParser parser = new PDFParser(new FileInputStream(PATH + name));
+        parser.parse();
+        PDDocument expected = parser.getPDDocument();
+
+        parser = new PDFParser(new FileInputStream(PATH + name));
+        parser.setLazyParsing(true);
+        parser.parse();
+        assertTrue(name, parser.isLazyParsing());
+        PDDocument actual = parser.getPDDocument();
+        // the file is read directly instead of being copied
+        PDDocument direct = PDDocument.loadLazy(new File(PATH + name), null);
+        try
+        {
+            String text = new PDFTextStripper().getText(expected);
+            assertEquals(name, expected.getNumberOfPages(), actual.getNumberOfPages());
+            assertEquals(name, text, new PDFTextStripper().getText(actual));
+            assertEquals(name, expected.getNumberOfPages(), direct.getNumberOfPages());
+            assertEquals(name, text, new PDFTextStripper().getText(direct));
+        }
+        finally
+        {
+            expected.close();
+            actual.close();
+            direct.close();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.RandomAccessBuffer;
+import org.apache.pdfbox.util.operator.OperandStack;
+import org.apache.pdfbox.util.operator.PDFOperator;
+
+/**
+ * Tests {@link PDFStreamParser}.
+ */
+public class TestPDFStreamParser extends TestCase
+{
+    /**
+     * Tests that the operand stack gets the same operands as the token list.
+     *
+     * @throws IOException if the stream can't be parsed
+     */
+    public void testParseNextOperator() throws IOException
+    {
+        String content = "q 1 0 0 1 -72.5 +36 cm /GS1 gs 0.1 .5 -.25 5. rg [1 2] 0 d "
+                + "BT /F1 12 Tf (Hello) Tj [(a) -5 (b)] TJ ET 3 - . 0.000000000001 9007199254740993 S";
+        List<List<COSBase>> expected = parseTokens(content);
+        PDFStreamParser parser = createParser(content);
+        OperandStack operands = new OperandStack();
+        int index = 0;
+        PDFOperator operator;
+        while ((operator = parser.parseNextOperator(operands)) != null)
+        {
+            assertEquals(operator.getOperation(), expected.get(index).toString(), operands.toList().toString());
+            operands.clear();
+            index++;
+        }
+        assertEquals(expected.size(), index);
+        parser.close();
+    }
+
+    /**
+     * Tests that numbers are parsed to the same values as by {@link COSFloat}.
+     *
+     * @throws IOException if the stream can't be parsed
+     */
+    public void testNumbers() throws IOException
+    {
+        Random random = new Random(1234);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 10000; i++)
+        {
+            if (random.nextBoolean())
+            {
+                content.append('-');
+            }
+            int digits = random.nextInt(12);
+            int dot = random.nextInt(digits + 1);
+            for (int j = 0; j <= digits; j++)
+            {
+                if (j == dot)
+                {
+                    content.append('.');
+                }
+                content.append((char) ('0' + random.nextInt(10)));
+            }
+            content.append(" n ");
+        }
+        List<List<COSBase>> expected = parseTokens(content.toString());
+        PDFStreamParser parser = createParser(content.toString());
+        OperandStack operands = new OperandStack();
+        for (List<COSBase> operandList : expected)
+        {
+            assertNotNull(parser.parseNextOperator(operands));
+            assertEquals(1, operands.size());
+            assertEquals(((COSFloat) operandList.get(0)).floatValue(), operands.getFloat(0));
+            operands.clear();
+        }
+        parser.close();
+    }
+
+    /**
+     * Tests that filtered operators and inline images are skipped.
+     *
+     * @throws IOException if the stream can't be parsed
+     */
+    public void testOperatorFilter() throws IOException
+    {
+        String content = "BT /F1 12 Tf 0 0 m 10 10 l S BI /W 2 /H 1 /BPC 8 /CS /G ID \u00ffEI\u0000 EI "
+                + "q [1 2] 0 d (Hello) Tj ET";
+        BitSet filter = new BitSet();
+        filter.set(PDFOperator.getOpcode("Tf"));
+        filter.set(PDFOperator.getOpcode("Tj"));
+        filter.set(PDFOperator.getOpcode("ET"));
+        PDFStreamParser parser = createParser(content);
+        parser.setOperatorFilter(filter);
+        OperandStack operands = new OperandStack();
+        assertEquals("Tf", parser.parseNextOperator(operands).getOperation());
+        assertEquals("[COSName{F1}, COSInt{12}]", operands.toString());
+        operands.clear();
+        assertEquals("Tj", parser.parseNextOperator(operands).getOperation());
+        assertEquals(1, operands.size());
+        operands.clear();
+        assertEquals("ET", parser.parseNextOperator(operands).getOperation());
+        assertEquals(0, operands.size());
+        assertNull(parser.parseNextOperator(operands));
+        parser.close();
+
+        filter.set(PDFOperator.getOpcode("BI"));
+        parser = createParser(content);
+        parser.setOperatorFilter(filter);
+        assertEquals("Tf", parser.parseNextOperator(operands).getOperation());
+        operands.clear();
+        PDFOperator image = parser.parseNextOperator(operands);
+        assertEquals("BI", image.getOperation());
+        assertEquals(5, image.getImageData().length);
+        assertEquals(4, image.getImageParameters().size());
+        parser.close();
+    }
+
+    /**
+     * Tests the accessors of the operand stack.
+     */
+    public void testOperandStack()
+    {
+        OperandStack operands = new OperandStack();
+        operands.pushInteger(3);
+        operands.pushFloat(1.5f);
+        operands.push(COSName.getPDFName("F1"));
+        assertEquals(3, operands.size());
+        assertEquals(3, operands.getInt(0));
+        assertEquals(1.5, operands.getDouble(1), 0);
+        assertEquals(1, operands.getInt(1));
+        assertTrue(operands.isNumber(1));
+        assertFalse(operands.isNumber(2));
+        assertEquals(COSInteger.THREE, operands.get(0));
+        assertEquals(COSName.getPDFName("F1"), operands.get(2));
+        try
+        {
+            operands.getFloat(2);
+            fail("a name isn't a number");
+        }
+        catch (ClassCastException e)
+        {
+            // expected
+        }
+        operands.clear();
+        try
+        {
+            operands.getFloat(0);
+            fail("the stack is empty");
+        }
+        catch (IndexOutOfBoundsException e)
+        {
+            // expected
+        }
+    }
+
+    private List<List<COSBase>> parseTokens(String content) throws IOException
+    {
+        List<List<COSBase>> operands = new ArrayList<List<COSBase>>();
+        List<COSBase> current = new ArrayList<COSBase>();
+        PDFStreamParser parser = createParser(content);
+        Iterator<Object> iter = parser.getTokenIterator();
+        while (iter.hasNext())
+        {
+            Object token = iter.next();
+            if (token instanceof PDFOperator)
+            {
+                operands.add(current);
+                current = new ArrayList<COSBase>();
+            }
+            else if (token instanceof COSFloat)
+            {
+                // the operand stack keeps the values of reals, not their parsed text
+                current.add(new COSFloat(((COSFloat) token).floatValue()));
+            }
+            else
+            {
+                current.add((COSBase) token);
+            }
+        }
+        parser.close();
+        return operands;
+    }
+
+    private PDFStreamParser createParser(String content) throws IOException
+    {
+        return new PDFStreamParser(new ByteArrayInputStream(content.getBytes("ISO-8859-1")),
+                new RandomAccessBuffer());
+    }
+}
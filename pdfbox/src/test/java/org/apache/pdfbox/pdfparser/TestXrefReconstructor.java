@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdfparser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessBuffer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.persistence.util.COSObjectKey;
+import org.apache.pdfbox.util.PDFTextStripper;
+
+/**
+ * Tests {@link XrefReconstructor} and the parsing of files with a damaged cross reference.
+ */
+public class TestXrefReconstructor extends TestCase
+{
+    private static final File XREF_TABLE_PDF = new File("src/test/resources/org/apache/pdfbox/pdfparser/gdb-refcard.pdf");
+    private static final File XREF_STREAM_PDF = new File("src/test/resources/input/sampleForSpec.pdf");
+
+    /**
+     * Tests that the scan finds the objects of the xref table, regardless of the chunk size.
+     *
+     * @throws IOException if the file can't be read
+     */
+    public void testReconstruct() throws IOException
+    {
+        NonSequentialPDFParser parser = new NonSequentialPDFParser(XREF_TABLE_PDF, new RandomAccessBuffer());
+        parser.parse();
+        Map<COSObjectKey, Long> xrefTable = parser.getDocument().getXrefTable();
+        parser.getPDDocument().close();
+
+        for (int chunkSize : new int[] { 0, 50, 1000, 4096 })
+        {
+            XrefReconstructor reconstructor = new XrefReconstructor(XREF_TABLE_PDF, chunkSize);
+            reconstructor.reconstruct();
+            Map<COSObjectKey, Long> objects = reconstructor.getObjectOffsets();
+            for (Map.Entry<COSObjectKey, Long> entry : xrefTable.entrySet())
+            {
+                if (entry.getValue() > 0)
+                {
+                    assertEquals("chunk size " + chunkSize, entry.getValue(), objects.get(entry.getKey()));
+                }
+            }
+            assertEquals(1, reconstructor.getTrailerOffsets().size());
+            assertTrue(reconstructor.getXrefStreamOffsets().isEmpty());
+            assertNotNull(reconstructor.getCatalog());
+        }
+
+        XrefReconstructor reconstructor = new XrefReconstructor(XREF_STREAM_PDF, 100);
+        reconstructor.reconstruct();
+        assertFalse(reconstructor.getXrefStreamOffsets().isEmpty());
+        assertNotNull(reconstructor.getCatalog());
+    }
+
+    /**
+     * Tests that files without a valid startxref are parsed using the reconstructed xref.
+     *
+     * @throws IOException if a file can't be parsed
+     */
+    public void testDamagedStartxref() throws IOException
+    {
+        assertDamagedFileParsed(XREF_TABLE_PDF);
+        assertDamagedFileParsed(XREF_STREAM_PDF);
+    }
+
+    /**
+     * Tests that the interrupt status is kept if the scan is interrupted while waiting for the chunks.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    public void testInterrupted() throws InterruptedException
+    {
+        final XrefReconstructor reconstructor = new XrefReconstructor(XREF_TABLE_PDF, 1000);
+        final CountDownLatch submitted = new CountDownLatch(1);
+        // the chunks are never scanned, so the reconstructor waits until it is interrupted
+        reconstructor.setExecutor(new Executor()
+        {
+            public void execute(Runnable command)
+            {
+                submitted.countDown();
+            }
+        });
+        final Throwable[] error = new Throwable[1];
+        final boolean[] interrupted = new boolean[1];
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    reconstructor.reconstruct();
+                }
+                catch (Throwable e)
+                {
+                    error[0] = e;
+                }
+                interrupted[0] = Thread.interrupted();
+            }
+        };
+        thread.start();
+        assertTrue(submitted.await(10, TimeUnit.SECONDS));
+        // wait until the thread is blocked on the result of the first chunk
+        long deadline = System.currentTimeMillis() + 10000;
+        while (thread.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(1);
+        }
+        assertEquals(Thread.State.WAITING, thread.getState());
+        thread.interrupt();
+        thread.join(10000);
+        assertFalse(thread.isAlive());
+
+        assertTrue(String.valueOf(error[0]), error[0] instanceof IOException);
+        assertTrue(String.valueOf(error[0].getCause()), error[0].getCause() instanceof InterruptedException);
+        assertTrue(interrupted[0]);
+    }
+
+    private void assertDamagedFileParsed(File file) throws IOException
+    {
+        FileInputStream input = new FileInputStream(file);
+        byte[] bytes = IOUtils.toByteArray(input);
+        input.close();
+
+        // overwrite the startxref keyword and its offset
+        String content = new String(bytes, "ISO-8859-1");
+        int start = content.lastIndexOf("startxref");
+        int end = content.lastIndexOf("%%EOF");
+        for (int i = start; i < end; i++)
+        {
+            bytes[i] = ' ';
+        }
+        File damaged = File.createTempFile("damaged", ".pdf");
+        try
+        {
+            FileOutputStream output = new FileOutputStream(damaged);
+            output.write(bytes);
+            output.close();
+
+            PDDocument expected = PDDocument.loadNonSeq(file, null);
+            PDDocument actual = PDDocument.loadNonSeq(damaged, null);
+            assertEquals(expected.getNumberOfPages(), actual.getNumberOfPages());
+            assertEquals(new PDFTextStripper().getText(expected), new PDFTextStripper().getText(actual));
+            expected.close();
+            actual.close();
+        }
+        finally
+        {
+            damaged.delete();
+        }
+    }
+}
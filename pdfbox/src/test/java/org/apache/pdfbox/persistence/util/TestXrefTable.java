@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.persistence.util;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the {@link XrefTable} class.
+ */
+public class TestXrefTable extends TestCase
+{
+    /**
+     * Compares the table with a HashMap for random operations.
+     */
+    public void testRandomOperations()
+    {
+        Random random = new Random(4711);
+        Map<COSObjectKey, Long> expected = new HashMap<COSObjectKey, Long>();
+        XrefTable table = new XrefTable();
+        for (int i = 0; i < 20000; i++)
+        {
+            COSObjectKey key = new COSObjectKey(random.nextInt(3000), random.nextInt(3));
+            if (random.nextInt(4) == 0)
+            {
+                assertEquals(expected.remove(key), table.remove(key));
+            }
+            else
+            {
+                long offset = random.nextInt(1000000) - 1000;
+                assertEquals(expected.put(key, offset), table.put(key, offset));
+            }
+            assertEquals(expected.size(), table.size());
+        }
+        assertEquals(expected, table);
+        for (int number = 0; number < 3000; number++)
+        {
+            COSObjectKey key = new COSObjectKey(number, 0);
+            assertEquals(expected.get(key), table.get(key));
+            assertEquals(expected.containsKey(key), table.containsKey(number, 0));
+        }
+    }
+
+    /**
+     * Checks keys which can't be packed into a long.
+     */
+    public void testUnusualKeys()
+    {
+        XrefTable table = new XrefTable();
+        table.setOffset(5, 0, 100);
+        table.setOffset(-3, 0, 200);
+        table.setOffset(7, 70000, 300);
+        assertEquals(3, table.size());
+        assertEquals(100, table.getOffset(5, 0, -1));
+        assertEquals(200, table.getOffset(-3, 0, -1));
+        assertEquals(Long.valueOf(300), table.get(new COSObjectKey(7, 70000)));
+        assertEquals(-1, table.getOffset(7, 0, -1));
+
+        XrefTable copy = new XrefTable();
+        copy.putAll(table);
+        assertEquals(table, copy);
+        assertEquals(Long.valueOf(200), copy.remove(new COSObjectKey(-3, 0)));
+        assertEquals(2, copy.size());
+        assertEquals(3, table.size());
+    }
+
+    /**
+     * Removes entries while iterating, each entry must be visited exactly once.
+     */
+    public void testIteratorRemove()
+    {
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++)
+        {
+            XrefTable table = new XrefTable();
+            Map<COSObjectKey, Long> expected = new HashMap<COSObjectKey, Long>();
+            for (int i = 0; i < 500; i++)
+            {
+                COSObjectKey key = new COSObjectKey(random.nextInt(2000) - 5, random.nextInt(10) == 0 ? 70000 : 0);
+                long offset = random.nextInt(1000000);
+                table.put(key, offset);
+                expected.put(key, offset);
+            }
+            int size = table.size();
+            Set<COSObjectKey> visited = new HashSet<COSObjectKey>();
+            Iterator<Map.Entry<COSObjectKey, Long>> iterator = table.entrySet().iterator();
+            while (iterator.hasNext())
+            {
+                Map.Entry<COSObjectKey, Long> entry = iterator.next();
+                assertTrue(entry.getKey().toString(), visited.add(entry.getKey()));
+                if (random.nextBoolean())
+                {
+                    iterator.remove();
+                    expected.remove(entry.getKey());
+                }
+            }
+            assertEquals(size, visited.size());
+            assertEquals(expected, table);
+        }
+        Iterator<Map.Entry<COSObjectKey, Long>> iterator = new XrefTable().entrySet().iterator();
+        try
+        {
+            iterator.remove();
+            fail("remove before next");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+    }
+}
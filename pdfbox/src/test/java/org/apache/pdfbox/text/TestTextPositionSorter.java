@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.text;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.util.Matrix;
+
+/**
+ * Tests that {@link TextPositionSorter} gives the same order as the {@link TextPositionComparator}.
+ */
+public class TestTextPositionSorter extends TestCase
+{
+    /**
+     * Tests lines of text in all directions with slightly varying baselines and heights.
+     */
+    public void testLines()
+    {
+        Random random = new Random(17);
+        for (int round = 0; round < 200; round++)
+        {
+            List<TextPosition> positions = new ArrayList<TextPosition>();
+            int lines = 1 + random.nextInt(20);
+            for (int i = 0; i < lines * 10; i++)
+            {
+                int line = random.nextInt(lines);
+                float y = 700 - line * 14 + random.nextInt(3) * 0.03f;
+                float x = random.nextInt(50) * 6;
+                int quarterTurns = random.nextInt(4);
+                // the lines of vertical text are columns on the page
+                if (quarterTurns % 2 == 0)
+                {
+                    positions.add(createPosition(quarterTurns, x, y, 8 + random.nextInt(3)));
+                }
+                else
+                {
+                    positions.add(createPosition(quarterTurns, y - 200, x + 200, 8 + random.nextInt(3)));
+                }
+            }
+            assertSameOrder(positions);
+        }
+    }
+
+    /**
+     * Tests overlapping positions, which usually don't form consistent lines.
+     */
+    public void testOverlapping()
+    {
+        Random random = new Random(23);
+        for (int round = 0; round < 200; round++)
+        {
+            List<TextPosition> positions = new ArrayList<TextPosition>();
+            int count = 2 + random.nextInt(40);
+            for (int i = 0; i < count; i++)
+            {
+                float x = random.nextInt(20) * 5;
+                float y = 600 + random.nextFloat() * 50;
+                positions.add(createPosition(random.nextInt(2), x, y, random.nextFloat() * 20));
+            }
+            assertSameOrder(positions);
+        }
+    }
+
+    /**
+     * Tests a table with 50,000 glyphs in many dense lines.
+     */
+    public void testLargePage()
+    {
+        List<TextPosition> positions = new ArrayList<TextPosition>();
+        Random random = new Random(5);
+        for (int row = 0; row < 500; row++)
+        {
+            for (int column = 0; column < 100; column++)
+            {
+                float y = 780 - row * 1.5f + random.nextInt(2) * 0.05f;
+                positions.add(createPosition(0, column * 6, y, 1.2f));
+            }
+        }
+        Collections.shuffle(positions, random);
+        assertSameOrder(positions);
+    }
+
+    private void assertSameOrder(List<TextPosition> positions)
+    {
+        List<TextPosition> expected = new ArrayList<TextPosition>(positions);
+        sortWithComparator(expected);
+        List<TextPosition> actual = new ArrayList<TextPosition>(positions);
+        TextPositionSorter.sort(actual);
+        // TextPosition doesn't override equals, so the identities are compared
+        assertEquals(expected, actual);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void sortWithComparator(List<TextPosition> positions)
+    {
+        Collections.sort(positions, new TextPositionComparator());
+    }
+
+    /**
+     * Creates a position on a letter page, rotated by the given number of quarter turns.
+     * It's used by {@link TextPositionSorterBenchmark} as well.
+     */
+    static TextPosition createPosition(int quarterTurns, float x, float y, float height)
+    {
+        float[][] rotations = { { 1, 0, 0, 1 }, { 0, 1, -1, 0 }, { -1, 0, 0, -1 }, { 0, -1, 1, 0 } };
+        float[] rotation = rotations[quarterTurns];
+        Matrix matrix = new Matrix();
+        matrix.setValue(0, 0, rotation[0] * 10);
+        matrix.setValue(0, 1, rotation[1] * 10);
+        matrix.setValue(1, 0, rotation[2] * 10);
+        matrix.setValue(1, 1, rotation[3] * 10);
+        matrix.setValue(2, 0, x);
+        matrix.setValue(2, 1, y);
+        return new TextPosition(0, 612, 792, matrix, x + 5, y, height, 5, 2.5f, "a",
+                PDType1Font.HELVETICA, 10, 10);
+    }
+}
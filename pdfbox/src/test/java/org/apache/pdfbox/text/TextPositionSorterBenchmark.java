@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.text;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the time needed by {@link TextPositionSorter} and by sorting with the
+ * {@link TextPositionComparator} on a table with 50,000 glyphs in dense lines. It isn't
+ * run by the unit tests, start it with the test classpath:
+ * <pre>
+ * java org.apache.pdfbox.text.TextPositionSorterBenchmark [rounds]
+ * </pre>
+ */
+public class TextPositionSorterBenchmark
+{
+    private static final int WARM_UP_ROUNDS = 10;
+
+    private TextPositionSorterBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of measured rounds, 20 by default
+     */
+    public static void main(String[] args)
+    {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        List<TextPosition> positions = createTable();
+
+        for (int i = 0; i < WARM_UP_ROUNDS; i++)
+        {
+            sortWithComparator(new ArrayList<TextPosition>(positions));
+            TextPositionSorter.sort(new ArrayList<TextPosition>(positions));
+        }
+
+        long comparatorTime = 0;
+        long sorterTime = 0;
+        for (int i = 0; i < rounds; i++)
+        {
+            List<TextPosition> copy = new ArrayList<TextPosition>(positions);
+            long start = System.nanoTime();
+            sortWithComparator(copy);
+            comparatorTime += System.nanoTime() - start;
+
+            copy = new ArrayList<TextPosition>(positions);
+            start = System.nanoTime();
+            TextPositionSorter.sort(copy);
+            sorterTime += System.nanoTime() - start;
+        }
+
+        System.out.println("Glyphs : " + positions.size());
+        System.out.println("TextPositionComparator (ms) : " + comparatorTime / rounds / 1000000.0);
+        System.out.println("TextPositionSorter (ms) : " + sorterTime / rounds / 1000000.0);
+        System.out.println("Speedup : " + (float) comparatorTime / sorterTime);
+    }
+
+    /**
+     * Creates the table of {@link TestTextPositionSorter#testLargePage()}: 500 lines with
+     * 100 glyphs each, whose baselines vary slightly, in random order.
+     */
+    private static List<TextPosition> createTable()
+    {
+        List<TextPosition> positions = new ArrayList<TextPosition>();
+        Random random = new Random(5);
+        for (int row = 0; row < 500; row++)
+        {
+            for (int column = 0; column < 100; column++)
+            {
+                float y = 780 - row * 1.5f + random.nextInt(2) * 0.05f;
+                positions.add(TestTextPositionSorter.createPosition(0, column * 6, y, 1.2f));
+            }
+        }
+        Collections.shuffle(positions, random);
+        return positions;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void sortWithComparator(List<TextPosition> positions)
+    {
+        Collections.sort(positions, new TextPositionComparator());
+    }
+}
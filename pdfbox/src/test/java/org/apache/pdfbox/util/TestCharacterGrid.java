@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests {@link CharacterGrid}.
+ */
+public class TestCharacterGrid extends TestCase
+{
+    /**
+     * Tests the bounds of the tolerance range.
+     */
+    public void testRange()
+    {
+        CharacterGrid grid = new CharacterGrid();
+        assertFalse(grid.containsNear("a", 10, 10, 2));
+        grid.add("a", 10, 10);
+        assertTrue(grid.containsNear("a", 10, 10, 2));
+        assertTrue(grid.containsNear("a", 11.5f, 8.5f, 2));
+        // the lower bound is inclusive, the upper bound exclusive
+        assertTrue(grid.containsNear("a", 12, 12, 2));
+        assertFalse(grid.containsNear("a", 8, 10, 2));
+        assertFalse(grid.containsNear("a", 10, 10, 0));
+        assertFalse(grid.containsNear("b", 10, 10, 2));
+        assertTrue(grid.containsNear("a", 500, 500, Float.POSITIVE_INFINITY));
+        assertFalse(grid.containsNear("a", 10, 10, Float.NaN));
+        grid.clear();
+        assertFalse(grid.containsNear("a", 10, 10, 2));
+    }
+
+    /**
+     * Tests that the grid finds the same characters as sorted maps of the coordinates.
+     */
+    public void testRandomPositions()
+    {
+        Random random = new Random(42);
+        CharacterGrid grid = new CharacterGrid();
+        Map<String, TreeMap<Float, TreeSet<Float>>> expected = new HashMap<String, TreeMap<Float, TreeSet<Float>>>();
+        for (int i = 0; i < 20000; i++)
+        {
+            String character = String.valueOf((char) ('a' + random.nextInt(4)));
+            float x = random.nextInt(2000) / 4f - 100;
+            float y = random.nextInt(2000) / 4f - 100;
+            float tolerance = random.nextInt(5) == 0 ? random.nextFloat() * 200 : random.nextFloat() * 5;
+            TreeMap<Float, TreeSet<Float>> positions = expected.get(character);
+            if (positions == null)
+            {
+                positions = new TreeMap<Float, TreeSet<Float>>();
+                expected.put(character, positions);
+            }
+            boolean found = false;
+            for (TreeSet<Float> ys : positions.subMap(x - tolerance, x + tolerance).values())
+            {
+                if (!ys.subSet(y - tolerance, y + tolerance).isEmpty())
+                {
+                    found = true;
+                    break;
+                }
+            }
+            assertEquals(found, grid.containsNear(character, x, y, tolerance));
+            if (!found)
+            {
+                TreeSet<Float> ys = positions.get(x);
+                if (ys == null)
+                {
+                    ys = new TreeSet<Float>();
+                    positions.put(x, ys);
+                }
+                ys.add(y);
+                grid.add(character, x, y);
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+/**
+ * Tests the decoding of glyphs with a {@link DecodedGlyphCache}.
+ */
+public class TestDecodedGlyphCache extends TestCase
+{
+    /**
+     * Tests that the text is the same with and without cache and that the glyphs of a font are
+     * shared by the pages.
+     *
+     * @throws IOException if the document can't be created or processed
+     */
+    public void testTextExtraction() throws IOException
+    {
+        PDDocument document = new PDDocument();
+        try
+        {
+            document.addPage(createPage(document, "BT /F1 12 Tf 100 700 Td (Hello World) Tj ET"));
+            document.addPage(createPage(document, "BT /F1 10 Tf 100 700 Td [(Hello) -250 (Page)] TJ ET"));
+
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setDecodedGlyphCache(null);
+            String expected = stripper.getText(document);
+            assertTrue(expected, expected.contains("Hello World"));
+
+            stripper = new PDFTextStripper();
+            DecodedGlyphCache cache = stripper.getDecodedGlyphCache();
+            assertNotNull(cache);
+            assertEquals(expected, stripper.getText(document));
+            assertEquals(1, cache.getFontCount());
+            // H e l o W r d P a g and the space
+            assertEquals(11, cache.getMisses());
+            assertEquals(20 - 11, cache.getHits());
+
+            // the glyphs are kept for further calls with the same document
+            assertEquals(expected, stripper.getText(document));
+            assertEquals(11, cache.getMisses());
+            assertEquals(40 - 11, cache.getHits());
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    /**
+     * Tests that the glyphs are removed when the text of another document is extracted.
+     *
+     * @throws IOException if the documents can't be created or processed
+     */
+    public void testOtherDocument() throws IOException
+    {
+        PDDocument first = new PDDocument();
+        PDDocument second = new PDDocument();
+        try
+        {
+            first.addPage(createPage(first, "BT /F1 12 Tf 100 700 Td (Hello) Tj ET"));
+            second.addPage(createPage(second, "BT /F1 12 Tf 100 700 Td (Page) Tj ET"));
+            PDFTextStripper stripper = new PDFTextStripper();
+            DecodedGlyphCache cache = stripper.getDecodedGlyphCache();
+            stripper.getText(first);
+            assertEquals(1, cache.getFontCount());
+            String text = stripper.getText(second);
+            assertTrue(text, text.contains("Page"));
+            assertEquals(1, cache.getFontCount());
+            // H e l o, then P a g e again as the glyphs of the first document were removed
+            assertEquals(8, cache.getMisses());
+        }
+        finally
+        {
+            first.close();
+            second.close();
+        }
+    }
+
+    /**
+     * Tests that single and two byte codes give the same results as the font.
+     *
+     * @throws IOException if a glyph can't be decoded
+     */
+    public void testCodes() throws IOException
+    {
+        PDFont font = PDType1Font.TIMES_ROMAN;
+        DecodedGlyphCache cache = new DecodedGlyphCache();
+        DecodedGlyphCache.FontGlyphs glyphs = cache.getGlyphs(font);
+        assertSame(glyphs, cache.getGlyphs(PDType1Font.TIMES_ROMAN));
+        Random random = new Random(3);
+        byte[] string = new byte[2];
+        for (int i = 0; i < 5000; i++)
+        {
+            random.nextBytes(string);
+            int length = 1 + random.nextInt(2);
+            assertEquals(font.encode(string, 0, length), glyphs.encode(string, 0, length));
+            // the metrics may be requested in any order
+            if (random.nextBoolean())
+            {
+                assertEquals(font.getFontHeight(string, 0, length), glyphs.getFontHeight(string, 0, length));
+                assertEquals(font.getFontWidth(string, 0, length), glyphs.getFontWidth(string, 0, length));
+            }
+            else
+            {
+                assertEquals(font.getFontWidth(string, 0, length), glyphs.getFontWidth(string, 0, length));
+                assertEquals(font.getFontHeight(string, 0, length), glyphs.getFontHeight(string, 0, length));
+            }
+        }
+        assertEquals(5000, cache.getHits() + cache.getMisses());
+        assertTrue(cache.getHits() > 0);
+        cache.clear();
+        assertEquals(0, cache.getFontCount());
+    }
+
+    private PDPage createPage(PDDocument document, String content) throws IOException
+    {
+        PDResources resources = new PDResources();
+        resources.addFont(PDType1Font.HELVETICA, "F1");
+        PDPage page = new PDPage();
+        page.setResources(resources);
+        PDStream stream = new PDStream(document);
+        OutputStream output = stream.createOutputStream();
+        output.write(content.getBytes("ISO-8859-1"));
+        output.close();
+        page.setContents(stream);
+        return page;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+
+/**
+ * Tests the replay of the text of Form XObjects by {@link FormXObjectCache}.
+ */
+public class TestFormXObjectCache extends TestCase
+{
+    /**
+     * Tests that forms drawn at several positions give the same text as without cache and that
+     * forms which don't restore the graphics state aren't replayed.
+     *
+     * @throws IOException if the document can't be created or processed
+     */
+    public void testTextExtraction() throws IOException
+    {
+        PDDocument document = new PDDocument();
+        try
+        {
+            PDResources resources = new PDResources();
+            resources.addFont(PDType1Font.HELVETICA, "F1");
+            Map<String, PDXObject> xobjects = new HashMap<String, PDXObject>();
+            xobjects.put("Fm1", createForm(document, "q BT /F1 12 Tf 0 0 Td (Logo) Tj ET Q"));
+            xobjects.put("Fm2", createForm(document, "1 0 0 1 5 5 cm BT /F1 10 Tf 0 0 Td (Moved) Tj ET"));
+            resources.setXObjects(xobjects);
+            PDPage page = new PDPage();
+            page.setResources(resources);
+            page.setContents(createStream(document, "q 1 0 0 1 100 700 cm /Fm1 Do Q "
+                    + "q 1 0 0 1 100 600 cm /Fm1 Do Q q 1 0 0 1 300 600 cm /Fm1 Do Q "
+                    + "q 1 0 0 1 100 500 cm /Fm2 Do Q q 1 0 0 1 100 400 cm /Fm2 Do Q "
+                    + "BT /F1 12 Tf 100 300 Td (Page) Tj ET"));
+            document.addPage(page);
+
+            String expected = new PDFTextStripper().getText(document);
+            assertTrue(expected, expected.contains("Logo Logo"));
+            FormXObjectCache cache = new FormXObjectCache();
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setFormXObjectCache(cache);
+            assertEquals(expected, stripper.getText(document));
+            assertEquals(2, cache.getHits());
+            assertEquals(3, cache.getMisses());
+            assertEquals(1, cache.getFormCount());
+            assertEquals(expected, stripper.getText(document));
+            assertEquals(5, cache.getHits());
+            assertTrue(cache.getContentStreamCache().getStreamCount() > 0);
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    private PDFormXObject createForm(PDDocument document, String content) throws IOException
+    {
+        PDFormXObject form = new PDFormXObject(createStream(document, content));
+        form.setBBox(new PDRectangle(200, 50));
+        PDResources resources = new PDResources();
+        resources.addFont(PDType1Font.HELVETICA, "F1");
+        form.setResources(resources);
+        return form;
+    }
+
+    private PDStream createStream(PDDocument document, String content) throws IOException
+    {
+        PDStream stream = new PDStream(document);
+        OutputStream output = stream.createOutputStream();
+        output.write(content.getBytes("ISO-8859-1"));
+        output.close();
+        return stream;
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.text.TextPosition;
+import org.apache.pdfbox.util.operator.OperandStack;
+import org.apache.pdfbox.util.operator.PDFOperator;
+
+/**
+ * Tests the collection of glyphs in a {@link GlyphBuffer}.
+ */
+public class TestGlyphBuffer extends TestCase
+{
+    /**
+     * Tests that the text is the same with and without a glyph buffer.
+     *
+     * @throws IOException if the document can't be created or processed
+     */
+    public void testTextExtraction() throws IOException
+    {
+        PDDocument document = createDocument();
+        try
+        {
+            String expected = new PDFTextStripper().getText(document);
+            assertTrue(expected, expected.contains("Hello World"));
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setGlyphBuffer(new GlyphBuffer());
+            assertEquals(expected, stripper.getText(document));
+            stripper.setSortByPosition(true);
+            assertEquals(expected, stripper.getText(document));
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    /**
+     * Tests that the columns of the buffer match the text positions of the glyphs.
+     *
+     * @throws IOException if the document can't be created or processed
+     */
+    public void testColumns() throws IOException
+    {
+        PDDocument document = createDocument();
+        try
+        {
+            final List<TextPosition> positions = new ArrayList<TextPosition>();
+            new PDFTextStripper()
+            {
+                @Override
+                protected void processTextPosition(TextPosition text)
+                {
+                    positions.add(text);
+                }
+            }.getText(document);
+
+            final StringBuilder text = new StringBuilder();
+            final List<Float> xs = new ArrayList<Float>();
+            PDFTextStripper stripper = new PDFTextStripper()
+            {
+                @Override
+                protected void processGlyphBuffer(GlyphBuffer buffer)
+                {
+                    for (int i = 0; i < buffer.getGlyphCount(); i++)
+                    {
+                        text.append(buffer.getCharacters(), buffer.getUnicodeStart(i), buffer.getUnicodeLength(i));
+                        xs.add(buffer.getStartX(i));
+                        assertEquals("Helvetica", buffer.getFont(buffer.getFontIndex(i)).getBaseFont());
+                    }
+                    assertEquals(1, buffer.getFontCount());
+                }
+            };
+            stripper.setGlyphBuffer(new GlyphBuffer());
+            stripper.getText(document);
+
+            assertEquals(positions.size(), xs.size());
+            StringBuilder expected = new StringBuilder();
+            for (int i = 0; i < positions.size(); i++)
+            {
+                TextPosition position = positions.get(i);
+                expected.append(position.getCharacter());
+                assertEquals(position.getTextPos().getXPosition(), xs.get(i).floatValue());
+            }
+            assertEquals(expected.toString(), text.toString());
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    /**
+     * Tests that the glyphs shown before an error are processed.
+     *
+     * @throws IOException if the document can't be created
+     */
+    public void testBrokenStream() throws IOException
+    {
+        PDDocument document = createDocument();
+        try
+        {
+            final StringBuilder text = new StringBuilder();
+            PDFTextStripper stripper = new PDFTextStripper()
+            {
+                @Override
+                protected void processOperator(PDFOperator operator, OperandStack operands) throws IOException
+                {
+                    if ("ET".equals(operator.getOperation()))
+                    {
+                        throw new IOException("broken stream");
+                    }
+                    super.processOperator(operator, operands);
+                }
+
+                @Override
+                protected void processGlyphBuffer(GlyphBuffer buffer)
+                {
+                    text.append(buffer.getCharacters(), 0, buffer.getUnicodeStart(buffer.getGlyphCount()));
+                }
+            };
+            stripper.setGlyphBuffer(new GlyphBuffer());
+            try
+            {
+                stripper.getText(document);
+                fail("the error wasn't reported");
+            }
+            catch (IOException e)
+            {
+                assertEquals("Hello WorldSecond line", text.toString());
+            }
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    /**
+     * Tests that the glyphs of a stream processed on its own, e.g. an annotation, are processed.
+     *
+     * @throws IOException if the document can't be created or processed
+     */
+    public void testSubStream() throws IOException
+    {
+        PDDocument document = createDocument();
+        try
+        {
+            final List<Integer> glyphCounts = new ArrayList<Integer>();
+            PDFTextStripper stripper = new PDFTextStripper()
+            {
+                @Override
+                protected void processGlyphBuffer(GlyphBuffer buffer)
+                {
+                    glyphCounts.add(buffer.getGlyphCount());
+                }
+            };
+            stripper.setGlyphBuffer(new GlyphBuffer());
+            stripper.getText(document);
+            assertEquals(1, glyphCounts.size());
+            int pageGlyphs = glyphCounts.get(0);
+
+            PDPage page = (PDPage) document.getDocumentCatalog().getAllPages().get(0);
+            stripper.processSubStream(page.findResources(), page.getContents().getStream());
+            assertEquals(2, glyphCounts.size());
+            assertEquals(pageGlyphs, glyphCounts.get(1).intValue());
+            assertEquals(0, stripper.getGlyphBuffer().getGlyphCount());
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    /**
+     * Tests that the text positions created by the buffer match the ones of the engine.
+     */
+    public void testTextPosition()
+    {
+        GlyphBuffer buffer = new GlyphBuffer();
+        buffer.startPage(90, 612, 792);
+        Matrix textPos = new Matrix();
+        for (int i = 0; i < 1000; i++)
+        {
+            textPos.setValue(0, 0, 12);
+            textPos.setValue(1, 1, 12);
+            textPos.setValue(2, 0, i);
+            textPos.setValue(2, 1, 700 - i % 50);
+            buffer.add(textPos, i + 6, 700 - i % 50, 9, 6, 3, i % 10 == 0 ? "fi" : "a", new int[] { i },
+                    PDType1Font.HELVETICA, 12, 12);
+        }
+        assertEquals(1000, buffer.getGlyphCount());
+        TextPosition position = buffer.getTextPosition(500);
+        assertEquals("fi", position.getCharacter());
+        assertEquals(500, position.getCodePoints()[0]);
+        assertEquals(500f, position.getTextPos().getXPosition());
+        assertEquals(506f, buffer.getEndX(500));
+        assertEquals(9f, position.getHeightDir());
+        assertEquals(6f, buffer.getWidth(500));
+        assertEquals(6f, position.getIndividualWidths()[0]);
+        assertEquals(3f, position.getWidthOfSpace());
+        assertEquals(12f, position.getFontSize());
+        TextPosition expected = new TextPosition(90, 612, 792, textPos, 1005, 651, 9, 6, 3, "a", new int[] { 999 },
+                PDType1Font.HELVETICA, 12, 12);
+        position = buffer.getTextPosition(999);
+        assertEquals(expected.getX(), position.getX());
+        assertEquals(expected.getY(), position.getY());
+        assertEquals(expected.getXDirAdj(), position.getXDirAdj());
+        assertEquals(expected.getYDirAdj(), position.getYDirAdj());
+        assertEquals(expected.getWidthDirAdj(), position.getWidthDirAdj());
+        buffer.clear();
+        assertEquals(0, buffer.getGlyphCount());
+        assertEquals(0, buffer.getFontCount());
+    }
+
+    private PDDocument createDocument() throws IOException
+    {
+        PDDocument document = new PDDocument();
+        PDResources resources = new PDResources();
+        resources.addFont(PDType1Font.HELVETICA, "F1");
+        PDPage page = new PDPage();
+        page.setResources(resources);
+        PDStream stream = new PDStream(document);
+        OutputStream output = stream.createOutputStream();
+        output.write(("BT /F1 12 Tf 100 700 Td (Hello World) Tj 0 -14 Td (Second line) Tj ET "
+                + "BT /F1 12 Tf 100 600 Td [(Kern) -250 (ed)] TJ ET").getBytes("ISO-8859-1"));
+        output.close();
+        page.setContents(stream);
+        document.addPage(page);
+        return document;
+    }
+}
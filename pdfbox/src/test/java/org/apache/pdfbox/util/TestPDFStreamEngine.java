@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.RandomAccessBuffer;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.util.operator.OperandStack;
+import org.apache.pdfbox.util.operator.OperatorProcessor;
+import org.apache.pdfbox.util.operator.PDFOperator;
+import org.apache.pdfbox.util.operator.PrimitiveOperatorProcessor;
+
+/**
+ * Tests the dispatching of operators by {@link PDFStreamEngine}.
+ */
+public class TestPDFStreamEngine extends TestCase
+{
+    private static final String CONTENT = "1 0 0 1 10 20 cm 0 0 m 5.5 5 l /F1 12 Tf S";
+
+    /**
+     * Tests that operators get their operands from the stack or as list, depending on the processor.
+     *
+     * @throws IOException if the stream can't be processed
+     */
+    public void testDispatch() throws IOException
+    {
+        final List<String> calls = new ArrayList<String>();
+        PDFStreamEngine engine = new PDFStreamEngine();
+        engine.registerOperatorProcessor("m", new PrimitiveOperatorProcessor()
+        {
+            @Override
+            public void process(PDFOperator operator, OperandStack operands)
+            {
+                calls.add(operator.getOperation() + operands.getFloat(0) + "," + operands.getFloat(1));
+            }
+        });
+        engine.registerOperatorProcessor("l", new PrimitiveOperatorProcessor()
+        {
+            @Override
+            public void process(PDFOperator operator, OperandStack operands)
+            {
+                calls.add(operator.getOperation() + operands.getFloat(0) + "," + operands.getFloat(1));
+            }
+        });
+        engine.registerOperatorProcessor("Tf", new OperatorProcessor()
+        {
+            @Override
+            public void process(PDFOperator operator, List<COSBase> operands)
+            {
+                calls.add(operator.getOperation() + operands);
+            }
+        });
+        processContent(engine);
+        assertEquals("[m0.0,0.0, l5.5,5.0, Tf[COSName{F1}, COSInt{12}]]", calls.toString());
+        assertEquals(PDFOperator.getOpcode("m"), PDFOperator.getOperator("m").getOpcode());
+        assertTrue(PDFOperator.getOperator("m").getOpcode() != PDFOperator.getOperator("l").getOpcode());
+    }
+
+    /**
+     * Tests that the processors given by the properties are registered and that operators with
+     * an empty value are ignored.
+     *
+     * @throws IOException if the stream can't be processed
+     */
+    public void testProperties() throws IOException
+    {
+        Properties properties = new Properties();
+        properties.setProperty("cm", "org.apache.pdfbox.util.operator.Concatenate");
+        properties.setProperty("S", "");
+        PDFStreamEngine engine = new PDFStreamEngine(properties);
+        processContent(engine);
+        Matrix ctm = engine.getGraphicsState().getCurrentTransformationMatrix();
+        assertEquals(10f, ctm.getXPosition());
+        assertEquals(20f, ctm.getYPosition());
+    }
+
+    /**
+     * Tests that a profile is created and passed to the listener if profiling is enabled.
+     *
+     * @throws IOException if the stream can't be processed
+     */
+    public void testProfiling() throws IOException
+    {
+        final List<ContentStreamProfile> profiles = new ArrayList<ContentStreamProfile>();
+        PDFStreamEngine engine = new PDFStreamEngine();
+        processContent(engine);
+        assertNull(engine.getProfile());
+
+        engine.setProfiling(true);
+        engine.setProfileListener(new ContentStreamProfileListener()
+        {
+            public void streamProcessed(PDFStreamEngine source, ContentStreamProfile profile)
+            {
+                profiles.add(profile);
+            }
+        });
+        processContent(engine);
+        assertEquals(1, profiles.size());
+        ContentStreamProfile profile = profiles.get(0);
+        assertSame(profile, engine.getProfile());
+        assertEquals(1, profile.getOperatorCount("m"));
+        assertEquals(1, profile.getOperatorCount("Tf"));
+        assertEquals(0, profile.getOperatorCount("Tj"));
+        // querying an operator which was never used doesn't assign an opcode to it
+        assertEquals(0, profile.getOperatorCount("NotAnOperator"));
+        assertEquals(0, profile.getOperatorTime("NotAnOperator"));
+        assertEquals(-1, PDFOperator.findOpcode("NotAnOperator"));
+        assertEquals(5, profile.getOperatorCounts().size());
+        assertEquals(CONTENT.length(), profile.getContentBytes());
+        assertTrue(profile.getTotalTime() >= 0);
+    }
+
+    /**
+     * Tests that the operators invoked by other operators are profiled as well.
+     *
+     * @throws IOException if the stream can't be processed
+     */
+    public void testNestedProfiling() throws IOException
+    {
+        Properties properties = new Properties();
+        properties.setProperty("BT", "org.apache.pdfbox.util.operator.BeginText");
+        properties.setProperty("ET", "org.apache.pdfbox.util.operator.EndText");
+        properties.setProperty("'", "org.apache.pdfbox.util.operator.MoveAndShow");
+        properties.setProperty("T*", "org.apache.pdfbox.util.operator.NextLine");
+        properties.setProperty("Td", "org.apache.pdfbox.util.operator.MoveText");
+        PDFStreamEngine engine = new PDFStreamEngine(properties);
+        engine.setProfiling(true);
+        processContent(engine, "BT (a) ' ET");
+        ContentStreamProfile profile = engine.getProfile();
+        assertEquals(1, profile.getOperatorCount("'"));
+        assertEquals(1, profile.getOperatorCount("T*"));
+        assertEquals(1, profile.getOperatorCount("Td"));
+        assertEquals(1, profile.getOperatorCount("Tj"));
+        assertTrue(profile.getOperatorTime("'") >= profile.getOperatorTime("T*"));
+    }
+
+    private void processContent(PDFStreamEngine engine) throws IOException
+    {
+        processContent(engine, CONTENT);
+    }
+
+    private void processContent(PDFStreamEngine engine, String content) throws IOException
+    {
+        COSStream stream = new COSStream(new RandomAccessBuffer());
+        OutputStream output = stream.createUnfilteredStream();
+        output.write(content.getBytes("ISO-8859-1"));
+        output.close();
+        engine.processStream(new PDResources(), stream, new PDRectangle(100, 100), 0);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the {@link SmallMap} class.
+ */
+public class TestSmallMap extends TestCase
+{
+    /**
+     * Checks that the insertion order is kept while the entries are stored
+     * in the arrays and after the map has grown.
+     */
+    public void testInsertionOrder()
+    {
+        Map<String, Integer> expected = new LinkedHashMap<String, Integer>();
+        Map<String, Integer> map = new SmallMap<String, Integer>();
+        for (int i = 0; i < SmallMap.MAX_ARRAY_SIZE * 2; i++)
+        {
+            String key = "key" + ((i * 7) % 100);
+            assertEquals(expected.put(key, i), map.put(key, i));
+            assertEquals(expected, map);
+            assertEquals(expected.keySet().toString(), map.keySet().toString());
+            if (i % 5 == 4)
+            {
+                String removed = "key" + (((i - 2) * 7) % 100);
+                assertEquals(expected.remove(removed), map.remove(removed));
+                assertEquals(expected.keySet().toString(), map.keySet().toString());
+            }
+        }
+        assertEquals(expected.hashCode(), map.hashCode());
+    }
+
+    /**
+     * Checks the views of a small map.
+     */
+    public void testViews()
+    {
+        Map<String, Integer> map = new SmallMap<String, Integer>();
+        map.put("a", 1);
+        map.put("b", 2);
+        map.put("c", 3);
+        assertEquals(null, map.get("d"));
+        assertTrue(map.containsKey(new String("b")));
+        assertTrue(map.containsValue(3));
+        assertFalse(map.containsValue(4));
+
+        for (Map.Entry<String, Integer> entry : map.entrySet())
+        {
+            entry.setValue(entry.getValue() * 10);
+        }
+        assertEquals(Integer.valueOf(20), map.get("b"));
+
+        Iterator<String> keys = map.keySet().iterator();
+        assertEquals("a", keys.next());
+        keys.remove();
+        assertEquals("b", keys.next());
+        assertEquals("c", keys.next());
+        assertFalse(keys.hasNext());
+        assertEquals(2, map.size());
+        assertEquals("[20, 30]", map.values().toString());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.entrySet().iterator().hasNext());
+    }
+
+    /**
+     * Checks that the iterators fail fast if the map is modified while it is iterated, also
+     * when the map grows beyond the arrays.
+     */
+    public void testConcurrentModification()
+    {
+        Map<String, Integer> map = new SmallMap<String, Integer>();
+        for (int i = 0; i < SmallMap.MAX_ARRAY_SIZE; i++)
+        {
+            map.put("key" + i, i);
+        }
+        Iterator<Map.Entry<String, Integer>> entries = map.entrySet().iterator();
+        entries.next();
+        map.put("key0", 100);
+        entries.next();
+        map.put("grown", -1);
+        try
+        {
+            entries.next();
+            fail("ConcurrentModificationException expected");
+        }
+        catch (ConcurrentModificationException expected)
+        {
+            // the map has replaced its arrays
+        }
+
+        map = new SmallMap<String, Integer>();
+        map.put("a", 1);
+        map.put("b", 2);
+        Iterator<String> keys = map.keySet().iterator();
+        keys.next();
+        map.remove("b");
+        try
+        {
+            keys.remove();
+            fail("ConcurrentModificationException expected");
+        }
+        catch (ConcurrentModificationException expected)
+        {
+            // the entry has been removed from the map
+        }
+    }
+}
@@ -26,6 +26,11 @@ import java.io.LineNumberReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
@@ -34,6 +39,8 @@ import junit.framework.TestSuite;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
 
 
 /**
@@ -392,6 +399,80 @@ public class TestTextStripper extends TestCase
             }
     }
 
+    /**
+     * Test that the parallel extraction of page ranges gives the same text as the sequential one.
+     *
+     * @throws Exception when there is an exception
+     */
+    public void testParallelExtraction() throws Exception
+    {
+        PDDocument document = PDDocument.loadReadOnly(new File("src/test/resources/input/cweb.pdf"), null, null);
+        final ExecutorService executorService = Executors.newFixedThreadPool(3);
+        try
+        {
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setPageStart("<page>");
+            stripper.setStartPage(2);
+            stripper.setEndPage(document.getNumberOfPages() - 1);
+            String expected = stripper.getText(document);
+            int totalChars = stripper.getTotalCharCnt();
+
+            final AtomicInteger taskCount = new AtomicInteger();
+            Executor executor = new Executor()
+            {
+                public void execute(Runnable command)
+                {
+                    taskCount.incrementAndGet();
+                    executorService.execute(command);
+                }
+            };
+            stripper.setExecutor(executor);
+            for (int pagesPerTask = 1; pagesPerTask <= 3; pagesPerTask++)
+            {
+                taskCount.set(0);
+                stripper.setPagesPerTask(pagesPerTask);
+                assertEquals(expected, stripper.getText(document));
+                assertEquals(totalChars, stripper.getTotalCharCnt());
+                int pages = document.getNumberOfPages() - 2;
+                assertEquals((pages + pagesPerTask - 1) / pagesPerTask, taskCount.get());
+            }
+
+            // the bookmarks restrict the pages within the page range
+            List<?> pages = document.getDocumentCatalog().getAllPages();
+            PDOutlineItem startBookmark = new PDOutlineItem();
+            startBookmark.setDestination((PDPage) pages.get(2));
+            PDOutlineItem endBookmark = new PDOutlineItem();
+            endBookmark.setDestination((PDPage) pages.get(4));
+            stripper.setStartBookmark(startBookmark);
+            stripper.setEndBookmark(endBookmark);
+            stripper.setExecutor(null);
+            expected = stripper.getText(document);
+            assertEquals(3, expected.split("<page>").length - 1);
+            stripper.setExecutor(executor);
+            taskCount.set(0);
+            stripper.setPagesPerTask(1);
+            assertEquals(expected, stripper.getText(document));
+            assertEquals(3, taskCount.get());
+
+            // the same bookmark pointing to nothing as start and end extracts nothing
+            PDOutlineItem nowhere = new PDOutlineItem();
+            stripper.setStartBookmark(nowhere);
+            stripper.setEndBookmark(nowhere);
+            stripper.setExecutor(null);
+            expected = stripper.getText(document);
+            assertEquals(-1, expected.indexOf("<page>"));
+            stripper.setExecutor(executor);
+            taskCount.set(0);
+            assertEquals(expected, stripper.getText(document));
+            assertEquals(0, taskCount.get());
+        }
+        finally
+        {
+            executorService.shutdown();
+            document.close();
+        }
+    }
+
     /**
      * Set the tests in the suite for this test class.
      *